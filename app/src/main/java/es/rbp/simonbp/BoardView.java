@@ -0,0 +1,389 @@
+package es.rbp.simonbp;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.view.Choreographer;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+
+import es.rbp.simonbp.core.Board;
+import es.rbp.simonbp.core.BoardGeometry;
+import es.rbp.simonbp.core.PadHighlights;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Tablero entero en una sola vista. Dibuja todos los botones en una pasada con los pinceles y los textos creados una
+ * vez, decide qué botón se ha pulsado con {@link BoardGeometry} y anima todos los botones desde un único callback
+ * del Choreographer con {@link PadHighlights}. Así una pulsación sólo invalida esta vista, no hay que medir ni
+ * colocar nada, y el coste de un frame no depende del número de botones ni de cuántos se estén animando.
+ * <p>
+ * Avisa de cada dedo que baja o sube con el instante del evento, como el listener de toques de los botones a los
+ * que sustituye, y de la pulsación larga si un solo dedo se queda sobre un botón.
+ * <p>
+ * Para jugar cara a cara puede dibujar dos copias del tablero, cada una en una mitad de la vista y la de arriba
+ * girada para el jugador de enfrente. Las dos copias comparten las animaciones, el callback del Choreographer y la
+ * pasada de dibujo: los botones de la copia de abajo son del 1 al número de botones y los de la de arriba siguen
+ * a continuación.
+ *
+ * @see PlayActivity
+ * @see MultiplayerActivity
+ */
+@SuppressLint("ViewConstructor")
+public class BoardView extends View implements Choreographer.FrameCallback {
+
+    /**
+     * Recibe los toques del tablero
+     */
+    public interface Listener {
+
+        /**
+         * Un dedo baja sobre el tablero.
+         *
+         * @param dedo     identificador del dedo.
+         * @param numero   número del botón bajo el dedo, contando las dos copias si las hay, o 0 si no hay ninguno.
+         * @param instante instante del evento en milisegundos, con la base de SystemClock.uptimeMillis().
+         */
+        void onPadPulsado(int dedo, int numero, long instante);
+
+        /**
+         * Un dedo sube del tablero o se pierde.
+         *
+         * @param dedo identificador del dedo.
+         */
+        void onPadSoltado(int dedo);
+
+        /**
+         * @param numero número del botón mantenido.
+         */
+        void onPadLargo(int numero);
+    }
+
+    private final BoardGeometry geometria;
+
+    private final PadHighlights animaciones;
+
+    /**
+     * Un pincel por botón con su color
+     */
+    private final Paint[] pinceles;
+
+    private final Paint pincelTexto;
+
+    /**
+     * Número de cada botón ya convertido a texto
+     */
+    private final String[] textos;
+
+    private final Choreographer choreographer;
+
+    /**
+     * Copias del tablero que se dibujan: 1, o 2 para jugar cara a cara
+     */
+    private final int copias;
+
+    /**
+     * Esquina de la copia de abajo dentro de la vista. Con una sola copia el tablero empieza en la esquina de la vista
+     */
+    private float origenX, origenY;
+
+    /**
+     * Avisa de la pulsación larga del botón mantenido. Se crea una vez y se reprograma en cada pulsación
+     */
+    private final Runnable pulsacionLarga = new Runnable() {
+        @Override
+        public void run() {
+            if (mantenido != 0 && listener != null)
+                listener.onPadLargo(mantenido);
+        }
+    };
+
+    private Listener listener;
+
+    /**
+     * Botón bajo el único dedo sobre el tablero, o 0 si no hay ninguno o hay más de un dedo
+     */
+    private int mantenido;
+
+    /**
+     * Distancia del centro del texto a su línea base
+     */
+    private float desplazamientoTexto;
+
+    /**
+     * Indica si hay un frame pedido al Choreographer
+     */
+    private boolean programado;
+
+    /**
+     * Debe crearse en el hilo principal.
+     *
+     * @param context contexto del activity.
+     * @param tablero tablero que se dibuja.
+     */
+    public BoardView(Context context, Board tablero) {
+        this(context, tablero, 1);
+    }
+
+    /**
+     * Debe crearse en el hilo principal.
+     *
+     * @param context contexto del activity.
+     * @param tablero tablero que se dibuja.
+     * @param copias  1, o 2 para dibujar una copia del tablero en cada mitad de la vista.
+     */
+    public BoardView(Context context, Board tablero, int copias) {
+        super(context);
+        if (copias != 1 && copias != 2)
+            throw new IllegalArgumentException("Copias no soportadas: " + copias);
+        this.copias = copias;
+        geometria = new BoardGeometry(tablero);
+        animaciones = new PadHighlights(tablero.size() * copias);
+        pinceles = new Paint[tablero.size()];
+        textos = new String[tablero.size()];
+        for (int i = 0; i < pinceles.length; i++) {
+            pinceles[i] = new Paint(Paint.ANTI_ALIAS_FLAG);
+            pinceles[i].setColor(tablero.getPad(i + 1).getColor());
+            textos[i] = String.valueOf(i + 1);
+        }
+        pincelTexto = new Paint(Paint.ANTI_ALIAS_FLAG);
+        pincelTexto.setColor(Color.BLACK);
+        pincelTexto.setTextAlign(Paint.Align.CENTER);
+        choreographer = Choreographer.getInstance();
+        setSoundEffectsEnabled(false);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Cambia el tamaño de los botones. Se llama al crear la vista y cada vez que cambia el tamaño de la ventana.
+     *
+     * @param lado   diámetro de cada botón, en píxeles.
+     * @param margen espacio alrededor de cada botón, en píxeles.
+     * @param texto  tamaño del número de cada botón, en píxeles.
+     */
+    public void setMedidas(int lado, int margen, float texto) {
+        geometria.colocar(lado, margen);
+        colocarCopias();
+        pincelTexto.setTextSize(texto);
+        Paint.FontMetrics metricas = pincelTexto.getFontMetrics();
+        desplazamientoTexto = -(metricas.ascent + metricas.descent) / 2;
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * Hace crecer un botón hasta {@link PadAnimator#ESCALA_PULSADO}.
+     *
+     * @param numero   número del botón, contando las dos copias si las hay.
+     * @param duracion duración de la animación en milisegundos.
+     */
+    public void crecer(int numero, int duracion) {
+        animar(numero, PadAnimator.ESCALA_PULSADO, duracion);
+    }
+
+    /**
+     * Devuelve un botón a su tamaño original.
+     *
+     * @param numero   número del botón, contando las dos copias si las hay.
+     * @param duracion duración de la animación en milisegundos.
+     */
+    public void encoger(int numero, int duracion) {
+        animar(numero, 1f, duracion);
+    }
+
+    private void animar(int numero, float escala, int duracion) {
+        animaciones.animar(numero, escala, duracion * 1_000_000L);
+        if (!programado) {
+            programado = true;
+            choreographer.postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Para las animaciones dejando cada botón con la escala que tenga.
+     */
+    public void cancel() {
+        choreographer.removeFrameCallback(this);
+        programado = false;
+        animaciones.cancel();
+        cancelarPulsacion();
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        programado = false;
+        if (animaciones.avanzar(frameTimeNanos)) {
+            programado = true;
+            choreographer.postFrameCallback(this);
+        }
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        setMeasuredDimension(resolveSize(geometria.getAncho(), widthMeasureSpec),
+                resolveSize(geometria.getAlto() * copias, heightMeasureSpec));
+    }
+
+    /**
+     * Con dos copias centra la de abajo en la mitad de abajo de la vista
+     */
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        colocarCopias();
+    }
+
+    private void colocarCopias() {
+        if (copias == 1)
+            return;
+        origenX = (getWidth() - geometria.getAncho()) / 2f;
+        origenY = getHeight() / 2f + (getHeight() / 2f - geometria.getAlto()) / 2f;
+    }
+
+    /**
+     * Dibuja todos los botones de todas las copias en una pasada, cada uno con su escala actual. La copia de arriba
+     * es la de abajo girada media vuelta alrededor del centro de la vista
+     */
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (copias == 1) {
+            dibujarCopia(canvas, 0);
+            return;
+        }
+        canvas.save();
+        canvas.translate(origenX, origenY);
+        dibujarCopia(canvas, 0);
+        canvas.restore();
+        canvas.save();
+        canvas.rotate(180, getWidth() / 2f, getHeight() / 2f);
+        canvas.translate(origenX, origenY);
+        dibujarCopia(canvas, pinceles.length);
+        canvas.restore();
+    }
+
+    /**
+     * @param primero número del primer botón de la copia menos 1.
+     */
+    private void dibujarCopia(Canvas canvas, int primero) {
+        float radio = geometria.getRadio();
+        for (int numero = 1; numero <= pinceles.length; numero++) {
+            float x = geometria.getCentroX(numero);
+            float y = geometria.getCentroY(numero);
+            float escala = animaciones.getEscala(primero + numero);
+            canvas.drawCircle(x, y, radio * escala, pinceles[numero - 1]);
+            if (escala != 1f) {
+                canvas.save();
+                canvas.scale(escala, escala, x, y);
+                canvas.drawText(textos[numero - 1], x, y + desplazamientoTexto, pincelTexto);
+                canvas.restore();
+            } else {
+                canvas.drawText(textos[numero - 1], x, y + desplazamientoTexto, pincelTexto);
+            }
+        }
+    }
+
+    /**
+     * Avisa de cada dedo en cuanto baja, con el botón que tiene debajo y el instante del evento, y de cada dedo que
+     * sube. Si el primer dedo baja sobre un botón programa la pulsación larga, que se pierde si el dedo sale del botón
+     * o baja otro dedo.
+     * <p>
+     * Deshabilitado no avisa de los dedos que bajan, pero sí de los que suben para que nadie se quede con un dedo
+     * colgado.
+     */
+    @SuppressLint("ClickableViewAccessibility")
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        int accion = event.getActionMasked();
+        switch (accion) {
+            case MotionEvent.ACTION_DOWN:
+            case MotionEvent.ACTION_POINTER_DOWN:
+                cancelarPulsacion();
+                if (!isEnabled())
+                    break;
+                int indice = event.getActionIndex();
+                int numero = padEn(event.getX(indice), event.getY(indice));
+                if (accion == MotionEvent.ACTION_DOWN && numero != 0) {
+                    mantenido = numero;
+                    postDelayed(pulsacionLarga, ViewConfiguration.getLongPressTimeout());
+                }
+                if (listener != null)
+                    listener.onPadPulsado(event.getPointerId(indice), numero, event.getEventTime());
+                break;
+            case MotionEvent.ACTION_MOVE:
+                if (mantenido != 0 && padEn(event.getX(), event.getY()) != mantenido)
+                    cancelarPulsacion();
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_POINTER_UP:
+                cancelarPulsacion();
+                if (listener != null)
+                    listener.onPadSoltado(event.getPointerId(event.getActionIndex()));
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                cancelarPulsacion();
+                for (int i = 0; i < event.getPointerCount() && listener != null; i++) {
+                    listener.onPadSoltado(event.getPointerId(i));
+                }
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * @return número del botón en ese punto de la vista contando las dos copias, o 0 si no hay ninguno.
+     */
+    private int padEn(float x, float y) {
+        if (copias == 1)
+            return geometria.padEn(x, y);
+        int primero = 0;
+        if (y < getHeight() / 2f) {
+            // La copia de arriba está girada: se deshace el giro y se busca en la de abajo
+            x = getWidth() - x;
+            y = getHeight() - y;
+            primero = pinceles.length;
+        }
+        int numero = geometria.padEn(x - origenX, y - origenY);
+        return numero == 0 ? 0 : primero + numero;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        super.setEnabled(enabled);
+        if (!enabled)
+            cancelarPulsacion();
+    }
+
+    private void cancelarPulsacion() {
+        mantenido = 0;
+        removeCallbacks(pulsacionLarga);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        cancel();
+    }
+
+    /**
+     * @return geometría de una copia del tablero, relativa a su esquina.
+     */
+    public BoardGeometry getGeometria() {
+        return geometria;
+    }
+
+    public int getCopias() {
+        return copias;
+    }
+
+    PadHighlights getAnimaciones() {
+        return animaciones;
+    }
+}
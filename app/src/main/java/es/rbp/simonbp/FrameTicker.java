@@ -0,0 +1,79 @@
+package es.rbp.simonbp;
+
+import android.view.Choreographer;
+
+import es.rbp.simonbp.core.Sequencer;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Hace avanzar un {@link Sequencer} una vez por frame con el Choreographer, de forma que los eventos se despachan
+ * alineados con el refresco de la pantalla. Sólo pide frames mientras quedan eventos pendientes y el secuenciador no
+ * está pausado.
+ */
+public class FrameTicker implements Choreographer.FrameCallback {
+
+    private final Sequencer sequencer;
+
+    private final Choreographer choreographer;
+
+    /**
+     * Indica si hay un frame pedido al Choreographer
+     */
+    private boolean programado;
+
+    /**
+     * Debe crearse en el hilo principal.
+     *
+     * @param sequencer secuenciador a avanzar. Su reloj debe estar basado en System.nanoTime().
+     */
+    public FrameTicker(Sequencer sequencer) {
+        this.sequencer = sequencer;
+        this.choreographer = Choreographer.getInstance();
+    }
+
+    /**
+     * Pide el siguiente frame si no está pedido ya. Se debe llamar después de programar eventos.
+     */
+    public void start() {
+        if (!programado && !sequencer.isPausado()) {
+            programado = true;
+            choreographer.postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        programado = false;
+        sequencer.tick(frameTimeNanos);
+        if (sequencer.getPendientes() > 0)
+            start();
+    }
+
+    /**
+     * Congela el secuenciador y deja de pedir frames. Los eventos pendientes se conservan.
+     */
+    public void pause() {
+        choreographer.removeFrameCallback(this);
+        programado = false;
+        sequencer.pause();
+    }
+
+    /**
+     * Reanuda el secuenciador donde se quedó y vuelve a pedir frames si quedan eventos.
+     */
+    public void resume() {
+        sequencer.resume();
+        if (sequencer.getPendientes() > 0)
+            start();
+    }
+
+    /**
+     * Deja de pedir frames y cancela los eventos pendientes.
+     */
+    public void cancel() {
+        choreographer.removeFrameCallback(this);
+        programado = false;
+        sequencer.cancel();
+    }
+}
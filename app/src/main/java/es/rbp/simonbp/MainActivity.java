@@ -3,8 +3,6 @@ package es.rbp.simonbp;
 import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.content.Intent;
-import android.content.res.AssetFileDescriptor;
-import android.media.MediaPlayer;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
@@ -13,9 +11,15 @@ import android.view.MotionEvent;
 import android.view.View;
 import android.view.Window;
 import android.widget.Button;
+import android.widget.TextView;
 
-import java.io.IOException;
+import es.rbp.simonbp.core.GameHistoryStore;
+import es.rbp.simonbp.core.GameRecord;
+import es.rbp.simonbp.core.NoteEngine;
+import es.rbp.simonbp.core.SimonConfig;
 
+import static es.rbp.simonbp.PlayActivity.ADAPTATIVO_EXTRA;
+import static es.rbp.simonbp.PlayActivity.BOTONES_EXTRA;
 import static es.rbp.simonbp.PlayActivity.DIFICULTAD_EXTRA;
 
 /**
@@ -24,13 +28,64 @@ import static es.rbp.simonbp.PlayActivity.DIFICULTAD_EXTRA;
  * Esta app es una version del famoso juego Simon que consiste en repetir en el orden correcto una serie de números aleatorios
  * generados por la cpu. Para ganar debes terminar la serie completa sin ningún fallo. Si se falla en algún número de la serie
  * se termina el juego y pierdes la partida
- * Menú principal de la app. Aquí se elige la dificultad a la que se desea jugar. También hay un easter egg que lleva a mi GitHub
+ * Menú principal de la app. Aquí se elige la dificultad a la que se desea jugar, o el modo infinito, y el número de botones del tablero. También hay un easter egg que lleva a mi GitHub
  */
 public class MainActivity extends Activity implements View.OnClickListener, View.OnTouchListener {
 
-    private MediaPlayer mediaPlayer;
+    /**
+     * Tamaños de tablero que se pueden elegir, en el orden en el que se recorren
+     */
+    private static final int[] TAMANOS_TABLERO = {4, 6, 9, 12, 16};
+
+    /**
+     * Motor de notas para que suenen distintas notas al pulsar en los botones de dificultad. Es null hasta que se
+     * dibuja el primer frame
+     */
+    private NoteEngine noteEngine;
+
+    /**
+     * Muestra el récord en cuanto está abierto el historial
+     *
+     * @see MainActivity#mostrarRecord()
+     */
+    private final Runnable mostrarRecord = new Runnable() {
+        @Override
+        public void run() {
+            mostrarRecord();
+        }
+    };
+
+    /**
+     * true si ya se ha avisado al sistema de que el menú está completo
+     */
+    private boolean dibujado;
+
+    /**
+     * Label con el récord del modo infinito
+     *
+     * @see MainActivity#mostrarRecord()
+     */
+    private TextView lblRecord;
+
+    /**
+     * Botón que cambia el número de botones del tablero
+     */
+    private Button btnBotones;
 
-    private AssetFileDescriptor doo, re, mi;
+    /**
+     * Número de botones del tablero de la próxima partida
+     */
+    private int numeroBotones = SimonConfig.NUMERO_BOTONES;
+
+    /**
+     * Botón que cambia entre el ritmo fijo y el adaptativo
+     */
+    private Button btnRitmo;
+
+    /**
+     * true si el ritmo de la próxima partida se adapta al jugador
+     */
+    private boolean adaptativo;
 
     @SuppressLint("ClickableViewAccessibility")
     @Override
@@ -43,23 +98,17 @@ public class MainActivity extends Activity implements View.OnClickListener, View
             getWindow().setStatusBarColor(getResources().getColor(R.color.colorPrimary));
         }
 
-        // Cargo el reproductor de música para que suenen distintas notas al pulsar en los botones de dificultad
-        mediaPlayer = new MediaPlayer();
-        mediaPlayer.setOnPreparedListener(new MediaPlayer.OnPreparedListener() {
+        // Cargo el motor de notas para que suenen distintas notas al pulsar en los botones de dificultad. Las notas
+        // ya las está decodificando o sintetizando la aplicación, y el backend no hace falta para el primer frame
+        final SimonApplication app = (SimonApplication) getApplication();
+        app.despuesDelPrimerFrame(new Runnable() {
             @Override
-            public void onPrepared(MediaPlayer mp) {
-                mediaPlayer.start();
+            public void run() {
+                if (!isDestroyed())
+                    noteEngine = new NoteEngine(app.crearBackend());
             }
         });
 
-        try {
-            doo = getAssets().openFd("do.mp3");
-            re = getAssets().openFd("re.mp3");
-            mi = getAssets().openFd("mi.mp3");
-        } catch (IOException e) {
-            Log.e("ERROR", e.toString());
-        }
-
         // Inicializo los botones y les asigno los listeners
         Button btnFacil = findViewById(R.id.btnEasy);
         btnFacil.setOnClickListener(this);
@@ -73,14 +122,62 @@ public class MainActivity extends Activity implements View.OnClickListener, View
         btnDificil.setOnClickListener(this);
         btnDificil.setOnTouchListener(this);
 
+        Button btnInfinito = findViewById(R.id.btnEndless);
+        btnInfinito.setOnClickListener(this);
+        btnInfinito.setOnTouchListener(this);
+
+        btnBotones = findViewById(R.id.btnBotones);
+        btnBotones.setOnClickListener(this);
+        btnBotones.setOnTouchListener(this);
+        btnBotones.setText(getString(R.string.botones, numeroBotones));
+
+        btnRitmo = findViewById(R.id.btnRitmo);
+        btnRitmo.setOnClickListener(this);
+        btnRitmo.setOnTouchListener(this);
+        btnRitmo.setText(adaptativo ? R.string.ritmoAdaptativo : R.string.ritmoFijo);
+
+        Button btnTurnos = findViewById(R.id.btnTurnos);
+        btnTurnos.setOnClickListener(this);
+        btnTurnos.setOnTouchListener(this);
+
+        Button btnCaraACara = findViewById(R.id.btnCaraACara);
+        btnCaraACara.setOnClickListener(this);
+        btnCaraACara.setOnTouchListener(this);
+
+        Button btnRepeticion = findViewById(R.id.btnRepeticion);
+        btnRepeticion.setOnClickListener(this);
+        btnRepeticion.setOnTouchListener(this);
+
+        lblRecord = findViewById(R.id.lblRecord);
+
         // Inicializo el View invisible con el easter egg
         View easterEgg = findViewById(R.id.easterEgg);
         easterEgg.setOnClickListener(this);
     }
 
+    @Override
+    protected void onResume() {
+        super.onResume();
+        ((SimonApplication) getApplication()).cuandoArranque(mostrarRecord);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (noteEngine != null)
+            noteEngine.release();
+    }
+
     /**
      * Si pulso en el view con el easter egg abro el navegador o la app de GitHub para acceder a mi Guthub.
      * <p>
+     * Si pulso en el botón del tablero paso al siguiente tamaño, y en el del ritmo cambio entre el fijo y el
+     * adaptativo.
+     * <p>
+     * Si pulso en los botones de dos jugadores empiezo una partida por turnos o cara a cara con el tablero elegido.
+     * <p>
+     * Si pulso en el botón de la repetición veo la última partida.
+     * <p>
      * Si pulso en los botones cargo el nivel con la dificultad seleccionada
      */
     @Override
@@ -90,18 +187,35 @@ public class MainActivity extends Activity implements View.OnClickListener, View
             intent.setData(Uri.parse("https://github.com/Richyy999"));
             startActivity(intent);
             Log.d("EASTER EGG", "DESCUBRIDO");
+        } else if (v.getId() == R.id.btnBotones) {
+            cambiarTablero();
+        } else if (v.getId() == R.id.btnRitmo) {
+            adaptativo = !adaptativo;
+            btnRitmo.setText(adaptativo ? R.string.ritmoAdaptativo : R.string.ritmoFijo);
+        } else if (v.getId() == R.id.btnTurnos || v.getId() == R.id.btnCaraACara) {
+            Intent intent = new Intent(MainActivity.this, MultiplayerActivity.class);
+            intent.putExtra(MultiplayerActivity.CARA_A_CARA_EXTRA, v.getId() == R.id.btnCaraACara);
+            intent.putExtra(BOTONES_EXTRA, numeroBotones);
+            startActivity(intent);
+        } else if (v.getId() == R.id.btnRepeticion) {
+            startActivity(new Intent(MainActivity.this, ReplayActivity.class));
         } else {
-            int dificultad = 6;
+            int dificultad = SimonConfig.FACIL;
             switch (v.getId()) {
                 case R.id.btnMedium:
-                    dificultad = 9;
+                    dificultad = SimonConfig.MEDIO;
                     break;
                 case R.id.btnDifficult:
-                    dificultad = 12;
+                    dificultad = SimonConfig.DIFICIL;
+                    break;
+                case R.id.btnEndless:
+                    dificultad = SimonConfig.INFINITO;
                     break;
             }
             Intent intent = new Intent(MainActivity.this, PlayActivity.class);
             intent.putExtra(DIFICULTAD_EXTRA, dificultad);
+            intent.putExtra(BOTONES_EXTRA, numeroBotones);
+            intent.putExtra(ADAPTATIVO_EXTRA, adaptativo);
             startActivity(intent);
         }
     }
@@ -112,26 +226,72 @@ public class MainActivity extends Activity implements View.OnClickListener, View
     @SuppressLint("ClickableViewAccessibility")
     @Override
     public boolean onTouch(View v, MotionEvent event) {
-        if (event.getAction() == MotionEvent.ACTION_DOWN) {
-            try {
-                mediaPlayer.stop();
-                mediaPlayer.reset();
-                switch (v.getId()) {
-                    case R.id.btnEasy:
-                        mediaPlayer.setDataSource(doo.getFileDescriptor(), doo.getStartOffset(), doo.getLength());
-                        break;
-                    case R.id.btnMedium:
-                        mediaPlayer.setDataSource(re.getFileDescriptor(), re.getStartOffset(), re.getLength());
-                        break;
-                    case R.id.btnDifficult:
-                        mediaPlayer.setDataSource(mi.getFileDescriptor(), mi.getStartOffset(), mi.getLength());
-                        break;
-                }
-                mediaPlayer.prepare();
-            } catch (IOException e) {
-                Log.e("ERROR", e.toString());
+        if (event.getAction() == MotionEvent.ACTION_DOWN && noteEngine != null) {
+            switch (v.getId()) {
+                case R.id.btnEasy:
+                    noteEngine.play(1);
+                    break;
+                case R.id.btnMedium:
+                    noteEngine.play(2);
+                    break;
+                case R.id.btnDifficult:
+                    noteEngine.play(3);
+                    break;
+                case R.id.btnEndless:
+                    noteEngine.play(4);
+                    break;
+                case R.id.btnBotones:
+                    noteEngine.play(5);
+                    break;
+                case R.id.btnRitmo:
+                    noteEngine.play(6);
+                    break;
+                case R.id.btnTurnos:
+                    noteEngine.play(1);
+                    break;
+                case R.id.btnCaraACara:
+                    noteEngine.play(3);
+                    break;
+                case R.id.btnRepeticion:
+                    noteEngine.play(5);
+                    break;
             }
         }
         return false;
     }
+
+    /**
+     * Pasa al siguiente tamaño de tablero. Después del más grande vuelve al más pequeño.
+     */
+    private void cambiarTablero() {
+        int siguiente = TAMANOS_TABLERO[0];
+        for (int tamano : TAMANOS_TABLERO) {
+            if (tamano > numeroBotones) {
+                siguiente = tamano;
+                break;
+            }
+        }
+        numeroBotones = siguiente;
+        btnBotones.setText(getString(R.string.botones, numeroBotones));
+    }
+
+    /**
+     * Muestra la mejor ronda alcanzada en el modo infinito, si se ha jugado alguna vez. La clasificación ya está en
+     * memoria, así que no se lee nada del disco. Con el récord el menú está completo, y se avisa al sistema para
+     * poder medir el arranque.
+     */
+    private void mostrarRecord() {
+        if (!dibujado && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            dibujado = true;
+            reportFullyDrawn();
+        }
+        GameHistoryStore historial = ((SimonApplication) getApplication()).getHistorial();
+        GameRecord mejor = historial == null ? null : historial.getMejor(SimonConfig.INFINITO);
+        if (mejor == null) {
+            lblRecord.setVisibility(View.GONE);
+        } else {
+            lblRecord.setText(getString(R.string.record, mejor.getRondas()));
+            lblRecord.setVisibility(View.VISIBLE);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,553 @@
+package es.rbp.simonbp;
+
+import androidx.appcompat.app.AlertDialog;
+import androidx.appcompat.app.AppCompatActivity;
+
+import android.content.DialogInterface;
+import android.content.res.Configuration;
+import android.graphics.Color;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.Window;
+import android.view.animation.Animation;
+import android.view.animation.AnimationUtils;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import es.rbp.simonbp.core.Board;
+import es.rbp.simonbp.core.Clock;
+import es.rbp.simonbp.core.InputTrace;
+import es.rbp.simonbp.core.Metrics;
+import es.rbp.simonbp.core.MultiplayerEngine;
+import es.rbp.simonbp.core.MultiplayerListener;
+import es.rbp.simonbp.core.NoteEngine;
+import es.rbp.simonbp.core.ReplayScript;
+import es.rbp.simonbp.core.Sequencer;
+import es.rbp.simonbp.core.SimonConfig;
+import es.rbp.simonbp.core.TouchInput;
+import es.rbp.simonbp.core.UniformGenerator;
+
+import static es.rbp.simonbp.PlayActivity.BOTONES_EXTRA;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Activity de las partidas de dos jugadores en el mismo dispositivo. Las reglas están en {@link MultiplayerEngine} y
+ * este activity sólo las muestra.
+ * <p>
+ * Por turnos hay un solo tablero: cada jugador repite la serie, añade un número y le pasa el móvil al otro. Cara a
+ * cara el tablero se dibuja dos veces, una en cada mitad de la pantalla y la de arriba girada, y los dos jugadores
+ * repiten a la vez la serie que muestra la cpu.
+ * <p>
+ * Aunque haya dos jugadores sólo hay un {@link BoardView}, un {@link NoteEngine} y un {@link Sequencer}: la serie
+ * de la cpu suena una vez y se anima en las dos copias con el mismo callback del Choreographer y la misma pasada de
+ * dibujo. Los toques de las dos mitades llegan intercalados en los mismos eventos de la pantalla y se le pasan al
+ * motor en ese orden. La partida se graba en un {@link InputTrace} que se muestra en el log al terminar, así que
+ * cualquier partida se puede repetir en un test.
+ */
+public class MultiplayerActivity extends AppCompatActivity implements View.OnClickListener, MultiplayerListener,
+        Sequencer.Listener, ReplayScript.Listener, BoardView.Listener {
+
+    /**
+     * Extra del intent que indica si se juega cara a cara en vez de por turnos
+     */
+    public static final String CARA_A_CARA_EXTRA = "CARA_A_CARA";
+
+    private static final int JUGADORES = 2;
+
+    /**
+     * Duración máxima de la animación de crecer o encoger los botones pulsados
+     */
+    private static final int DURATION_CRECER_ENCOGER_BOTONES = 250;
+
+    /**
+     * Duración de cada paso de la cuenta atrás
+     */
+    private static final int DURATION_CRECER_ENCOGER_TEXT_VIEW = 700;
+
+    /**
+     * Tiempo de espera entre el final de una ronda y el turno de la cpu
+     */
+    private static final int DELAY_SIGUIENTE_RONDA = 1000;
+
+    /**
+     * Retraso desde que empieza el turno de la cpu hasta la primera nota de la serie
+     */
+    private static final int DELAY_PRIMERA_NOTA = 100;
+
+    /**
+     * Tipos de eventos del secuenciador
+     *
+     * @see MultiplayerActivity#onEvento(int, int)
+     */
+    private static final int EVENTO_ENCOGER = 1, EVENTO_CUENTA_ATRAS = 2, EVENTO_SERIE = 3;
+
+    /**
+     * Eventos que caben en el secuenciador sin reservar memoria
+     */
+    private static final int CAPACIDAD_SECUENCIADOR = 64;
+
+    private Board tablero;
+
+    /**
+     * Tablero de los dos jugadores. Cara a cara tiene dos copias
+     */
+    private BoardView vistaTablero;
+
+    /**
+     * Filtro de los toques de las dos copias del tablero
+     */
+    private TouchInput entrada;
+
+    private MultiplayerEngine engine;
+
+    /**
+     * Todas las entradas de la partida, para poder repetirla
+     */
+    private InputTrace traza;
+
+    private Sequencer sequencer;
+
+    private FrameTicker ticker;
+
+    private ReplayScript replay;
+
+    /**
+     * Motor de notas. Es null hasta que se dibuja el primer frame
+     */
+    private NoteEngine noteEngine;
+
+    /**
+     * true entre onPause y onResume
+     */
+    private boolean pausado;
+
+    private Metrics metrics;
+
+    private View opacityPane;
+
+    /**
+     * Label con la cuenta atrás, el jugador al que le toca por turnos y el resultado
+     */
+    private TextView lblInfo;
+
+    /**
+     * Label de cada jugador: el 0 está abajo y el 1 arriba, girado
+     */
+    private TextView[] lblJugadores;
+
+    private Animation animacionCuentaAtras;
+
+    private Animation animacionResultado;
+
+    /**
+     * true mientras se espera a que el siguiente jugador coja el móvil, por turnos
+     *
+     * @see MultiplayerActivity#onTurnoJugador(int)
+     */
+    private boolean pasando;
+
+    /**
+     * Duración actual de la animación de crecer o encoger los botones
+     */
+    private int duracionAnimacion;
+
+    private AlertDialog dialogoSalir;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        requestWindowFeature(Window.FEATURE_NO_TITLE);
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_multiplayer);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            getWindow().setStatusBarColor(getResources().getColor(R.color.colorPrimaryDark));
+        }
+
+        boolean caraACara = getIntent().getBooleanExtra(CARA_A_CARA_EXTRA, false);
+        int numeroBotones = getIntent().getIntExtra(BOTONES_EXTRA, SimonConfig.NUMERO_BOTONES);
+        SimonApplication app = (SimonApplication) getApplication();
+        tablero = Board.crear(numeroBotones, app.getNumeroNotas(numeroBotones));
+        int copias = caraACara ? JUGADORES : 1;
+        entrada = new TouchInput(numeroBotones * copias);
+
+        long semilla = System.nanoTime();
+        MultiplayerEngine.Modo modo = caraACara ? MultiplayerEngine.Modo.CARA_A_CARA : MultiplayerEngine.Modo.TURNOS;
+        engine = new MultiplayerEngine(modo, SimonConfig.infinito(numeroBotones), JUGADORES, new UniformGenerator(),
+                semilla);
+        engine.setListener(this);
+        traza = new InputTrace();
+        engine.setTraza(traza);
+        Log.d("SEMILLA", String.valueOf(semilla));
+
+        metrics = app.getMetrics();
+        sequencer = new Sequencer(Clock.SISTEMA, CAPACIDAD_SECUENCIADOR);
+        sequencer.setListener(this);
+        ticker = new FrameTicker(sequencer);
+        replay = new ReplayScript(sequencer, this, metrics);
+        cargarNotas(numeroBotones);
+        duracionAnimacion = DURATION_CRECER_ENCOGER_BOTONES;
+
+        animacionCuentaAtras = AnimationUtils.loadAnimation(this, R.anim.encoger_text_view);
+        animacionResultado = AnimationUtils.loadAnimation(this, R.anim.crecer_text_view);
+
+        cargarVista(copias);
+        cuentaAtras();
+    }
+
+    /**
+     * Crea el backend de notas después del primer frame, como en {@link PlayActivity}. La cuenta atrás deja tiempo de
+     * sobra para que esté listo antes de la primera nota.
+     */
+    private void cargarNotas(final int numeroBotones) {
+        final SimonApplication app = (SimonApplication) getApplication();
+        app.despuesDelPrimerFrame(new Runnable() {
+            @Override
+            public void run() {
+                if (isDestroyed())
+                    return;
+                noteEngine = new NoteEngine(app.crearBackend(app.getNumeroNotas(numeroBotones)), Clock.SISTEMA,
+                        metrics);
+                if (pausado)
+                    noteEngine.pause();
+            }
+        });
+    }
+
+    /**
+     * Añade el tablero debajo de los labels y del panel opaco.
+     *
+     * @param copias copias del tablero: una por turnos y dos cara a cara.
+     */
+    private void cargarVista(int copias) {
+        vistaTablero = new BoardView(this, tablero, copias);
+        vistaTablero.setListener(this);
+        vistaTablero.setEnabled(false);
+        FrameLayout.LayoutParams params = copias == 1
+                ? new FrameLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT,
+                ViewGroup.LayoutParams.WRAP_CONTENT, Gravity.CENTER)
+                : new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.MATCH_PARENT);
+        ((ViewGroup) findViewById(R.id.raiz)).addView(vistaTablero, 0, params);
+        crearTablero();
+
+        opacityPane = findViewById(R.id.opacityPane);
+        opacityPane.setOnClickListener(this);
+        lblInfo = findViewById(R.id.lblInfo);
+        TextView lblAbajo = findViewById(R.id.lblAbajo);
+        TextView lblArriba = findViewById(R.id.lblArriba);
+        lblJugadores = new TextView[]{lblAbajo, lblArriba};
+        if (copias == JUGADORES)
+            lblArriba.setVisibility(View.VISIBLE);
+    }
+
+    /**
+     * Coloca los botones para que quepa cada copia del tablero en su parte de la pantalla, sin pasar del tamaño de
+     * los botones del tablero clásico.
+     */
+    private void crearTablero() {
+        DisplayMetrics pantalla = getResources().getDisplayMetrics();
+        int alto = pantalla.heightPixels / vistaTablero.getCopias();
+        int celda = Math.min(pantalla.widthPixels / tablero.getColumnas(), alto / tablero.getFilas());
+        int ladoMaximo = getResources().getDimensionPixelSize(R.dimen.ladoBoton);
+        int margen = Math.min(getResources().getDimensionPixelSize(R.dimen.margenBoton), celda / 8);
+        int lado = Math.min(ladoMaximo, celda - 2 * margen);
+        float texto = getResources().getDimension(R.dimen.textoBoton) * lado / ladoMaximo;
+        vistaTablero.setMedidas(lado, margen, texto);
+    }
+
+    /**
+     * Si la partida ha terminado vuelve al menú principal. Si el siguiente jugador ya tiene el móvil, quita el panel
+     * y empieza su turno.
+     */
+    @Override
+    public void onClick(View v) {
+        if (v.getId() != R.id.opacityPane)
+            return;
+        if (engine.isTerminada()) {
+            finish();
+        } else if (pasando) {
+            pasando = false;
+            ocultarPanel();
+            enableTablero(true);
+        }
+    }
+
+    /**
+     * Pasa al motor el toque del jugador de la copia del tablero tocada, o del jugador al que le toca por turnos.
+     * Sólo se anima y suena si la pulsación cuenta.
+     */
+    @Override
+    public void onPadPulsado(int dedo, int numero, long instante) {
+        if (!entrada.down(dedo, numero, instante)) {
+            if (numero != 0)
+                metrics.increment(Metrics.Contador.REBOTES);
+            return;
+        }
+        int jugador = vistaTablero.getCopias() == 1 ? engine.getTurno() : (numero - 1) / tablero.size();
+        int boton = (numero - 1) % tablero.size() + 1;
+        if (engine.pulsar(jugador, boton)) {
+            metrics.increment(Metrics.Contador.PULSACIONES);
+            vistaTablero.crecer(numero, duracionAnimacion);
+            play(boton, instante);
+            sequencer.scheduleIn(EVENTO_ENCOGER, numero, duracionAnimacion);
+            ticker.start();
+        }
+    }
+
+    @Override
+    public void onPadSoltado(int dedo) {
+        entrada.up(dedo);
+    }
+
+    /**
+     * En las partidas de dos jugadores no hay truco
+     */
+    @Override
+    public void onPadLargo(int numero) {
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        entrada.cancel();
+        ticker.pause();
+        pausado = true;
+        if (noteEngine != null)
+            noteEngine.pause();
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        pausado = false;
+        if (noteEngine != null)
+            noteEngine.resume();
+        ticker.resume();
+    }
+
+    /**
+     * Si cambia el tamaño de la ventana se vuelven a colocar los botones para que quepan.
+     */
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        crearTablero();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        ticker.cancel();
+        vistaTablero.cancel();
+        lblInfo.clearAnimation();
+        if (dialogoSalir != null)
+            dialogoSalir.dismiss();
+        if (noteEngine != null)
+            noteEngine.release();
+    }
+
+    /**
+     * Muestra un Alert advertiendo que si sale se perderá la partida.
+     */
+    @Override
+    public void onBackPressed() {
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle(R.string.exit);
+        builder.setMessage(R.string.wannaExit);
+        builder.setPositiveButton(R.string.exit, new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                finish();
+            }
+        });
+        builder.setNeutralButton(R.string.cancel, new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                dialog.dismiss();
+            }
+        });
+        dialogoSalir = builder.create();
+        dialogoSalir.show();
+    }
+
+    /**
+     * Realiza la cuenta atrás para empezar la partida. Los tres pasos se programan desde el mismo instante.
+     */
+    private void cuentaAtras() {
+        lblInfo.setTextColor(Color.WHITE);
+        lblInfo.setText(R.string.three);
+        lblInfo.startAnimation(animacionCuentaAtras);
+        long inicio = sequencer.now();
+        long duracion = DURATION_CRECER_ENCOGER_TEXT_VIEW * 1_000_000L;
+        for (int paso = 1; paso <= 3; paso++) {
+            sequencer.schedule(EVENTO_CUENTA_ATRAS, 3 - paso, inicio + paso * duracion);
+        }
+        ticker.start();
+    }
+
+    private void pasoCuentaAtras(int numero) {
+        if (numero == 0) {
+            ocultarPanel();
+            engine.start();
+        } else {
+            lblInfo.setText(numero == 2 ? R.string.two : R.string.one);
+            lblInfo.startAnimation(animacionCuentaAtras);
+        }
+    }
+
+    private void ocultarPanel() {
+        lblInfo.setVisibility(View.GONE);
+        opacityPane.setVisibility(View.GONE);
+    }
+
+    private void mostrarPanel(String texto) {
+        opacityPane.setVisibility(View.VISIBLE);
+        lblInfo.setVisibility(View.VISIBLE);
+        lblInfo.setText(texto);
+        lblInfo.startAnimation(animacionResultado);
+    }
+
+    /**
+     * Habilita o deshabilita el tablero de los dos jugadores.
+     */
+    private void enableTablero(boolean enabled) {
+        // Deshabilitado no avisa de los dedos que bajan, así que se olvidan los que hubiera
+        entrada.cancel();
+        vistaTablero.setEnabled(enabled);
+    }
+
+    private void play(int numBoton) {
+        if (noteEngine != null)
+            noteEngine.play(tablero.getNota(numBoton));
+    }
+
+    /**
+     * Como en {@link PlayActivity}, la nota de un toque mide la latencia desde el instante del evento, pasado al reloj
+     * del motor.
+     *
+     * @param numBoton número del botón pulsado.
+     * @param instante instante en el que el dedo tocó la pantalla, con la base de SystemClock.uptimeMillis().
+     */
+    private void play(int numBoton, long instante) {
+        if (noteEngine != null)
+            noteEngine.play(tablero.getNota(numBoton),
+                    Clock.SISTEMA.nanoTime() - (SystemClock.uptimeMillis() - instante) * 1_000_000L);
+    }
+
+    @Override
+    public void onEvento(int tipo, int dato) {
+        if (replay.onEvento(tipo, dato))
+            return;
+        switch (tipo) {
+            case EVENTO_ENCOGER:
+                vistaTablero.encoger(dato, duracionAnimacion);
+                break;
+            case EVENTO_CUENTA_ATRAS:
+                pasoCuentaAtras(dato);
+                break;
+            case EVENTO_SERIE:
+                cpu();
+                break;
+        }
+    }
+
+    /**
+     * Anima la nota de la serie en todas las copias del tablero, pero la toca una sola vez.
+     */
+    @Override
+    public void onNotaOn(int numero) {
+        for (int copia = 0; copia < vistaTablero.getCopias(); copia++) {
+            vistaTablero.crecer(copia * tablero.size() + numero, duracionAnimacion);
+        }
+        play(numero);
+    }
+
+    @Override
+    public void onNotaOff(int numero) {
+        for (int copia = 0; copia < vistaTablero.getCopias(); copia++) {
+            vistaTablero.encoger(copia * tablero.size() + numero, duracionAnimacion);
+        }
+    }
+
+    /**
+     * Habilita el tablero y los dos jugadores empiezan a repetir la serie.
+     */
+    @Override
+    public void onFinSerie() {
+        for (int jugador = 0; jugador < JUGADORES; jugador++) {
+            if (!engine.isEliminado(jugador))
+                lblJugadores[jugador].setText(R.string.repite);
+        }
+        enableTablero(true);
+        engine.finTurnoCpu();
+    }
+
+    /**
+     * Deshabilita el tablero y muestra la serie a los dos jugadores. Si no es la primera ronda espera antes.
+     */
+    @Override
+    public void onTurnoCpu(int ronda) {
+        enableTablero(false);
+        if (ronda == 1) {
+            cpu();
+        } else {
+            sequencer.scheduleIn(EVENTO_SERIE, 0, DELAY_SIGUIENTE_RONDA);
+            ticker.start();
+        }
+    }
+
+    private void cpu() {
+        int duracionPaso = engine.getDuracionPaso();
+        duracionAnimacion = Math.min(DURATION_CRECER_ENCOGER_BOTONES, duracionPaso / 2);
+        replay.start(engine.getSerie(), engine.getRonda(), sequencer.now(), DELAY_PRIMERA_NOTA * 1_000_000L,
+                duracionPaso * 1_000_000L, duracionAnimacion * 1_000_000L);
+        ticker.start();
+    }
+
+    /**
+     * Al primer jugador le toca en cuanto termina la cuenta atrás. A los siguientes se les tapa el tablero hasta que
+     * cogen el móvil y tocan el panel.
+     */
+    @Override
+    public void onTurnoJugador(int jugador) {
+        lblJugadores[0].setText(R.string.repiteYAnade);
+        if (engine.getRonda() == 0) {
+            enableTablero(true);
+            return;
+        }
+        enableTablero(false);
+        pasando = true;
+        lblInfo.setTextColor(Color.WHITE);
+        mostrarPanel(getString(R.string.turnoJugador, jugador + 1));
+    }
+
+    @Override
+    public void onJugadorListo(int jugador) {
+        lblJugadores[jugador].setText(R.string.esperaRival);
+    }
+
+    @Override
+    public void onEliminado(int jugador) {
+        if (vistaTablero.getCopias() > 1)
+            lblJugadores[jugador].setText(R.string.eliminado);
+    }
+
+    /**
+     * Tapa el tablero con el resultado y deja la traza de la partida en el log.
+     */
+    @Override
+    public void onFin(int ganador) {
+        enableTablero(false);
+        lblInfo.setTextColor(Color.parseColor("#FFFE00"));
+        mostrarPanel(ganador == MultiplayerEngine.EMPATE ? getString(R.string.empate)
+                : getString(R.string.ganaJugador, ganador + 1));
+        Log.d("TRAZA", traza.toString());
+    }
+}
@@ -0,0 +1,100 @@
+package es.rbp.simonbp;
+
+import android.animation.ValueAnimator;
+import android.view.View;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Animaciones de crecer y encoger de un botón del tablero. Los dos animadores se crean una vez por botón y se
+ * reutilizan en cada pulsación y en cada nota de la serie. Cada uno va de 0 a 1 y un mismo listener lleva la escala
+ * del botón desde la que tenía al empezar hasta la final, así que si la otra animación no había terminado se cancela
+ * y se sigue desde donde se quedó. Leer la escala de partida con {@link View#getScaleX()} no reserva memoria, a
+ * diferencia de {@link android.animation.ObjectAnimator#setupStartValues()}, que la devuelve en un Float en cada
+ * pulsación.
+ */
+public class PadAnimator {
+
+    /**
+     * Escala del botón pulsado
+     */
+    public static final float ESCALA_PULSADO = 1.2f;
+
+    private final View boton;
+
+    private final ValueAnimator crecer;
+
+    private final ValueAnimator encoger;
+
+    /**
+     * Escala del botón al empezar la animación en curso
+     */
+    private float desde;
+
+    /**
+     * Escala del botón al terminar la animación en curso
+     */
+    private float hasta;
+
+    /**
+     * @param boton botón que se anima.
+     */
+    public PadAnimator(View boton) {
+        this.boton = boton;
+        ValueAnimator.AnimatorUpdateListener listener = new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animacion) {
+                float escala = desde + (hasta - desde) * animacion.getAnimatedFraction();
+                PadAnimator.this.boton.setScaleX(escala);
+                PadAnimator.this.boton.setScaleY(escala);
+            }
+        };
+        crecer = ValueAnimator.ofFloat(0f, 1f);
+        crecer.addUpdateListener(listener);
+        encoger = ValueAnimator.ofFloat(0f, 1f);
+        encoger.addUpdateListener(listener);
+    }
+
+    /**
+     * Hace crecer el botón hasta un 120% de su tamaño original.
+     *
+     * @param duracion duración de la animación en milisegundos.
+     */
+    public void crecer(int duracion) {
+        encoger.cancel();
+        animar(crecer, ESCALA_PULSADO, duracion);
+    }
+
+    /**
+     * Devuelve el botón a su tamaño original.
+     *
+     * @param duracion duración de la animación en milisegundos.
+     */
+    public void encoger(int duracion) {
+        crecer.cancel();
+        animar(encoger, 1f, duracion);
+    }
+
+    /**
+     * Cancela las animaciones sin cambiar la escala del botón.
+     */
+    public void cancel() {
+        crecer.cancel();
+        encoger.cancel();
+    }
+
+    private void animar(ValueAnimator animacion, float escala, int duracion) {
+        desde = boton.getScaleX();
+        hasta = escala;
+        animacion.setDuration(duracion);
+        animacion.start();
+    }
+
+    ValueAnimator getCrecer() {
+        return crecer;
+    }
+
+    ValueAnimator getEncoger() {
+        return encoger;
+    }
+}
@@ -0,0 +1,264 @@
+package es.rbp.simonbp;
+
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.Locale;
+
+import es.rbp.simonbp.core.NoteBackend;
+import es.rbp.simonbp.core.NoteBank;
+import es.rbp.simonbp.core.NoteMixer;
+import es.rbp.simonbp.core.PcmSource;
+import es.rbp.simonbp.core.QueuedSource;
+import es.rbp.simonbp.core.ToneSynth;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Backend de notas con mezcla por software. Cada backend tiene un hilo propio que genera las voces con una
+ * {@link PcmSource} y las escribe en un AudioTrack.
+ * <p>
+ * La fuente puede ser un {@link NoteMixer} con las notas que la aplicación decodifica una sola vez en un
+ * {@link NoteBank}, o un {@link ToneSynth} que sintetiza las notas sin leer ningún asset.
+ * <p>
+ * Así pueden sonar varias notas a la vez sin que unas corten a otras, aunque el jugador o la cpu vayan muy rápido.
+ * <p>
+ * El hilo principal nunca toca la fuente: {@link PcmBackend#play(int)} deja la nota en una cola sin bloqueos y el
+ * hilo de audio la dispara antes de mezclar el siguiente bloque. Cada bloque se mezcla directamente en el array que
+ * se escribe en el AudioTrack, sin copias intermedias.
+ * <p>
+ * Mientras está pausado el hilo de audio duerme con el AudioTrack parado. Al liberarlo sólo se avisa al hilo, que
+ * termina el bloque que esté escribiendo y libera él mismo el AudioTrack, así que destruir la partida no bloquea el
+ * hilo principal y no queda nada nativo abierto.
+ *
+ * @see SimonApplication#getNotas()
+ */
+public class PcmBackend implements NoteBackend, Runnable {
+
+    /**
+     * Número de voces que pueden sonar a la vez
+     */
+    private static final int VOCES = 8;
+
+    /**
+     * Muestras que se mezclan en cada pasada
+     */
+    private static final int BLOQUE = 256;
+
+    /**
+     * Notas que pueden esperar entre dos bloques. Un bloque dura menos de 6 ms, así que sobra
+     */
+    private static final int COMANDOS = 64;
+
+    /**
+     * Duración del ataque y la relajación de la envolvente, en milisegundos
+     */
+    private static final int MS_ATAQUE = 2, MS_RELAJACION = 20;
+
+    /**
+     * Cada cuánto se comprueba si se ha liberado el backend mientras se esperan las notas, en milisegundos
+     */
+    private static final int ESPERA_NOTAS = 100;
+
+    /**
+     * Notas decodificadas, o null si se sintetizan
+     */
+    private final NoteBank banco;
+
+    /**
+     * Sintetizador, o null si se usan las notas decodificadas
+     */
+    private final ToneSynth synth;
+
+    private final int numeroNotas;
+
+    /**
+     * Instante en el que se creó el backend, en nanosegundos
+     */
+    private final long creado;
+
+    private final Thread hilo;
+
+    /**
+     * Cola de comandos delante de la fuente con la que se generan las voces. Es null hasta que el AudioTrack está
+     * sonando
+     */
+    private volatile QueuedSource fuente;
+
+    private volatile boolean activo;
+
+    private volatile boolean pausado;
+
+    /**
+     * Arranca el hilo de audio. Si las notas aún se están decodificando las espera en ese hilo.
+     *
+     * @param banco notas decodificadas que comparten todos los backends.
+     */
+    public PcmBackend(NoteBank banco) {
+        this(banco, null, banco.getNumeroNotas());
+    }
+
+    /**
+     * Arranca el hilo de audio con notas sintetizadas. No hay nada que decodificar, así que está listo en cuanto se
+     * abre el AudioTrack.
+     *
+     * @param synth sintetizador con las notas. Sólo lo debe usar este backend.
+     */
+    public PcmBackend(ToneSynth synth) {
+        this(null, synth, synth.getNumeroNotas());
+    }
+
+    private PcmBackend(NoteBank banco, ToneSynth synth, int numeroNotas) {
+        this.banco = banco;
+        this.synth = synth;
+        this.numeroNotas = numeroNotas;
+        this.creado = System.nanoTime();
+        this.activo = true;
+        this.hilo = new Thread(this, "PcmBackend");
+        hilo.start();
+    }
+
+    /**
+     * Espera a las notas si hace falta y después genera las voces y las escribe en el AudioTrack hasta que se libera
+     * el backend.
+     */
+    @Override
+    public void run() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+
+        PcmSource fuente;
+        int frecuencia;
+        if (synth != null) {
+            fuente = synth;
+            frecuencia = synth.getFrecuenciaMuestreo();
+        } else {
+            fuente = crearMixer();
+            if (fuente == null)
+                return;
+            frecuencia = banco.getFrecuencia();
+        }
+
+        int minimo = AudioTrack.getMinBufferSize(frecuencia, AudioFormat.CHANNEL_OUT_MONO,
+                AudioFormat.ENCODING_PCM_16BIT);
+        AudioTrack track = new AudioTrack(AudioManager.STREAM_MUSIC, frecuencia, AudioFormat.CHANNEL_OUT_MONO,
+                AudioFormat.ENCODING_PCM_16BIT, Math.max(minimo, BLOQUE * 2), AudioTrack.MODE_STREAM);
+        // Algunos dispositivos rechazan la configuración, y entonces play() lanzaría una excepción en este hilo
+        if (track.getState() != AudioTrack.STATE_INITIALIZED) {
+            Log.e("AUDIO", String.format(Locale.ROOT, "No se puede abrir la salida de audio a %d Hz, estado %d",
+                    frecuencia, track.getState()));
+            track.release();
+            return;
+        }
+        short[] salida = new short[BLOQUE];
+
+        QueuedSource cola = new QueuedSource(fuente, COMANDOS);
+        track.play();
+        this.fuente = cola;
+        Log.d("AUDIO", String.format(Locale.ROOT, "Backend listo en %.1f ms",
+                (System.nanoTime() - creado) / 1e6));
+        while (activo) {
+            if (pausado) {
+                cola.aplicarComandos();
+                fuente.stopAll();
+                track.pause();
+                track.flush();
+                if (!esperarReanudar())
+                    break;
+                track.play();
+            }
+            cola.mix(salida, 0, salida.length);
+            // write bloquea hasta que hay hueco en el AudioTrack, lo que marca el ritmo del bucle
+            track.write(salida, 0, salida.length);
+        }
+        track.stop();
+        track.release();
+        if (cola.getDescartados() > 0)
+            Log.w("AUDIO", "Notas descartadas con la cola llena: " + cola.getDescartados());
+    }
+
+    /**
+     * Duerme el hilo de audio hasta que se reanude o se libere el backend.
+     *
+     * @return true si se ha reanudado, false si se ha liberado.
+     */
+    private synchronized boolean esperarReanudar() {
+        try {
+            while (pausado && activo) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            return false;
+        }
+        return activo;
+    }
+
+    /**
+     * Espera a que la aplicación termine de decodificar las notas y crea el mezclador.
+     *
+     * @return el mezclador, o null si no hay notas o se ha liberado el backend mientras tanto.
+     */
+    private NoteMixer crearMixer() {
+        try {
+            while (activo && !banco.await(ESPERA_NOTAS)) {
+                if (banco.isLiberado() || banco.isFallido()) {
+                    Log.e("LOAD MUSICA", "No hay notas que tocar");
+                    return null;
+                }
+            }
+        } catch (InterruptedException e) {
+            return null;
+        }
+        short[][] pcm = banco.getNotas();
+        int frecuencia = banco.getFrecuencia();
+        if (!activo || pcm == null)
+            return null;
+        return new NoteMixer(pcm, VOCES, BLOQUE, frecuencia * MS_ATAQUE / 1000, frecuencia * MS_RELAJACION / 1000);
+    }
+
+    @Override
+    public int getNumeroNotas() {
+        return numeroNotas;
+    }
+
+    @Override
+    public boolean isListo() {
+        return fuente != null;
+    }
+
+    /**
+     * Encola la nota para el hilo de audio. Sólo se debe llamar desde el hilo principal.
+     */
+    @Override
+    public void play(int nota) {
+        QueuedSource fuente = this.fuente;
+        if (fuente != null && !pausado)
+            fuente.trigger(nota);
+    }
+
+    @Override
+    public void pause() {
+        pausado = true;
+    }
+
+    @Override
+    public synchronized void resume() {
+        pausado = false;
+        notifyAll();
+    }
+
+    /**
+     * Avisa al hilo de audio de que termine y vuelve sin esperarlo. El hilo libera el AudioTrack en cuanto acaba el
+     * bloque que esté escribiendo, y si aún estaba esperando a las notas deja de esperar.
+     */
+    @Override
+    public void release() {
+        synchronized (this) {
+            activo = false;
+            notifyAll();
+        }
+        hilo.interrupt();
+    }
+}
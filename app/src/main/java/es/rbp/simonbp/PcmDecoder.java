@@ -0,0 +1,139 @@
+package es.rbp.simonbp;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Decodifica las notas de los assets a PCM mono de 16 bits con MediaExtractor y MediaCodec.
+ * Se usa una sola vez por nota, nunca mientras se juega.
+ *
+ * @see SimonApplication#getNotas()
+ */
+public class PcmDecoder {
+
+    /**
+     * Tiempo máximo de espera por un buffer del códec, en microsegundos
+     */
+    private static final long TIMEOUT_US = 10000;
+
+    /**
+     * Frecuencia de muestreo de la última nota decodificada
+     */
+    private int frecuencia;
+
+    /**
+     * Decodifica el asset indicado. Si tiene varios canales se mezclan en uno.
+     *
+     * @param assets AssetManager de la app.
+     * @param nombre nombre del archivo en los assets.
+     * @return muestras PCM mono de 16 bits.
+     * @throws IOException si no se puede leer o decodificar el archivo.
+     */
+    @SuppressWarnings("deprecation")
+    public short[] decode(AssetManager assets, String nombre) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+        boolean iniciado = false;
+        AssetFileDescriptor afd = assets.openFd(nombre);
+        try {
+            extractor.setDataSource(afd.getFileDescriptor(), afd.getStartOffset(), afd.getLength());
+            if (extractor.getTrackCount() == 0)
+                throw new IOException("Sin pistas de audio: " + nombre);
+            MediaFormat formato = extractor.getTrackFormat(0);
+            extractor.selectTrack(0);
+
+            int canales = formato.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+            frecuencia = formato.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+
+            codec = MediaCodec.createDecoderByType(formato.getString(MediaFormat.KEY_MIME));
+            codec.configure(formato, null, null, 0);
+            codec.start();
+            iniciado = true;
+
+            ByteBuffer[] entradas = codec.getInputBuffers();
+            ByteBuffer[] salidas = codec.getOutputBuffers();
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+
+            short[] pcm = new short[frecuencia];
+            int longitud = 0;
+            boolean finEntrada = false;
+            boolean finSalida = false;
+            while (!finSalida) {
+                if (!finEntrada) {
+                    int indice = codec.dequeueInputBuffer(TIMEOUT_US);
+                    if (indice >= 0) {
+                        int leidos = extractor.readSampleData(entradas[indice], 0);
+                        if (leidos < 0) {
+                            codec.queueInputBuffer(indice, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            finEntrada = true;
+                        } else {
+                            codec.queueInputBuffer(indice, 0, leidos, extractor.getSampleTime(), 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+
+                int indice = codec.dequeueOutputBuffer(info, TIMEOUT_US);
+                if (indice >= 0) {
+                    ByteBuffer buffer = salidas[indice];
+                    buffer.position(info.offset);
+                    buffer.limit(info.offset + info.size);
+                    ShortBuffer muestras = buffer.order(ByteOrder.nativeOrder()).asShortBuffer();
+                    int frames = muestras.remaining() / canales;
+                    if (longitud + frames > pcm.length) {
+                        short[] mayor = new short[Math.max(pcm.length * 2, longitud + frames)];
+                        System.arraycopy(pcm, 0, mayor, 0, longitud);
+                        pcm = mayor;
+                    }
+                    for (int i = 0; i < frames; i++) {
+                        int suma = 0;
+                        for (int c = 0; c < canales; c++) {
+                            suma += muestras.get();
+                        }
+                        pcm[longitud++] = (short) (suma / canales);
+                    }
+                    codec.releaseOutputBuffer(indice, false);
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0)
+                        finSalida = true;
+                } else if (indice == MediaCodec.INFO_OUTPUT_BUFFERS_CHANGED) {
+                    salidas = codec.getOutputBuffers();
+                } else if (indice == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    MediaFormat nuevo = codec.getOutputFormat();
+                    canales = nuevo.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+                    frecuencia = nuevo.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+                }
+            }
+
+            short[] resultado = new short[longitud];
+            System.arraycopy(pcm, 0, resultado, 0, longitud);
+            return resultado;
+        } catch (IllegalStateException e) {
+            throw new IOException("Error al decodificar " + nombre + ": " + e);
+        } finally {
+            if (codec != null) {
+                if (iniciado)
+                    codec.stop();
+                codec.release();
+            }
+            extractor.release();
+            afd.close();
+        }
+    }
+
+    /**
+     * @return frecuencia de muestreo, en Hz, de la última nota decodificada.
+     */
+    public int getFrecuencia() {
+        return frecuencia;
+    }
+}
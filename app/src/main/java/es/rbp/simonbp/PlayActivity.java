@@ -3,40 +3,71 @@ package es.rbp.simonbp;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 
-import android.animation.AnimatorSet;
-import android.animation.ObjectAnimator;
+import android.annotation.SuppressLint;
 import android.content.DialogInterface;
-import android.content.res.AssetFileDescriptor;
+import android.content.res.Configuration;
 import android.graphics.Color;
-import android.media.MediaPlayer;
+import android.graphics.drawable.GradientDrawable;
 import android.os.Build;
 import android.os.Bundle;
-import android.os.Handler;
+import android.os.SystemClock;
+import android.util.DisplayMetrics;
 import android.util.Log;
+import android.util.TypedValue;
+import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewGroup;
 import android.view.Window;
 import android.view.animation.Animation;
 import android.view.animation.AnimationUtils;
 import android.widget.Button;
+import android.widget.GridLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+
+import es.rbp.simonbp.core.Board;
+import es.rbp.simonbp.core.Clock;
+import es.rbp.simonbp.core.GameHistoryStore;
+import es.rbp.simonbp.core.GameRecorder;
+import es.rbp.simonbp.core.GameSnapshot;
+import es.rbp.simonbp.core.GameRecord;
+import es.rbp.simonbp.core.Metrics;
+import es.rbp.simonbp.core.NoteBackend;
+import es.rbp.simonbp.core.NoteEngine;
+import es.rbp.simonbp.core.Pad;
+import es.rbp.simonbp.core.ReplayStore;
+import es.rbp.simonbp.core.ReplayScript;
+import es.rbp.simonbp.core.Sequencer;
+import es.rbp.simonbp.core.SimonConfig;
+import es.rbp.simonbp.core.SimonEngine;
+import es.rbp.simonbp.core.SimonListener;
+import es.rbp.simonbp.core.TouchInput;
+import es.rbp.simonbp.core.UniformGenerator;
 
 /**
  * @author Ricardo Bordería Pi
  * <p>
- * Este es el activity del juego. La cpu irá añadiendo números aleatorios del 1 al 6 al un List, uno por turno. Después de añadir el número
+ * Este es el activity del juego. Las reglas están en {@link SimonEngine} y este activity sólo las muestra.
+ * <p>
+ * La cpu irá añadiendo números aleatorios del 1 al número de botones del tablero a la serie, uno por turno. Después de añadir el número
  * el jugador deberá repetir la secuencia de números contenidos en el List. Si el jugador se equivoca en algún número de la serie pierde la partida.
  * Si completa la serie el jugador gana la partida.
  * La partida termina si el jugador completa la serie o si falla.
  * <p>
+ * El tablero se construye a partir de un {@link Board}: cada botón guarda su número como tag, así que pasar del botón
+ * pulsado a su nota y a su animación es un acceso a un array, tenga el tablero los botones que tenga. Si se configura
+ * {@code tableroDibujado} el tablero entero es un solo {@link BoardView} en vez de un botón por número.
+ * <p>
+ * Las pulsaciones cuentan en cuanto el dedo baja, no al levantarlo, y pasan por un {@link TouchInput} que permite
+ * acordes de varios dedos y descarta los rebotes. El tiempo de reacción y la latencia hasta la nota se miden con el
+ * instante del evento de la pantalla.
+ * <p>
  * Hay un truco para mostrar qué números de la serie te faltan para terminar la ronda. Se activa al mantener pulsado sobre
- * el 6, el 1 y el 3, respectivamente. En  odo Dificil sólo se podrá usar el truco una vez por partida.
+ * el último botón, el 1 y el 3, respectivamente. En  odo Dificil sólo se podrá usar el truco una vez por partida.
  */
-public class PlayActivity extends AppCompatActivity implements View.OnClickListener, View.OnLongClickListener {
+public class PlayActivity extends AppCompatActivity implements View.OnClickListener, View.OnLongClickListener,
+        View.OnTouchListener, SimonListener, Sequencer.Listener, ReplayScript.Listener, BoardView.Listener {
 
     /**
      * Extra del intent con la dificultad
@@ -44,7 +75,25 @@ public class PlayActivity extends AppCompatActivity implements View.OnClickListe
     public static final String DIFICULTAD_EXTRA = "DIFICULTAD";
 
     /**
-     * Duración de la animación de crecer o encoger los botones pulsados
+     * Extra del intent con el número de botones del tablero
+     */
+    public static final String BOTONES_EXTRA = "BOTONES";
+
+    /**
+     * Extra del intent que indica si el ritmo se adapta al jugador
+     */
+    public static final String ADAPTATIVO_EXTRA = "ADAPTATIVO";
+
+    /**
+     * Claves del estado guardado: la foto de la partida, los tiempos de reacción y lo que llevaba de partida
+     *
+     * @see PlayActivity#onSaveInstanceState(Bundle)
+     */
+    private static final String ESTADO_PARTIDA = "PARTIDA", ESTADO_TIEMPOS = "TIEMPOS", ESTADO_DURACION = "DURACION";
+
+    /**
+     * Duración máxima de la animación de crecer o encoger los botones pulsados. En el modo infinito se acorta
+     * cuando se acelera el ritmo
      */
     private static final int DURATION_CRECER_ENCOGER_BOTONES = 250;
 
@@ -56,26 +105,60 @@ public class PlayActivity extends AppCompatActivity implements View.OnClickListe
     private static final int DURATION_CRECER_ENCOGER_TEXT_VIEW = 700;
 
     /**
-     * Mayor número que la cpu puede generar aleatoriamente para añadirlo a la serie
+     * Tiempo de espera entre el final de una ronda y el turno de la cpu
+     */
+    private static final int DELAY_SIGUIENTE_RONDA = 1000;
+
+    /**
+     * Retraso desde que empieza el turno de la cpu hasta la primera nota de la serie
      */
-    private static final int NUMERO_MAXIMO = 6;
+    private static final int DELAY_PRIMERA_NOTA = 100;
 
     /**
-     * Número de veces que se puede usar el truco en una partida.
+     * Tipos de eventos del secuenciador
      *
-     * @see PlayActivity#truco()
+     * @see PlayActivity#onEvento(int, int)
      */
-    private static int NUMERO_MAXIMO_TRUCO;
+    private static final int EVENTO_ENCOGER = 1, EVENTO_CUENTA_ATRAS = 2, EVENTO_SERIE = 3;
 
     /**
-     * Rondas que dura la partida
+     * Eventos que caben en el secuenciador sin reservar memoria
      */
-    private static int TURNOS;
+    private static final int CAPACIDAD_SECUENCIADOR = 64;
 
     /**
-     * Botones para jugar
+     * Tiempos de reacción que se guardan como mucho, 4 KB. En el modo infinito las pulsaciones crecen con el cuadrado
+     * de las rondas, así que sólo se guardan los últimos: son los que se registran en el historial y los que van en el
+     * estado guardado, que tiene que caber en la transacción del sistema
+     *
+     * @see PlayActivity#ultimosTiempos()
      */
-    private Button btn1, btn2, btn3, btn4, btn5, btn6;
+    private static final int MAXIMO_TIEMPOS = 1024;
+
+    /**
+     * Color, nota y número de cada botón
+     */
+    private Board tablero;
+
+    /**
+     * Botones para jugar. El botón con número n está en la posición n - 1. Con el tablero dibujado es null
+     */
+    private Button[] botones;
+
+    /**
+     * Animaciones de crecer y encoger de cada botón, en el mismo orden que los botones
+     */
+    private PadAnimator[] animadores;
+
+    /**
+     * Tablero dibujado en una sola vista, o null si cada número es un botón
+     */
+    private BoardView vistaTablero;
+
+    /**
+     * Filtro de los toques de los botones
+     */
+    private TouchInput entrada;
 
     /**
      * Panel semiopaco para tapar los botones mientras se carga el juego o cuando se termina
@@ -96,39 +179,70 @@ public class PlayActivity extends AppCompatActivity implements View.OnClickListe
     private TextView lblInfo;
 
     /**
-     * Lista con la serie de números que debe seguir el jugador para ganar la partida
+     * Motor con las reglas y el estado de la partida
      */
-    private List<Integer> cpu;
+    private SimonEngine engine;
 
     /**
-     * Media Player para reproducir las notas correspondientes a cada botón
+     * Línea de tiempo con las animaciones, las notas y la cuenta atrás
      *
-     * @see PlayActivity#play(int)
+     * @see PlayActivity#onEvento(int, int)
      */
-    private MediaPlayer mediaPlayer;
+    private Sequencer sequencer;
 
     /**
-     * Objeto con las notas de cada botón
+     * Hace avanzar el secuenciador en cada frame
+     */
+    private FrameTicker ticker;
+
+    /**
+     * Muestra la serie de la cpu nota a nota sobre el secuenciador
      *
-     * @see PlayActivity#play(int)
+     * @see PlayActivity#cpu()
      */
-    private AssetFileDescriptor doo, re, mi, fa, sol, la;
+    private ReplayScript replay;
 
     /**
-     * Indice de la serie en el que se encuantra el jugador. Al finalizar el turno se reinicia
+     * Duración actual de la animación de crecer o encoger los botones
      */
-    private int index;
+    private int duracionAnimacion;
+
     /**
-     * Ronda en la que se encuantra el jugador.
+     * Animación de la cuenta atrás. Se carga una vez y se reutiliza en cada número
+     *
+     * @see PlayActivity#cuentaAtras()
      */
-    private int turnoActual;
+    private Animation animacionCuentaAtras;
+
     /**
-     * Nùmero de veces que se ha usado el truco.
+     * Animación del mensaje de victoria o derrota. Se carga una vez
      *
-     * @see PlayActivity#truco()
+     * @see PlayActivity#mostrarVictoria()
+     * @see PlayActivity#mostrarDerrota()
+     */
+    private Animation animacionResultado;
+
+    /**
+     * Motor que reproduce las notas correspondientes a cada botón. Es null hasta que se dibuja el primer frame
+     *
+     * @see PlayActivity#loadMusic()
+     * @see PlayActivity#play(int)
+     */
+    private NoteEngine noteEngine;
+
+    /**
+     * true si ya se ha avisado al sistema de que la primera ronda se puede jugar
+     *
+     * @see PlayActivity#onFinSerie()
      */
-    private int numTruco;
+    private boolean jugable;
 
+    /**
+     * Métricas de la aplicación
+     *
+     * @see SimonApplication#getMetrics()
+     */
+    private Metrics metrics;
 
     /**
      * Pasos a seguir para realizar el truco
@@ -136,10 +250,47 @@ public class PlayActivity extends AppCompatActivity implements View.OnClickListe
      * @see PlayActivity#truco()
      */
     private boolean paso1, paso2;
+
+    /**
+     * Instante en el que empezó la partida y en el que el jugador pudo pulsar por última vez, en milisegundos
+     *
+     * @see PlayActivity#jugar(int, long)
+     */
+    private long inicioPartida, inicioEspera;
+
     /**
-     * Indica si la partida se ha terminado, ya sea por que el jugador haya ganado o perdido, o no.
+     * Buffer circular con los tiempos de reacción de las últimas pulsaciones, en milisegundos
+     *
+     * @see PlayActivity#ultimosTiempos()
      */
-    private boolean fin;
+    private int[] tiempos;
+
+    /**
+     * Pulsaciones de la partida, aunque sus tiempos ya no estén en el buffer
+     */
+    private int numTiempos;
+
+    /**
+     * Graba la partida para poder repetirla. No reserva memoria mientras se juega
+     *
+     * @see PlayActivity#guardarPartida(boolean)
+     * @see ReplayActivity
+     */
+    private GameRecorder grabacion;
+
+    /**
+     * Instante en el que se pausó la partida, en milisegundos, o 0 si no está pausada
+     *
+     * @see PlayActivity#onPause()
+     */
+    private long inicioPausa;
+
+    /**
+     * Alert para salir de la partida, si se ha mostrado
+     *
+     * @see PlayActivity#showAlertDialog()
+     */
+    private AlertDialog dialogoSalir;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -151,173 +302,399 @@ public class PlayActivity extends AppCompatActivity implements View.OnClickListe
             getWindow().setStatusBarColor(getResources().getColor(R.color.colorPrimaryDark));
         }
 
-        TURNOS = getIntent().getIntExtra(DIFICULTAD_EXTRA, 6);
-
-        switch (TURNOS) {
-            case 6:
-                NUMERO_MAXIMO_TRUCO = 0;
-                break;
-            case 9:
-                NUMERO_MAXIMO_TRUCO = 6;
-                break;
-            case 12:
-                NUMERO_MAXIMO_TRUCO = 1;
-                break;
+        int turnos = getIntent().getIntExtra(DIFICULTAD_EXTRA, SimonConfig.FACIL);
+        int numeroBotones = getIntent().getIntExtra(BOTONES_EXTRA, SimonConfig.NUMERO_BOTONES);
+        tablero = Board.crear(numeroBotones, ((SimonApplication) getApplication()).getNumeroNotas(numeroBotones));
+        entrada = new TouchInput(numeroBotones);
+        SimonConfig config = SimonConfig.paraDificultad(turnos, numeroBotones);
+        engine = restaurarPartida(savedInstanceState, config);
+        if (engine == null) {
+            long semilla = System.nanoTime();
+            engine = new SimonEngine(config, new UniformGenerator(), semilla);
+            Log.d("SEMILLA", String.valueOf(semilla));
+        }
+        engine.setListener(this);
+        if (getIntent().getBooleanExtra(ADAPTATIVO_EXTRA, false)) {
+            SimonApplication app = (SimonApplication) getApplication();
+            engine.setAdaptacion(app.getPoliticaDificultad(), app.getStatsJugador());
         }
 
-        cpu = new ArrayList<>();
-
-        mediaPlayer = new MediaPlayer();
-
-        index = 1;
-        turnoActual = 1;
+        metrics = ((SimonApplication) getApplication()).getMetrics();
+        sequencer = new Sequencer(Clock.SISTEMA, CAPACIDAD_SECUENCIADOR);
+        sequencer.setListener(this);
+        ticker = new FrameTicker(sequencer);
+        replay = new ReplayScript(sequencer, this, metrics);
+        duracionAnimacion = DURATION_CRECER_ENCOGER_BOTONES;
 
         paso1 = false;
         paso2 = false;
 
-        fin = false;
+        tiempos = new int[MAXIMO_TIEMPOS];
+        numTiempos = 0;
+        inicioPartida = SystemClock.uptimeMillis();
+        // Una partida restaurada se graba desde la siguiente ronda completa
+        grabacion = new GameRecorder();
+        grabacion.reset(engine.getSemilla(), numeroBotones, turnos,
+                engine.getEstado() != SimonEngine.Estado.ESPERANDO);
+        if (savedInstanceState != null && engine.getEstado() != SimonEngine.Estado.ESPERANDO) {
+            int[] guardados = savedInstanceState.getIntArray(ESTADO_TIEMPOS);
+            if (guardados != null) {
+                for (int tiempo : guardados) {
+                    addTiempo(tiempo);
+                }
+            }
+            inicioPartida -= savedInstanceState.getLong(ESTADO_DURACION);
+        }
+
+        animacionCuentaAtras = AnimationUtils.loadAnimation(this, R.anim.encoger_text_view);
+        animacionResultado = AnimationUtils.loadAnimation(this, R.anim.crecer_text_view);
 
         cargarVista();
         cargarListeners();
         loadMusic();
+        if (engine.getEstado() == SimonEngine.Estado.ESPERANDO)
+            cuentaAtras();
+        else
+            reanudarPartida();
     }
 
     /**
-     * Si pulsa un botón se anima, se reproduce la nota correspondiente y se verifica si el jugador acierta o no.
-     * <p>
-     * Si pulsa el panel opaco y la partida se ha terminado vuelve al menú principal.
+     * Guarda una foto de la partida de unos pocos bytes para poder seguir en el mismo punto si el sistema mata el
+     * proceso, y los últimos {@link PlayActivity#MAXIMO_TIEMPOS} tiempos de reacción.
      *
-     * @see MainActivity
+     * @see GameSnapshot
      */
     @Override
-    public void onClick(View v) {
-        switch (v.getId()) {
-            case R.id.btn1:
-                jugar(1);
-                break;
-            case R.id.btn2:
-                jugar(2);
-                break;
-            case R.id.btn3:
-                jugar(3);
-                break;
-            case R.id.btn4:
-                jugar(4);
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putByteArray(ESTADO_PARTIDA, engine.snapshot().toBytes());
+        outState.putIntArray(ESTADO_TIEMPOS, ultimosTiempos());
+        long ahora = inicioPausa != 0 ? inicioPausa : SystemClock.uptimeMillis();
+        outState.putLong(ESTADO_DURACION, ahora - inicioPartida);
+    }
+
+    /**
+     * Restaura la partida guardada en {@link PlayActivity#onSaveInstanceState(Bundle)}.
+     *
+     * @param estado estado guardado, o null si el activity se crea por primera vez.
+     * @param config configuración de la partida según el intent.
+     * @return el motor restaurado, o null si no hay partida guardada o no se puede restaurar.
+     */
+    private SimonEngine restaurarPartida(Bundle estado, SimonConfig config) {
+        byte[] datos = estado != null ? estado.getByteArray(ESTADO_PARTIDA) : null;
+        if (datos == null)
+            return null;
+        try {
+            return GameSnapshot.fromBytes(datos).restore(config, new UniformGenerator());
+        } catch (IllegalArgumentException e) {
+            Log.e("RESTAURAR", "No se puede restaurar la partida", e);
+            return null;
+        }
+    }
+
+    /**
+     * Sigue una partida restaurada sin cuenta atrás: si era el turno de la cpu vuelve a mostrar la serie, si era el
+     * del jugador le deja seguir en la misma posición y si había terminado muestra el resultado.
+     */
+    private void reanudarPartida() {
+        duracionAnimacion = Math.min(DURATION_CRECER_ENCOGER_BOTONES, engine.getDuracionPaso() / 2);
+        switch (engine.getEstado()) {
+            case TURNO_CPU:
+                ocultarPanel();
+                enableBotones(false);
+                cpu();
                 break;
-            case R.id.btn5:
-                jugar(5);
+            case TURNO_JUGADOR:
+                ocultarPanel();
+                enableBotones(true);
+                inicioEspera = SystemClock.uptimeMillis();
                 break;
-            case R.id.btn6:
-                jugar(6);
+            case VICTORIA:
+                mostrarVictoria();
                 break;
-            case R.id.opacityPane:
-                if (fin)
-                    finish();
+            case DERROTA:
+                mostrarDerrota();
                 break;
         }
     }
 
     /**
-     * Si se mantiene pulsado los botones 1, 3 y 6 en el orden correcto se activa el truco.
+     * Si pulsa el panel opaco y la partida se ha terminado vuelve al menú principal.
      *
-     * @see PlayActivity#truco()
+     * @see MainActivity
      */
     @Override
-    public boolean onLongClick(View v) {
-        switch (v.getId()) {
-            case R.id.btn1:
-                if (paso1)
-                    paso2 = true;
-                Log.d("PASO", "1");
-                break;
-            case R.id.btn3:
-                if (paso1 && paso2)
-                    truco();
+    public void onClick(View v) {
+        if (v.getId() == R.id.opacityPane && engine.isTerminada())
+            finish();
+    }
+
+    /**
+     * Pasa los toques de los botones a {@link PlayActivity#onPadPulsado(int, int, long)} y
+     * {@link PlayActivity#onPadSoltado(int)}. Cada botón recibe sólo los dedos que bajan sobre él. No consume el
+     * evento, así que el botón sigue mostrando que está pulsado y avisando de la pulsación larga.
+     */
+    @SuppressLint("ClickableViewAccessibility")
+    @Override
+    public boolean onTouch(View v, MotionEvent event) {
+        Object numero = v.getTag(R.id.pad);
+        if (numero == null)
+            return false;
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                onPadPulsado(event.getPointerId(0), (Integer) numero, event.getEventTime());
                 break;
-            case R.id.btn6:
-                paso1 = true;
-                Log.d("PASO", "2");
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                onPadSoltado(event.getPointerId(0));
                 break;
         }
         return false;
     }
 
     /**
-     * Muestra un Alert advertiendo al jugador que si sale se perderá su progreso actual.
+     * Si se mantiene pulsado el último botón, el 1 y el 3 en el orden correcto se activa el truco.
      *
-     * @see PlayActivity#showAlertDialog()
+     * @see PlayActivity#truco()
      */
     @Override
-    public void onBackPressed() {
-        showAlertDialog();
+    public boolean onLongClick(View v) {
+        Object tag = v.getTag(R.id.pad);
+        if (tag == null)
+            return false;
+        onPadLargo((Integer) tag);
+        return false;
     }
 
     /**
-     * Inicializa los elementos de la vista.
+     * Si el toque es una pulsación y no un rebote juega el botón.
      */
-    private void cargarVista() {
-        btn1 = findViewById(R.id.btn1);
+    @Override
+    public void onPadPulsado(int dedo, int numero, long instante) {
+        if (entrada.down(dedo, numero, instante)) {
+            jugar(numero, instante);
+        } else if (numero != 0) {
+            metrics.increment(Metrics.Contador.REBOTES);
+            grabacion.pulsacion(numero, GameRecorder.REBOTE, instante - inicioPartida);
+        }
+    }
 
-        btn2 = findViewById(R.id.btn2);
+    @Override
+    public void onPadSoltado(int dedo) {
+        entrada.up(dedo);
+    }
 
-        btn3 = findViewById(R.id.btn3);
+    /**
+     * Avanza en el truco con el botón mantenido.
+     *
+     * @see PlayActivity#onLongClick(View)
+     */
+    @Override
+    public void onPadLargo(int numero) {
+        if (numero == tablero.size()) {
+            paso1 = true;
+            Log.d("PASO", "2");
+        } else if (numero == 1) {
+            if (paso1)
+                paso2 = true;
+            Log.d("PASO", "1");
+        } else if (numero == 3 && paso1 && paso2) {
+            truco();
+        }
+    }
 
-        btn4 = findViewById(R.id.btn4);
+    /**
+     * Congela la línea de tiempo y corta el audio. La serie, la cuenta atrás y las animaciones pendientes se quedan
+     * en el paso en el que estaban.
+     */
+    @Override
+    protected void onPause() {
+        super.onPause();
+        entrada.cancel();
+        ticker.pause();
+        if (noteEngine != null)
+            noteEngine.pause();
+        inicioPausa = SystemClock.uptimeMillis();
+    }
 
-        btn5 = findViewById(R.id.btn5);
+    /**
+     * Reanuda la partida en el mismo paso. El tiempo en pausa no cuenta ni en la duración de la partida ni en el
+     * tiempo de reacción.
+     */
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (inicioPausa != 0) {
+            long pausa = SystemClock.uptimeMillis() - inicioPausa;
+            inicioPartida += pausa;
+            inicioEspera += pausa;
+            inicioPausa = 0;
+        }
+        if (noteEngine != null)
+            noteEngine.resume();
+        ticker.resume();
+    }
 
-        btn6 = findViewById(R.id.btn6);
+    /**
+     * El activity declara en el manifest los cambios de configuración que no le afectan, así que no se recrea y la
+     * partida sigue en marcha. Si cambia el tamaño de la ventana se vuelven a crear los botones para que quepan.
+     */
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        if (vistaTablero != null) {
+            crearTablero();
+            return;
+        }
+        boolean habilitados = botones[0].isEnabled();
+        for (PadAnimator animador : animadores) {
+            animador.cancel();
+        }
+        ((GridLayout) findViewById(R.id.tablero)).removeAllViews();
+        crearTablero();
+        cargarListeners();
+        enableBotones(habilitados);
+    }
 
-        opacityPane = findViewById(R.id.opacityPane);
+    /**
+     * Cancela los eventos pendientes, cierra el alert si está abierto y libera el motor de notas. Al volver el
+     * hilo de audio ya ha soltado el AudioTrack. Si se están midiendo las métricas las muestra en el log.
+     */
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        ticker.cancel();
+        if (vistaTablero != null) {
+            vistaTablero.cancel();
+        } else {
+            for (PadAnimator animador : animadores) {
+                animador.cancel();
+            }
+        }
+        lblInfo.clearAnimation();
+        if (dialogoSalir != null)
+            dialogoSalir.dismiss();
+        if (noteEngine != null)
+            noteEngine.release();
+        if (metrics.isActivo())
+            Log.d("METRICAS", metrics.snapshot().toJson());
+    }
 
-        lblInfo = findViewById(R.id.lblInfo);
+    /**
+     * Muestra un Alert advertiendo al jugador que si sale se perderá su progreso actual.
+     *
+     * @see PlayActivity#showAlertDialog()
+     */
+    @Override
+    public void onBackPressed() {
+        showAlertDialog();
     }
 
     /**
-     * Carga los listeners.
+     * Inicializa los elementos de la vista y crea el tablero.
      */
-    private void cargarListeners() {
-        btn1.setOnClickListener(this);
-        btn1.setOnLongClickListener(this);
+    private void cargarVista() {
+        if (getResources().getBoolean(R.bool.tableroDibujado)) {
+            // La vista del tablero ocupa el sitio de la rejilla, con su id y sus restricciones
+            View rejilla = findViewById(R.id.tablero);
+            ViewGroup raiz = (ViewGroup) rejilla.getParent();
+            int posicion = raiz.indexOfChild(rejilla);
+            vistaTablero = new BoardView(this, tablero);
+            vistaTablero.setId(R.id.tablero);
+            raiz.removeViewAt(posicion);
+            raiz.addView(vistaTablero, posicion, rejilla.getLayoutParams());
+        }
+        crearTablero();
 
-        btn2.setOnClickListener(this);
+        opacityPane = findViewById(R.id.opacityPane);
 
-        btn3.setOnClickListener(this);
-        btn3.setOnLongClickListener(this);
+        lblInfo = findViewById(R.id.lblInfo);
+    }
 
-        btn4.setOnClickListener(this);
+    /**
+     * Crea los botones del tablero en una rejilla, o coloca los del tablero dibujado. Los botones encogen para que
+     * quepa el tablero entero en la pantalla, sin pasar del tamaño de los botones del tablero clásico.
+     */
+    private void crearTablero() {
+        DisplayMetrics pantalla = getResources().getDisplayMetrics();
+        int celda = Math.min(pantalla.widthPixels / tablero.getColumnas(), pantalla.heightPixels / tablero.getFilas());
+        int ladoMaximo = getResources().getDimensionPixelSize(R.dimen.ladoBoton);
+        int margen = Math.min(getResources().getDimensionPixelSize(R.dimen.margenBoton), celda / 8);
+        int lado = Math.min(ladoMaximo, celda - 2 * margen);
+        float texto = getResources().getDimension(R.dimen.textoBoton) * lado / ladoMaximo;
+        if (vistaTablero != null) {
+            vistaTablero.setMedidas(lado, margen, texto);
+            return;
+        }
 
-        btn5.setOnClickListener(this);
+        GridLayout rejilla = findViewById(R.id.tablero);
+        rejilla.setColumnCount(tablero.getColumnas());
+        botones = new Button[tablero.size()];
+        animadores = new PadAnimator[tablero.size()];
+        for (int i = 0; i < botones.length; i++) {
+            Pad pad = tablero.getPad(i + 1);
+            GradientDrawable fondo = new GradientDrawable();
+            fondo.setShape(GradientDrawable.OVAL);
+            fondo.setColor(pad.getColor());
+
+            Button boton = new Button(this);
+            boton.setBackground(fondo);
+            boton.setMinWidth(0);
+            boton.setMinimumWidth(0);
+            boton.setMinHeight(0);
+            boton.setMinimumHeight(0);
+            boton.setPadding(0, 0, 0, 0);
+            boton.setSoundEffectsEnabled(false);
+            boton.setTextSize(TypedValue.COMPLEX_UNIT_PX, texto);
+            boton.setText(String.valueOf(pad.getId()));
+            boton.setTag(R.id.pad, pad.getId());
+
+            GridLayout.LayoutParams params = new GridLayout.LayoutParams();
+            params.width = lado;
+            params.height = lado;
+            params.setMargins(margen, margen, margen, margen);
+            rejilla.addView(boton, params);
+            botones[i] = boton;
+            animadores[i] = new PadAnimator(boton);
+        }
+    }
 
-        btn6.setOnClickListener(this);
-        btn6.setOnLongClickListener(this);
+    /**
+     * Carga los listeners.
+     */
+    private void cargarListeners() {
+        if (vistaTablero != null) {
+            vistaTablero.setListener(this);
+        } else {
+            for (Button boton : botones) {
+                boton.setOnTouchListener(this);
+                boton.setOnLongClickListener(this);
+            }
+        }
 
         opacityPane.setOnClickListener(this);
-
-        mediaPlayer.setOnPreparedListener(new MediaPlayer.OnPreparedListener() {
-            @Override
-            public void onPrepared(MediaPlayer mp) {
-                mediaPlayer.start();
-            }
-        });
     }
 
     /**
-     * Carga los archivos con las notas.
+     * Carga las notas. La aplicación ya las ha decodificado al arrancar, o las sintetiza, así que sólo se crea el
+     * backend que las mezcla por software para que puedan sonar varias a la vez. Se crea después del primer frame:
+     * la cuenta atrás deja tiempo de sobra para que esté listo antes de la primera nota.
+     *
+     * @see SimonApplication#crearBackend(int)
      */
     private void loadMusic() {
-        try {
-            doo = getAssets().openFd("do.mp3");
-            re = getAssets().openFd("re.mp3");
-            mi = getAssets().openFd("mi.mp3");
-            fa = getAssets().openFd("fa.mp3");
-            sol = getAssets().openFd("sol.mp3");
-            la = getAssets().openFd("la.mp3");
-        } catch (IOException e) {
-            Log.e("LOAD MUSICA", e.toString());
-            finish();
-        }
-        cuentaAtras();
+        final SimonApplication app = (SimonApplication) getApplication();
+        app.despuesDelPrimerFrame(new Runnable() {
+            @Override
+            public void run() {
+                if (isDestroyed())
+                    return;
+                NoteBackend backend = app.crearBackend(app.getNumeroNotas(tablero.size()));
+                noteEngine = new NoteEngine(backend, Clock.SISTEMA, metrics);
+                if (inicioPausa != 0)
+                    noteEngine.pause();
+            }
+        });
     }
 
     /**
@@ -342,41 +719,32 @@ public class PlayActivity extends AppCompatActivity implements View.OnClickListe
                 dialog.dismiss();
             }
         });
-        builder.create().show();
+        dialogoSalir = builder.create();
+        dialogoSalir.show();
     }
 
     /**
-     * Aumenta el tamaño de la vista indicada un 120% de su tamaño original.
+     * Aumenta el tamaño del botón indicado un 120% de su tamaño original.
      *
-     * @param boton vista que se desea que crezca.
+     * @param numBoton número del botón que se desea que crezca.
      */
-    private void crecer(View boton) {
-        ObjectAnimator scaleDownX2 = ObjectAnimator.ofFloat(boton, "scaleX", 1.2f);
-        ObjectAnimator scaleDownY2 = ObjectAnimator.ofFloat(boton, "scaleY", 1.2f);
-        scaleDownX2.setDuration(DURATION_CRECER_ENCOGER_BOTONES);
-        scaleDownY2.setDuration(DURATION_CRECER_ENCOGER_BOTONES);
-
-        AnimatorSet scaleDown2 = new AnimatorSet();
-        scaleDown2.play(scaleDownX2).with(scaleDownY2);
-
-        scaleDown2.start();
+    private void crecer(int numBoton) {
+        if (vistaTablero != null)
+            vistaTablero.crecer(numBoton, duracionAnimacion);
+        else
+            animadores[numBoton - 1].crecer(duracionAnimacion);
     }
 
     /**
-     * Encoge el tamaño de la vista indicada un 80% de su tamaño original.
+     * Devuelve el botón indicado a su tamaño original.
      *
-     * @param boton vista que se desea que encoja.
+     * @param numBoton número del botón que se desea que encoja.
      */
-    private void encoger(View boton) {
-        ObjectAnimator scaleDownX = ObjectAnimator.ofFloat(boton, "scaleX", 1f);
-        ObjectAnimator scaleDownY = ObjectAnimator.ofFloat(boton, "scaleY", 1f);
-        scaleDownX.setDuration(DURATION_CRECER_ENCOGER_BOTONES);
-        scaleDownY.setDuration(DURATION_CRECER_ENCOGER_BOTONES);
-
-        AnimatorSet scaleDown = new AnimatorSet();
-        scaleDown.play(scaleDownX).with(scaleDownY);
-
-        scaleDown.start();
+    private void encoger(int numBoton) {
+        if (vistaTablero != null)
+            vistaTablero.encoger(numBoton, duracionAnimacion);
+        else
+            animadores[numBoton - 1].encoger(duracionAnimacion);
     }
 
     /**
@@ -385,149 +753,141 @@ public class PlayActivity extends AppCompatActivity implements View.OnClickListe
      * @param enabled true si se desea habilitar los botones. false si se desea deshabilitar los botones.
      */
     private void enableBotones(boolean enabled) {
-        btn1.setEnabled(enabled);
-        btn2.setEnabled(enabled);
-        btn3.setEnabled(enabled);
-        btn4.setEnabled(enabled);
-        btn5.setEnabled(enabled);
-        btn6.setEnabled(enabled);
-    }
-
-    /**
-     * Anima y reproduce la nota correxpondiente al botón con el número actual de la serie.
-     *
-     * @param numBoton número que contiene el botón pulsado por el usuario o el número actual de la serie.
-     */
-    private void animate(int numBoton) {
-        switch (numBoton) {
-            case 1:
-                crecer(btn1);
-                play(numBoton);
-                new Handler().postDelayed(new Runnable() {
-                    @Override
-                    public void run() {
-                        encoger(btn1);
-                    }
-                }, DURATION_CRECER_ENCOGER_BOTONES);
-                break;
-            case 2:
-                crecer(btn2);
-                play(numBoton);
-                new Handler().postDelayed(new Runnable() {
-                    @Override
-                    public void run() {
-                        encoger(btn2);
-                    }
-                }, DURATION_CRECER_ENCOGER_BOTONES);
-                break;
-            case 3:
-                crecer(btn3);
-                play(numBoton);
-                new Handler().postDelayed(new Runnable() {
-                    @Override
-                    public void run() {
-                        encoger(btn3);
-                    }
-                }, DURATION_CRECER_ENCOGER_BOTONES);
-                break;
-            case 4:
-                crecer(btn4);
-                play(numBoton);
-                new Handler().postDelayed(new Runnable() {
-                    @Override
-                    public void run() {
-                        encoger(btn4);
-                    }
-                }, DURATION_CRECER_ENCOGER_BOTONES);
-                break;
-            case 5:
-                crecer(btn5);
-                play(numBoton);
-                new Handler().postDelayed(new Runnable() {
-                    @Override
-                    public void run() {
-                        encoger(btn5);
-                    }
-                }, DURATION_CRECER_ENCOGER_BOTONES);
-                break;
-            case 6:
-                crecer(btn6);
-                play(numBoton);
-                new Handler().postDelayed(new Runnable() {
-                    @Override
-                    public void run() {
-                        encoger(btn6);
-                    }
-                }, DURATION_CRECER_ENCOGER_BOTONES);
-                break;
+        // Un botón deshabilitado no pasa el dedo que sube al listener, así que se olvidan los dedos que hubiera
+        entrada.cancel();
+        if (vistaTablero != null) {
+            vistaTablero.setEnabled(enabled);
+            return;
+        }
+        for (Button boton : botones) {
+            boton.setEnabled(enabled);
         }
     }
 
     /**
-     * Detiene y reinicia el Media Player antes de reproducir la nota correspondiente al botón pulsado.
+     * Anima y reproduce la nota correxpondiente al botón pulsado por el jugador.
+     *
+     * @param numBoton número que contiene el botón pulsado por el usuario.
+     * @param instante instante en el que el dedo tocó la pantalla, con la base de SystemClock.uptimeMillis().
+     */
+    private void animate(int numBoton, long instante) {
+        crecer(numBoton);
+        play(numBoton, instante);
+        sequencer.scheduleIn(EVENTO_ENCOGER, numBoton, duracionAnimacion);
+        ticker.start();
+    }
+
+    /**
+     * Reproduce la nota correspondiente al botón pulsado según el tablero. La nota ya está decodificada, así que no
+     * bloquea ni corta la nota anterior.
      *
      * @param numBoton número del botón pulsado.
      */
     private void play(int numBoton) {
-        mediaPlayer.stop();
-        mediaPlayer.reset();
-        try {
-            switch (numBoton) {
-                case 1:
-                    mediaPlayer.setDataSource(doo.getFileDescriptor(), doo.getStartOffset(), doo.getLength());
-                    break;
-                case 2:
-                    mediaPlayer.setDataSource(re.getFileDescriptor(), re.getStartOffset(), re.getLength());
-                    break;
-                case 3:
-                    mediaPlayer.setDataSource(mi.getFileDescriptor(), mi.getStartOffset(), mi.getLength());
-                    break;
-                case 4:
-                    mediaPlayer.setDataSource(fa.getFileDescriptor(), fa.getStartOffset(), fa.getLength());
-                    break;
-                case 5:
-                    mediaPlayer.setDataSource(sol.getFileDescriptor(), sol.getStartOffset(), sol.getLength());
-                    break;
-                case 6:
-                    mediaPlayer.setDataSource(la.getFileDescriptor(), la.getStartOffset(), la.getLength());
-                    break;
-            }
-            mediaPlayer.prepare();
-        } catch (IOException e) {
-            Log.e("ERROR", e.toString());
-        }
+        if (noteEngine != null)
+            noteEngine.play(tablero.getNota(numBoton));
     }
 
     /**
-     * Realiza la cuenta atrás para empezar el juego.
+     * Reproduce la nota del botón que ha tocado el jugador y mide la latencia desde el toque. El instante del evento
+     * se pasa al reloj del motor restándole lo que ha pasado desde entonces.
+     *
+     * @param numBoton número del botón pulsado.
+     * @param instante instante en el que el dedo tocó la pantalla, con la base de SystemClock.uptimeMillis().
+     */
+    private void play(int numBoton, long instante) {
+        if (noteEngine != null)
+            noteEngine.play(tablero.getNota(numBoton),
+                    Clock.SISTEMA.nanoTime() - (SystemClock.uptimeMillis() - instante) * 1_000_000L);
+    }
+
+    /**
+     * Realiza la cuenta atrás para empezar el juego. Los tres pasos se programan desde el mismo instante.
      */
     private void cuentaAtras() {
-        final Animation animation = AnimationUtils.loadAnimation(this, R.anim.encoger_text_view);
         lblInfo.setTextColor(Color.WHITE);
         lblInfo.setText(R.string.three);
-        lblInfo.startAnimation(animation);
-        new Handler().postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                lblInfo.setText(R.string.two);
-                lblInfo.startAnimation(animation);
-                new Handler().postDelayed(new Runnable() {
-                    @Override
-                    public void run() {
-                        lblInfo.setText(R.string.one);
-                        lblInfo.startAnimation(animation);
-                        new Handler().postDelayed(new Runnable() {
-                            @Override
-                            public void run() {
-                                lblInfo.setVisibility(View.GONE);
-                                opacityPane.setVisibility(View.GONE);
-                                cpu();
-                            }
-                        }, DURATION_CRECER_ENCOGER_TEXT_VIEW);
-                    }
-                }, DURATION_CRECER_ENCOGER_TEXT_VIEW);
-            }
-        }, DURATION_CRECER_ENCOGER_TEXT_VIEW);
+        lblInfo.startAnimation(animacionCuentaAtras);
+        long inicio = sequencer.now();
+        long duracion = DURATION_CRECER_ENCOGER_TEXT_VIEW * 1_000_000L;
+        for (int paso = 1; paso <= 3; paso++) {
+            sequencer.schedule(EVENTO_CUENTA_ATRAS, 3 - paso, inicio + paso * duracion);
+        }
+        ticker.start();
+    }
+
+    /**
+     * Muestra el siguiente número de la cuenta atrás o, si ha llegado a 0, empieza la partida.
+     *
+     * @param numero número de la cuenta atrás.
+     */
+    private void pasoCuentaAtras(int numero) {
+        if (numero == 0) {
+            ocultarPanel();
+            inicioPartida = SystemClock.uptimeMillis();
+            engine.start();
+        } else {
+            lblInfo.setText(numero == 2 ? R.string.two : R.string.one);
+            lblInfo.startAnimation(animacionCuentaAtras);
+        }
+    }
+
+    /**
+     * Quita el panel opaco y el label para poder jugar.
+     */
+    private void ocultarPanel() {
+        lblInfo.setVisibility(View.GONE);
+        opacityPane.setVisibility(View.GONE);
+    }
+
+    /**
+     * Ejecuta los eventos del secuenciador cuando llega su instante.
+     *
+     * @param tipo tipo del evento.
+     * @param dato número del botón o de la cuenta atrás, según el tipo.
+     */
+    @Override
+    public void onEvento(int tipo, int dato) {
+        if (replay.onEvento(tipo, dato))
+            return;
+        switch (tipo) {
+            case EVENTO_ENCOGER:
+                encoger(dato);
+                break;
+            case EVENTO_CUENTA_ATRAS:
+                pasoCuentaAtras(dato);
+                break;
+            case EVENTO_SERIE:
+                cpu();
+                break;
+        }
+    }
+
+    @Override
+    public void onNotaOn(int numero) {
+        crecer(numero);
+        play(numero);
+    }
+
+    @Override
+    public void onNotaOff(int numero) {
+        encoger(numero);
+    }
+
+    /**
+     * Habilita los botones y empieza el turno del jugador. La primera vez avisa al sistema de que la partida ya se
+     * puede jugar, para poder medir lo que se tarda desde que se abre el activity.
+     */
+    @Override
+    public void onFinSerie() {
+        if (!jugable && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            jugable = true;
+            reportFullyDrawn();
+        }
+        enableBotones(true);
+        inicioEspera = SystemClock.uptimeMillis();
+        grabacion.listo(inicioEspera - inicioPartida);
+        engine.finTurnoCpu();
     }
 
     /**
@@ -535,97 +895,153 @@ public class PlayActivity extends AppCompatActivity implements View.OnClickListe
      * <p>
      * Anima el botón con el número pulsado por el jugador.
      * <p>
-     * Comprueba que el número pulsado sea correcto o no. Si es correcto y no se ha acabado la partia el jugador
-     * pasa a la siguiente ronda y se deshabilitan los botones hasta que la cpu termine de mostrar la serie.
-     * Si es correcto y se ha terminado la partida muestra el mensaje de "VICTORIA".
-     * Si se equivoca se termina la partida y se muestra el mensaje de "Buen intento".
+     * El motor comprueba que el número pulsado sea correcto o no y avisa si empieza el turno de la cpu,
+     * si el jugador gana o si pierde. La pulsación se graba antes, porque si termina la partida se guarda al momento.
      *
-     * @param numero número del botón pulsado
-     * @see PlayActivity#play(int)
-     * @see PlayActivity#animate(int)
-     * @see PlayActivity#mostrarVictoria()
-     * @see PlayActivity#mostrarDerrota()
-     * @see PlayActivity#enableBotones(boolean)
+     * @param numero   número del botón pulsado
+     * @param instante instante en el que el dedo tocó la pantalla, con la base de SystemClock.uptimeMillis().
+     * @see PlayActivity#animate(int, long)
+     * @see PlayActivity#onTurnoCpu(int)
+     * @see PlayActivity#onVictoria()
+     * @see PlayActivity#onDerrota()
+     */
+    private void jugar(int numero, long instante) {
+        animate(numero, instante);
+        int reaccion = -1;
+        int veredicto = GameRecorder.IGNORADA;
+        if (engine.getEstado() == SimonEngine.Estado.TURNO_JUGADOR) {
+            veredicto = numero == engine.getNumero(engine.getPosicion()) ? GameRecorder.ACIERTO : GameRecorder.FALLO;
+            // Un toque que llega justo después de habilitar los botones puede ser anterior al turno
+            reaccion = (int) Math.max(0, instante - inicioEspera);
+            addTiempo(reaccion);
+            metrics.record(Metrics.Histograma.REACCION, reaccion * 1_000_000L);
+            metrics.increment(Metrics.Contador.PULSACIONES);
+            inicioEspera = Math.max(inicioEspera, instante);
+        }
+        grabacion.pulsacion(numero, veredicto, instante - inicioPartida);
+        engine.pulsar(numero, reaccion);
+    }
+
+    /**
+     * Guarda el tiempo de reacción de una pulsación. Si el buffer está lleno sustituye al más antiguo.
+     *
+     * @param tiempo tiempo de reacción en milisegundos.
+     */
+    private void addTiempo(int tiempo) {
+        tiempos[numTiempos % tiempos.length] = tiempo;
+        numTiempos++;
+    }
+
+    /**
+     * @return los últimos {@link PlayActivity#MAXIMO_TIEMPOS} tiempos de reacción como mucho, del más antiguo al más
+     * reciente.
+     */
+    private int[] ultimosTiempos() {
+        int n = Math.min(numTiempos, tiempos.length);
+        int[] ultimos = new int[n];
+        for (int i = 0, j = numTiempos - n; i < n; i++, j++) {
+            ultimos[i] = tiempos[j % tiempos.length];
+        }
+        return ultimos;
+    }
+
+    /**
+     * Deshabilita los botones y muestra la serie. Si no es la primera ronda espera antes de mostrarla.
+     *
+     * @param ronda ronda que empieza.
      * @see PlayActivity#cpu()
      */
-    private void jugar(int numero) {
-        play(numero);
-        animate(numero);
-        if (index == TURNOS && numero == cpu.get(index - 1))
-            mostrarVictoria();
-        else if (numero != cpu.get(index - 1))
-            mostrarDerrota();
-        if ((index == turnoActual && turnoActual < TURNOS) && !fin) {
-            index = 0;
-            turnoActual++;
-            enableBotones(false);
-            new Handler().postDelayed(new Runnable() {
-                @Override
-                public void run() {
-                    cpu();
-                }
-            }, 1000);
+    @Override
+    public void onTurnoCpu(int ronda) {
+        enableBotones(false);
+        if (ronda == 1) {
+            cpu();
+        } else {
+            sequencer.scheduleIn(EVENTO_SERIE, 0, DELAY_SIGUIENTE_RONDA);
+            ticker.start();
+        }
+    }
+
+    @Override
+    public void onVictoria() {
+        guardarPartida(true);
+        mostrarVictoria();
+    }
+
+    @Override
+    public void onDerrota() {
+        guardarPartida(false);
+        mostrarDerrota();
+    }
+
+    /**
+     * Registra la partida en el historial y guarda su repetición. La escritura en disco se hace en segundo plano.
+     *
+     * @param victoria true si el jugador ha ganado.
+     */
+    private void guardarPartida(boolean victoria) {
+        metrics.increment(Metrics.Contador.PARTIDAS);
+        SimonApplication app = (SimonApplication) getApplication();
+        long fecha = System.currentTimeMillis();
+        int duracion = (int) (SystemClock.uptimeMillis() - inicioPartida);
+        ReplayStore repeticiones = app.getRepeticiones();
+        if (repeticiones != null) {
+            grabacion.fin(victoria, duracion);
+            repeticiones.save(grabacion.exportar(fecha, engine.getSerie()));
         }
-        index++;
+        GameHistoryStore historial = app.getHistorial();
+        if (historial == null)
+            return;
+        historial.record(new GameRecord(fecha, engine.getSemilla(), engine.getConfig().getTurnos(),
+                engine.getRonda(), duracion, victoria, ultimosTiempos()));
     }
 
     /**
-     * Termina la partida y muestra el mensaje de "Buen inento".
+     * Muestra el mensaje de "Buen inento".
      *
-     * @see PlayActivity#jugar(int)
+     * @see PlayActivity#onDerrota()
      */
     private void mostrarDerrota() {
         opacityPane.setVisibility(View.VISIBLE);
         lblInfo.setVisibility(View.VISIBLE);
         lblInfo.setTextColor(Color.parseColor("#FF5500"));
         lblInfo.setText(R.string.defeated);
-        Animation animation = AnimationUtils.loadAnimation(this, R.anim.crecer_text_view);
-        lblInfo.startAnimation(animation);
-        fin = true;
+        lblInfo.startAnimation(animacionResultado);
     }
 
     /**
-     * Termina la partida y muestra el mensaje de "VICTORIA".
+     * Muestra el mensaje de "VICTORIA".
      *
-     * @see PlayActivity#jugar(int)
+     * @see PlayActivity#onVictoria()
      */
     private void mostrarVictoria() {
         opacityPane.setVisibility(View.VISIBLE);
         lblInfo.setVisibility(View.VISIBLE);
         lblInfo.setTextColor(Color.parseColor("#FFFE00"));
         lblInfo.setText(R.string.victory);
-        Animation animation = AnimationUtils.loadAnimation(this, R.anim.crecer_text_view);
-        lblInfo.startAnimation(animation);
-        fin = true;
-        Log.d("INDEX", String.valueOf(index));
+        lblInfo.startAnimation(animacionResultado);
+        Log.d("RONDA", String.valueOf(engine.getRonda()));
     }
 
     /**
-     * Añade un número aleatorio a la serie entre el 1 y el 6.
-     * Después muestra la serie al usuario
+     * Muestra al usuario la serie generada por la cpu al ritmo de la ronda actual. Al terminar habilita los botones
+     * y empieza el turno del jugador.
+     * <p>
+     * Cada nota programa la siguiente desde el mismo instante inicial, así que los retrasos no se acumulan y el coste
+     * de programar la serie no crece con las rondas.
      *
-     * @see PlayActivity#jugar(int)
+     * @see PlayActivity#onTurnoCpu(int)
+     * @see PlayActivity#onFinSerie()
      */
     private void cpu() {
-        enableBotones(false);
-        int numeroNuevo = (int) (Math.random() * NUMERO_MAXIMO) + 1;
-        cpu.add(numeroNuevo);
-        Log.d("NUMERO", String.valueOf(numeroNuevo));
-        for (int i = 0; i < cpu.size(); i++) {
-            final int finalI = i;
-            new Handler().postDelayed(new Runnable() {
-                @Override
-                public void run() {
-                    animate(cpu.get(finalI));
-                }
-            }, DURATION_CRECER_ENCOGER_BOTONES * 2 * i + 100);
-        }
-        new Handler().postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                enableBotones(true);
-            }
-        }, DURATION_CRECER_ENCOGER_BOTONES * 2 * cpu.size());
+        int ronda = engine.getRonda();
+        Log.d("NUMERO", String.valueOf(engine.getNumero(ronda - 1)));
+        int duracionPaso = engine.getDuracionPaso();
+        duracionAnimacion = Math.min(DURATION_CRECER_ENCOGER_BOTONES, duracionPaso / 2);
+        grabacion.ronda(ronda, duracionPaso, SystemClock.uptimeMillis() - inicioPartida + DELAY_PRIMERA_NOTA);
+        replay.start(engine.getSerie(), ronda, sequencer.now(), DELAY_PRIMERA_NOTA * 1_000_000L,
+                duracionPaso * 1_000_000L, duracionAnimacion * 1_000_000L);
+        ticker.start();
     }
 
     /**
@@ -633,15 +1049,14 @@ public class PlayActivity extends AppCompatActivity implements View.OnClickListe
      * Si la dificultad es "Dificil" sólo se puede usar una vez.
      */
     private void truco() {
-        if (numTruco < NUMERO_MAXIMO_TRUCO || NUMERO_MAXIMO_TRUCO == 0) {
+        if (engine.usarTruco()) {
             StringBuilder numeros = new StringBuilder();
-            for (int i = index - 1; i < cpu.size(); i++) {
-                numeros.append(cpu.get(i)).append(" ");
+            for (int i = engine.getPosicion(); i < engine.getRonda(); i++) {
+                numeros.append(engine.getNumero(i)).append(" ");
             }
             Toast.makeText(this, numeros.toString().trim(), Toast.LENGTH_LONG).show();
             paso1 = false;
             paso2 = false;
-            numTruco++;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,371 @@
+package es.rbp.simonbp;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import android.content.res.Configuration;
+import android.graphics.Color;
+import android.os.Build;
+import android.os.Bundle;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.Window;
+import android.widget.Button;
+import android.widget.FrameLayout;
+import android.widget.SeekBar;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import java.io.IOException;
+
+import es.rbp.simonbp.core.Board;
+import es.rbp.simonbp.core.Clock;
+import es.rbp.simonbp.core.GameRecorder;
+import es.rbp.simonbp.core.GameReplay;
+import es.rbp.simonbp.core.NoteEngine;
+import es.rbp.simonbp.core.ReplayPlayer;
+import es.rbp.simonbp.core.ReplayStore;
+import es.rbp.simonbp.core.Sequencer;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Activity que repite la última partida guardada. La serie y las pulsaciones del jugador se animan y suenan por el
+ * mismo camino que en la partida, a la velocidad elegida, así que se ve exactamente lo que vio y pulsó el jugador.
+ * Cuando una pulsación pierde la partida se muestra qué número tocaba.
+ * <p>
+ * La barra permite saltar a cualquier punto de la partida: si cae mientras se mostraba la serie, la repetición
+ * empieza en el principio de esa ronda.
+ *
+ * @see ReplayPlayer
+ */
+public class ReplayActivity extends AppCompatActivity implements Sequencer.Listener, ReplayPlayer.Listener,
+        View.OnClickListener, SeekBar.OnSeekBarChangeListener {
+
+    /**
+     * Velocidades que se pueden elegir, en el orden en el que se recorren
+     */
+    private static final int[] VELOCIDADES = {1, 2, 4, 8};
+
+    /**
+     * Duración máxima de la animación de crecer o encoger los botones a velocidad normal
+     */
+    private static final int DURATION_CRECER_ENCOGER_BOTONES = 250;
+
+    /**
+     * Cada cuánto se mueve la barra, en milisegundos
+     */
+    private static final int PERIODO_PROGRESO = 100;
+
+    /**
+     * Tipos de eventos del secuenciador, además de los de {@link ReplayPlayer}
+     *
+     * @see ReplayActivity#onEvento(int, int)
+     */
+    private static final int EVENTO_ENCOGER = 1, EVENTO_PROGRESO = 2;
+
+    /**
+     * Eventos que caben en el secuenciador sin reservar memoria
+     */
+    private static final int CAPACIDAD_SECUENCIADOR = 64;
+
+    private Board tablero;
+
+    private BoardView vistaTablero;
+
+    private Sequencer sequencer;
+
+    private FrameTicker ticker;
+
+    private NoteEngine noteEngine;
+
+    /**
+     * Reproductor de la partida, o null mientras se carga
+     */
+    private ReplayPlayer player;
+
+    private TextView lblRonda;
+
+    private TextView lblPulsacion;
+
+    private SeekBar barra;
+
+    private Button btnVelocidad;
+
+    private int velocidad = VELOCIDADES[0];
+
+    /**
+     * true mientras el usuario arrastra la barra
+     */
+    private boolean arrastrando;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        requestWindowFeature(Window.FEATURE_NO_TITLE);
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_replay);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            getWindow().setStatusBarColor(getResources().getColor(R.color.colorPrimaryDark));
+        }
+
+        sequencer = new Sequencer(Clock.SISTEMA, CAPACIDAD_SECUENCIADOR);
+        sequencer.setListener(this);
+        ticker = new FrameTicker(sequencer);
+
+        lblRonda = findViewById(R.id.lblRonda);
+        lblPulsacion = findViewById(R.id.lblPulsacion);
+        barra = findViewById(R.id.barra);
+        barra.setOnSeekBarChangeListener(this);
+        barra.setEnabled(false);
+        btnVelocidad = findViewById(R.id.btnVelocidad);
+        btnVelocidad.setOnClickListener(this);
+        btnVelocidad.setText(getString(R.string.velocidad, velocidad));
+
+        cargarRepeticion();
+    }
+
+    /**
+     * Lee la última repetición en un hilo aparte, porque puede tener que esperar a que se abran las repeticiones o a
+     * que se termine de escribir.
+     */
+    private void cargarRepeticion() {
+        final SimonApplication app = (SimonApplication) getApplication();
+        Thread hilo = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                ReplayStore repeticiones = app.getRepeticiones();
+                GameReplay leida = null;
+                try {
+                    if (repeticiones != null)
+                        leida = repeticiones.getUltima();
+                } catch (IOException e) {
+                    Log.e("REPETICION", "No se puede leer la repetición", e);
+                }
+                final GameReplay repeticion = leida;
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (isFinishing())
+                            return;
+                        if (repeticion == null)
+                            sinRepeticion();
+                        else
+                            mostrar(repeticion);
+                    }
+                });
+            }
+        }, "ReplayLoader");
+        hilo.start();
+    }
+
+    private void sinRepeticion() {
+        Toast.makeText(this, R.string.sinRepeticion, Toast.LENGTH_LONG).show();
+        finish();
+    }
+
+    /**
+     * Crea el tablero de la partida y empieza a repetirla desde el principio.
+     */
+    private void mostrar(GameReplay repeticion) {
+        SimonApplication app = (SimonApplication) getApplication();
+        int numeroBotones = repeticion.getNumeroBotones();
+        tablero = Board.crear(numeroBotones, app.getNumeroNotas(numeroBotones));
+        noteEngine = new NoteEngine(app.crearBackend(app.getNumeroNotas(numeroBotones)), Clock.SISTEMA,
+                app.getMetrics());
+        vistaTablero = new BoardView(this, tablero);
+        vistaTablero.setEnabled(false);
+        ((ViewGroup) findViewById(R.id.raiz)).addView(vistaTablero, 0, new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT, Gravity.CENTER));
+        crearTablero();
+
+        Log.d("SEMILLA", String.valueOf(repeticion.getSemilla()));
+        if (repeticion.isTruncada())
+            lblPulsacion.setText(R.string.repeticionTruncada);
+        barra.setMax((int) repeticion.getDuracion());
+        barra.setEnabled(true);
+        player = new ReplayPlayer(sequencer, repeticion, this);
+        reproducir(0);
+    }
+
+    /**
+     * Igual que en {@link MultiplayerActivity}, los botones caben en la pantalla sin pasar del tamaño del tablero
+     * clásico.
+     */
+    private void crearTablero() {
+        DisplayMetrics pantalla = getResources().getDisplayMetrics();
+        int celda = Math.min(pantalla.widthPixels / tablero.getColumnas(), pantalla.heightPixels / tablero.getFilas());
+        int ladoMaximo = getResources().getDimensionPixelSize(R.dimen.ladoBoton);
+        int margen = Math.min(getResources().getDimensionPixelSize(R.dimen.margenBoton), celda / 8);
+        int lado = Math.min(ladoMaximo, celda - 2 * margen);
+        float texto = getResources().getDimension(R.dimen.textoBoton) * lado / ladoMaximo;
+        vistaTablero.setMedidas(lado, margen, texto);
+    }
+
+    /**
+     * Empieza a repetir desde un instante con todos los botones en reposo.
+     *
+     * @param desde instante de la partida, en milisegundos.
+     */
+    private void reproducir(long desde) {
+        sequencer.cancel();
+        vistaTablero.cancel();
+        for (int numero = 1; numero <= tablero.size(); numero++) {
+            vistaTablero.encoger(numero, 0);
+        }
+        player.start(desde, velocidad);
+        sequencer.scheduleIn(EVENTO_PROGRESO, 0, PERIODO_PROGRESO);
+        ticker.start();
+    }
+
+    /**
+     * Pasa a la siguiente velocidad. Después de la más rápida vuelve a la normal.
+     */
+    @Override
+    public void onClick(View v) {
+        if (v.getId() != R.id.btnVelocidad)
+            return;
+        int siguiente = VELOCIDADES[0];
+        for (int opcion : VELOCIDADES) {
+            if (opcion > velocidad) {
+                siguiente = opcion;
+                break;
+            }
+        }
+        velocidad = siguiente;
+        btnVelocidad.setText(getString(R.string.velocidad, velocidad));
+        if (player != null && !player.isTerminada())
+            reproducir(player.getPosicion());
+    }
+
+    @Override
+    public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
+    }
+
+    @Override
+    public void onStartTrackingTouch(SeekBar seekBar) {
+        arrastrando = true;
+    }
+
+    @Override
+    public void onStopTrackingTouch(SeekBar seekBar) {
+        arrastrando = false;
+        if (player != null)
+            reproducir(seekBar.getProgress());
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        ticker.pause();
+        if (noteEngine != null)
+            noteEngine.pause();
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (noteEngine != null)
+            noteEngine.resume();
+        ticker.resume();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        if (vistaTablero != null)
+            crearTablero();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        ticker.cancel();
+        if (vistaTablero != null)
+            vistaTablero.cancel();
+        if (noteEngine != null)
+            noteEngine.release();
+    }
+
+    @Override
+    public void onEvento(int tipo, int dato) {
+        if (player.onEvento(tipo, dato))
+            return;
+        switch (tipo) {
+            case EVENTO_ENCOGER:
+                vistaTablero.encoger(dato, getDuracionAnimacion());
+                break;
+            case EVENTO_PROGRESO:
+                if (!arrastrando)
+                    barra.setProgress((int) player.getPosicion());
+                if (!player.isTerminada())
+                    sequencer.scheduleIn(EVENTO_PROGRESO, 0, PERIODO_PROGRESO);
+                break;
+        }
+    }
+
+    /**
+     * @return duración de la animación de los botones a la velocidad actual.
+     */
+    private int getDuracionAnimacion() {
+        return DURATION_CRECER_ENCOGER_BOTONES / velocidad;
+    }
+
+    @Override
+    public void onRonda(int ronda) {
+        lblRonda.setText(getString(R.string.rondaRepeticion, ronda));
+    }
+
+    @Override
+    public void onNotaOn(int numero) {
+        vistaTablero.crecer(numero, getDuracionAnimacion());
+        noteEngine.play(tablero.getNota(numero));
+    }
+
+    @Override
+    public void onNotaOff(int numero) {
+        vistaTablero.encoger(numero, getDuracionAnimacion());
+    }
+
+    @Override
+    public void onTurnoJugador() {
+        lblPulsacion.setTextColor(Color.WHITE);
+        lblPulsacion.setText(R.string.repite);
+    }
+
+    /**
+     * Anima y toca la pulsación como en la partida. Las que no contaron se anotan en el label sin animarse.
+     */
+    @Override
+    public void onPulsacion(int numero, int esperado, int veredicto) {
+        switch (veredicto) {
+            case GameRecorder.ACIERTO:
+            case GameRecorder.FALLO:
+                vistaTablero.crecer(numero, getDuracionAnimacion());
+                noteEngine.play(tablero.getNota(numero));
+                sequencer.scheduleIn(EVENTO_ENCOGER, numero, getDuracionAnimacion());
+                ticker.start();
+                if (veredicto == GameRecorder.FALLO) {
+                    lblPulsacion.setTextColor(Color.parseColor("#FF5500"));
+                    lblPulsacion.setText(getString(R.string.pulsacionFallo, numero, esperado));
+                }
+                break;
+            case GameRecorder.IGNORADA:
+                lblPulsacion.setTextColor(Color.GRAY);
+                lblPulsacion.setText(getString(R.string.pulsacionIgnorada, numero));
+                break;
+            case GameRecorder.REBOTE:
+                lblPulsacion.setTextColor(Color.GRAY);
+                lblPulsacion.setText(getString(R.string.pulsacionRebote, numero));
+                break;
+        }
+    }
+
+    @Override
+    public void onFin(boolean victoria) {
+        lblRonda.setText(victoria ? R.string.victory : R.string.defeated);
+        barra.setProgress(barra.getMax());
+    }
+}
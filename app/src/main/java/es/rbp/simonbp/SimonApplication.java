@@ -0,0 +1,384 @@
+package es.rbp.simonbp;
+
+import android.app.Application;
+import android.content.ComponentCallbacks2;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.Choreographer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+
+import es.rbp.simonbp.core.AdaptivePolicy;
+import es.rbp.simonbp.core.DifficultyPolicy;
+import es.rbp.simonbp.core.GameHistoryStore;
+import es.rbp.simonbp.core.Metrics;
+import es.rbp.simonbp.core.NoteBackend;
+import es.rbp.simonbp.core.NoteBank;
+import es.rbp.simonbp.core.NoteEngine;
+import es.rbp.simonbp.core.PlayerStats;
+import es.rbp.simonbp.core.ReplayStore;
+import es.rbp.simonbp.core.ToneSynth;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Aplicación de Simón B.P. Guarda lo que comparten los activities: las notas decodificadas, el historial de partidas,
+ * las repeticiones, las métricas y el rendimiento del jugador para la dificultad adaptativa.
+ * <p>
+ * Para que el menú se dibuje cuanto antes, todo lo que lee del disco o habla con el servidor de audio se prepara en
+ * un hilo de arranque: las notas, la frecuencia de la salida de audio, el historial y las repeticiones. Los
+ * activities crean su backend de notas después de dibujar el primer frame.
+ *
+ * @see SimonApplication#cuandoArranque(Runnable)
+ * @see SimonApplication#despuesDelPrimerFrame(Runnable)
+ */
+public class SimonApplication extends Application {
+
+    /**
+     * Directorio del historial dentro de los ficheros de la app
+     */
+    private static final String DIRECTORIO_HISTORIAL = "historial";
+
+    /**
+     * Directorio de las repeticiones dentro de los ficheros de la app
+     */
+    private static final String DIRECTORIO_REPETICIONES = "repeticiones";
+
+    /**
+     * Amplitud por debajo de la cual el final de una nota se considera silencio
+     *
+     * @see NoteBank#recortarSilencio(short[], int)
+     */
+    private static final int UMBRAL_SILENCIO = 16;
+
+    /**
+     * Voces y bloque del sintetizador
+     */
+    private static final int VOCES_SYNTH = 8, BLOQUE_SYNTH = 256;
+
+    /**
+     * Envolvente de las notas sintetizadas, en milisegundos salvo el nivel de sostenido
+     */
+    private static final int MS_ATAQUE = 5, MS_DECAIMIENTO = 60, MS_SOSTENIDO = 250, MS_RELAJACION = 150;
+
+    private static final float NIVEL_SOSTENIDO = 0.6f;
+
+    /**
+     * true si las notas se sintetizan en vez de decodificarse
+     *
+     * @see SimonApplication#crearBackend()
+     */
+    private boolean sintetizar;
+
+    /**
+     * Notas decodificadas que comparten todos los backends
+     *
+     * @see SimonApplication#getNotas()
+     */
+    private NoteBank notas;
+
+    /**
+     * Historial de partidas, o null si no se ha podido abrir
+     */
+    private GameHistoryStore historial;
+
+    /**
+     * Repeticiones de las últimas partidas, o null si no se han podido abrir
+     */
+    private ReplayStore repeticiones;
+
+    /**
+     * Métricas del juego. Sólo se miden en las builds de depuración
+     */
+    private Metrics metrics;
+
+    /**
+     * Rendimiento reciente del jugador. Dura lo que el proceso, así que cada partida adaptativa empieza al ritmo en
+     * el que terminó la anterior
+     */
+    private final PlayerStats statsJugador = new PlayerStats();
+
+    private final DifficultyPolicy politicaDificultad = new AdaptivePolicy();
+
+    private Handler principal;
+
+    /**
+     * Se abre cuando el hilo de arranque ha terminado
+     *
+     * @see SimonApplication#arrancar()
+     */
+    private final CountDownLatch arrancada = new CountDownLatch(1);
+
+    /**
+     * true cuando el hilo principal ya sabe que ha terminado el arranque. Sólo lo usa el hilo principal
+     */
+    private boolean arrancadaPrincipal;
+
+    /**
+     * Acciones que esperan al arranque. Sólo las usa el hilo principal
+     */
+    private final List<Runnable> alArrancar = new ArrayList<>();
+
+    /**
+     * Frecuencia de la salida de audio, o 0 si todavía no se conoce
+     */
+    private volatile int frecuenciaSalida;
+
+    /**
+     * Sólo lee la configuración y lanza el hilo de arranque, así que no retrasa el primer frame del menú.
+     */
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        metrics = new Metrics(BuildConfig.DEBUG);
+        sintetizar = getResources().getBoolean(R.bool.sintetizarNotas);
+        principal = new Handler(Looper.getMainLooper());
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                arrancar();
+            }
+        }, "Arranque").start();
+    }
+
+    /**
+     * Si no se sintetizan las notas empieza a decodificarlas, y si se sintetizan pregunta la frecuencia de la salida
+     * de audio. Después abre el historial y las repeticiones. Se ejecuta en el hilo de arranque.
+     * <p>
+     * Pase lo que pase, al terminar se abre {@link SimonApplication#arrancada} y se ejecutan las acciones pendientes;
+     * si no, el hilo principal se quedaría esperando para siempre en cuanto pidiera el historial. Un almacén que no se
+     * puede abrir se queda a null, como si no hubiera historial.
+     */
+    private void arrancar() {
+        long inicio = System.nanoTime();
+        try {
+            if (sintetizar)
+                frecuenciaSalida = AudioTrack.getNativeOutputSampleRate(AudioManager.STREAM_MUSIC);
+            else
+                getNotas();
+            try {
+                historial = new GameHistoryStore(new File(getFilesDir(), DIRECTORIO_HISTORIAL));
+            } catch (IOException | RuntimeException e) {
+                Log.e("HISTORIAL", "No se puede abrir el historial", e);
+            }
+            try {
+                repeticiones = new ReplayStore(new File(getFilesDir(), DIRECTORIO_REPETICIONES));
+            } catch (IOException | RuntimeException e) {
+                Log.e("REPETICIONES", "No se pueden abrir las repeticiones", e);
+            }
+        } finally {
+            arrancada.countDown();
+            Log.d("ARRANQUE", String.format(Locale.ROOT, "Arranque en segundo plano en %.1f ms",
+                    (System.nanoTime() - inicio) / 1e6));
+            principal.post(new Runnable() {
+                @Override
+                public void run() {
+                    arrancadaPrincipal = true;
+                    for (Runnable accion : alArrancar) {
+                        accion.run();
+                    }
+                    alArrancar.clear();
+                }
+            });
+        }
+    }
+
+    /**
+     * Ejecuta una acción en el hilo principal cuando el historial y las repeticiones están abiertos, sin bloquearlo.
+     * Si ya lo están la ejecuta al momento. Sólo se debe llamar desde el hilo principal.
+     *
+     * @param accion acción que usa el historial o las repeticiones.
+     */
+    public void cuandoArranque(Runnable accion) {
+        if (arrancadaPrincipal)
+            accion.run();
+        else
+            alArrancar.add(accion);
+    }
+
+    /**
+     * Ejecuta una acción en el hilo principal en cuanto se haya dibujado el siguiente frame. El callback del
+     * Choreographer llega antes de dibujar el frame, y el mensaje que deja se procesa después. Sirve para preparar lo
+     * que no hace falta para el primer frame de un activity, como su backend de notas.
+     *
+     * @param accion acción que no debe retrasar el primer frame.
+     */
+    public void despuesDelPrimerFrame(final Runnable accion) {
+        Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                principal.post(accion);
+            }
+        });
+    }
+
+    /**
+     * Espera a que termine el hilo de arranque. Sólo bloquea los primeros milisegundos después de abrir la app.
+     */
+    private void esperarArranque() {
+        boolean interrumpido = false;
+        while (true) {
+            try {
+                arrancada.await();
+                break;
+            } catch (InterruptedException e) {
+                interrumpido = true;
+            }
+        }
+        if (interrumpido)
+            Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Si el historial aún se está abriendo espera a que termine. En el hilo principal, nada más abrir la app, es
+     * mejor usar {@link SimonApplication#cuandoArranque(Runnable)}.
+     *
+     * @return el historial de partidas, o null si no se ha podido abrir.
+     */
+    public GameHistoryStore getHistorial() {
+        esperarArranque();
+        return historial;
+    }
+
+    /**
+     * Si las repeticiones aún se están abriendo espera a que termine.
+     *
+     * @return las repeticiones de las últimas partidas, o null si no se han podido abrir.
+     */
+    public ReplayStore getRepeticiones() {
+        esperarArranque();
+        return repeticiones;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return estadísticas del jugador. Sólo se usan desde el hilo principal.
+     */
+    public PlayerStats getStatsJugador() {
+        return statsJugador;
+    }
+
+    public DifficultyPolicy getPoliticaDificultad() {
+        return politicaDificultad;
+    }
+
+    /**
+     * Crea un backend de notas para un activity con las seis notas de los assets.
+     *
+     * @return backend nuevo. Se debe liberar al terminar.
+     * @see SimonApplication#crearBackend(int)
+     */
+    public NoteBackend crearBackend() {
+        return crearBackend(NoteEngine.NOTAS.length);
+    }
+
+    /**
+     * Crea un backend de notas para un activity. Según la configuración mezcla las notas decodificadas o las
+     * sintetiza; en ese caso no se lee ningún asset. El AudioTrack se abre en el hilo del backend, así que sólo
+     * bloquea si hay que preguntar la frecuencia de la salida porque aún no lo ha hecho el hilo de arranque.
+     *
+     * @param numeroNotas notas que se quieren tocar. Las notas decodificadas son siempre las de los assets, así que
+     *                    sólo cuenta al sintetizar.
+     * @return backend nuevo. Se debe liberar al terminar.
+     * @see SimonApplication#getNumeroNotas(int)
+     */
+    public NoteBackend crearBackend(int numeroNotas) {
+        if (!sintetizar)
+            return new PcmBackend(getNotas());
+        int frecuencia = frecuenciaSalida;
+        if (frecuencia == 0)
+            frecuencia = AudioTrack.getNativeOutputSampleRate(AudioManager.STREAM_MUSIC);
+        ToneSynth.Envolvente envolvente = ToneSynth.Envolvente.enMilisegundos(frecuencia, MS_ATAQUE,
+                MS_DECAIMIENTO, NIVEL_SOSTENIDO, MS_SOSTENIDO, MS_RELAJACION);
+        return new PcmBackend(new ToneSynth(frecuencia, ToneSynth.escalaMayor(numeroNotas),
+                VOCES_SYNTH, BLOQUE_SYNTH, envolvente));
+    }
+
+    /**
+     * @param numeroBotones número de botones del tablero.
+     * @return notas distintas que puede tocar un tablero de ese tamaño: una por botón si se sintetizan, o las de
+     * los assets si no.
+     */
+    public int getNumeroNotas(int numeroBotones) {
+        return sintetizar ? numeroBotones : NoteEngine.NOTAS.length;
+    }
+
+    /**
+     * Devuelve las notas decodificadas. Si se liberaron por falta de memoria las vuelve a decodificar en segundo
+     * plano.
+     *
+     * @return banco con las notas, que puede estar todavía cargándose.
+     */
+    public synchronized NoteBank getNotas() {
+        if (notas == null || notas.isLiberado() || notas.isFallido()) {
+            notas = new NoteBank(NoteEngine.NOTAS.length);
+            cargarNotas(notas);
+        }
+        return notas;
+    }
+
+    /**
+     * Si la app está en segundo plano y el sistema necesita memoria suelta las notas. Los backends que estén sonando
+     * conservan su copia, y la próxima vez que se pidan se vuelven a decodificar.
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            synchronized (this) {
+                if (notas != null)
+                    notas.release();
+            }
+        }
+    }
+
+    /**
+     * Decodifica todas las notas en un hilo aparte y las guarda en el banco. El banco tiene una sola frecuencia de
+     * muestreo para todas, así que si alguna nota tiene otra la carga falla en vez de sonar desafinada.
+     *
+     * @param banco banco donde se guardan las notas.
+     */
+    private void cargarNotas(final NoteBank banco) {
+        Thread hilo = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                PcmDecoder decoder = new PcmDecoder();
+                short[][] pcm = new short[NoteEngine.NOTAS.length][];
+                int frecuencia = 0;
+                try {
+                    for (int i = 0; i < pcm.length; i++) {
+                        pcm[i] = NoteBank.recortarSilencio(decoder.decode(getAssets(), NoteEngine.NOTAS[i]),
+                                UMBRAL_SILENCIO);
+                        if (i == 0) {
+                            frecuencia = decoder.getFrecuencia();
+                        } else if (decoder.getFrecuencia() != frecuencia) {
+                            Log.e("LOAD MUSICA", NoteEngine.NOTAS[i] + " está a " + decoder.getFrecuencia()
+                                    + " Hz y " + NoteEngine.NOTAS[0] + " a " + frecuencia + " Hz");
+                            banco.fail();
+                            return;
+                        }
+                    }
+                } catch (IOException e) {
+                    Log.e("LOAD MUSICA", e.toString());
+                    banco.fail();
+                    return;
+                }
+                banco.set(pcm, frecuencia);
+                Log.d("AUDIO", String.format(Locale.ROOT, "Notas decodificadas en %.1f ms, %d KB",
+                        banco.getNanosCarga() / 1e6, banco.getBytes() / 1024));
+            }
+        }, "NoteBank");
+        hilo.start();
+    }
+}
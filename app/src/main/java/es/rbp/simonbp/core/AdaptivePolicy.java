@@ -0,0 +1,78 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Política que acerca el ritmo de la serie al del jugador. Si falla muchas rondas el ritmo baja; si falla pocas y
+ * su tiempo de reacción, con una desviación de margen, cabe holgadamente en un paso, el ritmo sube. Cuando el ritmo
+ * ya está al máximo la cpu añade dos números por ronda en vez de uno.
+ */
+public class AdaptivePolicy implements DifficultyPolicy {
+
+    /**
+     * Duración máxima del paso, en milisegundos. La mínima es {@link SimonConfig#DURACION_PASO_MINIMA}
+     */
+    public static final int DURACION_PASO_MAXIMA = 700;
+
+    /**
+     * Pulsaciones que hay que ver antes de acelerar
+     */
+    public static final int PULSACIONES_MINIMAS = 5;
+
+    private final double fallosAltos;
+
+    private final double fallosBajos;
+
+    private final double holgura;
+
+    private final double frenada;
+
+    private final double aceleracion;
+
+    /**
+     * Política con los valores del juego: frena un 15 % por encima de un 35 % de rondas falladas y acelera un 10 %
+     * por debajo de un 15 % si la reacción cabe en 1,5 pasos.
+     */
+    public AdaptivePolicy() {
+        this(0.35, 0.15, 1.5, 1.15, 0.9);
+    }
+
+    /**
+     * @param fallosAltos tasa de fallos a partir de la que se frena.
+     * @param fallosBajos tasa de fallos por debajo de la que se puede acelerar.
+     * @param holgura     veces la duración del paso que puede llegar a tardar el jugador para acelerar.
+     * @param frenada     factor por el que se multiplica la duración del paso al frenar, mayor que 1.
+     * @param aceleracion factor por el que se multiplica la duración del paso al acelerar, entre 0 y 1.
+     */
+    public AdaptivePolicy(double fallosAltos, double fallosBajos, double holgura, double frenada,
+                          double aceleracion) {
+        if (fallosBajos < 0 || fallosBajos > fallosAltos || fallosAltos > 1)
+            throw new IllegalArgumentException("Tasas de fallos no válidas: " + fallosBajos + ", " + fallosAltos);
+        if (frenada <= 1 || aceleracion <= 0 || aceleracion >= 1)
+            throw new IllegalArgumentException("Factores no válidos: " + frenada + ", " + aceleracion);
+        this.fallosAltos = fallosAltos;
+        this.fallosBajos = fallosBajos;
+        this.holgura = holgura;
+        this.frenada = frenada;
+        this.aceleracion = aceleracion;
+    }
+
+    @Override
+    public void decidir(PlayerStats stats, SimonConfig config, Ajuste ajuste) {
+        int duracion = ajuste.duracionPaso > 0 ? ajuste.duracionPaso : config.getDuracionPaso(1);
+        double tasaFallos = stats.getTasaFallos();
+        double reaccion = stats.getReaccionMedia() + stats.getReaccionDesviacion();
+        int notas = 1;
+        if (tasaFallos > fallosAltos) {
+            duracion = Math.min(DURACION_PASO_MAXIMA, (int) (duracion * frenada));
+        } else if (tasaFallos < fallosBajos && stats.getPulsaciones() >= PULSACIONES_MINIMAS
+                && reaccion < duracion * holgura) {
+            int acelerada = Math.max(SimonConfig.DURACION_PASO_MINIMA, (int) (duracion * aceleracion));
+            if (acelerada == duracion)
+                notas = 2;
+            duracion = acelerada;
+        }
+        ajuste.duracionPaso = duracion;
+        ajuste.notasNuevas = notas;
+    }
+}
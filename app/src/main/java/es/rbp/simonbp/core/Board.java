@@ -0,0 +1,165 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Tablero de juego definido por datos: un array de {@link Pad} en el que el botón con número n está en la posición
+ * n - 1, y el número de columnas en el que se colocan. La vista guarda en cada botón su número, así que pasar de la
+ * vista al botón, a su nota o a su color es un acceso a un array, tenga el tablero 4 botones o 32.
+ *
+ * @see SimonConfig#getNumeroBotones()
+ */
+public class Board {
+
+    /**
+     * Colores de los seis botones del tablero clásico, en orden
+     */
+    public static final int[] COLORES_CLASICOS = {
+            0xFF2991F0, 0xFFB730E9, 0xFFF317D5, 0xFFF3174C, 0xFFFEE328, 0xFF28FEBC
+    };
+
+    /**
+     * Grados de tono entre dos colores generados seguidos. Con el ángulo áureo los colores nunca se repiten y dos
+     * botones seguidos siempre quedan lejos en la rueda de color
+     */
+    private static final double ANGULO_AUREO = 137.50776405003785;
+
+    private final Pad[] pads;
+
+    private final int columnas;
+
+    /**
+     * @param pads     botones del tablero. El botón de la posición i debe tener el número i + 1.
+     * @param columnas número de columnas en las que se colocan los botones.
+     */
+    public Board(Pad[] pads, int columnas) {
+        if (pads.length < SimonConfig.MINIMO_BOTONES || pads.length > SimonConfig.MAXIMO_BOTONES)
+            throw new IllegalArgumentException("Número de botones no soportado: " + pads.length);
+        if (columnas < 1 || columnas > pads.length)
+            throw new IllegalArgumentException("Número de columnas no válido: " + columnas);
+        for (int i = 0; i < pads.length; i++) {
+            if (pads[i].getId() != i + 1)
+                throw new IllegalArgumentException("El botón " + pads[i].getId() + " está en la posición " + i);
+        }
+        this.pads = pads.clone();
+        this.columnas = columnas;
+    }
+
+    /**
+     * Crea un tablero cuadrado, o casi, con los colores del tablero clásico para los seis primeros botones y colores
+     * generados para el resto. Si hay más botones que notas las notas se repiten.
+     *
+     * @param numeroBotones número de botones del tablero.
+     * @param numeroNotas   número de notas distintas que se pueden tocar.
+     * @return tablero nuevo.
+     */
+    public static Board crear(int numeroBotones, int numeroNotas) {
+        if (numeroNotas < 1)
+            throw new IllegalArgumentException("Número de notas no válido: " + numeroNotas);
+        if (numeroBotones < SimonConfig.MINIMO_BOTONES || numeroBotones > SimonConfig.MAXIMO_BOTONES)
+            throw new IllegalArgumentException("Número de botones no soportado: " + numeroBotones);
+        Pad[] pads = new Pad[numeroBotones];
+        for (int i = 0; i < numeroBotones; i++) {
+            pads[i] = new Pad(i + 1, color(i), i % numeroNotas + 1);
+        }
+        return new Board(pads, (int) Math.ceil(Math.sqrt(numeroBotones)));
+    }
+
+    /**
+     * @param indice posición del botón en el tablero.
+     * @return color ARGB del botón.
+     */
+    static int color(int indice) {
+        if (indice < COLORES_CLASICOS.length)
+            return COLORES_CLASICOS[indice];
+        double tono = ((indice - COLORES_CLASICOS.length) * ANGULO_AUREO) % 360;
+        return hsv(tono, 0.75, 0.95);
+    }
+
+    /**
+     * Convierte un color HSV a ARGB opaco, como android.graphics.Color#HSVToColor pero sin depender de Android.
+     *
+     * @param tono       tono en grados, entre 0 y 360.
+     * @param saturacion saturación entre 0 y 1.
+     * @param valor      valor entre 0 y 1.
+     * @return color ARGB.
+     */
+    static int hsv(double tono, double saturacion, double valor) {
+        double croma = valor * saturacion;
+        double sector = tono / 60;
+        double x = croma * (1 - Math.abs(sector % 2 - 1));
+        double r, g, b;
+        switch ((int) sector) {
+            case 0:
+                r = croma;
+                g = x;
+                b = 0;
+                break;
+            case 1:
+                r = x;
+                g = croma;
+                b = 0;
+                break;
+            case 2:
+                r = 0;
+                g = croma;
+                b = x;
+                break;
+            case 3:
+                r = 0;
+                g = x;
+                b = croma;
+                break;
+            case 4:
+                r = x;
+                g = 0;
+                b = croma;
+                break;
+            default:
+                r = croma;
+                g = 0;
+                b = x;
+                break;
+        }
+        double m = valor - croma;
+        return 0xFF000000 | canal(r + m) << 16 | canal(g + m) << 8 | canal(b + m);
+    }
+
+    private static int canal(double valor) {
+        return (int) Math.round(valor * 255);
+    }
+
+    /**
+     * @param id número del botón, empezando por 1.
+     * @return descripción del botón.
+     */
+    public Pad getPad(int id) {
+        return pads[id - 1];
+    }
+
+    /**
+     * @param id número del botón, empezando por 1.
+     * @return nota que suena al pulsar el botón.
+     */
+    public int getNota(int id) {
+        return pads[id - 1].getNota();
+    }
+
+    /**
+     * @return número de botones del tablero.
+     */
+    public int size() {
+        return pads.length;
+    }
+
+    public int getColumnas() {
+        return columnas;
+    }
+
+    /**
+     * @return número de filas necesarias para colocar todos los botones.
+     */
+    public int getFilas() {
+        return (pads.length + columnas - 1) / columnas;
+    }
+}
@@ -0,0 +1,110 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Posición de cada botón de un {@link Board} dibujado en una rejilla, como la colocaría un GridLayout: celdas
+ * cuadradas con el botón redondo en el centro y un margen alrededor. Los centros se calculan una vez al colocar el
+ * tablero, y saber qué botón hay bajo un punto es una división por eje y una comparación de distancias, tenga el
+ * tablero los botones que tenga.
+ */
+public class BoardGeometry {
+
+    private final Board tablero;
+
+    private final float[] centrosX;
+
+    private final float[] centrosY;
+
+    private float radio;
+
+    private float celda;
+
+    /**
+     * @param tablero tablero que se coloca. Hasta llamar a {@link BoardGeometry#colocar(int, int)} mide 0.
+     */
+    public BoardGeometry(Board tablero) {
+        this.tablero = tablero;
+        this.centrosX = new float[tablero.size()];
+        this.centrosY = new float[tablero.size()];
+    }
+
+    /**
+     * Coloca los botones en la rejilla.
+     *
+     * @param lado   diámetro de cada botón, en píxeles.
+     * @param margen espacio alrededor de cada botón, en píxeles.
+     */
+    public void colocar(int lado, int margen) {
+        if (lado <= 0 || margen < 0)
+            throw new IllegalArgumentException("Medidas no válidas: " + lado + ", " + margen);
+        celda = lado + 2 * margen;
+        radio = lado / 2f;
+        int columnas = tablero.getColumnas();
+        for (int i = 0; i < centrosX.length; i++) {
+            centrosX[i] = (i % columnas) * celda + celda / 2;
+            centrosY[i] = (i / columnas) * celda + celda / 2;
+        }
+    }
+
+    /**
+     * @param x coordenada horizontal desde la esquina del tablero, en píxeles.
+     * @param y coordenada vertical desde la esquina del tablero, en píxeles.
+     * @return número del botón que hay en el punto, o 0 si no hay ninguno.
+     */
+    public int padEn(float x, float y) {
+        if (celda == 0 || x < 0 || y < 0)
+            return 0;
+        int columna = (int) (x / celda);
+        int fila = (int) (y / celda);
+        if (columna >= tablero.getColumnas())
+            return 0;
+        int indice = fila * tablero.getColumnas() + columna;
+        if (indice >= centrosX.length)
+            return 0;
+        float dx = x - centrosX[indice];
+        float dy = y - centrosY[indice];
+        return dx * dx + dy * dy <= radio * radio ? indice + 1 : 0;
+    }
+
+    /**
+     * @param numero número del botón, empezando por 1.
+     * @return coordenada horizontal del centro del botón.
+     */
+    public float getCentroX(int numero) {
+        return centrosX[numero - 1];
+    }
+
+    /**
+     * @param numero número del botón, empezando por 1.
+     * @return coordenada vertical del centro del botón.
+     */
+    public float getCentroY(int numero) {
+        return centrosY[numero - 1];
+    }
+
+    /**
+     * @return radio de los botones sin animar, en píxeles.
+     */
+    public float getRadio() {
+        return radio;
+    }
+
+    /**
+     * @return ancho de la rejilla entera, en píxeles.
+     */
+    public int getAncho() {
+        return (int) (tablero.getColumnas() * celda);
+    }
+
+    /**
+     * @return alto de la rejilla entera, en píxeles.
+     */
+    public int getAlto() {
+        return (int) (tablero.getFilas() * celda);
+    }
+
+    public Board getTablero() {
+        return tablero;
+    }
+}
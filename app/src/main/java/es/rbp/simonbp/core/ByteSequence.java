@@ -0,0 +1,147 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Serie de números del 1 al máximo indicado guardada en un byte[], un paso por byte. Sustituye al ArrayList de Integer
+ * de la serie de la cpu: una serie de miles de pasos ocupa unos pocos KB, nunca se usan Integer y leer un paso, que es
+ * lo que se hace en cada pulsación, es leer un byte. Empaquetar varios pasos en cada long ocupaba menos, pero el
+ * desplazamiento y la máscara de cada lectura la hacían más lenta que la del ArrayList.
+ * <p>
+ * Añadir, leer, comparar prefijos y extraer subrangos no reservan memoria salvo cuando la serie tiene que crecer,
+ * y la capacidad se puede reservar de antemano con el constructor.
+ */
+public class ByteSequence {
+
+    /**
+     * Mayor número que se puede guardar en cualquier serie, y el de las series creadas sin máximo. Cada paso ocupa un
+     * byte
+     */
+    public static final int MAXIMO_POSIBLE = 255;
+
+    private final int maximo;
+
+    private byte[] datos;
+
+    private int longitud;
+
+    public ByteSequence() {
+        this(16);
+    }
+
+    /**
+     * @param capacidad número de pasos que caben sin tener que crecer.
+     */
+    public ByteSequence(int capacidad) {
+        this(capacidad, MAXIMO_POSIBLE);
+    }
+
+    /**
+     * @param capacidad número de pasos que caben sin tener que crecer.
+     * @param maximo    mayor número que se va a guardar, entre 1 y {@link ByteSequence#MAXIMO_POSIBLE}.
+     */
+    public ByteSequence(int capacidad, int maximo) {
+        if (maximo < 1 || maximo > MAXIMO_POSIBLE)
+            throw new IllegalArgumentException("Máximo no soportado: " + maximo);
+        this.maximo = maximo;
+        datos = new byte[Math.max(1, capacidad)];
+    }
+
+    /**
+     * Añade un paso al final de la serie.
+     *
+     * @param numero número entre 1 y {@link ByteSequence#getMaximo()}.
+     */
+    public void add(int numero) {
+        if (numero < 1 || numero > maximo)
+            throw new IllegalArgumentException("Número fuera de rango: " + numero);
+        if (longitud == datos.length) {
+            byte[] mayor = new byte[datos.length * 2];
+            System.arraycopy(datos, 0, mayor, 0, datos.length);
+            datos = mayor;
+        }
+        datos[longitud++] = (byte) numero;
+    }
+
+    /**
+     * @param i posición de la serie, empezando por 0.
+     * @return número en esa posición.
+     */
+    public int get(int i) {
+        if (i < 0 || i >= longitud)
+            throw new IndexOutOfBoundsException("Posición " + i + " de " + longitud);
+        return datos[i] & 0xFF;
+    }
+
+    /**
+     * @return número de pasos de la serie.
+     */
+    public int size() {
+        return longitud;
+    }
+
+    /**
+     * @return mayor número que se puede guardar en la serie.
+     */
+    public int getMaximo() {
+        return maximo;
+    }
+
+    /**
+     * Vacía la serie sin liberar la memoria reservada.
+     */
+    public void clear() {
+        longitud = 0;
+    }
+
+    /**
+     * Compara los primeros pasos de las dos series, aunque tengan máximos distintos.
+     *
+     * @param otra     serie con la que se compara.
+     * @param longitud número de pasos a comparar.
+     * @return true si las dos series tienen al menos esa longitud y coinciden en esos pasos.
+     */
+    public boolean startsWith(ByteSequence otra, int longitud) {
+        if (longitud > this.longitud || longitud > otra.longitud)
+            return false;
+        for (int i = 0; i < longitud; i++) {
+            if (datos[i] != otra.datos[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Copia un subrango de la serie en un array de enteros.
+     *
+     * @param desde   primera posición a copiar.
+     * @param hasta   posición siguiente a la última a copiar.
+     * @param destino array donde se copian los números.
+     * @param offset  posición de destino donde se copia el primer número.
+     */
+    public void copyRange(int desde, int hasta, int[] destino, int offset) {
+        if (desde < 0 || hasta > longitud || desde > hasta)
+            throw new IndexOutOfBoundsException("Rango " + desde + "-" + hasta + " de " + longitud);
+        for (int i = desde; i < hasta; i++) {
+            destino[offset++] = datos[i] & 0xFF;
+        }
+    }
+
+    /**
+     * Sustituye el contenido de esta serie por un subrango de otra, reutilizando la memoria de esta serie.
+     *
+     * @param origen serie de la que se copia.
+     * @param desde  primera posición a copiar.
+     * @param hasta  posición siguiente a la última a copiar.
+     */
+    public void setRange(ByteSequence origen, int desde, int hasta) {
+        if (origen == this)
+            throw new IllegalArgumentException("No se puede copiar una serie sobre sí misma");
+        if (desde < 0 || hasta > origen.longitud || desde > hasta)
+            throw new IndexOutOfBoundsException("Rango " + desde + "-" + hasta + " de " + origen.longitud);
+        clear();
+        for (int i = desde; i < hasta; i++) {
+            add(origen.get(i));
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Reloj monotónico en nanosegundos. Permite sustituir el reloj del sistema por uno falso en los tests de la JVM.
+ */
+public interface Clock {
+
+    /**
+     * Reloj del sistema basado en {@link System#nanoTime()}
+     */
+    Clock SISTEMA = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    /**
+     * @return instante actual en nanosegundos. Sólo tiene sentido comparado con otro instante del mismo reloj.
+     */
+    long nanoTime();
+}
@@ -0,0 +1,104 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Cola circular de comandos de audio con tamaño fijo, para un único productor (el hilo principal) y un único
+ * consumidor (el hilo de audio). Como {@link PcmRingBuffer}, las posiciones son volatile y cada lado sólo modifica la
+ * suya, así que encolar y desencolar nunca bloquean ni reservan memoria.
+ * <p>
+ * Cada comando es un int. Si la cola está llena el comando se descarta: una nota que llega tarde no sirve de nada.
+ *
+ * @see QueuedSource
+ */
+public class CommandQueue {
+
+    /**
+     * Lo devuelve {@link CommandQueue#poll()} cuando no hay comandos
+     */
+    public static final int VACIA = Integer.MIN_VALUE;
+
+    private final int[] comandos;
+
+    /**
+     * Máscara para calcular la posición dentro de la cola. La capacidad siempre es potencia de 2.
+     */
+    private final int mascara;
+
+    /**
+     * Total de comandos encolados desde que se creó la cola. Sólo lo modifica el productor
+     */
+    private volatile long encolados;
+
+    /**
+     * Total de comandos desencolados desde que se creó la cola. Sólo lo modifica el consumidor
+     */
+    private volatile long desencolados;
+
+    /**
+     * Comandos que no cabían en la cola. Sólo lo modifica el productor
+     */
+    private volatile long descartados;
+
+    /**
+     * @param capacidad número mínimo de comandos que deben caber en la cola. Se redondea a la siguiente potencia de 2.
+     */
+    public CommandQueue(int capacidad) {
+        if (capacidad <= 0)
+            throw new IllegalArgumentException("La capacidad debe ser positiva: " + capacidad);
+        int potencia = Integer.highestOneBit(capacidad);
+        if (potencia < capacidad)
+            potencia <<= 1;
+        comandos = new int[potencia];
+        mascara = potencia - 1;
+    }
+
+    public int getCapacidad() {
+        return comandos.length;
+    }
+
+    /**
+     * @return comandos pendientes de desencolar.
+     */
+    public int size() {
+        return (int) (encolados - desencolados);
+    }
+
+    /**
+     * Encola un comando. Sólo lo debe llamar el productor.
+     *
+     * @param comando comando a encolar. No puede ser {@link CommandQueue#VACIA}.
+     * @return false si la cola estaba llena y se ha descartado.
+     */
+    public boolean offer(int comando) {
+        if (comando == VACIA)
+            throw new IllegalArgumentException("Comando reservado: " + comando);
+        long posicion = encolados;
+        if (posicion - desencolados == comandos.length) {
+            descartados++;
+            return false;
+        }
+        comandos[(int) posicion & mascara] = comando;
+        // La escritura volatile publica el comando al consumidor
+        encolados = posicion + 1;
+        return true;
+    }
+
+    /**
+     * Desencola el comando más antiguo. Sólo lo debe llamar el consumidor.
+     *
+     * @return el comando, o {@link CommandQueue#VACIA} si no hay ninguno.
+     */
+    public int poll() {
+        long posicion = desencolados;
+        if (posicion == encolados)
+            return VACIA;
+        int comando = comandos[(int) posicion & mascara];
+        desencolados = posicion + 1;
+        return comando;
+    }
+
+    public long getDescartados() {
+        return descartados;
+    }
+}
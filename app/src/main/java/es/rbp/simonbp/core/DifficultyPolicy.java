@@ -0,0 +1,42 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Decide el ritmo y cuántos números añade la cpu en cada ronda a partir del rendimiento del jugador. El motor la
+ * consulta antes de cada turno de la cpu, así que debe ser rápida y no reservar memoria: escribe la decisión en un
+ * {@link Ajuste} que le pasa el motor.
+ * <p>
+ * Las implementaciones no deben tener estado propio, todo debe estar en {@link PlayerStats}. Así la misma política
+ * se puede compartir entre partidas y entre hilos del simulador.
+ *
+ * @see AdaptivePolicy
+ * @see SimonEngine#setAdaptacion(DifficultyPolicy, PlayerStats)
+ */
+public interface DifficultyPolicy {
+
+    /**
+     * Ajuste de la siguiente ronda
+     */
+    class Ajuste {
+
+        /**
+         * Duración de cada paso de la serie, en milisegundos
+         */
+        public int duracionPaso;
+
+        /**
+         * Números que añade la cpu a la serie, al menos 1
+         */
+        public int notasNuevas = 1;
+    }
+
+    /**
+     * Decide el ajuste de la siguiente ronda.
+     *
+     * @param stats  rendimiento del jugador hasta ahora.
+     * @param config configuración de la partida.
+     * @param ajuste ajuste de la ronda anterior, que se sobrescribe con el de la siguiente.
+     */
+    void decidir(PlayerStats stats, SimonConfig config, Ajuste ajuste);
+}
@@ -0,0 +1,570 @@
+package es.rbp.simonbp.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Historial de partidas en disco con la clasificación de cada dificultad.
+ * <p>
+ * Las partidas se añaden al final de un log binario que nunca se reescribe. Cada registro lleva su longitud y un CRC,
+ * así que si la app muere a mitad de una escritura el registro cortado se descarta al abrir el historial. Las
+ * escrituras se agrupan y se hacen en un hilo aparte, nunca en el hilo que llama a {@link #record(GameRecord)}.
+ * <p>
+ * Junto al log se guarda un índice con las N mejores partidas de cada dificultad y hasta qué byte del log las tiene en
+ * cuenta. Al abrir el historial sólo se lee el índice y la parte del log posterior a él, así que el tiempo de carga
+ * no depende del número de partidas guardadas.
+ */
+public class GameHistoryStore {
+
+    /**
+     * Partidas de cada clasificación por defecto
+     */
+    public static final int TOP = 10;
+
+    /**
+     * Nombres de los ficheros dentro del directorio del historial
+     */
+    public static final String FICHERO_LOG = "historial.log", FICHERO_INDICE = "historial.idx";
+
+    private static final int MAGIA_LOG = 0x53425048, MAGIA_INDICE = 0x53425049;
+
+    private static final int VERSION = 1;
+
+    /**
+     * Bytes de la cabecera del log: magia y versión
+     */
+    private static final int CABECERA = 8;
+
+    /**
+     * Bytes que ocupa un registro además del cuerpo: longitud y CRC
+     */
+    private static final int MARCO = 8;
+
+    /**
+     * Longitud máxima del cuerpo de un registro. Una longitud mayor sólo puede ser basura
+     */
+    private static final int CUERPO_MAXIMO = 64 * 1024 * 1024;
+
+    private final File log;
+
+    private final File indice;
+
+    private final int capacidad;
+
+    private final ExecutorService escritor;
+
+    /**
+     * Clasificaciones con todas las partidas registradas, incluidas las que aún no se han escrito
+     */
+    private final Map<Integer, Leaderboard> tablas = new HashMap<>();
+
+    /**
+     * Partidas registradas que aún no se han escrito
+     */
+    private List<GameRecord> pendientes = new ArrayList<>();
+
+    private boolean escrituraProgramada;
+
+    private long total;
+
+    /**
+     * Clasificaciones con las partidas que ya están en el log. Sólo las usa el hilo escritor
+     */
+    private final Map<Integer, Leaderboard> tablasEscritas = new HashMap<>();
+
+    /**
+     * Bytes válidos del log. Sólo lo usa el hilo escritor después de cargar
+     */
+    private long longitudLog;
+
+    private long totalEscritas;
+
+    /**
+     * Último error del hilo escritor
+     */
+    private volatile IOException error;
+
+    /**
+     * Abre el historial con clasificaciones de {@link #TOP} partidas.
+     *
+     * @param directorio directorio del historial. Se crea si no existe.
+     * @throws IOException si no se puede leer ni crear el log.
+     */
+    public GameHistoryStore(File directorio) throws IOException {
+        this(directorio, TOP);
+    }
+
+    /**
+     * Abre el historial. Si el índice no existe o está dañado se reconstruye a partir del log.
+     *
+     * @param directorio directorio del historial. Se crea si no existe.
+     * @param capacidad  partidas de cada clasificación.
+     * @throws IOException si no se puede leer ni crear el log.
+     */
+    public GameHistoryStore(File directorio, int capacidad) throws IOException {
+        if (capacidad < 1)
+            throw new IllegalArgumentException("La capacidad debe ser al menos 1: " + capacidad);
+        if (!directorio.isDirectory() && !directorio.mkdirs())
+            throw new IOException("No se puede crear el directorio " + directorio);
+        this.log = new File(directorio, FICHERO_LOG);
+        this.indice = new File(directorio, FICHERO_INDICE);
+        this.capacidad = capacidad;
+        this.escritor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread hilo = new Thread(r, "GameHistoryStore");
+                hilo.setDaemon(true);
+                return hilo;
+            }
+        });
+        cargar();
+    }
+
+    /**
+     * Registra una partida. La clasificación se actualiza al momento y la partida se escribe en segundo plano junto
+     * con las que se registren mientras tanto.
+     *
+     * @param partida partida terminada.
+     * @throws IllegalArgumentException si la partida tiene algún valor negativo, que el log no puede guardar.
+     */
+    public synchronized void record(GameRecord partida) {
+        comprobar(partida);
+        getTabla(tablas, partida.getTurnos()).add(partida);
+        total++;
+        pendientes.add(partida);
+        if (!escrituraProgramada) {
+            escrituraProgramada = true;
+            escritor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    escribirPendientes();
+                }
+            });
+        }
+    }
+
+    /**
+     * Comprueba en el hilo que registra la partida lo que el hilo escritor no podría codificar, para que el error
+     * llegue a quien la registra y no se pierda el lote entero.
+     */
+    private static void comprobar(GameRecord partida) {
+        if (partida.getTurnos() < 0 || partida.getRondas() < 0 || partida.getDuracion() < 0)
+            throw new IllegalArgumentException("Partida con valores negativos: turnos " + partida.getTurnos()
+                    + ", rondas " + partida.getRondas() + ", duración " + partida.getDuracion());
+        for (int tiempo : partida.getTiemposReaccion()) {
+            if (tiempo < 0)
+                throw new IllegalArgumentException("Tiempo de reacción negativo: " + tiempo);
+        }
+    }
+
+    /**
+     * @param turnos dificultad.
+     * @param n      número máximo de partidas.
+     * @return las n mejores partidas de esa dificultad, sin los tiempos de reacción.
+     */
+    public synchronized List<GameRecord> getTop(int turnos, int n) {
+        Leaderboard tabla = tablas.get(turnos);
+        return tabla == null ? new ArrayList<GameRecord>() : tabla.top(n);
+    }
+
+    /**
+     * @param turnos dificultad.
+     * @return la mejor partida de esa dificultad, o null si no hay ninguna.
+     */
+    public synchronized GameRecord getMejor(int turnos) {
+        Leaderboard tabla = tablas.get(turnos);
+        return tabla == null || tabla.size() == 0 ? null : tabla.get(0);
+    }
+
+    /**
+     * @return número de partidas registradas.
+     */
+    public synchronized long getTotal() {
+        return total;
+    }
+
+    /**
+     * Espera a que se escriban todas las partidas registradas hasta ahora.
+     *
+     * @throws IOException si ha fallado alguna escritura.
+     */
+    public void flush() throws IOException {
+        try {
+            escritor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    escribirPendientes();
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrumpido esperando la escritura", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error escribiendo el historial", e.getCause());
+        }
+        IOException e = error;
+        if (e != null)
+            throw e;
+    }
+
+    /**
+     * Escribe las partidas pendientes y detiene el hilo escritor. Después no se pueden registrar más partidas.
+     *
+     * @throws IOException si ha fallado alguna escritura.
+     */
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            escritor.shutdown();
+        }
+    }
+
+    /**
+     * Lee todas las partidas del log, con sus tiempos de reacción. Recorre el log entero, así que no es para usarlo
+     * en el hilo principal.
+     *
+     * @return partidas en el orden en el que se registraron.
+     * @throws IOException si no se puede leer el log.
+     */
+    public List<GameRecord> readAll() throws IOException {
+        flush();
+        final List<GameRecord> partidas = new ArrayList<>();
+        leerLog(CABECERA, true, new Visitante() {
+            @Override
+            public void visitar(GameRecord partida) {
+                partidas.add(partida);
+            }
+        });
+        return partidas;
+    }
+
+    /**
+     * Carga el índice y las partidas del log que el índice aún no tiene en cuenta. Si el último registro del log
+     * está cortado se trunca el log.
+     */
+    private void cargar() throws IOException {
+        long cubierto = CABECERA;
+        if (!log.exists() || log.length() < CABECERA) {
+            crearLog();
+            indice.delete();
+        } else {
+            comprobarCabeceraLog();
+            long leido = leerIndice();
+            if (leido >= 0 && leido <= log.length())
+                cubierto = leido;
+            else
+                limpiarTablas();
+        }
+
+        long fin = leerLog(cubierto, false, new Visitante() {
+            @Override
+            public void visitar(GameRecord partida) {
+                getTabla(tablas, partida.getTurnos()).add(partida);
+                getTabla(tablasEscritas, partida.getTurnos()).add(partida);
+                total++;
+                totalEscritas++;
+            }
+        });
+        if (fin < log.length()) {
+            RandomAccessFile fichero = new RandomAccessFile(log, "rw");
+            try {
+                fichero.setLength(fin);
+            } finally {
+                fichero.close();
+            }
+        }
+        longitudLog = fin;
+        if (fin != cubierto) {
+            escritor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        escribirIndice();
+                    } catch (IOException e) {
+                        error = e;
+                    }
+                }
+            });
+        }
+    }
+
+    private void crearLog() throws IOException {
+        DataOutputStream salida = new DataOutputStream(new FileOutputStream(log));
+        try {
+            salida.writeInt(MAGIA_LOG);
+            salida.writeInt(VERSION);
+        } finally {
+            salida.close();
+        }
+    }
+
+    private void comprobarCabeceraLog() throws IOException {
+        RandomAccessFile fichero = new RandomAccessFile(log, "r");
+        try {
+            if (fichero.readInt() != MAGIA_LOG || fichero.readInt() != VERSION)
+                throw new IOException("El fichero " + log + " no es un historial válido");
+        } finally {
+            fichero.close();
+        }
+    }
+
+    private void limpiarTablas() {
+        tablas.clear();
+        tablasEscritas.clear();
+        total = 0;
+        totalEscritas = 0;
+    }
+
+    /**
+     * Carga las clasificaciones del índice.
+     *
+     * @return bytes del log que tiene en cuenta el índice, o -1 si no existe o está dañado.
+     */
+    private long leerIndice() {
+        if (!indice.exists())
+            return -1;
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(leerFichero(indice, 0));
+            int fin = buffer.limit() - 4;
+            if (fin < 0)
+                return -1;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), 0, fin);
+            if (buffer.getInt(fin) != (int) crc.getValue())
+                return -1;
+            if (buffer.getInt() != MAGIA_INDICE || buffer.getInt() != VERSION)
+                return -1;
+            long cubierto = buffer.getLong();
+            total = buffer.getLong();
+            totalEscritas = total;
+            int numeroTablas = buffer.getInt();
+            for (int t = 0; t < numeroTablas; t++) {
+                int turnos = buffer.getInt();
+                int numero = buffer.getInt();
+                Leaderboard tabla = getTabla(tablas, turnos);
+                Leaderboard tablaEscrita = getTabla(tablasEscritas, turnos);
+                for (int i = 0; i < numero; i++) {
+                    GameRecord partida = new GameRecord(buffer.getLong(), buffer.getLong(), turnos, buffer.getInt(),
+                            buffer.getInt(), buffer.get() != 0, null);
+                    tabla.add(partida);
+                    tablaEscrita.add(partida);
+                }
+            }
+            return cubierto;
+        } catch (IOException | BufferUnderflowException e) {
+            limpiarTablas();
+            return -1;
+        }
+    }
+
+    private interface Visitante {
+        void visitar(GameRecord partida);
+    }
+
+    /**
+     * Recorre los registros del log desde un byte dado hasta el primero que esté cortado o dañado.
+     *
+     * @param desde      byte del log en el que empieza el primer registro.
+     * @param conTiempos true para decodificar los tiempos de reacción.
+     * @param visitante  recibe cada partida.
+     * @return byte del log en el que termina el último registro válido.
+     */
+    private long leerLog(long desde, boolean conTiempos, Visitante visitante) throws IOException {
+        byte[] datos = leerFichero(log, desde);
+        ByteBuffer buffer = ByteBuffer.wrap(datos);
+        CRC32 crc = new CRC32();
+        int posicion = 0;
+        while (datos.length - posicion >= MARCO) {
+            int longitud = buffer.getInt(posicion);
+            if (longitud <= 0 || longitud > CUERPO_MAXIMO || datos.length - posicion - MARCO < longitud)
+                break;
+            crc.reset();
+            crc.update(datos, posicion + 4, longitud);
+            if (buffer.getInt(posicion + 4 + longitud) != (int) crc.getValue())
+                break;
+            buffer.limit(posicion + 4 + longitud);
+            buffer.position(posicion + 4);
+            try {
+                visitante.visitar(decodificar(buffer, conTiempos));
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                break;
+            } finally {
+                buffer.limit(datos.length);
+            }
+            posicion += longitud + MARCO;
+        }
+        return desde + posicion;
+    }
+
+    private static byte[] leerFichero(File fichero, long desde) throws IOException {
+        RandomAccessFile entrada = new RandomAccessFile(fichero, "r");
+        try {
+            long longitud = entrada.length() - desde;
+            if (longitud > Integer.MAX_VALUE)
+                throw new IOException("El fichero " + fichero + " es demasiado grande");
+            byte[] datos = new byte[(int) Math.max(0, longitud)];
+            entrada.seek(desde);
+            entrada.readFully(datos);
+            return datos;
+        } finally {
+            entrada.close();
+        }
+    }
+
+    /**
+     * Escribe en el log las partidas pendientes y actualiza el índice. Se ejecuta en el hilo escritor.
+     */
+    private void escribirPendientes() {
+        List<GameRecord> lote;
+        synchronized (this) {
+            escrituraProgramada = false;
+            if (pendientes.isEmpty())
+                return;
+            lote = pendientes;
+            pendientes = new ArrayList<>();
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(lote.size() * 64);
+            DataOutputStream datos = new DataOutputStream(bytes);
+            ByteArrayOutputStream cuerpo = new ByteArrayOutputStream(64);
+            CRC32 crc = new CRC32();
+            for (GameRecord partida : lote) {
+                cuerpo.reset();
+                codificar(partida, cuerpo);
+                crc.reset();
+                crc.update(cuerpo.toByteArray(), 0, cuerpo.size());
+                datos.writeInt(cuerpo.size());
+                cuerpo.writeTo(datos);
+                datos.writeInt((int) crc.getValue());
+            }
+
+            FileOutputStream salida = new FileOutputStream(log, true);
+            try {
+                bytes.writeTo(salida);
+                salida.getFD().sync();
+            } finally {
+                salida.close();
+            }
+            longitudLog += bytes.size();
+            for (GameRecord partida : lote) {
+                getTabla(tablasEscritas, partida.getTurnos()).add(partida);
+            }
+            totalEscritas += lote.size();
+            escribirIndice();
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+    /**
+     * Reescribe el índice con las clasificaciones de las partidas que ya están en el log. Se escribe en un fichero
+     * temporal y se renombra, así que nunca queda a medias.
+     */
+    private void escribirIndice() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        DataOutputStream datos = new DataOutputStream(bytes);
+        datos.writeInt(MAGIA_INDICE);
+        datos.writeInt(VERSION);
+        datos.writeLong(longitudLog);
+        datos.writeLong(totalEscritas);
+        datos.writeInt(tablasEscritas.size());
+        for (Map.Entry<Integer, Leaderboard> entrada : tablasEscritas.entrySet()) {
+            Leaderboard tabla = entrada.getValue();
+            datos.writeInt(entrada.getKey());
+            datos.writeInt(tabla.size());
+            for (int i = 0; i < tabla.size(); i++) {
+                GameRecord partida = tabla.get(i);
+                datos.writeLong(partida.getFecha());
+                datos.writeLong(partida.getSemilla());
+                datos.writeInt(partida.getRondas());
+                datos.writeInt(partida.getDuracion());
+                datos.writeByte(partida.isVictoria() ? 1 : 0);
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray(), 0, bytes.size());
+        datos.writeInt((int) crc.getValue());
+
+        File temporal = new File(indice.getPath() + ".tmp");
+        FileOutputStream salida = new FileOutputStream(temporal);
+        try {
+            bytes.writeTo(salida);
+            salida.getFD().sync();
+        } finally {
+            salida.close();
+        }
+        if (!temporal.renameTo(indice))
+            throw new IOException("No se puede renombrar " + temporal + " a " + indice);
+    }
+
+    private Leaderboard getTabla(Map<Integer, Leaderboard> mapa, int turnos) {
+        Leaderboard tabla = mapa.get(turnos);
+        if (tabla == null) {
+            tabla = new Leaderboard(capacidad);
+            mapa.put(turnos, tabla);
+        }
+        return tabla;
+    }
+
+    /**
+     * Formato del cuerpo de un registro: fecha y semilla como long y el resto como enteros de longitud variable,
+     * así que una pulsación de menos de 16 segundos ocupa como mucho 2 bytes.
+     */
+    static void codificar(GameRecord partida, ByteArrayOutputStream salida) {
+        escribirLong(partida.getFecha(), salida);
+        escribirLong(partida.getSemilla(), salida);
+        VarInt.escribir(partida.getTurnos(), salida);
+        VarInt.escribir(partida.getRondas(), salida);
+        VarInt.escribir(partida.getDuracion(), salida);
+        salida.write(partida.isVictoria() ? 1 : 0);
+        int[] tiempos = partida.getTiemposReaccion();
+        VarInt.escribir(tiempos.length, salida);
+        for (int tiempo : tiempos) {
+            VarInt.escribir(tiempo, salida);
+        }
+    }
+
+    static GameRecord decodificar(ByteBuffer entrada, boolean conTiempos) {
+        long fecha = entrada.getLong();
+        long semilla = entrada.getLong();
+        int turnos = VarInt.leer(entrada);
+        int rondas = VarInt.leer(entrada);
+        int duracion = VarInt.leer(entrada);
+        boolean victoria = entrada.get() != 0;
+        int[] tiempos = null;
+        if (conTiempos) {
+            int numero = VarInt.leer(entrada);
+            if (numero > entrada.remaining())
+                throw new IllegalArgumentException("Registro dañado: " + numero + " tiempos");
+            tiempos = new int[numero];
+            for (int i = 0; i < numero; i++) {
+                tiempos[i] = VarInt.leer(entrada);
+            }
+        }
+        return new GameRecord(fecha, semilla, turnos, rondas, duracion, victoria, tiempos);
+    }
+
+    private static void escribirLong(long valor, ByteArrayOutputStream salida) {
+        for (int desplazamiento = 56; desplazamiento >= 0; desplazamiento -= 8) {
+            salida.write((int) (valor >>> desplazamiento));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Resultado de una partida terminada tal y como se guarda en el historial.
+ *
+ * @see GameHistoryStore
+ */
+public class GameRecord {
+
+    private static final int[] SIN_TIEMPOS = new int[0];
+
+    private final long fecha;
+
+    private final long semilla;
+
+    private final int turnos;
+
+    private final int rondas;
+
+    private final int duracion;
+
+    private final boolean victoria;
+
+    private final int[] tiemposReaccion;
+
+    /**
+     * @param fecha           instante en el que terminó la partida, en milisegundos desde 1970.
+     * @param semilla         semilla de la partida.
+     * @param turnos          rondas de la dificultad, o {@link SimonConfig#INFINITO}.
+     * @param rondas          ronda a la que llegó el jugador.
+     * @param duracion        duración de la partida en milisegundos.
+     * @param victoria        true si el jugador ganó.
+     * @param tiemposReaccion tiempos de reacción en milisegundos, o null si no se conocen. En las partidas largas sólo
+     *                        son los de las últimas pulsaciones.
+     */
+    public GameRecord(long fecha, long semilla, int turnos, int rondas, int duracion, boolean victoria,
+                      int[] tiemposReaccion) {
+        this.fecha = fecha;
+        this.semilla = semilla;
+        this.turnos = turnos;
+        this.rondas = rondas;
+        this.duracion = duracion;
+        this.victoria = victoria;
+        this.tiemposReaccion = tiemposReaccion == null ? SIN_TIEMPOS : tiemposReaccion;
+    }
+
+    /**
+     * @param otro partida con la que se compara.
+     * @return true si esta partida va por delante de la otra en la clasificación: más rondas, o las mismas en menos
+     * tiempo, o las mismas en el mismo tiempo pero antes.
+     */
+    public boolean isMejorQue(GameRecord otro) {
+        if (rondas != otro.rondas)
+            return rondas > otro.rondas;
+        if (duracion != otro.duracion)
+            return duracion < otro.duracion;
+        return fecha < otro.fecha;
+    }
+
+    /**
+     * @return copia de la partida sin los tiempos de reacción, para guardarla en la clasificación.
+     */
+    public GameRecord resumen() {
+        if (tiemposReaccion.length == 0)
+            return this;
+        return new GameRecord(fecha, semilla, turnos, rondas, duracion, victoria, null);
+    }
+
+    public long getFecha() {
+        return fecha;
+    }
+
+    public long getSemilla() {
+        return semilla;
+    }
+
+    public int getTurnos() {
+        return turnos;
+    }
+
+    public int getRondas() {
+        return rondas;
+    }
+
+    public int getDuracion() {
+        return duracion;
+    }
+
+    public boolean isVictoria() {
+        return victoria;
+    }
+
+    public int[] getTiemposReaccion() {
+        return tiemposReaccion;
+    }
+}
@@ -0,0 +1,201 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Graba una partida para poder repetirla después: cuándo empieza cada ronda y a qué ritmo, cuándo puede pulsar el
+ * jugador y cada pulsación con su veredicto, incluidas las que no cuentan. Con la semilla y la serie basta para ver
+ * exactamente lo que vio y pulsó el jugador.
+ * <p>
+ * Los eventos se guardan en un buffer circular de enteros reservado en el constructor, así que grabar no reserva
+ * memoria durante la partida. Si la partida es tan larga que no cabe se pierden los eventos más antiguos: como el
+ * jugador sólo pasa de ronda si acierta, la repetición empieza en la primera ronda que queda entera. Al terminar la
+ * partida se exporta a un {@link GameReplay}.
+ * <p>
+ * Los instantes son milisegundos de partida, sin contar las pausas, desde que empezó.
+ */
+public class GameRecorder {
+
+    /**
+     * Tipos de evento. El dato de {@link #PASO} es la duración de cada paso de la serie de la ronda siguiente, el de
+     * {@link #RONDA} la ronda, el de {@link #PULSACION} el número y el veredicto, y el de {@link #FIN} 1 si el jugador
+     * ha ganado
+     */
+    public static final int PASO = 1, RONDA = 2, LISTO = 3, PULSACION = 4, FIN = 5;
+
+    /**
+     * Veredictos de una pulsación: la acepta el motor, pierde la partida, llega fuera del turno del jugador o la
+     * descarta el filtro de rebotes
+     */
+    public static final int ACIERTO = 0, FALLO = 1, IGNORADA = 2, REBOTE = 3;
+
+    /**
+     * Eventos que caben por defecto, más que de sobra para una partida de Difícil
+     */
+    public static final int CAPACIDAD = 4096;
+
+    /**
+     * Dos enteros por evento: el tipo con su dato, y el instante
+     */
+    private final int[] eventos;
+
+    /**
+     * Posición del evento más antiguo
+     */
+    private int cabeza;
+
+    private int numero;
+
+    private long descartados;
+
+    /**
+     * true si la grabación empezó con la partida ya empezada
+     */
+    private boolean empezada;
+
+    private long semilla;
+
+    private int numeroBotones;
+
+    private int turnos;
+
+    public GameRecorder() {
+        this(CAPACIDAD);
+    }
+
+    /**
+     * @param capacidad eventos que caben sin perder los más antiguos.
+     */
+    public GameRecorder(int capacidad) {
+        if (capacidad < 1)
+            throw new IllegalArgumentException("La capacidad debe ser al menos 1: " + capacidad);
+        eventos = new int[capacidad * 2];
+    }
+
+    /**
+     * Empieza a grabar una partida nueva.
+     *
+     * @param semilla       semilla de la partida.
+     * @param numeroBotones número de botones del tablero.
+     * @param turnos        rondas de la partida, o {@link SimonConfig#INFINITO}.
+     */
+    public void reset(long semilla, int numeroBotones, int turnos) {
+        reset(semilla, numeroBotones, turnos, false);
+    }
+
+    /**
+     * Empieza a grabar una partida, que puede estar ya empezada si se ha restaurado. En ese caso la repetición
+     * empieza en la primera ronda que se grabe entera, como si se hubieran perdido los eventos anteriores.
+     *
+     * @param semilla       semilla de la partida.
+     * @param numeroBotones número de botones del tablero.
+     * @param turnos        rondas de la partida, o {@link SimonConfig#INFINITO}.
+     * @param empezada      true si la partida ya estaba empezada.
+     */
+    public void reset(long semilla, int numeroBotones, int turnos, boolean empezada) {
+        this.semilla = semilla;
+        this.numeroBotones = numeroBotones;
+        this.turnos = turnos;
+        this.empezada = empezada;
+        cabeza = 0;
+        numero = 0;
+        descartados = 0;
+    }
+
+    /**
+     * Empieza a mostrarse la serie de una ronda.
+     *
+     * @param ronda        ronda que empieza.
+     * @param duracionPaso duración de cada paso de la serie, en milisegundos.
+     * @param instante     instante de la primera nota.
+     */
+    public void ronda(int ronda, int duracionPaso, long instante) {
+        add(PASO, duracionPaso, instante);
+        add(RONDA, ronda, instante);
+    }
+
+    /**
+     * @param instante instante en el que el jugador puede empezar a pulsar.
+     */
+    public void listo(long instante) {
+        add(LISTO, 0, instante);
+    }
+
+    /**
+     * @param numero    número del botón pulsado.
+     * @param veredicto {@link #ACIERTO}, {@link #FALLO}, {@link #IGNORADA} o {@link #REBOTE}.
+     * @param instante  instante de la pulsación.
+     */
+    public void pulsacion(int numero, int veredicto, long instante) {
+        add(PULSACION, veredicto << 8 | numero, instante);
+    }
+
+    /**
+     * @param victoria true si el jugador ha ganado.
+     * @param instante instante en el que termina la partida.
+     */
+    public void fin(boolean victoria, long instante) {
+        add(FIN, victoria ? 1 : 0, instante);
+    }
+
+    private void add(int tipo, int dato, long instante) {
+        int capacidad = eventos.length / 2;
+        int posicion = cabeza + numero;
+        if (posicion >= capacidad)
+            posicion -= capacidad;
+        if (numero == capacidad) {
+            cabeza = cabeza + 1 == capacidad ? 0 : cabeza + 1;
+            descartados++;
+        } else {
+            numero++;
+        }
+        eventos[2 * posicion] = tipo << 24 | dato;
+        eventos[2 * posicion + 1] = (int) instante;
+    }
+
+    /**
+     * @return eventos grabados que se conservan.
+     */
+    public int size() {
+        return numero;
+    }
+
+    /**
+     * @return eventos perdidos por no caber en el buffer.
+     */
+    public long getDescartados() {
+        return descartados;
+    }
+
+    /**
+     * Copia la grabación para guardarla. Si se han perdido eventos, o la partida ya estaba empezada, empieza en la
+     * primera ronda completa.
+     *
+     * @param fecha instante en el que terminó la partida, en milisegundos desde 1970.
+     * @param serie serie de la partida.
+     * @return la repetición de la partida.
+     */
+    public GameReplay exportar(long fecha, ByteSequence serie) {
+        int capacidad = eventos.length / 2;
+        int primero = 0;
+        if (descartados > 0 || empezada) {
+            while (primero < numero && tipo(primero, capacidad) != PASO) {
+                primero++;
+            }
+        }
+        int[] copia = new int[(numero - primero) * 2];
+        for (int i = primero; i < numero; i++) {
+            int posicion = (cabeza + i) % capacidad;
+            copia[2 * (i - primero)] = eventos[2 * posicion];
+            copia[2 * (i - primero) + 1] = eventos[2 * posicion + 1];
+        }
+        ByteSequence serieCopia = new ByteSequence(serie.size(), numeroBotones);
+        serieCopia.setRange(serie, 0, serie.size());
+        return new GameReplay(fecha, semilla, numeroBotones, turnos, serieCopia, copia,
+                empezada || descartados + primero > 0);
+    }
+
+    private int tipo(int i, int capacidad) {
+        return eventos[2 * ((cabeza + i) % capacidad)] >>> 24;
+    }
+}
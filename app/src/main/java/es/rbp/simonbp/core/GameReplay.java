@@ -0,0 +1,214 @@
+package es.rbp.simonbp.core;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Repetición de una partida terminada: la semilla, la serie y los eventos grabados por {@link GameRecorder}. Se
+ * codifica en pocos bytes: cada evento es su tipo y su dato como un entero de longitud variable y los milisegundos
+ * desde el evento anterior como otro, así que una pulsación suele ocupar 3 o 4 bytes.
+ *
+ * @see ReplayPlayer
+ */
+public final class GameReplay {
+
+    static final int VERSION = 1;
+
+    private final long fecha;
+
+    private final long semilla;
+
+    private final int numeroBotones;
+
+    private final int turnos;
+
+    private final ByteSequence serie;
+
+    /**
+     * Dos enteros por evento, como en {@link GameRecorder}: el tipo con su dato, y el instante
+     */
+    private final int[] eventos;
+
+    private final boolean truncada;
+
+    GameReplay(long fecha, long semilla, int numeroBotones, int turnos, ByteSequence serie, int[] eventos,
+               boolean truncada) {
+        this.fecha = fecha;
+        this.semilla = semilla;
+        this.numeroBotones = numeroBotones;
+        this.turnos = turnos;
+        this.serie = serie;
+        this.eventos = eventos;
+        this.truncada = truncada;
+    }
+
+    /**
+     * @return número de eventos.
+     */
+    public int size() {
+        return eventos.length / 2;
+    }
+
+    /**
+     * @param i evento, empezando por 0.
+     * @return tipo del evento, uno de los de {@link GameRecorder}.
+     */
+    public int getTipo(int i) {
+        return eventos[2 * i] >>> 24;
+    }
+
+    /**
+     * @param i evento, empezando por 0.
+     * @return dato del evento. Para las pulsaciones es el número y el veredicto.
+     * @see GameReplay#getNumero(int)
+     * @see GameReplay#getVeredicto(int)
+     */
+    public int getDato(int i) {
+        return eventos[2 * i] & 0xFFFFFF;
+    }
+
+    /**
+     * @param i pulsación.
+     * @return número del botón pulsado.
+     */
+    public int getNumero(int i) {
+        return eventos[2 * i] & 0xFF;
+    }
+
+    /**
+     * @param i pulsación.
+     * @return veredicto de la pulsación, uno de los de {@link GameRecorder}.
+     */
+    public int getVeredicto(int i) {
+        return (eventos[2 * i] >>> 8) & 0xFFFF;
+    }
+
+    /**
+     * @param i evento, empezando por 0.
+     * @return instante del evento, en milisegundos de partida.
+     */
+    public long getInstante(int i) {
+        return eventos[2 * i + 1];
+    }
+
+    /**
+     * @return instante del último evento, en milisegundos de partida, o 0 si no hay eventos.
+     */
+    public long getDuracion() {
+        return eventos.length == 0 ? 0 : getInstante(size() - 1);
+    }
+
+    public long getFecha() {
+        return fecha;
+    }
+
+    public long getSemilla() {
+        return semilla;
+    }
+
+    public int getNumeroBotones() {
+        return numeroBotones;
+    }
+
+    public int getTurnos() {
+        return turnos;
+    }
+
+    public ByteSequence getSerie() {
+        return serie;
+    }
+
+    /**
+     * @return true si la partida no cabía entera en la grabación y la repetición empieza después de la primera ronda.
+     */
+    public boolean isTruncada() {
+        return truncada;
+    }
+
+    /**
+     * Formato: versión, si está truncada, botones y turnos como enteros de longitud variable, fecha y semilla como
+     * long, la serie con un byte por paso y los eventos.
+     *
+     * @return la repetición codificada.
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(32 + serie.size() + eventos.length * 2);
+        salida.write(VERSION);
+        salida.write(truncada ? 1 : 0);
+        VarInt.escribir(numeroBotones, salida);
+        VarInt.escribir(turnos, salida);
+        escribirLong(fecha, salida);
+        escribirLong(semilla, salida);
+        VarInt.escribir(serie.size(), salida);
+        for (int i = 0; i < serie.size(); i++) {
+            salida.write(serie.get(i));
+        }
+        VarInt.escribir(size(), salida);
+        int anterior = 0;
+        for (int i = 0; i < size(); i++) {
+            VarInt.escribir(getTipo(i) | getDato(i) << 3, salida);
+            // Una pulsación puede tener un instante anterior al del turno, así que la diferencia lleva signo
+            VarInt.escribirConSigno(eventos[2 * i + 1] - anterior, salida);
+            anterior = eventos[2 * i + 1];
+        }
+        return salida.toByteArray();
+    }
+
+    /**
+     * @param datos repetición codificada con {@link GameReplay#toBytes()}.
+     * @return la repetición.
+     * @throws IllegalArgumentException si los datos están dañados o son de otra versión.
+     */
+    public static GameReplay fromBytes(byte[] datos) {
+        ByteBuffer entrada = ByteBuffer.wrap(datos);
+        try {
+            int version = entrada.get();
+            if (version != VERSION)
+                throw new IllegalArgumentException("Versión de la repetición desconocida: " + version);
+            boolean truncada = entrada.get() != 0;
+            int numeroBotones = VarInt.leer(entrada);
+            if (numeroBotones < SimonConfig.MINIMO_BOTONES || numeroBotones > SimonConfig.MAXIMO_BOTONES)
+                throw new IllegalArgumentException("Número de botones dañado: " + numeroBotones);
+            int turnos = VarInt.leer(entrada);
+            long fecha = entrada.getLong();
+            long semilla = entrada.getLong();
+            int longitud = VarInt.leer(entrada);
+            if (longitud > entrada.remaining())
+                throw new IllegalArgumentException("Serie dañada: " + longitud + " pasos");
+            ByteSequence serie = new ByteSequence(longitud, numeroBotones);
+            for (int i = 0; i < longitud; i++) {
+                int numero = entrada.get();
+                if (numero < 1 || numero > numeroBotones)
+                    throw new IllegalArgumentException("Serie dañada en el paso " + i + ": " + numero);
+                serie.add(numero);
+            }
+            int numero = VarInt.leer(entrada);
+            // Cada evento ocupa al menos 2 bytes
+            if (numero > entrada.remaining() / 2)
+                throw new IllegalArgumentException("Eventos dañados: " + numero);
+            int[] eventos = new int[numero * 2];
+            int instante = 0;
+            for (int i = 0; i < numero; i++) {
+                int tipoYDato = VarInt.leer(entrada);
+                int tipo = tipoYDato & 7;
+                if (tipo < GameRecorder.PASO || tipo > GameRecorder.FIN)
+                    throw new IllegalArgumentException("Evento " + i + " de tipo desconocido: " + tipo);
+                instante += VarInt.leerConSigno(entrada);
+                eventos[2 * i] = tipo << 24 | (tipoYDato >>> 3) & 0xFFFFFF;
+                eventos[2 * i + 1] = instante;
+            }
+            return new GameReplay(fecha, semilla, numeroBotones, turnos, serie, eventos, truncada);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Repetición incompleta: " + datos.length + " bytes");
+        }
+    }
+
+    private static void escribirLong(long valor, ByteArrayOutputStream salida) {
+        for (int desplazamiento = 56; desplazamiento >= 0; desplazamiento -= 8) {
+            salida.write((int) (valor >>> desplazamiento));
+        }
+    }
+}
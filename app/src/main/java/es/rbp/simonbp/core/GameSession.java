@@ -0,0 +1,72 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Registro mínimo de una partida: la configuración, la semilla y los botones pulsados por el jugador. Con el mismo
+ * generador basta para repetir la partida exactamente, incluida la serie de la cpu.
+ * <p>
+ * Cualquier fallo termina la partida, así que todas las pulsaciones salvo la última coinciden con la serie. Por eso
+ * sólo se guarda el número de pulsaciones y la última, y el registro ocupa lo mismo sea cual sea la ronda alcanzada.
+ *
+ * @see SimonEngine#getSesion()
+ */
+public class GameSession {
+
+    private final SimonConfig config;
+
+    private final long semilla;
+
+    private final long numEntradas;
+
+    private final int ultimaEntrada;
+
+    /**
+     * @param config        configuración de la partida.
+     * @param semilla       semilla de la partida.
+     * @param numEntradas   número de botones pulsados por el jugador.
+     * @param ultimaEntrada último botón pulsado, o 0 si no pulsó ninguno.
+     */
+    public GameSession(SimonConfig config, long semilla, long numEntradas, int ultimaEntrada) {
+        this.config = config;
+        this.semilla = semilla;
+        this.numEntradas = numEntradas;
+        this.ultimaEntrada = ultimaEntrada;
+    }
+
+    /**
+     * Repite la partida pulsando los mismos botones en el mismo orden.
+     *
+     * @param generador generador del mismo tipo que el de la partida original. Se reinicia con la semilla.
+     * @return motor con la partida repetida.
+     */
+    public SimonEngine replay(PatternGenerator generador) {
+        SimonEngine engine = new SimonEngine(config, generador, semilla);
+        engine.start();
+        for (long i = 1; i < numEntradas; i++) {
+            engine.finTurnoCpu();
+            engine.pulsar(engine.getNumero(engine.getPosicion()));
+        }
+        if (numEntradas > 0) {
+            engine.finTurnoCpu();
+            engine.pulsar(ultimaEntrada);
+        }
+        return engine;
+    }
+
+    public SimonConfig getConfig() {
+        return config;
+    }
+
+    public long getSemilla() {
+        return semilla;
+    }
+
+    public long getNumEntradas() {
+        return numEntradas;
+    }
+
+    public int getUltimaEntrada() {
+        return ultimaEntrada;
+    }
+}
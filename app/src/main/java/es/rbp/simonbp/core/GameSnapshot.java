@@ -0,0 +1,215 @@
+package es.rbp.simonbp.core;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Foto del estado completo de una partida en curso para poder restaurarla después de que el sistema mate el proceso.
+ * Se codifica en unos pocos bytes: la semilla, los contadores como enteros de longitud variable y la serie con los
+ * bits justos por paso, 3 con 6 botones y 5 con 16, en vez del byte por paso de {@link ByteSequence}. Una partida de
+ * 12 rondas con 6 botones ocupa 22 bytes.
+ * <p>
+ * Al restaurar, la serie se vuelve a generar con la semilla y se compara con la guardada, de forma que el generador
+ * queda en el mismo punto y una foto de otro generador o dañada se detecta en vez de dar una partida distinta.
+ *
+ * @see SimonEngine#snapshot()
+ */
+public final class GameSnapshot {
+
+    static final int VERSION = 1;
+
+    private final int numeroBotones;
+
+    private final int turnos;
+
+    private final long semilla;
+
+    private final SimonEngine.Estado estado;
+
+    private final ByteSequence serie;
+
+    private final int posicion;
+
+    private final int numTruco;
+
+    private final long numEntradas;
+
+    private final int ultimaEntrada;
+
+    GameSnapshot(int numeroBotones, int turnos, long semilla, SimonEngine.Estado estado, ByteSequence serie,
+                 int posicion, int numTruco, long numEntradas, int ultimaEntrada) {
+        if (posicion < 0 || posicion > serie.size())
+            throw new IllegalArgumentException("Posición " + posicion + " fuera de la serie de " + serie.size());
+        this.numeroBotones = numeroBotones;
+        this.turnos = turnos;
+        this.semilla = semilla;
+        this.estado = estado;
+        this.serie = serie;
+        this.posicion = posicion;
+        this.numTruco = numTruco;
+        this.numEntradas = numEntradas;
+        this.ultimaEntrada = ultimaEntrada;
+    }
+
+    /**
+     * Formato: versión, estado, botones, turnos, semilla como long, ronda, posición, truco, entradas y última entrada
+     * como enteros de longitud variable, y la serie empaquetada en bits.
+     *
+     * @return la foto codificada.
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(16 + serie.size());
+        salida.write(VERSION);
+        salida.write(estado.ordinal());
+        VarInt.escribir(numeroBotones, salida);
+        VarInt.escribir(turnos, salida);
+        for (int desplazamiento = 56; desplazamiento >= 0; desplazamiento -= 8) {
+            salida.write((int) (semilla >>> desplazamiento));
+        }
+        VarInt.escribir(serie.size(), salida);
+        VarInt.escribir(posicion, salida);
+        VarInt.escribir(numTruco, salida);
+        VarInt.escribirLong(numEntradas, salida);
+        VarInt.escribir(ultimaEntrada, salida);
+
+        int bits = bits(numeroBotones);
+        int acumulado = 0, numeroBits = 0;
+        for (int i = 0; i < serie.size(); i++) {
+            acumulado |= serie.get(i) << numeroBits;
+            numeroBits += bits;
+            while (numeroBits >= 8) {
+                salida.write(acumulado);
+                acumulado >>>= 8;
+                numeroBits -= 8;
+            }
+        }
+        if (numeroBits > 0)
+            salida.write(acumulado);
+        return salida.toByteArray();
+    }
+
+    /**
+     * @param datos foto codificada con {@link GameSnapshot#toBytes()}.
+     * @return la foto.
+     * @throws IllegalArgumentException si los datos están dañados o son de otra versión.
+     */
+    public static GameSnapshot fromBytes(byte[] datos) {
+        ByteBuffer entrada = ByteBuffer.wrap(datos);
+        try {
+            int version = entrada.get();
+            if (version != VERSION)
+                throw new IllegalArgumentException("Versión de la foto desconocida: " + version);
+            int ordinal = entrada.get();
+            SimonEngine.Estado[] estados = SimonEngine.Estado.values();
+            if (ordinal < 0 || ordinal >= estados.length)
+                throw new IllegalArgumentException("Estado dañado: " + ordinal);
+            int numeroBotones = VarInt.leer(entrada);
+            if (numeroBotones < SimonConfig.MINIMO_BOTONES || numeroBotones > SimonConfig.MAXIMO_BOTONES)
+                throw new IllegalArgumentException("Número de botones dañado: " + numeroBotones);
+            int turnos = VarInt.leer(entrada);
+            long semilla = entrada.getLong();
+            int ronda = VarInt.leer(entrada);
+            int posicion = VarInt.leer(entrada);
+            int numTruco = VarInt.leer(entrada);
+            long numEntradas = VarInt.leerLong(entrada);
+            int ultimaEntrada = VarInt.leer(entrada);
+
+            int bits = bits(numeroBotones);
+            if ((long) ronda * bits > (long) entrada.remaining() * 8)
+                throw new IllegalArgumentException("Serie dañada: " + ronda + " pasos");
+            ByteSequence serie = new ByteSequence(ronda, numeroBotones);
+            int mascara = (1 << bits) - 1;
+            int acumulado = 0, numeroBits = 0;
+            for (int i = 0; i < ronda; i++) {
+                while (numeroBits < bits) {
+                    acumulado |= (entrada.get() & 0xFF) << numeroBits;
+                    numeroBits += 8;
+                }
+                int numero = acumulado & mascara;
+                if (numero < 1 || numero > numeroBotones)
+                    throw new IllegalArgumentException("Serie dañada en el paso " + i + ": " + numero);
+                serie.add(numero);
+                acumulado >>>= bits;
+                numeroBits -= bits;
+            }
+            return new GameSnapshot(numeroBotones, turnos, semilla, estados[ordinal], serie, posicion, numTruco,
+                    numEntradas, ultimaEntrada);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Foto incompleta: " + datos.length + " bytes");
+        }
+    }
+
+    /**
+     * Crea un motor en el mismo punto de la partida que cuando se hizo la foto. No avisa al listener de nada: la vista
+     * debe mostrar el estado del motor restaurado.
+     *
+     * @param config    configuración de la partida. Debe tener los mismos botones y turnos que la foto.
+     * @param generador generador del mismo tipo que el de la partida. Se reinicia con la semilla.
+     * @return el motor restaurado.
+     * @throws IllegalArgumentException si la configuración o la serie generada no coinciden con la foto.
+     */
+    public SimonEngine restore(SimonConfig config, PatternGenerator generador) {
+        if (config.getNumeroBotones() != numeroBotones || config.getTurnos() != turnos)
+            throw new IllegalArgumentException("La foto es de una partida de " + numeroBotones + " botones y " +
+                    turnos + " turnos");
+        if (!config.isInfinito() && serie.size() > turnos)
+            throw new IllegalArgumentException("Serie de " + serie.size() + " pasos en una partida de " + turnos);
+        SimonEngine engine = new SimonEngine(config, generador, semilla);
+        engine.restaurar(this);
+        return engine;
+    }
+
+    private static int bits(int numeroBotones) {
+        return 32 - Integer.numberOfLeadingZeros(numeroBotones);
+    }
+
+    public int getNumeroBotones() {
+        return numeroBotones;
+    }
+
+    public int getTurnos() {
+        return turnos;
+    }
+
+    public long getSemilla() {
+        return semilla;
+    }
+
+    public SimonEngine.Estado getEstado() {
+        return estado;
+    }
+
+    /**
+     * @return número de rondas de la serie.
+     */
+    public int getRonda() {
+        return serie.size();
+    }
+
+    /**
+     * @param i posición de la serie, empezando por 0.
+     * @return número de la serie en esa posición.
+     */
+    public int getNumero(int i) {
+        return serie.get(i);
+    }
+
+    public int getPosicion() {
+        return posicion;
+    }
+
+    public int getNumTruco() {
+        return numTruco;
+    }
+
+    public long getNumEntradas() {
+        return numEntradas;
+    }
+
+    public int getUltimaEntrada() {
+        return ultimaEntrada;
+    }
+}
@@ -0,0 +1,115 @@
+package es.rbp.simonbp.core;
+
+import java.util.Arrays;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Entradas de una partida de varios jugadores en el orden en que llegaron, cada una codificada en un int con
+ * {@link MultiplayerEngine#entrada(int, int)}. Con la semilla de la partida basta para repetirla con
+ * {@link InputTrace#aplicar(MultiplayerEngine)}.
+ * <p>
+ * En texto cada entrada es {@code jugador:número}, o {@code c} para el fin del turno de la cpu, separadas por
+ * espacios. Así una traza grabada se puede pegar tal cual en un test.
+ */
+public class InputTrace {
+
+    private int[] entradas;
+
+    private int longitud;
+
+    public InputTrace() {
+        this(64);
+    }
+
+    /**
+     * @param capacidad número de entradas que caben sin tener que crecer.
+     */
+    public InputTrace(int capacidad) {
+        entradas = new int[Math.max(1, capacidad)];
+    }
+
+    /**
+     * Añade una entrada al final de la traza.
+     *
+     * @param entrada entrada codificada o {@link MultiplayerEngine#FIN_CPU}.
+     */
+    public void add(int entrada) {
+        if (longitud == entradas.length)
+            entradas = Arrays.copyOf(entradas, entradas.length * 2);
+        entradas[longitud++] = entrada;
+    }
+
+    /**
+     * @param i posición de la entrada, empezando por 0.
+     * @return entrada en esa posición.
+     */
+    public int get(int i) {
+        if (i < 0 || i >= longitud)
+            throw new IndexOutOfBoundsException("Posición " + i + " de " + longitud);
+        return entradas[i];
+    }
+
+    public int size() {
+        return longitud;
+    }
+
+    public void clear() {
+        longitud = 0;
+    }
+
+    /**
+     * Pasa todas las entradas de la traza al motor, en orden. Si el motor está grabando, la traza nueva queda igual
+     * que esta.
+     *
+     * @param engine motor con la misma configuración y semilla que la partida grabada, ya empezado.
+     */
+    public void aplicar(MultiplayerEngine engine) {
+        for (int i = 0; i < longitud; i++) {
+            engine.aplicar(entradas[i]);
+        }
+    }
+
+    /**
+     * @param texto traza en texto, como la devuelve {@link InputTrace#toString()}.
+     * @return traza con las entradas del texto.
+     */
+    public static InputTrace parse(String texto) {
+        String[] partes = texto.trim().split("\\s+");
+        InputTrace traza = new InputTrace(partes.length);
+        if (texto.trim().isEmpty())
+            return traza;
+        for (String parte : partes) {
+            if (parte.equals("c")) {
+                traza.add(MultiplayerEngine.FIN_CPU);
+                continue;
+            }
+            int separador = parte.indexOf(':');
+            if (separador <= 0)
+                throw new IllegalArgumentException("Entrada mal formada: " + parte);
+            try {
+                traza.add(MultiplayerEngine.entrada(Integer.parseInt(parte.substring(0, separador)),
+                        Integer.parseInt(parte.substring(separador + 1))));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Entrada mal formada: " + parte, e);
+            }
+        }
+        return traza;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder texto = new StringBuilder(longitud * 4);
+        for (int i = 0; i < longitud; i++) {
+            if (i > 0)
+                texto.append(' ');
+            int entrada = entradas[i];
+            if (entrada == MultiplayerEngine.FIN_CPU)
+                texto.append('c');
+            else
+                texto.append(MultiplayerEngine.getJugador(entrada)).append(':')
+                        .append(MultiplayerEngine.getNumero(entrada));
+        }
+        return texto.toString();
+    }
+}
@@ -0,0 +1,197 @@
+package es.rbp.simonbp.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Histograma de latencias al estilo de HdrHistogram: los valores se agrupan por potencias de 2 y cada potencia se
+ * divide en {@link #SUBCUBETAS} cubetas iguales, así que el error relativo es siempre menor del 3,2% y el histograma
+ * cubre cualquier long con 1.888 cubetas.
+ * <p>
+ * Se puede registrar desde varios hilos a la vez sin bloqueos y sin reservar memoria.
+ *
+ * @see Metrics
+ */
+public class LatencyHistogram {
+
+    private static final int BITS_SUBCUBETA = 5;
+
+    /**
+     * Cubetas en las que se divide cada potencia de 2
+     */
+    public static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+
+    /**
+     * Número total de cubetas
+     */
+    public static final int CUBETAS = (64 - BITS_SUBCUBETA) * SUBCUBETAS;
+
+    private final AtomicLongArray cuentas = new AtomicLongArray(CUBETAS);
+
+    private final AtomicLong muestras = new AtomicLong();
+
+    private final AtomicLong total = new AtomicLong();
+
+    private final AtomicLong minimo = new AtomicLong(Long.MAX_VALUE);
+
+    private final AtomicLong maximo = new AtomicLong();
+
+    /**
+     * Registra un valor. Los valores negativos se consideran 0.
+     *
+     * @param valor valor a registrar, normalmente en nanosegundos.
+     */
+    public void record(long valor) {
+        if (valor < 0)
+            valor = 0;
+        cuentas.incrementAndGet(indice(valor));
+        muestras.incrementAndGet();
+        total.addAndGet(valor);
+        long actual;
+        while (valor < (actual = minimo.get()) && !minimo.compareAndSet(actual, valor)) {
+            // Otro hilo ha cambiado el mínimo: se vuelve a comparar
+        }
+        while (valor > (actual = maximo.get()) && !maximo.compareAndSet(actual, valor)) {
+            // Otro hilo ha cambiado el máximo: se vuelve a comparar
+        }
+    }
+
+    /**
+     * Borra todas las muestras. Si se registra a la vez desde otro hilo esa muestra puede perderse.
+     */
+    public void reset() {
+        for (int i = 0; i < CUBETAS; i++) {
+            cuentas.set(i, 0);
+        }
+        muestras.set(0);
+        total.set(0);
+        minimo.set(Long.MAX_VALUE);
+        maximo.set(0);
+    }
+
+    /**
+     * Copia las cuentas de cada cubeta.
+     *
+     * @param destino array de al menos {@link #CUBETAS} posiciones.
+     */
+    public void copyTo(long[] destino) {
+        for (int i = 0; i < CUBETAS; i++) {
+            destino[i] = cuentas.get(i);
+        }
+    }
+
+    /**
+     * Suma las muestras de otro histograma a este. Sirve para que cada hilo registre en su propio histograma y se
+     * junten al final.
+     *
+     * @param otro histograma cuyas muestras se suman. No debe estar registrando a la vez.
+     */
+    public void add(LatencyHistogram otro) {
+        for (int i = 0; i < CUBETAS; i++) {
+            long cuenta = otro.cuentas.get(i);
+            if (cuenta != 0)
+                cuentas.addAndGet(i, cuenta);
+        }
+        muestras.addAndGet(otro.muestras.get());
+        total.addAndGet(otro.total.get());
+        long actual;
+        long valor = otro.minimo.get();
+        while (valor < (actual = minimo.get()) && !minimo.compareAndSet(actual, valor)) {
+            // Otro hilo ha cambiado el mínimo: se vuelve a comparar
+        }
+        valor = otro.maximo.get();
+        while (valor > (actual = maximo.get()) && !maximo.compareAndSet(actual, valor)) {
+            // Otro hilo ha cambiado el máximo: se vuelve a comparar
+        }
+    }
+
+    public long getMuestras() {
+        return muestras.get();
+    }
+
+    public long getTotal() {
+        return total.get();
+    }
+
+    /**
+     * @return valor mínimo, o 0 si no hay muestras.
+     */
+    public long getMinimo() {
+        long valor = minimo.get();
+        return valor == Long.MAX_VALUE ? 0 : valor;
+    }
+
+    public long getMaximo() {
+        return maximo.get();
+    }
+
+    /**
+     * @param percentil percentil entre 0 y 100.
+     * @return el mayor valor equivalente de la cubeta donde cae el percentil, o 0 si no hay muestras.
+     */
+    public long getPercentil(double percentil) {
+        long[] copia = new long[CUBETAS];
+        copyTo(copia);
+        return percentil(copia, percentil, getMaximo());
+    }
+
+    /**
+     * @param valor valor no negativo.
+     * @return cubeta del valor.
+     */
+    static int indice(long valor) {
+        if (valor < SUBCUBETAS)
+            return (int) valor;
+        int desplazamiento = 63 - Long.numberOfLeadingZeros(valor) - BITS_SUBCUBETA;
+        return ((desplazamiento + 1) << BITS_SUBCUBETA) + (int) ((valor >>> desplazamiento) & (SUBCUBETAS - 1));
+    }
+
+    /**
+     * @param indice cubeta.
+     * @return menor valor que cae en la cubeta.
+     */
+    static long inferior(int indice) {
+        if (indice < SUBCUBETAS)
+            return indice;
+        int desplazamiento = (indice >> BITS_SUBCUBETA) - 1;
+        return (long) (SUBCUBETAS + (indice & (SUBCUBETAS - 1))) << desplazamiento;
+    }
+
+    /**
+     * @param indice cubeta.
+     * @return mayor valor que cae en la cubeta.
+     */
+    static long superior(int indice) {
+        if (indice < SUBCUBETAS)
+            return indice;
+        int desplazamiento = (indice >> BITS_SUBCUBETA) - 1;
+        return inferior(indice) + (1L << desplazamiento) - 1;
+    }
+
+    /**
+     * @param cuentas   cuentas de cada cubeta.
+     * @param percentil percentil entre 0 y 100.
+     * @param maximo    valor máximo registrado, para no devolver un valor mayor.
+     * @return el mayor valor equivalente de la cubeta donde cae el percentil, o 0 si no hay muestras.
+     */
+    static long percentil(long[] cuentas, double percentil, long maximo) {
+        if (percentil < 0 || percentil > 100)
+            throw new IllegalArgumentException("Percentil fuera de rango: " + percentil);
+        long muestras = 0;
+        for (long cuenta : cuentas) {
+            muestras += cuenta;
+        }
+        if (muestras == 0)
+            return 0;
+        long posicion = Math.max(1, (long) Math.ceil(percentil / 100 * muestras));
+        long acumuladas = 0;
+        for (int i = 0; i < cuentas.length; i++) {
+            acumuladas += cuentas[i];
+            if (acumuladas >= posicion)
+                return Math.min(superior(i), maximo);
+        }
+        return maximo;
+    }
+}
@@ -0,0 +1,78 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Acumula latencias en nanosegundos sin reservar memoria. Guarda el número de muestras, la suma, el mínimo,
+ * el máximo y la última muestra registrada.
+ */
+public class LatencyMeter {
+
+    private long muestras;
+
+    private long total;
+
+    private long minimo;
+
+    private long maximo;
+
+    private long ultima;
+
+    public LatencyMeter() {
+        reset();
+    }
+
+    /**
+     * Registra una latencia. Las latencias negativas se consideran 0.
+     *
+     * @param nanos latencia en nanosegundos.
+     */
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        muestras++;
+        total += nanos;
+        if (nanos < minimo)
+            minimo = nanos;
+        if (nanos > maximo)
+            maximo = nanos;
+        ultima = nanos;
+    }
+
+    /**
+     * Borra todas las muestras registradas.
+     */
+    public void reset() {
+        muestras = 0;
+        total = 0;
+        minimo = Long.MAX_VALUE;
+        maximo = 0;
+        ultima = 0;
+    }
+
+    public long getMuestras() {
+        return muestras;
+    }
+
+    /**
+     * @return latencia media en nanosegundos, o 0 si no hay muestras.
+     */
+    public long getMedia() {
+        return muestras == 0 ? 0 : total / muestras;
+    }
+
+    /**
+     * @return latencia mínima en nanosegundos, o 0 si no hay muestras.
+     */
+    public long getMinimo() {
+        return muestras == 0 ? 0 : minimo;
+    }
+
+    public long getMaximo() {
+        return maximo;
+    }
+
+    public long getUltima() {
+        return ultima;
+    }
+}
@@ -0,0 +1,76 @@
+package es.rbp.simonbp.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Clasificación con las N mejores partidas de una dificultad, ordenadas de mejor a peor. Sólo guarda los resúmenes,
+ * sin los tiempos de reacción, así que ocupa lo mismo sea cual sea el número de partidas jugadas.
+ *
+ * @see GameRecord#isMejorQue(GameRecord)
+ */
+public class Leaderboard {
+
+    private final GameRecord[] partidas;
+
+    private int numero;
+
+    /**
+     * @param capacidad número de partidas que se guardan.
+     */
+    public Leaderboard(int capacidad) {
+        partidas = new GameRecord[capacidad];
+    }
+
+    /**
+     * Añade la partida si entra en la clasificación.
+     *
+     * @param partida partida terminada.
+     * @return true si ha entrado en la clasificación.
+     */
+    public boolean add(GameRecord partida) {
+        if (numero == partidas.length && !partida.isMejorQue(partidas[numero - 1]))
+            return false;
+        int i = Math.min(numero, partidas.length - 1);
+        while (i > 0 && partida.isMejorQue(partidas[i - 1])) {
+            partidas[i] = partidas[i - 1];
+            i--;
+        }
+        partidas[i] = partida.resumen();
+        if (numero < partidas.length)
+            numero++;
+        return true;
+    }
+
+    /**
+     * @return número de partidas en la clasificación.
+     */
+    public int size() {
+        return numero;
+    }
+
+    /**
+     * @param i posición en la clasificación, empezando por 0.
+     * @return partida en esa posición.
+     */
+    public GameRecord get(int i) {
+        if (i >= numero)
+            throw new IndexOutOfBoundsException("Posición " + i + " de " + numero);
+        return partidas[i];
+    }
+
+    /**
+     * @param n número máximo de partidas.
+     * @return copia de las n mejores partidas.
+     */
+    public List<GameRecord> top(int n) {
+        int total = Math.min(n, numero);
+        List<GameRecord> lista = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            lista.add(partidas[i]);
+        }
+        return lista;
+    }
+}
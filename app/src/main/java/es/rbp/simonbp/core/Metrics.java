@@ -0,0 +1,193 @@
+package es.rbp.simonbp.core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Métricas del juego: contadores y histogramas de latencia que se pueden registrar desde cualquier hilo sin bloqueos
+ * y sin reservar memoria.
+ * <p>
+ * Mientras están desactivadas registrar sólo cuesta leer un volatile, así que se pueden dejar en el código de
+ * producción. Las mediciones que necesitan leer el reloj deben comprobar antes {@link #isActivo()}.
+ *
+ * @see MetricsSnapshot
+ */
+public class Metrics {
+
+    /**
+     * Contadores
+     */
+    public enum Contador {
+        /**
+         * Botones pulsados por el jugador
+         */
+        PULSACIONES,
+        /**
+         * Notas que han sonado
+         */
+        NOTAS,
+        /**
+         * Notas que no han sonado porque el backend no estaba listo
+         */
+        NOTAS_PERDIDAS,
+        /**
+         * Series mostradas por la cpu
+         */
+        SERIES,
+        /**
+         * Partidas terminadas
+         */
+        PARTIDAS,
+        /**
+         * Toques descartados por rebote
+         */
+        REBOTES
+    }
+
+    /**
+     * Histogramas, todos en nanosegundos
+     */
+    public enum Histograma {
+        /**
+         * Desde el instante del evento del toque hasta que el backend ha aceptado la nota. Sólo cuentan las notas de
+         * los toques, no las de la serie
+         */
+        TOQUE_SONIDO,
+        /**
+         * Lo que bloquea el backend al aceptar una nota, sea de un toque o de la serie
+         */
+        BLOQUEO_PLAY,
+        /**
+         * Retraso de cada nota de la serie respecto a su instante programado
+         */
+        JITTER_SERIE,
+        /**
+         * Desde que el jugador puede pulsar hasta que pulsa
+         */
+        REACCION
+    }
+
+    /**
+     * Métricas siempre desactivadas, para quien no quiera medir nada. No se pueden activar
+     */
+    public static final Metrics DESACTIVADAS = new Metrics();
+
+    private static final Contador[] CONTADORES = Contador.values();
+
+    private static final Histograma[] HISTOGRAMAS = Histograma.values();
+
+    private final AtomicLongArray contadores;
+
+    private final LatencyHistogram[] histogramas;
+
+    private volatile boolean activo;
+
+    /**
+     * @param activo true para empezar a medir desde el principio.
+     */
+    public Metrics(boolean activo) {
+        this.contadores = new AtomicLongArray(CONTADORES.length);
+        this.histogramas = new LatencyHistogram[HISTOGRAMAS.length];
+        for (int i = 0; i < histogramas.length; i++) {
+            histogramas[i] = new LatencyHistogram();
+        }
+        this.activo = activo;
+    }
+
+    private Metrics() {
+        this.contadores = null;
+        this.histogramas = null;
+    }
+
+    public boolean isActivo() {
+        return activo;
+    }
+
+    /**
+     * Activa o desactiva las mediciones. Las muestras registradas se conservan.
+     *
+     * @param activo true para medir.
+     */
+    public void setActivo(boolean activo) {
+        if (histogramas == null)
+            throw new IllegalStateException("Estas métricas no se pueden activar");
+        this.activo = activo;
+    }
+
+    /**
+     * Suma 1 a un contador.
+     *
+     * @param contador contador.
+     */
+    public void increment(Contador contador) {
+        if (activo)
+            contadores.incrementAndGet(contador.ordinal());
+    }
+
+    /**
+     * Registra una muestra en un histograma.
+     *
+     * @param histograma histograma.
+     * @param nanos      valor en nanosegundos.
+     */
+    public void record(Histograma histograma, long nanos) {
+        if (activo)
+            histogramas[histograma.ordinal()].record(nanos);
+    }
+
+    /**
+     * @param contador contador.
+     * @return valor del contador.
+     */
+    public long get(Contador contador) {
+        return contadores == null ? 0 : contadores.get(contador.ordinal());
+    }
+
+    /**
+     * @param histograma histograma.
+     * @return el histograma, para consultarlo. Es null en {@link #DESACTIVADAS}.
+     */
+    public LatencyHistogram get(Histograma histograma) {
+        return histogramas == null ? null : histogramas[histograma.ordinal()];
+    }
+
+    /**
+     * Copia el estado de las métricas. Reserva memoria, así que no es para el camino crítico.
+     *
+     * @return copia de los contadores y los histogramas.
+     */
+    public MetricsSnapshot snapshot() {
+        long[] valores = new long[CONTADORES.length];
+        long[][] cuentas = new long[HISTOGRAMAS.length][LatencyHistogram.CUBETAS];
+        long[] minimos = new long[HISTOGRAMAS.length];
+        long[] maximos = new long[HISTOGRAMAS.length];
+        long[] totales = new long[HISTOGRAMAS.length];
+        if (histogramas != null) {
+            for (int i = 0; i < valores.length; i++) {
+                valores[i] = contadores.get(i);
+            }
+            for (int i = 0; i < histogramas.length; i++) {
+                histogramas[i].copyTo(cuentas[i]);
+                minimos[i] = histogramas[i].getMinimo();
+                maximos[i] = histogramas[i].getMaximo();
+                totales[i] = histogramas[i].getTotal();
+            }
+        }
+        return new MetricsSnapshot(valores, cuentas, minimos, maximos, totales);
+    }
+
+    /**
+     * Borra todos los contadores y los histogramas.
+     */
+    public void reset() {
+        if (histogramas == null)
+            return;
+        for (int i = 0; i < contadores.length(); i++) {
+            contadores.set(i, 0);
+        }
+        for (LatencyHistogram histograma : histogramas) {
+            histograma.reset();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package es.rbp.simonbp.core;
+
+import java.util.Locale;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Copia inmutable de las {@link Metrics} en un instante. Se puede consultar desde los tests o exportar como JSON.
+ */
+public class MetricsSnapshot {
+
+    /**
+     * Percentiles que se exportan en el JSON
+     */
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final long[] contadores;
+
+    private final long[][] cuentas;
+
+    private final long[] minimos;
+
+    private final long[] maximos;
+
+    private final long[] totales;
+
+    private final long[] muestras;
+
+    MetricsSnapshot(long[] contadores, long[][] cuentas, long[] minimos, long[] maximos, long[] totales) {
+        this.contadores = contadores;
+        this.cuentas = cuentas;
+        this.minimos = minimos;
+        this.maximos = maximos;
+        this.totales = totales;
+        this.muestras = new long[cuentas.length];
+        for (int i = 0; i < cuentas.length; i++) {
+            for (long cuenta : cuentas[i]) {
+                muestras[i] += cuenta;
+            }
+        }
+    }
+
+    public long get(Metrics.Contador contador) {
+        return contadores[contador.ordinal()];
+    }
+
+    public long getMuestras(Metrics.Histograma histograma) {
+        return muestras[histograma.ordinal()];
+    }
+
+    public long getMinimo(Metrics.Histograma histograma) {
+        return minimos[histograma.ordinal()];
+    }
+
+    public long getMaximo(Metrics.Histograma histograma) {
+        return maximos[histograma.ordinal()];
+    }
+
+    /**
+     * @return media en nanosegundos, o 0 si no hay muestras.
+     */
+    public long getMedia(Metrics.Histograma histograma) {
+        long numero = muestras[histograma.ordinal()];
+        return numero == 0 ? 0 : totales[histograma.ordinal()] / numero;
+    }
+
+    /**
+     * @param histograma histograma.
+     * @param percentil  percentil entre 0 y 100.
+     * @return valor del percentil en nanosegundos, con un error relativo menor del 3,2%, o 0 si no hay muestras.
+     */
+    public long getPercentil(Metrics.Histograma histograma, double percentil) {
+        return LatencyHistogram.percentil(cuentas[histograma.ordinal()], percentil, maximos[histograma.ordinal()]);
+    }
+
+    /**
+     * @return las métricas en JSON, con los tiempos en microsegundos.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\"contadores\":{");
+        Metrics.Contador[] nombresContadores = Metrics.Contador.values();
+        for (int i = 0; i < nombresContadores.length; i++) {
+            if (i > 0)
+                json.append(',');
+            json.append('"').append(nombresContadores[i].name()).append("\":").append(contadores[i]);
+        }
+        json.append("},\"histogramas\":{");
+        Metrics.Histograma[] nombresHistogramas = Metrics.Histograma.values();
+        for (int i = 0; i < nombresHistogramas.length; i++) {
+            Metrics.Histograma histograma = nombresHistogramas[i];
+            if (i > 0)
+                json.append(',');
+            json.append('"').append(histograma.name()).append("\":{\"muestras\":").append(getMuestras(histograma));
+            appendMicros(json, "min", getMinimo(histograma));
+            appendMicros(json, "media", getMedia(histograma));
+            for (double percentil : PERCENTILES) {
+                appendMicros(json, "p" + String.valueOf(percentil).replace(".0", ""),
+                        getPercentil(histograma, percentil));
+            }
+            appendMicros(json, "max", getMaximo(histograma));
+            json.append('}');
+        }
+        return json.append("}}").toString();
+    }
+
+    private static void appendMicros(StringBuilder json, String nombre, long nanos) {
+        json.append(",\"").append(nombre).append("_us\":").append(String.format(Locale.ROOT, "%.1f", nanos / 1e3));
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+}
@@ -0,0 +1,427 @@
+package es.rbp.simonbp.core;
+
+import java.util.Arrays;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Reglas de las partidas de varios jugadores en un mismo dispositivo, sin depender de Android. Hay dos modos:
+ * <ul>
+ * <li>Por turnos: no hay cpu. Cada jugador repite la serie que llevan entre todos y añade un número al final, y
+ * le pasa el dispositivo al siguiente.</li>
+ * <li>Cara a cara: la cpu muestra la serie a todos a la vez y cada jugador la repite en su mitad de la pantalla
+ * sin esperar a los demás. La ronda termina cuando la han completado todos los que siguen en juego.</li>
+ * </ul>
+ * El que se equivoca queda eliminado y gana el último que quede. Con un número de rondas limitado, cara a cara gana
+ * el primero que completa la última ronda, y por turnos la partida acaba en empate si la serie llega al límite.
+ * <p>
+ * Todos los jugadores comparten una sola serie y cada uno tiene su propio cursor sobre ella, así que añadir un
+ * jugador sólo cuesta un int y un boolean. Las pulsaciones de todos los jugadores llegan intercaladas por el mismo
+ * hilo, el de la vista, y se procesan en el orden en que llegan sin locks ni colas. Cada entrada se puede codificar
+ * en un int con {@link MultiplayerEngine#entrada(int, int)} y guardar en un {@link InputTrace}: la semilla y la
+ * traza bastan para repetir la partida entera, con los mismos eventos en el mismo orden.
+ *
+ * @see MultiplayerListener
+ */
+public class MultiplayerEngine {
+
+    /**
+     * Modos de juego
+     */
+    public enum Modo {
+        /**
+         * Cada jugador repite la serie y añade un número, por turnos
+         */
+        TURNOS,
+        /**
+         * La cpu muestra la serie y todos la repiten a la vez
+         */
+        CARA_A_CARA
+    }
+
+    /**
+     * Estados de la partida
+     */
+    public enum Estado {
+        /**
+         * La partida todavía no ha empezado
+         */
+        ESPERANDO,
+        /**
+         * La cpu está mostrando la serie. Sólo cara a cara
+         */
+        TURNO_CPU,
+        /**
+         * Los jugadores están pulsando
+         */
+        JUGANDO,
+        /**
+         * La partida ha terminado
+         */
+        TERMINADA
+    }
+
+    public static final int MINIMO_JUGADORES = 2, MAXIMO_JUGADORES = 4;
+
+    /**
+     * Ganador de una partida que termina en empate
+     */
+    public static final int EMPATE = -1;
+
+    /**
+     * Entrada que indica que la vista ha terminado de mostrar la serie
+     *
+     * @see MultiplayerEngine#aplicar(int)
+     */
+    public static final int FIN_CPU = -1;
+
+    /**
+     * Bits del número del botón dentro de una entrada
+     */
+    private static final int BITS_NUMERO = 8;
+
+    private final Modo modo;
+
+    private final SimonConfig config;
+
+    private final PatternGenerator generador;
+
+    private final long semilla;
+
+    private MultiplayerListener listener;
+
+    /**
+     * Traza donde se graban las entradas, o null
+     */
+    private InputTrace traza;
+
+    /**
+     * Serie común a todos los jugadores
+     */
+    private final ByteSequence serie;
+
+    /**
+     * Posición de la serie en la que se encuentra cada jugador
+     */
+    private final int[] posiciones;
+
+    private final boolean[] eliminados;
+
+    private int activos;
+
+    /**
+     * Jugadores en juego que han completado la ronda actual. Sólo cara a cara
+     */
+    private int listos;
+
+    /**
+     * Jugador al que le toca. Sólo por turnos
+     */
+    private int turno;
+
+    private int ganador = EMPATE;
+
+    private Estado estado;
+
+    /**
+     * @param modo      modo de juego.
+     * @param config    configuración de la partida. Por turnos sólo se usa el número de botones y el de rondas.
+     * @param jugadores número de jugadores, entre {@link MultiplayerEngine#MINIMO_JUGADORES} y
+     *                  {@link MultiplayerEngine#MAXIMO_JUGADORES}.
+     * @param generador generador de la serie, que se reinicia con la semilla. Por turnos no se usa y puede ser null.
+     * @param semilla   semilla de la partida.
+     */
+    public MultiplayerEngine(Modo modo, SimonConfig config, int jugadores, PatternGenerator generador, long semilla) {
+        if (jugadores < MINIMO_JUGADORES || jugadores > MAXIMO_JUGADORES)
+            throw new IllegalArgumentException("Número de jugadores no soportado: " + jugadores);
+        if (modo == Modo.CARA_A_CARA && generador == null)
+            throw new IllegalArgumentException("Cara a cara la serie sale de un generador");
+        this.modo = modo;
+        this.config = config;
+        this.generador = generador;
+        this.semilla = semilla;
+        this.serie = new ByteSequence(config.isInfinito() ? 0 : config.getTurnos(), config.getNumeroBotones());
+        this.posiciones = new int[jugadores];
+        this.eliminados = new boolean[jugadores];
+        this.activos = jugadores;
+        this.estado = Estado.ESPERANDO;
+        if (generador != null)
+            generador.reset(semilla);
+    }
+
+    public void setListener(MultiplayerListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Graba en una traza todas las entradas que reciba el motor desde ahora, incluidas las que no tengan efecto.
+     *
+     * @param traza traza donde se añaden las entradas, o null para dejar de grabar.
+     */
+    public void setTraza(InputTrace traza) {
+        this.traza = traza;
+    }
+
+    /**
+     * Codifica la pulsación de un jugador en un int.
+     *
+     * @param jugador jugador que pulsa, empezando por 0.
+     * @param numero  número del botón pulsado.
+     * @return entrada para {@link MultiplayerEngine#aplicar(int)}.
+     */
+    public static int entrada(int jugador, int numero) {
+        return jugador << BITS_NUMERO | numero;
+    }
+
+    /**
+     * @param entrada pulsación codificada. No puede ser {@link MultiplayerEngine#FIN_CPU}.
+     * @return jugador de la pulsación.
+     */
+    public static int getJugador(int entrada) {
+        return entrada >>> BITS_NUMERO;
+    }
+
+    /**
+     * @param entrada pulsación codificada. No puede ser {@link MultiplayerEngine#FIN_CPU}.
+     * @return número del botón de la pulsación.
+     */
+    public static int getNumero(int entrada) {
+        return entrada & ((1 << BITS_NUMERO) - 1);
+    }
+
+    /**
+     * Empieza la partida: por turnos le toca al primer jugador y cara a cara empieza el turno de la cpu.
+     */
+    public void start() {
+        if (estado != Estado.ESPERANDO)
+            throw new IllegalStateException("La partida ya ha empezado: " + estado);
+        if (modo == Modo.TURNOS) {
+            estado = Estado.JUGANDO;
+            turno = 0;
+            if (listener != null)
+                listener.onTurnoJugador(turno);
+        } else {
+            turnoCpu();
+        }
+    }
+
+    /**
+     * Procesa una entrada codificada: una pulsación o el fin del turno de la cpu.
+     *
+     * @param entrada entrada de {@link MultiplayerEngine#entrada(int, int)} o {@link MultiplayerEngine#FIN_CPU}.
+     * @return lo mismo que {@link MultiplayerEngine#pulsar(int, int)}, o true si era el fin del turno de la cpu.
+     */
+    public boolean aplicar(int entrada) {
+        if (entrada == FIN_CPU) {
+            finTurnoCpu();
+            return true;
+        }
+        return pulsar(getJugador(entrada), getNumero(entrada));
+    }
+
+    /**
+     * La vista ha terminado de mostrar la serie y todos los jugadores pueden empezar a repetirla.
+     */
+    public void finTurnoCpu() {
+        if (traza != null)
+            traza.add(FIN_CPU);
+        if (estado == Estado.TURNO_CPU)
+            estado = Estado.JUGANDO;
+    }
+
+    /**
+     * Comprueba el botón pulsado por un jugador. Si no le toca pulsar, porque es el turno de otro, está eliminado o
+     * ya ha completado la ronda, no hace nada.
+     *
+     * @param jugador jugador que pulsa, empezando por 0.
+     * @param numero  número del botón pulsado.
+     * @return true si la pulsación ha contado, acertara o no.
+     */
+    public boolean pulsar(int jugador, int numero) {
+        if (jugador < 0 || jugador >= posiciones.length)
+            throw new IllegalArgumentException("Jugador fuera de rango: " + jugador);
+        if (numero < 1 || numero > config.getNumeroBotones())
+            throw new IllegalArgumentException("Número fuera de rango: " + numero);
+        if (traza != null)
+            traza.add(entrada(jugador, numero));
+        if (estado != Estado.JUGANDO || eliminados[jugador])
+            return false;
+        if (modo == Modo.TURNOS)
+            return pulsarTurno(jugador, numero);
+        return pulsarCaraACara(jugador, numero);
+    }
+
+    /**
+     * Por turnos, el jugador repite la serie y el primer número que pulsa después de completarla se añade al final.
+     */
+    private boolean pulsarTurno(int jugador, int numero) {
+        if (jugador != turno)
+            return false;
+        int posicion = posiciones[jugador];
+        if (posicion < serie.size()) {
+            if (numero == serie.get(posicion))
+                posiciones[jugador]++;
+            else
+                eliminar(jugador);
+            return true;
+        }
+        serie.add(numero);
+        if (!config.isInfinito() && serie.size() == config.getTurnos())
+            terminar(EMPATE);
+        else
+            siguienteTurno();
+        return true;
+    }
+
+    /**
+     * Cara a cara, cada jugador avanza su cursor por la serie sin esperar a los demás.
+     */
+    private boolean pulsarCaraACara(int jugador, int numero) {
+        int posicion = posiciones[jugador];
+        if (posicion == serie.size())
+            return false;
+        if (numero != serie.get(posicion)) {
+            eliminar(jugador);
+        } else if (++posiciones[jugador] == serie.size()) {
+            if (!config.isInfinito() && serie.size() == config.getTurnos()) {
+                terminar(jugador);
+            } else {
+                listos++;
+                if (listener != null)
+                    listener.onJugadorListo(jugador);
+                if (listos == activos)
+                    turnoCpu();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Saca a un jugador de la partida. Si sólo queda otro, gana; si no, la partida sigue sin él.
+     */
+    private void eliminar(int jugador) {
+        eliminados[jugador] = true;
+        activos--;
+        if (listener != null)
+            listener.onEliminado(jugador);
+        if (activos == 1) {
+            for (int i = 0; i < eliminados.length; i++) {
+                if (!eliminados[i])
+                    terminar(i);
+            }
+        } else if (modo == Modo.TURNOS) {
+            siguienteTurno();
+        } else if (listos == activos) {
+            turnoCpu();
+        }
+    }
+
+    /**
+     * Le pasa el turno al siguiente jugador en juego, que empieza la serie desde el principio.
+     */
+    private void siguienteTurno() {
+        do {
+            turno = (turno + 1) % posiciones.length;
+        } while (eliminados[turno]);
+        posiciones[turno] = 0;
+        if (listener != null)
+            listener.onTurnoJugador(turno);
+    }
+
+    /**
+     * Añade un número a la serie, pone a todos los jugadores al principio y avisa a la vista para que la muestre.
+     */
+    private void turnoCpu() {
+        serie.add(generador.next(config.getNumeroBotones()));
+        Arrays.fill(posiciones, 0);
+        listos = 0;
+        estado = Estado.TURNO_CPU;
+        if (listener != null)
+            listener.onTurnoCpu(serie.size());
+    }
+
+    private void terminar(int ganador) {
+        this.ganador = ganador;
+        estado = Estado.TERMINADA;
+        if (listener != null)
+            listener.onFin(ganador);
+    }
+
+    public Modo getModo() {
+        return modo;
+    }
+
+    public SimonConfig getConfig() {
+        return config;
+    }
+
+    public long getSemilla() {
+        return semilla;
+    }
+
+    public Estado getEstado() {
+        return estado;
+    }
+
+    public boolean isTerminada() {
+        return estado == Estado.TERMINADA;
+    }
+
+    public int getJugadores() {
+        return posiciones.length;
+    }
+
+    /**
+     * @return jugador al que le toca por turnos.
+     */
+    public int getTurno() {
+        return turno;
+    }
+
+    /**
+     * @param jugador jugador, empezando por 0.
+     * @return posición de la serie que el jugador debe pulsar a continuación, empezando por 0.
+     */
+    public int getPosicion(int jugador) {
+        return posiciones[jugador];
+    }
+
+    public boolean isEliminado(int jugador) {
+        return eliminados[jugador];
+    }
+
+    /**
+     * @return jugadores que siguen en juego.
+     */
+    public int getActivos() {
+        return activos;
+    }
+
+    /**
+     * @return ganador de la partida, o {@link MultiplayerEngine#EMPATE} si ha empatado o no ha terminado.
+     */
+    public int getGanador() {
+        return ganador;
+    }
+
+    /**
+     * @return número de pasos de la serie.
+     */
+    public int getRonda() {
+        return serie.size();
+    }
+
+    /**
+     * @return serie común. No se debe modificar.
+     */
+    public ByteSequence getSerie() {
+        return serie;
+    }
+
+    /**
+     * @return duración de cada paso de la serie en la ronda actual, en milisegundos.
+     */
+    public int getDuracionPaso() {
+        return config.getDuracionPaso(serie.size());
+    }
+}
@@ -0,0 +1,47 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Recibe los eventos de una partida de varios jugadores para que la vista los muestre.
+ *
+ * @see MultiplayerEngine
+ */
+public interface MultiplayerListener {
+
+    /**
+     * Sólo cara a cara. La cpu ha añadido un número a la serie y hay que mostrarla a todos los jugadores. Al terminar
+     * de mostrarla se debe llamar a {@link MultiplayerEngine#finTurnoCpu()}.
+     *
+     * @param ronda ronda que empieza, empezando por 1.
+     */
+    void onTurnoCpu(int ronda);
+
+    /**
+     * Sólo por turnos. Le toca a un jugador repetir la serie y añadir un número al final.
+     *
+     * @param jugador jugador al que le toca, empezando por 0.
+     */
+    void onTurnoJugador(int jugador);
+
+    /**
+     * Sólo cara a cara. Un jugador ha completado la serie de la ronda y espera a los demás.
+     *
+     * @param jugador jugador que ha terminado la ronda.
+     */
+    void onJugadorListo(int jugador);
+
+    /**
+     * Un jugador se ha equivocado y queda fuera de la partida.
+     *
+     * @param jugador jugador eliminado.
+     */
+    void onEliminado(int jugador);
+
+    /**
+     * La partida ha terminado.
+     *
+     * @param ganador jugador que ha ganado, o {@link MultiplayerEngine#EMPATE}.
+     */
+    void onFin(int ganador);
+}
@@ -0,0 +1,35 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Generador que nunca repite el mismo botón dos veces seguidas. El resto de botones tienen la misma probabilidad.
+ */
+public class NoRepeatGenerator extends UniformGenerator {
+
+    /**
+     * Último número generado, o 0 si todavía no se ha generado ninguno
+     */
+    private int anterior;
+
+    @Override
+    public void reset(long semilla) {
+        super.reset(semilla);
+        anterior = 0;
+    }
+
+    @Override
+    public int next(int numeroBotones) {
+        int numero;
+        if (anterior == 0) {
+            numero = random.nextInt(numeroBotones) + 1;
+        } else {
+            // Se elige entre los otros botones y se salta el anterior
+            numero = random.nextInt(numeroBotones - 1) + 1;
+            if (numero >= anterior)
+                numero++;
+        }
+        anterior = numero;
+        return numero;
+    }
+}
@@ -0,0 +1,45 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Backend que reproduce las notas del juego. Cada implementación decodifica las notas una sola vez al crearse
+ * (SoundPool, buffers PCM, etc.) para que {@link NoteBackend#play(int)} no tenga que bloquear ni reservar memoria.
+ *
+ * @see NoteEngine
+ */
+public interface NoteBackend {
+
+    /**
+     * @return número de notas que puede reproducir el backend.
+     */
+    int getNumeroNotas();
+
+    /**
+     * @return true si todas las notas están decodificadas y listas para sonar.
+     */
+    boolean isListo();
+
+    /**
+     * Empieza a reproducir la nota indicada sin cortar las que ya estén sonando. No debe bloquear ni reservar memoria.
+     *
+     * @param nota número de la nota, empezando por 1.
+     */
+    void play(int nota);
+
+    /**
+     * Corta las notas que estén sonando y deja de usar la salida de audio hasta que se reanude. Las notas que se
+     * toquen mientras tanto se ignoran.
+     */
+    void pause();
+
+    /**
+     * Vuelve a usar la salida de audio después de {@link NoteBackend#pause()}.
+     */
+    void resume();
+
+    /**
+     * Libera los recursos nativos del backend. Después de llamarlo no se puede volver a usar.
+     */
+    void release();
+}
@@ -0,0 +1,162 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Caché con las notas decodificadas a PCM. Se llena una sola vez en segundo plano al arrancar la app y la comparten
+ * todos los backends, así que ningún activity vuelve a leer ni a decodificar los assets.
+ * <p>
+ * Empieza cargando y termina lista, fallida o liberada. Una vez liberada no vuelve a cargarse; quien necesite las
+ * notas otra vez debe crear otro banco.
+ */
+public class NoteBank {
+
+    private final int numeroNotas;
+
+    private short[][] notas;
+
+    private int frecuencia;
+
+    private boolean liberado;
+
+    private boolean fallido;
+
+    /**
+     * Instante en el que se creó el banco y en el que terminó de cargarse, en nanosegundos de {@link System#nanoTime()}
+     */
+    private final long creado;
+
+    private long listo;
+
+    /**
+     * @param numeroNotas número de notas que tendrá el banco.
+     */
+    public NoteBank(int numeroNotas) {
+        if (numeroNotas < 1)
+            throw new IllegalArgumentException("Se necesita al menos una nota: " + numeroNotas);
+        this.numeroNotas = numeroNotas;
+        this.creado = System.nanoTime();
+    }
+
+    /**
+     * Guarda las notas decodificadas y despierta a quien esté esperando. Si el banco ya se ha liberado se descartan.
+     *
+     * @param notas      muestras PCM mono de 16 bits de cada nota, en el orden de los botones.
+     * @param frecuencia frecuencia de muestreo de todas las notas.
+     */
+    public synchronized void set(short[][] notas, int frecuencia) {
+        if (notas.length != numeroNotas)
+            throw new IllegalArgumentException("Se esperaban " + numeroNotas + " notas y hay " + notas.length);
+        if (this.notas != null)
+            throw new IllegalStateException("Las notas ya están cargadas");
+        if (liberado)
+            return;
+        this.notas = notas;
+        this.frecuencia = frecuencia;
+        this.listo = System.nanoTime();
+        notifyAll();
+    }
+
+    /**
+     * Marca la carga como fallida y despierta a quien esté esperando.
+     */
+    public synchronized void fail() {
+        fallido = true;
+        notifyAll();
+    }
+
+    /**
+     * Espera a que las notas estén cargadas.
+     *
+     * @param millis tiempo máximo de espera en milisegundos.
+     * @return true si las notas están listas, false si se ha agotado el tiempo, la carga ha fallado o el banco se ha
+     * liberado.
+     * @throws InterruptedException si se interrumpe el hilo mientras espera.
+     */
+    public synchronized boolean await(long millis) throws InterruptedException {
+        long limite = System.nanoTime() + millis * 1_000_000L;
+        while (notas == null && !liberado && !fallido) {
+            long restante = limite - System.nanoTime();
+            if (restante <= 0)
+                return false;
+            wait(Math.max(1, restante / 1_000_000L));
+        }
+        return notas != null;
+    }
+
+    /**
+     * Suelta las notas. Los backends que ya las estén usando conservan su referencia y siguen sonando.
+     */
+    public synchronized void release() {
+        notas = null;
+        liberado = true;
+        notifyAll();
+    }
+
+    public int getNumeroNotas() {
+        return numeroNotas;
+    }
+
+    public synchronized boolean isListo() {
+        return notas != null;
+    }
+
+    public synchronized boolean isLiberado() {
+        return liberado;
+    }
+
+    public synchronized boolean isFallido() {
+        return fallido;
+    }
+
+    /**
+     * @return las notas, o null si aún no están cargadas o el banco se ha liberado. No se deben modificar.
+     */
+    public synchronized short[][] getNotas() {
+        return notas;
+    }
+
+    public synchronized int getFrecuencia() {
+        return frecuencia;
+    }
+
+    /**
+     * @return bytes que ocupan las muestras, o 0 si no están cargadas.
+     */
+    public synchronized long getBytes() {
+        long bytes = 0;
+        if (notas != null) {
+            for (short[] nota : notas) {
+                bytes += nota.length * 2L;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @return tiempo que tardó en cargarse desde que se creó, en nanosegundos, o -1 si aún no está cargado.
+     */
+    public synchronized long getNanosCarga() {
+        return listo == 0 ? -1 : listo - creado;
+    }
+
+    /**
+     * Quita el silencio del final de una nota, que el decodificador suele dejar como relleno. Así las notas ocupan
+     * menos y el mezclador no pierde tiempo mezclando ceros.
+     *
+     * @param pcm    muestras de la nota.
+     * @param umbral amplitud por debajo de la cual una muestra se considera silencio.
+     * @return la misma nota sin el silencio final, o el mismo array si no tiene.
+     */
+    public static short[] recortarSilencio(short[] pcm, int umbral) {
+        int fin = pcm.length;
+        while (fin > 0 && Math.abs(pcm[fin - 1]) <= umbral) {
+            fin--;
+        }
+        if (fin == pcm.length)
+            return pcm;
+        short[] recortado = new short[fin];
+        System.arraycopy(pcm, 0, recortado, 0, fin);
+        return recortado;
+    }
+}
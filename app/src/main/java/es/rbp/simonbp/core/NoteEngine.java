@@ -0,0 +1,122 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Motor de notas del juego. Recibe la pulsación de un botón y dispara la nota correspondiente en el backend. Si se le
+ * pasa el instante del toque, mide el tiempo que pasa desde el toque hasta que el backend ha aceptado la nota. Lo que
+ * tarda después la nota en salir por el altavoz depende del buffer de audio del dispositivo y no se incluye.
+ * <p>
+ * Las notas se decodifican una sola vez al crear el backend, así que tocar una nota no bloquea ni reserva memoria.
+ *
+ * @see NoteBackend
+ * @see LatencyMeter
+ * @see Metrics
+ */
+public class NoteEngine {
+
+    /**
+     * Archivos de los assets con las notas, en el orden de los botones
+     */
+    public static final String[] NOTAS = {"do.mp3", "re.mp3", "mi.mp3", "fa.mp3", "sol.mp3", "la.mp3"};
+
+    private final NoteBackend backend;
+
+    private final Clock clock;
+
+    /**
+     * Latencia entre el toque del jugador y la nota entregada al backend
+     */
+    private final LatencyMeter latencia;
+
+    private final Metrics metrics;
+
+    public NoteEngine(NoteBackend backend) {
+        this(backend, Clock.SISTEMA);
+    }
+
+    public NoteEngine(NoteBackend backend, Clock clock) {
+        this(backend, clock, Metrics.DESACTIVADAS);
+    }
+
+    /**
+     * @param backend backend que toca las notas.
+     * @param clock   reloj con el que se miden las latencias.
+     * @param metrics métricas donde se registran las notas tocadas, la latencia y lo que bloquea el backend.
+     */
+    public NoteEngine(NoteBackend backend, Clock clock, Metrics metrics) {
+        this.backend = backend;
+        this.clock = clock;
+        this.latencia = new LatencyMeter();
+        this.metrics = metrics;
+    }
+
+    /**
+     * Toca una nota que no viene de un toque del jugador, como las de la serie o las del menú. No cuenta en la
+     * latencia.
+     *
+     * @param nota número de la nota, empezando por 1.
+     * @see NoteEngine#play(int, long)
+     */
+    public void play(int nota) {
+        tocar(nota, false, 0);
+    }
+
+    /**
+     * Toca la nota del botón que ha tocado el jugador y registra la latencia desde el toque. Si el backend todavía no
+     * ha terminado de decodificar las notas, o la nota no existe, se ignora.
+     *
+     * @param nota            número de la nota, empezando por 1.
+     * @param instanteEntrada instante del toque, en nanosegundos del mismo reloj que el motor.
+     */
+    public void play(int nota, long instanteEntrada) {
+        tocar(nota, true, instanteEntrada);
+    }
+
+    private void tocar(int nota, boolean toque, long instanteEntrada) {
+        if (nota < 1 || nota > backend.getNumeroNotas())
+            return;
+        if (!backend.isListo()) {
+            metrics.increment(Metrics.Contador.NOTAS_PERDIDAS);
+            return;
+        }
+        boolean medir = metrics.isActivo();
+        long antes = medir ? clock.nanoTime() : 0;
+        backend.play(nota);
+        long despues = clock.nanoTime();
+        if (toque)
+            latencia.record(despues - instanteEntrada);
+        if (medir) {
+            metrics.increment(Metrics.Contador.NOTAS);
+            if (toque)
+                metrics.record(Metrics.Histograma.TOQUE_SONIDO, despues - instanteEntrada);
+            metrics.record(Metrics.Histograma.BLOQUEO_PLAY, despues - antes);
+        }
+    }
+
+    public boolean isListo() {
+        return backend.isListo();
+    }
+
+    public LatencyMeter getLatencia() {
+        return latencia;
+    }
+
+    /**
+     * Corta las notas y pausa la salida de audio, por ejemplo cuando la partida pasa a segundo plano.
+     */
+    public void pause() {
+        backend.pause();
+    }
+
+    public void resume() {
+        backend.resume();
+    }
+
+    /**
+     * Libera el backend.
+     */
+    public void release() {
+        backend.release();
+    }
+}
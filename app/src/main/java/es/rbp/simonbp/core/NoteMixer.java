@@ -0,0 +1,238 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Mezclador polifónico por software. Recibe el PCM ya decodificado de cada nota (mono, 16 bits) y mezcla hasta
+ * N voces simultáneas en un único buffer de salida.
+ * <p>
+ * Cada voz tiene una envolvente de ganancia con ataque y relajación lineales para que no se oigan chasquidos al
+ * empezar o terminar una nota. Si se dispara una nota con todas las voces ocupadas se roba la voz más antigua.
+ * <p>
+ * Todo el estado de las voces vive en arrays reservados en el constructor, así que mezclar nunca reserva memoria.
+ *
+ * @see PcmRingBuffer
+ */
+public class NoteMixer implements PcmSource {
+
+    /**
+     * Muestras de cada nota. La nota n está en la posición n - 1
+     */
+    private final short[][] notas;
+
+    /**
+     * Nota que suena en cada voz. 0 si la voz está libre
+     */
+    private final int[] vozNota;
+
+    /**
+     * Siguiente muestra de la nota que va a sonar en cada voz
+     */
+    private final int[] vozPosicion;
+
+    /**
+     * Orden en el que se disparó cada voz. Sirve para robar la más antigua
+     */
+    private final long[] vozOrden;
+
+    /**
+     * Ganancia máxima de cada voz
+     */
+    private final float[] vozGanancia;
+
+    /**
+     * Acumulador de la mezcla antes de recortarla a 16 bits
+     */
+    private final float[] acumulador;
+
+    /**
+     * Bloque intermedio para volcar la mezcla en un PcmRingBuffer
+     *
+     * @see NoteMixer#render(PcmRingBuffer)
+     */
+    private final short[] bloque;
+
+    private final int muestrasAtaque;
+
+    private final int muestrasRelajacion;
+
+    /**
+     * Número de notas disparadas desde que se creó el mezclador
+     */
+    private long disparos;
+
+    /**
+     * Número de voces robadas desde que se creó el mezclador
+     */
+    private long robadas;
+
+    /**
+     * @param notas              PCM mono de 16 bits de cada nota, en el orden de los botones.
+     * @param voces              número de voces que pueden sonar a la vez.
+     * @param bloqueMaximo       número máximo de muestras que se mezclan en cada llamada.
+     * @param muestrasAtaque     duración del ataque de la envolvente, en muestras.
+     * @param muestrasRelajacion duración de la relajación de la envolvente, en muestras.
+     */
+    public NoteMixer(short[][] notas, int voces, int bloqueMaximo, int muestrasAtaque, int muestrasRelajacion) {
+        if (voces <= 0)
+            throw new IllegalArgumentException("Debe haber al menos una voz: " + voces);
+        if (bloqueMaximo <= 0)
+            throw new IllegalArgumentException("El bloque debe ser positivo: " + bloqueMaximo);
+        this.notas = notas;
+        this.vozNota = new int[voces];
+        this.vozPosicion = new int[voces];
+        this.vozOrden = new long[voces];
+        this.vozGanancia = new float[voces];
+        this.acumulador = new float[bloqueMaximo];
+        this.bloque = new short[bloqueMaximo];
+        this.muestrasAtaque = Math.max(1, muestrasAtaque);
+        this.muestrasRelajacion = Math.max(1, muestrasRelajacion);
+    }
+
+    @Override
+    public int getNumeroNotas() {
+        return notas.length;
+    }
+
+    public int getNumeroVoces() {
+        return vozNota.length;
+    }
+
+    public int getBloqueMaximo() {
+        return acumulador.length;
+    }
+
+    /**
+     * Dispara la nota indicada con ganancia máxima.
+     *
+     * @param nota número de la nota, empezando por 1.
+     * @see NoteMixer#trigger(int, float)
+     */
+    @Override
+    public void trigger(int nota) {
+        trigger(nota, 1f);
+    }
+
+    /**
+     * Dispara la nota indicada en una voz libre. Si no hay ninguna libre roba la que lleva más tiempo sonando.
+     *
+     * @param nota     número de la nota, empezando por 1.
+     * @param ganancia ganancia máxima de la voz, entre 0 y 1.
+     */
+    public synchronized void trigger(int nota, float ganancia) {
+        if (nota < 1 || nota > notas.length)
+            return;
+        int voz = -1;
+        int masAntigua = 0;
+        for (int i = 0; i < vozNota.length; i++) {
+            if (vozNota[i] == 0) {
+                voz = i;
+                break;
+            }
+            if (vozOrden[i] < vozOrden[masAntigua])
+                masAntigua = i;
+        }
+        if (voz == -1) {
+            voz = masAntigua;
+            robadas++;
+        }
+        vozNota[voz] = nota;
+        vozPosicion[voz] = 0;
+        vozOrden[voz] = disparos++;
+        vozGanancia[voz] = ganancia;
+    }
+
+    /**
+     * Silencia todas las voces.
+     */
+    @Override
+    public synchronized void stopAll() {
+        for (int i = 0; i < vozNota.length; i++) {
+            vozNota[i] = 0;
+        }
+    }
+
+    /**
+     * Mezcla las voces activas en el buffer de salida, sobrescribiendo su contenido.
+     *
+     * @param salida buffer donde se escribe la mezcla.
+     * @param offset posición de salida donde se escribe la primera muestra.
+     * @param frames número de muestras a mezclar. Como máximo {@link NoteMixer#getBloqueMaximo()}.
+     * @return número de voces que seguían sonando al terminar la mezcla.
+     */
+    @Override
+    public synchronized int mix(short[] salida, int offset, int frames) {
+        if (frames > acumulador.length)
+            throw new IllegalArgumentException("Bloque demasiado grande: " + frames);
+        for (int i = 0; i < frames; i++) {
+            acumulador[i] = 0f;
+        }
+
+        int activas = 0;
+        for (int v = 0; v < vozNota.length; v++) {
+            if (vozNota[v] == 0)
+                continue;
+            short[] pcm = notas[vozNota[v] - 1];
+            int longitud = pcm.length;
+            int posicion = vozPosicion[v];
+            float ganancia = vozGanancia[v];
+            int n = Math.min(frames, longitud - posicion);
+            for (int i = 0; i < n; i++, posicion++) {
+                float envolvente = 1f;
+                if (posicion < muestrasAtaque)
+                    envolvente = (float) posicion / muestrasAtaque;
+                int restantes = longitud - posicion;
+                if (restantes < muestrasRelajacion)
+                    envolvente = Math.min(envolvente, (float) restantes / muestrasRelajacion);
+                acumulador[i] += pcm[posicion] * ganancia * envolvente;
+            }
+            if (posicion >= longitud) {
+                vozNota[v] = 0;
+            } else {
+                vozPosicion[v] = posicion;
+                activas++;
+            }
+        }
+
+        for (int i = 0; i < frames; i++) {
+            float muestra = acumulador[i];
+            if (muestra > Short.MAX_VALUE)
+                muestra = Short.MAX_VALUE;
+            else if (muestra < Short.MIN_VALUE)
+                muestra = Short.MIN_VALUE;
+            salida[offset + i] = (short) muestra;
+        }
+        return activas;
+    }
+
+    /**
+     * Mezcla tantas muestras como quepan en el buffer circular, hasta un bloque como máximo.
+     *
+     * @param destino buffer circular donde se escribe la mezcla.
+     * @return número de muestras escritas.
+     */
+    @Override
+    public int render(PcmRingBuffer destino) {
+        int frames = Math.min(destino.libres(), bloque.length);
+        if (frames == 0)
+            return 0;
+        mix(bloque, 0, frames);
+        return destino.write(bloque, 0, frames);
+    }
+
+    /**
+     * @return número de voces que están sonando.
+     */
+    public synchronized int getVocesActivas() {
+        int activas = 0;
+        for (int nota : vozNota) {
+            if (nota != 0)
+                activas++;
+        }
+        return activas;
+    }
+
+    public synchronized long getRobadas() {
+        return robadas;
+    }
+}
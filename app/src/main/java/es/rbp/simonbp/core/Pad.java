@@ -0,0 +1,45 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Descripción de un botón del tablero: el número que representa en la serie, su color y la nota que suena al
+ * pulsarlo.
+ *
+ * @see Board
+ */
+public final class Pad {
+
+    private final int id;
+
+    private final int color;
+
+    private final int nota;
+
+    /**
+     * @param id    número del botón en la serie, empezando por 1.
+     * @param color color ARGB del botón.
+     * @param nota  nota que suena al pulsarlo, empezando por 1.
+     */
+    public Pad(int id, int color, int nota) {
+        if (id < 1)
+            throw new IllegalArgumentException("Número de botón no válido: " + id);
+        if (nota < 1)
+            throw new IllegalArgumentException("Nota no válida: " + nota);
+        this.id = id;
+        this.color = color;
+        this.nota = nota;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getColor() {
+        return color;
+    }
+
+    public int getNota() {
+        return nota;
+    }
+}
@@ -0,0 +1,127 @@
+package es.rbp.simonbp.core;
+
+import java.util.Arrays;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Escala de cada botón de un tablero dibujado y sus animaciones de crecer y encoger, sin depender de Android. Cada
+ * animación son cuatro números en arrays, y un solo avance por frame actualiza todas las que están en marcha con la
+ * misma curva de acelerar y frenar que usan por defecto los animadores de Android. Como en ellos, cada animación
+ * empieza en el primer frame después de pedirla, así que sólo hace falta el reloj de los frames.
+ * <p>
+ * Como con los animadores de los botones, cada animación empieza en la escala actual del botón, así que si la
+ * anterior no había terminado se sigue desde donde se quedó.
+ */
+public class PadHighlights {
+
+    private final float[] escalas;
+
+    private final float[] desde;
+
+    private final float[] hasta;
+
+    /**
+     * Instante de inicio de las animaciones que todavía no han visto ningún frame
+     */
+    private static final long PENDIENTE = Long.MIN_VALUE;
+
+    /**
+     * Instante en el que empieza cada animación, en nanosegundos, o {@link PadHighlights#PENDIENTE}
+     */
+    private final long[] inicios;
+
+    /**
+     * Duración de cada animación en nanosegundos, o 0 si el botón no se está animando
+     */
+    private final long[] duraciones;
+
+    private int animando;
+
+    /**
+     * @param numeroBotones número de botones del tablero. Todos empiezan con escala 1.
+     */
+    public PadHighlights(int numeroBotones) {
+        escalas = new float[numeroBotones];
+        desde = new float[numeroBotones];
+        hasta = new float[numeroBotones];
+        inicios = new long[numeroBotones];
+        duraciones = new long[numeroBotones];
+        Arrays.fill(escalas, 1f);
+    }
+
+    /**
+     * Empieza a llevar un botón desde su escala actual hasta otra.
+     *
+     * @param numero   número del botón, empezando por 1.
+     * @param escala   escala final.
+     * @param duracion duración de la animación, en nanosegundos. Con 0 la escala cambia en el siguiente avance.
+     */
+    public void animar(int numero, float escala, long duracion) {
+        int i = numero - 1;
+        if (duraciones[i] == 0)
+            animando++;
+        desde[i] = escalas[i];
+        hasta[i] = escala;
+        inicios[i] = PENDIENTE;
+        duraciones[i] = Math.max(1, duracion);
+    }
+
+    /**
+     * Actualiza la escala de todos los botones que se están animando.
+     *
+     * @param ahora instante del frame, en nanosegundos.
+     * @return true si queda alguna animación en marcha.
+     */
+    public boolean avanzar(long ahora) {
+        if (animando == 0)
+            return false;
+        for (int i = 0; i < escalas.length; i++) {
+            long duracion = duraciones[i];
+            if (duracion == 0)
+                continue;
+            if (inicios[i] == PENDIENTE)
+                inicios[i] = ahora;
+            long transcurrido = ahora - inicios[i];
+            if (transcurrido >= duracion) {
+                escalas[i] = hasta[i];
+                duraciones[i] = 0;
+                animando--;
+            } else {
+                double t = (double) transcurrido / duracion;
+                float curva = (float) (Math.cos((t + 1) * Math.PI) / 2 + 0.5);
+                escalas[i] = desde[i] + (hasta[i] - desde[i]) * curva;
+            }
+        }
+        return animando > 0;
+    }
+
+    /**
+     * Para todas las animaciones dejando cada botón con la escala que tenga.
+     */
+    public void cancel() {
+        for (int i = 0; i < duraciones.length; i++) {
+            duraciones[i] = 0;
+        }
+        animando = 0;
+    }
+
+    /**
+     * @param numero número del botón, empezando por 1.
+     * @return escala actual del botón.
+     */
+    public float getEscala(int numero) {
+        return escalas[numero - 1];
+    }
+
+    /**
+     * @return número de botones que se están animando.
+     */
+    public int getAnimando() {
+        return animando;
+    }
+
+    public int size() {
+        return escalas.length;
+    }
+}
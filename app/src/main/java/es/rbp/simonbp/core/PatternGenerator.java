@@ -0,0 +1,25 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Genera los números que la cpu añade a la serie. Las implementaciones deben ser deterministas: con la misma semilla
+ * deben generar siempre la misma serie, para poder repetir cualquier partida.
+ *
+ * @see GameSession
+ */
+public interface PatternGenerator {
+
+    /**
+     * Reinicia el generador con una semilla.
+     *
+     * @param semilla semilla de la partida.
+     */
+    void reset(long semilla);
+
+    /**
+     * @param numeroBotones número de botones del tablero.
+     * @return siguiente número de la serie, entre 1 y numeroBotones.
+     */
+    int next(int numeroBotones);
+}
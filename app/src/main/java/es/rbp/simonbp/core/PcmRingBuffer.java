@@ -0,0 +1,105 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Buffer circular de muestras PCM de 16 bits con tamaño fijo. Se reserva al crearlo y nunca vuelve a reservar memoria.
+ * <p>
+ * Está pensado para un único productor (el mezclador) y un único consumidor (la salida de audio). Las posiciones de
+ * lectura y escritura son volatile, así que cada lado puede estar en un hilo distinto sin bloqueos.
+ *
+ * @see NoteMixer
+ */
+public class PcmRingBuffer {
+
+    private final short[] muestras;
+
+    /**
+     * Máscara para calcular la posición dentro del buffer. La capacidad siempre es potencia de 2.
+     */
+    private final int mascara;
+
+    /**
+     * Total de muestras escritas desde que se creó el buffer. Sólo lo modifica el productor
+     */
+    private volatile long escritas;
+
+    /**
+     * Total de muestras leídas desde que se creó el buffer. Sólo lo modifica el consumidor
+     */
+    private volatile long leidas;
+
+    /**
+     * @param capacidad número mínimo de muestras que debe caber en el buffer. Se redondea a la siguiente potencia de 2.
+     */
+    public PcmRingBuffer(int capacidad) {
+        if (capacidad <= 0)
+            throw new IllegalArgumentException("La capacidad debe ser positiva: " + capacidad);
+        int potencia = Integer.highestOneBit(capacidad);
+        if (potencia < capacidad)
+            potencia <<= 1;
+        muestras = new short[potencia];
+        mascara = potencia - 1;
+    }
+
+    public int getCapacidad() {
+        return muestras.length;
+    }
+
+    /**
+     * @return muestras pendientes de leer.
+     */
+    public int disponibles() {
+        return (int) (escritas - leidas);
+    }
+
+    /**
+     * @return huecos libres para escribir.
+     */
+    public int libres() {
+        return muestras.length - disponibles();
+    }
+
+    /**
+     * Escribe todas las muestras que quepan.
+     *
+     * @param origen array con las muestras.
+     * @param offset posición de la primera muestra en origen.
+     * @param numero número de muestras a escribir.
+     * @return número de muestras escritas realmente.
+     */
+    public int write(short[] origen, int offset, int numero) {
+        int n = Math.min(numero, libres());
+        long posicion = escritas;
+        for (int i = 0; i < n; i++) {
+            muestras[(int) (posicion + i) & mascara] = origen[offset + i];
+        }
+        escritas = posicion + n;
+        return n;
+    }
+
+    /**
+     * Lee todas las muestras disponibles que quepan en el destino.
+     *
+     * @param destino array donde se copian las muestras.
+     * @param offset  posición de destino donde se copia la primera muestra.
+     * @param numero  número máximo de muestras a leer.
+     * @return número de muestras leídas realmente.
+     */
+    public int read(short[] destino, int offset, int numero) {
+        int n = Math.min(numero, disponibles());
+        long posicion = leidas;
+        for (int i = 0; i < n; i++) {
+            destino[offset + i] = muestras[(int) (posicion + i) & mascara];
+        }
+        leidas = posicion + n;
+        return n;
+    }
+
+    /**
+     * Descarta todas las muestras pendientes. Sólo debe llamarlo el consumidor.
+     */
+    public void clear() {
+        leidas = escritas;
+    }
+}
@@ -0,0 +1,49 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Fuente de audio polifónica que genera PCM mono de 16 bits bloque a bloque. Puede mezclar notas ya decodificadas o
+ * sintetizarlas al vuelo.
+ *
+ * @see NoteMixer
+ * @see ToneSynth
+ */
+public interface PcmSource {
+
+    /**
+     * @return número de notas distintas que puede tocar.
+     */
+    int getNumeroNotas();
+
+    /**
+     * Empieza a tocar una nota. No debe bloquear ni reservar memoria.
+     *
+     * @param nota número de la nota, empezando por 1. Si no existe se ignora.
+     */
+    void trigger(int nota);
+
+    /**
+     * Genera las muestras de las voces activas en un array, sobrescribiendo su contenido. Es lo que usa la salida de
+     * audio, que escribe el array directamente en el dispositivo.
+     *
+     * @param salida buffer donde se escriben las muestras.
+     * @param offset posición de salida donde se escribe la primera muestra.
+     * @param frames número de muestras a generar, como mucho un bloque.
+     * @return número de voces que siguen sonando.
+     */
+    int mix(short[] salida, int offset, int frames);
+
+    /**
+     * Genera tantas muestras como quepan en el buffer, hasta un bloque.
+     *
+     * @param destino buffer donde se escriben las muestras.
+     * @return muestras escritas.
+     */
+    int render(PcmRingBuffer destino);
+
+    /**
+     * Corta todas las notas que estén sonando.
+     */
+    void stopAll();
+}
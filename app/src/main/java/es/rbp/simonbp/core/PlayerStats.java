@@ -0,0 +1,75 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Rendimiento reciente del jugador: su tiempo de reacción y cuántas rondas falla. Lo alimenta {@link SimonEngine} en
+ * cada pulsación y al terminar cada ronda, y lo lee la {@link DifficultyPolicy} antes de cada turno de la cpu.
+ * <p>
+ * Puede durar más que una partida, de forma que la siguiente ya empiece al ritmo del jugador.
+ */
+public class PlayerStats {
+
+    /**
+     * Peso de cada tiempo de reacción nuevo: algo así como las últimas 20 pulsaciones
+     */
+    public static final double ALFA_REACCION = 0.1;
+
+    /**
+     * Peso de cada ronda nueva: algo así como las últimas 10 rondas
+     */
+    public static final double ALFA_FALLOS = 0.2;
+
+    private final RollingStats reaccion = new RollingStats(ALFA_REACCION);
+
+    /**
+     * Media móvil de 1 por cada ronda fallada y 0 por cada ronda superada
+     */
+    private final RollingStats fallos = new RollingStats(ALFA_FALLOS);
+
+    /**
+     * @param milisegundos tiempo desde que el jugador pudo pulsar hasta que pulsó.
+     */
+    public void registrarReaccion(int milisegundos) {
+        if (milisegundos >= 0)
+            reaccion.add(milisegundos);
+    }
+
+    /**
+     * @param superada true si el jugador completó la ronda, false si se equivocó.
+     */
+    public void registrarRonda(boolean superada) {
+        fallos.add(superada ? 0 : 1);
+    }
+
+    public void reset() {
+        reaccion.reset();
+        fallos.reset();
+    }
+
+    /**
+     * @return media móvil del tiempo de reacción en milisegundos.
+     */
+    public double getReaccionMedia() {
+        return reaccion.getMedia();
+    }
+
+    public double getReaccionDesviacion() {
+        return reaccion.getDesviacion();
+    }
+
+    public long getPulsaciones() {
+        return reaccion.getMuestras();
+    }
+
+    /**
+     * @return proporción reciente de rondas falladas, entre 0 y 1.
+     */
+    public double getTasaFallos() {
+        return fallos.getMedia();
+    }
+
+    public long getRondas() {
+        return fallos.getMuestras();
+    }
+}
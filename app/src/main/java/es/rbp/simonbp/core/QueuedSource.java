@@ -0,0 +1,99 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Envuelve una {@link PcmSource} para que el hilo principal nunca la toque. {@link QueuedSource#trigger(int)} y
+ * {@link QueuedSource#stopAll()} sólo dejan un comando en una {@link CommandQueue}, y el hilo de audio los aplica
+ * antes de generar cada bloque.
+ * <p>
+ * Así el hilo principal no espera nunca al monitor de la fuente mientras el hilo de audio mezcla un bloque. A cambio
+ * la nota empieza en el siguiente bloque, que es lo mismo que pasaba al dispararla directamente.
+ */
+public class QueuedSource implements PcmSource {
+
+    /**
+     * Comando que corta todas las notas. Las notas son positivas, así que no se confunde con ninguna
+     */
+    static final int STOP_ALL = 0;
+
+    private final PcmSource fuente;
+
+    private final CommandQueue comandos;
+
+    /**
+     * @param fuente    fuente que genera el audio. Sólo la debe usar el hilo de audio a través de esta clase.
+     * @param capacidad número de comandos que pueden esperar entre dos bloques.
+     */
+    public QueuedSource(PcmSource fuente, int capacidad) {
+        this.fuente = fuente;
+        this.comandos = new CommandQueue(capacidad);
+    }
+
+    @Override
+    public int getNumeroNotas() {
+        return fuente.getNumeroNotas();
+    }
+
+    /**
+     * Encola la nota para el siguiente bloque. Sólo lo debe llamar un hilo, normalmente el principal.
+     *
+     * @param nota número de la nota, empezando por 1. Si no existe se ignora.
+     */
+    @Override
+    public void trigger(int nota) {
+        if (nota >= 1 && nota <= fuente.getNumeroNotas())
+            comandos.offer(nota);
+    }
+
+    /**
+     * Encola el corte de todas las notas. Lo debe llamar el mismo hilo que {@link QueuedSource#trigger(int)}.
+     */
+    @Override
+    public void stopAll() {
+        comandos.offer(STOP_ALL);
+    }
+
+    /**
+     * Aplica los comandos pendientes y genera las muestras en el array. Sólo lo debe llamar el hilo de audio.
+     */
+    @Override
+    public int mix(short[] salida, int offset, int frames) {
+        aplicarComandos();
+        return fuente.mix(salida, offset, frames);
+    }
+
+    /**
+     * Aplica los comandos pendientes y genera un bloque. Sólo lo debe llamar el hilo de audio.
+     */
+    @Override
+    public int render(PcmRingBuffer destino) {
+        aplicarComandos();
+        return fuente.render(destino);
+    }
+
+    /**
+     * Pasa a la fuente los comandos pendientes. Sólo lo debe llamar el hilo de audio.
+     *
+     * @return número de comandos aplicados.
+     */
+    public int aplicarComandos() {
+        int aplicados = 0;
+        int comando;
+        while ((comando = comandos.poll()) != CommandQueue.VACIA) {
+            if (comando == STOP_ALL)
+                fuente.stopAll();
+            else
+                fuente.trigger(comando);
+            aplicados++;
+        }
+        return aplicados;
+    }
+
+    /**
+     * @return comandos que se han perdido porque la cola estaba llena.
+     */
+    public long getDescartados() {
+        return comandos.getDescartados();
+    }
+}
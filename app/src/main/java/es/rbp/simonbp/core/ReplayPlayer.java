@@ -0,0 +1,290 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Reproduce un {@link GameReplay} sobre un {@link Sequencer} a cualquier velocidad. La serie de cada ronda se
+ * muestra con un {@link ReplayScript}, igual que en la partida, así que la vista anima los botones y toca las notas
+ * por el mismo camino; a N× todos los instantes y duraciones se dividen entre N.
+ * <p>
+ * Como {@link ReplayScript}, cada evento programa el siguiente al despacharse, así que el secuenciador sólo tiene
+ * unos pocos eventos pendientes sea cual sea la longitud de la partida.
+ */
+public class ReplayPlayer implements ReplayScript.Listener {
+
+    /**
+     * Recibe los eventos de la repetición
+     */
+    public interface Listener {
+
+        /**
+         * Empieza una ronda, o se ha saltado a ella. Después llegan las notas de la serie.
+         *
+         * @param ronda ronda que empieza.
+         */
+        void onRonda(int ronda);
+
+        /**
+         * Empieza a sonar una nota de la serie.
+         *
+         * @param numero número del botón.
+         */
+        void onNotaOn(int numero);
+
+        /**
+         * Termina una nota de la serie.
+         *
+         * @param numero número del botón.
+         */
+        void onNotaOff(int numero);
+
+        /**
+         * El jugador puede empezar a pulsar.
+         */
+        void onTurnoJugador();
+
+        /**
+         * El jugador ha pulsado un botón.
+         *
+         * @param numero    número pulsado.
+         * @param esperado  número que tocaba pulsar según la serie, o 0 si no tocaba pulsar ninguno.
+         * @param veredicto veredicto de la pulsación, uno de los de {@link GameRecorder}.
+         */
+        void onPulsacion(int numero, int esperado, int veredicto);
+
+        /**
+         * @param victoria true si el jugador ganó.
+         */
+        void onFin(boolean victoria);
+    }
+
+    /**
+     * Tipo de evento que usa en el secuenciador, además de los de {@link ReplayScript}. Quien comparta el
+     * secuenciador no debe usarlo
+     */
+    public static final int EVENTO_REPETICION = 2001;
+
+    /**
+     * Tiempo máximo que suena cada nota de la serie a velocidad normal, en milisegundos, igual que en la partida
+     */
+    public static final int DURACION_NOTA_MAXIMA = 250;
+
+    private final Sequencer sequencer;
+
+    private final GameReplay repeticion;
+
+    private final Listener listener;
+
+    private final ReplayScript script;
+
+    private float velocidad = 1;
+
+    /**
+     * Instante de la repetición, en milisegundos de partida, que corresponde a {@link ReplayPlayer#origen}
+     */
+    private long base;
+
+    /**
+     * Instante del secuenciador en el que empezó a reproducirse desde {@link ReplayPlayer#base}, en nanosegundos
+     */
+    private long origen;
+
+    /**
+     * Siguiente evento de la repetición
+     */
+    private int siguiente;
+
+    private int ronda;
+
+    /**
+     * Posición de la serie que toca pulsar
+     */
+    private int posicion;
+
+    /**
+     * Duración de cada paso de la serie de la ronda, en milisegundos
+     */
+    private int duracionPaso = SimonConfig.DURACION_PASO;
+
+    /**
+     * @param sequencer  secuenciador sobre el que se programa la repetición.
+     * @param repeticion partida a reproducir.
+     * @param listener   recibe los eventos de la repetición.
+     */
+    public ReplayPlayer(Sequencer sequencer, GameReplay repeticion, Listener listener) {
+        this.sequencer = sequencer;
+        this.repeticion = repeticion;
+        this.listener = listener;
+        this.script = new ReplayScript(sequencer, this);
+    }
+
+    /**
+     * Empieza a reproducir desde un instante de la partida. Si cae mientras se mostraba una serie, empieza desde el
+     * principio de esa ronda para que se vea la serie entera.
+     *
+     * @param desde     instante de la partida, en milisegundos.
+     * @param velocidad veces más rápido que la partida, mayor que 0.
+     */
+    public void start(long desde, float velocidad) {
+        if (!(velocidad > 0))
+            throw new IllegalArgumentException("Velocidad no válida: " + velocidad);
+        cancel();
+        this.velocidad = velocidad;
+        // Se recorren los eventos anteriores sin avisar para saber en qué ronda y posición estaba
+        ronda = 0;
+        posicion = 0;
+        int i = 0, inicioRonda = -1;
+        boolean enSerie = false;
+        while (i < repeticion.size() && repeticion.getInstante(i) < desde) {
+            aplicar(i, false);
+            if (repeticion.getTipo(i) == GameRecorder.RONDA) {
+                inicioRonda = i;
+                enSerie = true;
+            } else if (repeticion.getTipo(i) == GameRecorder.LISTO) {
+                enSerie = false;
+            }
+            i++;
+        }
+        if (enSerie) {
+            i = inicioRonda;
+            desde = repeticion.getInstante(i);
+        } else if (ronda > 0) {
+            listener.onRonda(ronda);
+        }
+        base = desde;
+        origen = sequencer.now();
+        siguiente = i;
+        programar();
+    }
+
+    /**
+     * Sigue desde el punto actual a otra velocidad.
+     *
+     * @param velocidad veces más rápido que la partida, mayor que 0.
+     */
+    public void setVelocidad(float velocidad) {
+        start(getPosicion(), velocidad);
+    }
+
+    /**
+     * Cancela los eventos pendientes de la repetición.
+     */
+    public void cancel() {
+        sequencer.cancel(EVENTO_REPETICION);
+        script.cancel();
+    }
+
+    /**
+     * @return instante de la partida que se está reproduciendo, en milisegundos.
+     */
+    public long getPosicion() {
+        long transcurrido = (long) ((sequencer.now() - origen) * velocidad / 1_000_000L);
+        return Math.max(0, Math.min(repeticion.getDuracion(), base + transcurrido));
+    }
+
+    public float getVelocidad() {
+        return velocidad;
+    }
+
+    public int getRonda() {
+        return ronda;
+    }
+
+    /**
+     * @return true si ya se ha reproducido el último evento.
+     */
+    public boolean isTerminada() {
+        return siguiente == repeticion.size();
+    }
+
+    public GameReplay getRepeticion() {
+        return repeticion;
+    }
+
+    /**
+     * Procesa un evento del secuenciador. Se debe llamar desde el listener del secuenciador.
+     *
+     * @param tipo tipo del evento.
+     * @param dato dato del evento.
+     * @return true si el evento era de la repetición.
+     */
+    public boolean onEvento(int tipo, int dato) {
+        if (script.onEvento(tipo, dato))
+            return true;
+        if (tipo != EVENTO_REPETICION)
+            return false;
+        siguiente = dato + 1;
+        aplicar(dato, true);
+        programar();
+        return true;
+    }
+
+    private void programar() {
+        if (siguiente < repeticion.size())
+            sequencer.schedule(EVENTO_REPETICION, siguiente, instante(repeticion.getInstante(siguiente)));
+    }
+
+    /**
+     * @param instante instante de la partida, en milisegundos.
+     * @return instante del secuenciador en el que se reproduce, en nanosegundos.
+     */
+    private long instante(long instante) {
+        return origen + (long) ((instante - base) * 1_000_000L / velocidad);
+    }
+
+    /**
+     * Actualiza la ronda y la posición con un evento y, si se está reproduciendo, avisa al listener.
+     */
+    private void aplicar(int i, boolean avisar) {
+        switch (repeticion.getTipo(i)) {
+            case GameRecorder.PASO:
+                duracionPaso = repeticion.getDato(i);
+                break;
+            case GameRecorder.RONDA:
+                ronda = repeticion.getDato(i);
+                posicion = 0;
+                if (avisar) {
+                    listener.onRonda(ronda);
+                    long paso = (long) (duracionPaso * 1_000_000L / velocidad);
+                    long duracion = Math.min(paso / 2, (long) (DURACION_NOTA_MAXIMA * 1_000_000L / velocidad));
+                    script.start(repeticion.getSerie(), Math.min(ronda, repeticion.getSerie().size()),
+                            instante(repeticion.getInstante(i)), 0, paso, duracion);
+                }
+                break;
+            case GameRecorder.LISTO:
+                if (avisar)
+                    listener.onTurnoJugador();
+                break;
+            case GameRecorder.PULSACION:
+                int veredicto = repeticion.getVeredicto(i);
+                int esperado = veredicto == GameRecorder.ACIERTO || veredicto == GameRecorder.FALLO
+                        ? repeticion.getSerie().get(posicion) : 0;
+                if (veredicto == GameRecorder.ACIERTO)
+                    posicion++;
+                if (avisar)
+                    listener.onPulsacion(repeticion.getNumero(i), esperado, veredicto);
+                break;
+            case GameRecorder.FIN:
+                if (avisar)
+                    listener.onFin(repeticion.getDato(i) != 0);
+                break;
+        }
+    }
+
+    @Override
+    public void onNotaOn(int numero) {
+        listener.onNotaOn(numero);
+    }
+
+    @Override
+    public void onNotaOff(int numero) {
+        listener.onNotaOff(numero);
+    }
+
+    /**
+     * El final de la serie lo marca el evento {@link GameRecorder#LISTO} grabado, no el del script
+     */
+    @Override
+    public void onFinSerie() {
+    }
+}
@@ -0,0 +1,145 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Muestra la serie de la cpu a través de un {@link Sequencer}. En vez de programar la serie entera de golpe, cada
+ * nota programa la siguiente al sonar. Los instantes se siguen calculando desde el mismo origen, así que no hay
+ * deriva, y el secuenciador nunca tiene más de unos pocos eventos pendientes aunque la serie tenga miles de pasos.
+ */
+public class ReplayScript {
+
+    /**
+     * Recibe las notas de la serie
+     */
+    public interface Listener {
+
+        /**
+         * Empieza a sonar una nota de la serie.
+         *
+         * @param numero número del botón.
+         */
+        void onNotaOn(int numero);
+
+        /**
+         * Termina una nota de la serie.
+         *
+         * @param numero número del botón.
+         */
+        void onNotaOff(int numero);
+
+        /**
+         * La serie ha terminado de mostrarse.
+         */
+        void onFinSerie();
+    }
+
+    /**
+     * Tipos de evento que usa en el secuenciador. Quien comparta el secuenciador no debe usarlos
+     */
+    public static final int EVENTO_NOTA_ON = 1001, EVENTO_NOTA_OFF = 1002, EVENTO_FIN = 1003;
+
+    private final Sequencer sequencer;
+
+    private final Listener listener;
+
+    private final Metrics metrics;
+
+    private ByteSequence serie;
+
+    private int longitud;
+
+    /**
+     * Instante de la primera nota, en nanosegundos
+     */
+    private long primera;
+
+    /**
+     * Tiempo entre el principio de dos notas seguidas, en nanosegundos
+     */
+    private long paso;
+
+    /**
+     * Tiempo que suena cada nota, en nanosegundos
+     */
+    private long duracion;
+
+    public ReplayScript(Sequencer sequencer, Listener listener) {
+        this(sequencer, listener, Metrics.DESACTIVADAS);
+    }
+
+    /**
+     * @param sequencer secuenciador sobre el que se programan las notas.
+     * @param listener  recibe las notas de la serie.
+     * @param metrics   métricas donde se registra el retraso de cada nota y las series mostradas.
+     */
+    public ReplayScript(Sequencer sequencer, Listener listener, Metrics metrics) {
+        this.sequencer = sequencer;
+        this.listener = listener;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Programa la primera nota de la serie.
+     *
+     * @param serie    serie a mostrar.
+     * @param longitud número de pasos de la serie a mostrar.
+     * @param inicio   instante del secuenciador en el que empieza el turno de la cpu, en nanosegundos.
+     * @param retraso  tiempo desde el inicio hasta la primera nota, en nanosegundos.
+     * @param paso     tiempo entre el principio de dos notas seguidas, en nanosegundos.
+     * @param duracion tiempo que suena cada nota, en nanosegundos.
+     */
+    public void start(ByteSequence serie, int longitud, long inicio, long retraso, long paso, long duracion) {
+        this.serie = serie;
+        this.longitud = longitud;
+        this.primera = inicio + retraso;
+        this.paso = paso;
+        this.duracion = duracion;
+        cancel();
+        if (longitud == 0)
+            sequencer.schedule(EVENTO_FIN, 0, inicio);
+        else
+            sequencer.schedule(EVENTO_NOTA_ON, 0, primera);
+    }
+
+    /**
+     * Cancela la serie que se esté mostrando.
+     */
+    public void cancel() {
+        sequencer.cancel(EVENTO_NOTA_ON);
+        sequencer.cancel(EVENTO_NOTA_OFF);
+        sequencer.cancel(EVENTO_FIN);
+    }
+
+    /**
+     * Procesa un evento del secuenciador. Se debe llamar desde el listener del secuenciador.
+     *
+     * @param tipo tipo del evento.
+     * @param dato dato del evento.
+     * @return true si el evento era de la serie.
+     */
+    public boolean onEvento(int tipo, int dato) {
+        switch (tipo) {
+            case EVENTO_NOTA_ON:
+                int numero = serie.get(dato);
+                long instante = primera + paso * dato;
+                sequencer.schedule(EVENTO_NOTA_OFF, numero, instante + duracion);
+                if (dato + 1 < longitud)
+                    sequencer.schedule(EVENTO_NOTA_ON, dato + 1, instante + paso);
+                else
+                    sequencer.schedule(EVENTO_FIN, 0, instante + paso);
+                metrics.record(Metrics.Histograma.JITTER_SERIE, sequencer.getRetrasoActual());
+                listener.onNotaOn(numero);
+                return true;
+            case EVENTO_NOTA_OFF:
+                listener.onNotaOff(dato);
+                return true;
+            case EVENTO_FIN:
+                metrics.increment(Metrics.Contador.SERIES);
+                listener.onFinSerie();
+                return true;
+            default:
+                return false;
+        }
+    }
+}
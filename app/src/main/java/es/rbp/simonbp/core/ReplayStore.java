@@ -0,0 +1,240 @@
+package es.rbp.simonbp.core;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Repeticiones de las últimas partidas en disco, una por fichero con la fecha de la partida como nombre.
+ * <p>
+ * Como en {@link GameHistoryStore}, las escrituras se hacen en un hilo aparte, nunca en el hilo que llama a
+ * {@link #save(GameReplay)}. Cada repetición se escribe en un fichero temporal y se renombra, así que nunca queda a
+ * medias. Sólo se conservan las más recientes.
+ */
+public class ReplayStore {
+
+    /**
+     * Repeticiones que se conservan por defecto
+     */
+    public static final int CAPACIDAD = 20;
+
+    /**
+     * Extensión de los ficheros de repetición
+     */
+    public static final String EXTENSION = ".rep";
+
+    /**
+     * Tamaño máximo de un fichero de repetición. Uno mayor sólo puede ser basura
+     */
+    private static final int TAMANO_MAXIMO = 1024 * 1024;
+
+    private final File directorio;
+
+    private final int capacidad;
+
+    private final ExecutorService escritor;
+
+    /**
+     * Último error del hilo escritor desde que se informó del anterior. Sólo lo usa el hilo escritor
+     */
+    private IOException error;
+
+    /**
+     * Abre el almacén con capacidad para {@link #CAPACIDAD} repeticiones.
+     *
+     * @param directorio directorio de las repeticiones. Se crea si no existe.
+     * @throws IOException si no se puede crear el directorio.
+     */
+    public ReplayStore(File directorio) throws IOException {
+        this(directorio, CAPACIDAD);
+    }
+
+    /**
+     * @param directorio directorio de las repeticiones. Se crea si no existe.
+     * @param capacidad  repeticiones que se conservan.
+     * @throws IOException si no se puede crear el directorio.
+     */
+    public ReplayStore(File directorio, int capacidad) throws IOException {
+        if (capacidad < 1)
+            throw new IllegalArgumentException("La capacidad debe ser al menos 1: " + capacidad);
+        if (!directorio.isDirectory() && !directorio.mkdirs())
+            throw new IOException("No se puede crear el directorio " + directorio);
+        this.directorio = directorio;
+        this.capacidad = capacidad;
+        this.escritor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread hilo = new Thread(r, "ReplayStore");
+                hilo.setDaemon(true);
+                return hilo;
+            }
+        });
+    }
+
+    /**
+     * Guarda una repetición en segundo plano y borra las más antiguas que no quepan.
+     *
+     * @param repeticion repetición de una partida terminada.
+     */
+    public void save(final GameReplay repeticion) {
+        escritor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    escribir(repeticion);
+                    borrarAntiguas();
+                } catch (IOException e) {
+                    error = e;
+                }
+            }
+        });
+    }
+
+    /**
+     * @return fechas de las repeticiones guardadas, de la más reciente a la más antigua.
+     * @throws IOException si ha fallado alguna escritura.
+     */
+    public List<Long> list() throws IOException {
+        flush();
+        List<Long> fechas = fechas();
+        Collections.reverse(fechas);
+        return fechas;
+    }
+
+    /**
+     * @param fecha fecha de la partida.
+     * @return la repetición de esa partida.
+     * @throws IOException si no existe o está dañada.
+     */
+    public GameReplay load(long fecha) throws IOException {
+        flush();
+        File fichero = fichero(fecha);
+        RandomAccessFile entrada = new RandomAccessFile(fichero, "r");
+        try {
+            long longitud = entrada.length();
+            if (longitud > TAMANO_MAXIMO)
+                throw new IOException("El fichero " + fichero + " es demasiado grande");
+            byte[] datos = new byte[(int) longitud];
+            entrada.readFully(datos);
+            return GameReplay.fromBytes(datos);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("La repetición " + fichero + " está dañada", e);
+        } finally {
+            entrada.close();
+        }
+    }
+
+    /**
+     * @return la repetición más reciente, o null si no hay ninguna.
+     * @throws IOException si no se puede leer.
+     */
+    public GameReplay getUltima() throws IOException {
+        List<Long> fechas = list();
+        return fechas.isEmpty() ? null : load(fechas.get(0));
+    }
+
+    /**
+     * Espera a que se escriban todas las repeticiones guardadas hasta ahora. Cada error se informa una sola vez, así
+     * que una escritura fallida no impide leer ni guardar las siguientes.
+     *
+     * @throws IOException si ha fallado alguna escritura desde la última llamada.
+     */
+    public void flush() throws IOException {
+        IOException fallo;
+        try {
+            fallo = escritor.submit(new Callable<IOException>() {
+                @Override
+                public IOException call() {
+                    IOException fallo = error;
+                    error = null;
+                    return fallo;
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrumpido esperando la escritura", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error escribiendo las repeticiones", e.getCause());
+        }
+        if (fallo != null)
+            throw fallo;
+    }
+
+    /**
+     * Escribe las repeticiones pendientes y detiene el hilo escritor. Después no se pueden guardar más.
+     *
+     * @throws IOException si ha fallado alguna escritura.
+     */
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            escritor.shutdown();
+        }
+    }
+
+    private File fichero(long fecha) {
+        return new File(directorio, fecha + EXTENSION);
+    }
+
+    /**
+     * @return fechas de las repeticiones del directorio, de la más antigua a la más reciente.
+     */
+    private List<Long> fechas() {
+        List<Long> fechas = new ArrayList<>();
+        String[] nombres = directorio.list();
+        if (nombres == null)
+            return fechas;
+        for (String nombre : nombres) {
+            if (!nombre.endsWith(EXTENSION))
+                continue;
+            try {
+                fechas.add(Long.parseLong(nombre.substring(0, nombre.length() - EXTENSION.length())));
+            } catch (NumberFormatException ignorada) {
+                // No es una repetición
+            }
+        }
+        Collections.sort(fechas);
+        return fechas;
+    }
+
+    /**
+     * Se ejecuta en el hilo escritor.
+     */
+    private void escribir(GameReplay repeticion) throws IOException {
+        File destino = fichero(repeticion.getFecha());
+        File temporal = new File(destino.getPath() + ".tmp");
+        FileOutputStream salida = new FileOutputStream(temporal);
+        try {
+            salida.write(repeticion.toBytes());
+            salida.getFD().sync();
+        } finally {
+            salida.close();
+        }
+        if (!temporal.renameTo(destino))
+            throw new IOException("No se puede renombrar " + temporal + " a " + destino);
+    }
+
+    /**
+     * Se ejecuta en el hilo escritor.
+     */
+    private void borrarAntiguas() throws IOException {
+        List<Long> fechas = fechas();
+        for (int i = 0; i < fechas.size() - capacidad; i++) {
+            File fichero = fichero(fechas.get(i));
+            if (!fichero.delete())
+                throw new IOException("No se puede borrar " + fichero);
+        }
+    }
+}
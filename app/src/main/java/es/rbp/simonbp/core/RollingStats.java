@@ -0,0 +1,68 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Media y varianza móviles con pesos exponenciales. Cada muestra nueva pesa alfa y las anteriores se van olvidando,
+ * así que sigue los cambios del jugador sin guardar ninguna muestra: añadir y consultar son O(1) y no reservan
+ * memoria.
+ *
+ * @see PlayerStats
+ */
+public class RollingStats {
+
+    private final double alfa;
+
+    private double media;
+
+    private double varianza;
+
+    private long muestras;
+
+    /**
+     * @param alfa peso de cada muestra nueva, entre 0 y 1. Con alfa = 2 / (n + 1) se parece a una media de las
+     *             últimas n muestras.
+     */
+    public RollingStats(double alfa) {
+        if (alfa <= 0 || alfa > 1)
+            throw new IllegalArgumentException("Alfa no válido: " + alfa);
+        this.alfa = alfa;
+    }
+
+    public void add(double valor) {
+        if (muestras++ == 0) {
+            media = valor;
+            varianza = 0;
+            return;
+        }
+        double diferencia = valor - media;
+        double incremento = alfa * diferencia;
+        media += incremento;
+        varianza = (1 - alfa) * (varianza + diferencia * incremento);
+    }
+
+    public void reset() {
+        media = 0;
+        varianza = 0;
+        muestras = 0;
+    }
+
+    /**
+     * @return media móvil, o 0 si no hay muestras.
+     */
+    public double getMedia() {
+        return media;
+    }
+
+    public double getVarianza() {
+        return varianza;
+    }
+
+    public double getDesviacion() {
+        return Math.sqrt(varianza);
+    }
+
+    public long getMuestras() {
+        return muestras;
+    }
+}
@@ -0,0 +1,306 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Secuenciador con una única línea de tiempo. Los eventos se programan en instantes absolutos de un reloj monotónico
+ * y se despachan en orden cada vez que se llama a {@link Sequencer#tick(long)}, normalmente una vez por frame.
+ * <p>
+ * Como todos los instantes se calculan desde el mismo origen, los retrasos de un evento no se acumulan en los
+ * siguientes. Los eventos salen de un pool reservado en el constructor, así que programar una serie completa
+ * no reserva memoria mientras quepa en el pool.
+ * <p>
+ * La línea de tiempo se puede pausar. Mientras está pausada no avanza ni despacha nada, y al reanudarla todos los
+ * eventos pendientes siguen a la misma distancia del instante actual que cuando se pausó. Por eso los instantes de
+ * los eventos, los de {@link Sequencer#now()} y los de {@link Sequencer#getSiguiente()} son los del reloj menos el
+ * tiempo que ha estado pausado.
+ */
+public class Sequencer {
+
+    /**
+     * Recibe los eventos cuando llega su instante
+     */
+    public interface Listener {
+
+        /**
+         * @param tipo tipo del evento, definido por quien lo programa.
+         * @param dato dato del evento, definido por quien lo programa.
+         */
+        void onEvento(int tipo, int dato);
+    }
+
+    /**
+     * Evento programado. Se reutilizan a través del pool
+     */
+    private static class Evento {
+
+        int tipo;
+
+        int dato;
+
+        long instante;
+    }
+
+    private final Clock clock;
+
+    private Listener listener;
+
+    /**
+     * Eventos libres
+     */
+    private Evento[] pool;
+
+    private int libres;
+
+    /**
+     * Eventos pendientes ordenados por instante, entre las posiciones cabeza y fin. Los eventos con el mismo
+     * instante se quedan en el orden en el que se programaron
+     */
+    private Evento[] pendientes;
+
+    private int cabeza;
+
+    private int fin;
+
+    /**
+     * Mayor retraso con el que se ha despachado un evento, en nanosegundos
+     */
+    private long retrasoMaximo;
+
+    /**
+     * Retraso del último evento despachado, en nanosegundos
+     */
+    private long retrasoActual;
+
+    /**
+     * Tiempo total que ha estado pausada la línea de tiempo, en nanosegundos
+     */
+    private long tiempoPausado;
+
+    /**
+     * Instante del reloj en el que se pausó la línea de tiempo
+     */
+    private long inicioPausa;
+
+    private boolean pausado;
+
+    /**
+     * @param clock     reloj con el que se miden los instantes.
+     * @param capacidad número de eventos que pueden estar pendientes sin reservar memoria.
+     */
+    public Sequencer(Clock clock, int capacidad) {
+        this.clock = clock;
+        capacidad = Math.max(1, capacidad);
+        this.pool = new Evento[capacidad];
+        this.pendientes = new Evento[capacidad];
+        for (int i = 0; i < capacidad; i++) {
+            pool[i] = new Evento();
+        }
+        this.libres = capacidad;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return instante actual de la línea de tiempo del secuenciador. Mientras está pausada no avanza.
+     */
+    public long now() {
+        return (pausado ? inicioPausa : clock.nanoTime()) - tiempoPausado;
+    }
+
+    /**
+     * Congela la línea de tiempo. Los eventos pendientes se conservan pero no se despachan hasta que se reanude.
+     */
+    public void pause() {
+        if (pausado)
+            return;
+        inicioPausa = clock.nanoTime();
+        pausado = true;
+    }
+
+    /**
+     * Reanuda la línea de tiempo desde el instante en el que se pausó.
+     */
+    public void resume() {
+        if (!pausado)
+            return;
+        tiempoPausado += clock.nanoTime() - inicioPausa;
+        pausado = false;
+    }
+
+    public boolean isPausado() {
+        return pausado;
+    }
+
+    /**
+     * Programa un evento en un instante absoluto.
+     *
+     * @param tipo     tipo del evento.
+     * @param dato     dato del evento.
+     * @param instante instante de la línea de tiempo en el que se debe despachar, en nanosegundos.
+     */
+    public void schedule(int tipo, int dato, long instante) {
+        Evento evento = obtener();
+        evento.tipo = tipo;
+        evento.dato = dato;
+        evento.instante = instante;
+
+        if (fin == pendientes.length) {
+            int numero = fin - cabeza;
+            Evento[] destino = pendientes;
+            if (numero == pendientes.length)
+                destino = new Evento[pendientes.length * 2];
+            System.arraycopy(pendientes, cabeza, destino, 0, numero);
+            for (int i = numero; i < fin && destino == pendientes; i++) {
+                pendientes[i] = null;
+            }
+            pendientes = destino;
+            cabeza = 0;
+            fin = numero;
+        }
+        // Casi siempre se programa en orden, así que la inserción suele terminar en la primera comparación
+        int i = fin;
+        while (i > cabeza && pendientes[i - 1].instante > instante) {
+            pendientes[i] = pendientes[i - 1];
+            i--;
+        }
+        pendientes[i] = evento;
+        fin++;
+    }
+
+    /**
+     * Programa un evento con un retraso desde el instante actual.
+     *
+     * @param tipo   tipo del evento.
+     * @param dato   dato del evento.
+     * @param millis retraso en milisegundos.
+     */
+    public void scheduleIn(int tipo, int dato, long millis) {
+        schedule(tipo, dato, now() + millis * 1_000_000L);
+    }
+
+    /**
+     * Despacha los eventos cuyo instante ya ha llegado.
+     *
+     * @return número de eventos despachados.
+     */
+    public int tick() {
+        return tick(clock.nanoTime());
+    }
+
+    /**
+     * Despacha en orden los eventos cuyo instante es anterior o igual a ahora. Los eventos que programe el listener
+     * mientras tanto también se despachan si ya ha llegado su instante. Si la línea de tiempo está pausada no hace
+     * nada.
+     *
+     * @param ahora instante actual del reloj en nanosegundos, por ejemplo el del frame.
+     * @return número de eventos despachados.
+     */
+    public int tick(long ahora) {
+        if (pausado)
+            return 0;
+        ahora -= tiempoPausado;
+        int despachados = 0;
+        // Si el listener pausa la línea de tiempo se deja de despachar en ese mismo evento
+        while (!pausado && cabeza < fin && pendientes[cabeza].instante <= ahora) {
+            Evento evento = pendientes[cabeza];
+            pendientes[cabeza++] = null;
+            if (cabeza == fin) {
+                cabeza = 0;
+                fin = 0;
+            }
+
+            long retraso = ahora - evento.instante;
+            retrasoActual = retraso;
+            if (retraso > retrasoMaximo)
+                retrasoMaximo = retraso;
+            int tipo = evento.tipo;
+            int dato = evento.dato;
+            devolver(evento);
+            despachados++;
+            if (listener != null)
+                listener.onEvento(tipo, dato);
+        }
+        return despachados;
+    }
+
+    /**
+     * Cancela todos los eventos pendientes.
+     */
+    public void cancel() {
+        for (int i = cabeza; i < fin; i++) {
+            devolver(pendientes[i]);
+            pendientes[i] = null;
+        }
+        cabeza = 0;
+        fin = 0;
+    }
+
+    /**
+     * Cancela los eventos pendientes de un tipo.
+     *
+     * @param tipo tipo de los eventos a cancelar.
+     */
+    public void cancel(int tipo) {
+        int j = cabeza;
+        for (int i = cabeza; i < fin; i++) {
+            Evento evento = pendientes[i];
+            if (evento.tipo == tipo)
+                devolver(evento);
+            else
+                pendientes[j++] = evento;
+        }
+        for (int i = j; i < fin; i++) {
+            pendientes[i] = null;
+        }
+        fin = j;
+    }
+
+    /**
+     * @return número de eventos pendientes.
+     */
+    public int getPendientes() {
+        return fin - cabeza;
+    }
+
+    /**
+     * @return instante del siguiente evento en la línea de tiempo, o Long.MAX_VALUE si no hay ninguno.
+     */
+    public long getSiguiente() {
+        return cabeza == fin ? Long.MAX_VALUE : pendientes[cabeza].instante;
+    }
+
+    /**
+     * @return mayor retraso con el que se ha despachado un evento, en nanosegundos.
+     */
+    public long getRetrasoMaximo() {
+        return retrasoMaximo;
+    }
+
+    /**
+     * @return retraso con el que se ha despachado el último evento, en nanosegundos. Desde el listener es el del
+     * evento que se está procesando.
+     */
+    public long getRetrasoActual() {
+        return retrasoActual;
+    }
+
+    private Evento obtener() {
+        if (libres == 0)
+            return new Evento();
+        Evento evento = pool[--libres];
+        pool[libres] = null;
+        return evento;
+    }
+
+    private void devolver(Evento evento) {
+        if (libres == pool.length) {
+            Evento[] mayor = new Evento[pool.length * 2];
+            System.arraycopy(pool, 0, mayor, 0, libres);
+            pool = mayor;
+        }
+        pool[libres++] = evento;
+    }
+}
@@ -0,0 +1,193 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Configuración de una partida: número de botones, rondas que dura, cuántas veces se puede usar el truco y el ritmo
+ * con el que la cpu muestra la serie.
+ *
+ * @see SimonEngine
+ */
+public class SimonConfig {
+
+    /**
+     * Rondas de cada dificultad
+     */
+    public static final int FACIL = 6, MEDIO = 9, DIFICIL = 12;
+
+    /**
+     * Valor de {@link SimonConfig#getTurnos()} del modo infinito, en el que la serie crece sin límite
+     */
+    public static final int INFINITO = 0;
+
+    /**
+     * Duración de cada paso de la serie cuando la cpu la muestra, en milisegundos
+     */
+    public static final int DURACION_PASO = 500;
+
+    /**
+     * Duración mínima de cada paso en el modo infinito, en milisegundos
+     */
+    public static final int DURACION_PASO_MINIMA = 150;
+
+    /**
+     * Factor por el que se multiplica la duración del paso en cada ronda del modo infinito
+     */
+    public static final float ACELERACION_INFINITO = 0.97f;
+
+    /**
+     * Número de botones del tablero por defecto
+     */
+    public static final int NUMERO_BOTONES = 6;
+
+    /**
+     * Número mínimo y máximo de botones del tablero
+     */
+    public static final int MINIMO_BOTONES = 2, MAXIMO_BOTONES = 32;
+
+    /**
+     * Valor de {@link SimonConfig#getMaximoTruco()} que indica que el truco no tiene límite
+     */
+    public static final int TRUCO_ILIMITADO = 0;
+
+    private final int numeroBotones;
+
+    private final int turnos;
+
+    private final int maximoTruco;
+
+    private final int duracionPaso;
+
+    private final int duracionPasoMinima;
+
+    private final float aceleracion;
+
+    /**
+     * Crea una configuración con ritmo constante.
+     *
+     * @param numeroBotones número de botones del tablero. La cpu genera números entre 1 y numeroBotones.
+     * @param turnos        rondas que dura la partida, o {@link SimonConfig#INFINITO}.
+     * @param maximoTruco   veces que se puede usar el truco por partida, o {@link SimonConfig#TRUCO_ILIMITADO}.
+     */
+    public SimonConfig(int numeroBotones, int turnos, int maximoTruco) {
+        this(numeroBotones, turnos, maximoTruco, DURACION_PASO, DURACION_PASO, 1f);
+    }
+
+    /**
+     * @param numeroBotones      número de botones del tablero. La cpu genera números entre 1 y numeroBotones.
+     * @param turnos             rondas que dura la partida, o {@link SimonConfig#INFINITO}.
+     * @param maximoTruco        veces que se puede usar el truco por partida, o {@link SimonConfig#TRUCO_ILIMITADO}.
+     * @param duracionPaso       duración de cada paso de la serie en la primera ronda, en milisegundos.
+     * @param duracionPasoMinima duración mínima de cada paso por mucho que se acelere, en milisegundos.
+     * @param aceleracion        factor por el que se multiplica la duración del paso en cada ronda, entre 0 y 1.
+     */
+    public SimonConfig(int numeroBotones, int turnos, int maximoTruco, int duracionPaso, int duracionPasoMinima,
+                       float aceleracion) {
+        if (numeroBotones < MINIMO_BOTONES || numeroBotones > MAXIMO_BOTONES)
+            throw new IllegalArgumentException("Número de botones no soportado: " + numeroBotones);
+        if (turnos < 0)
+            throw new IllegalArgumentException("El número de rondas no puede ser negativo: " + turnos);
+        if (maximoTruco < 0)
+            throw new IllegalArgumentException("El máximo del truco no puede ser negativo: " + maximoTruco);
+        if (duracionPasoMinima <= 0 || duracionPaso < duracionPasoMinima)
+            throw new IllegalArgumentException("Duración del paso no válida: " + duracionPaso);
+        if (aceleracion <= 0 || aceleracion > 1)
+            throw new IllegalArgumentException("Aceleración no válida: " + aceleracion);
+        this.numeroBotones = numeroBotones;
+        this.turnos = turnos;
+        this.maximoTruco = maximoTruco;
+        this.duracionPaso = duracionPaso;
+        this.duracionPasoMinima = duracionPasoMinima;
+        this.aceleracion = aceleracion;
+    }
+
+    /**
+     * Crea la configuración de la dificultad elegida en el menú principal.
+     * En Fácil el truco no tiene límite, en Medio se puede usar 6 veces y en Difícil sólo una.
+     *
+     * @param turnos rondas de la dificultad: {@link SimonConfig#FACIL}, {@link SimonConfig#MEDIO},
+     *               {@link SimonConfig#DIFICIL} o {@link SimonConfig#INFINITO}.
+     * @return configuración con 6 botones.
+     */
+    public static SimonConfig paraDificultad(int turnos) {
+        return paraDificultad(turnos, NUMERO_BOTONES);
+    }
+
+    /**
+     * Crea la configuración de la dificultad elegida en el menú principal con un tablero de otro tamaño.
+     *
+     * @param turnos        rondas de la dificultad.
+     * @param numeroBotones número de botones del tablero.
+     * @return configuración de la dificultad.
+     * @see SimonConfig#paraDificultad(int)
+     */
+    public static SimonConfig paraDificultad(int turnos, int numeroBotones) {
+        if (turnos == INFINITO)
+            return infinito(numeroBotones);
+        int maximoTruco;
+        switch (turnos) {
+            case MEDIO:
+                maximoTruco = 6;
+                break;
+            case DIFICIL:
+                maximoTruco = 1;
+                break;
+            default:
+                maximoTruco = TRUCO_ILIMITADO;
+                break;
+        }
+        return new SimonConfig(numeroBotones, turnos, maximoTruco);
+    }
+
+    /**
+     * Crea la configuración del modo infinito. La serie crece sin límite y el ritmo se acelera en cada ronda.
+     * El truco se puede usar 3 veces.
+     *
+     * @return configuración con 6 botones.
+     */
+    public static SimonConfig infinito() {
+        return infinito(NUMERO_BOTONES);
+    }
+
+    /**
+     * @param numeroBotones número de botones del tablero.
+     * @return configuración del modo infinito.
+     * @see SimonConfig#infinito()
+     */
+    public static SimonConfig infinito(int numeroBotones) {
+        return new SimonConfig(numeroBotones, INFINITO, 3, DURACION_PASO, DURACION_PASO_MINIMA,
+                ACELERACION_INFINITO);
+    }
+
+    /**
+     * @return true si la partida no tiene número máximo de rondas.
+     */
+    public boolean isInfinito() {
+        return turnos == INFINITO;
+    }
+
+    /**
+     * Calcula en tiempo constante la duración de cada paso de la serie en una ronda.
+     *
+     * @param ronda ronda, empezando por 1.
+     * @return duración del paso en milisegundos.
+     */
+    public int getDuracionPaso(int ronda) {
+        if (aceleracion == 1f)
+            return duracionPaso;
+        double duracion = duracionPaso * Math.pow(aceleracion, ronda - 1);
+        return Math.max(duracionPasoMinima, (int) duracion);
+    }
+
+    public int getNumeroBotones() {
+        return numeroBotones;
+    }
+
+    public int getTurnos() {
+        return turnos;
+    }
+
+    public int getMaximoTruco() {
+        return maximoTruco;
+    }
+}
@@ -0,0 +1,344 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Reglas del juego sin depender de Android. La cpu añade un número aleatorio a la serie en cada ronda y el jugador
+ * debe repetir la serie entera. Si se equivoca pierde, y si completa todas las rondas gana. En el modo infinito la
+ * serie crece sin límite hasta que el jugador se equivoca.
+ * <p>
+ * La partida es una máquina de estados: la vista llama a {@link SimonEngine#start()} al terminar la cuenta atrás,
+ * a {@link SimonEngine#finTurnoCpu()} al terminar de mostrar la serie y a {@link SimonEngine#pulsar(int)} con cada
+ * botón que pulsa el jugador. El motor avisa de los cambios con un {@link SimonListener}.
+ * <p>
+ * La serie sale de un {@link PatternGenerator} sembrado, así que la semilla y los botones pulsados bastan para
+ * repetir la partida. Como cualquier fallo termina la partida, todas las pulsaciones salvo la última son la serie,
+ * y basta con guardar cuántas hubo y cuál fue la última. Así la memoria sólo crece un byte por ronda, el del paso
+ * que se añade a la serie.
+ * <p>
+ * Con {@link SimonEngine#setAdaptacion(DifficultyPolicy, PlayerStats)} el ritmo de la serie y los números que se
+ * añaden en cada ronda dependen del rendimiento del jugador en vez de sólo de la ronda.
+ *
+ * @see SimonConfig
+ */
+public class SimonEngine {
+
+    /**
+     * Estados de la partida
+     */
+    public enum Estado {
+        /**
+         * La partida todavía no ha empezado
+         */
+        ESPERANDO,
+        /**
+         * La cpu está mostrando la serie
+         */
+        TURNO_CPU,
+        /**
+         * El jugador está repitiendo la serie
+         */
+        TURNO_JUGADOR,
+        /**
+         * El jugador ha completado todas las rondas
+         */
+        VICTORIA,
+        /**
+         * El jugador se ha equivocado
+         */
+        DERROTA
+    }
+
+    private final SimonConfig config;
+
+    private final PatternGenerator generador;
+
+    private final long semilla;
+
+    private SimonListener listener;
+
+    /**
+     * Serie de números que debe seguir el jugador para ganar la partida
+     */
+    private final ByteSequence serie;
+
+    /**
+     * Número de botones pulsados por el jugador durante su turno
+     */
+    private long numEntradas;
+
+    /**
+     * Último botón pulsado por el jugador
+     */
+    private int ultimaEntrada;
+
+    private Estado estado;
+
+    /**
+     * Posición de la serie en la que se encuentra el jugador. Al finalizar la ronda se reinicia
+     */
+    private int posicion;
+
+    /**
+     * Número de veces que se ha usado el truco.
+     */
+    private int numTruco;
+
+    /**
+     * Política de dificultad adaptativa, o null si el ritmo sólo depende de la ronda
+     */
+    private DifficultyPolicy politica;
+
+    private PlayerStats stats;
+
+    /**
+     * Decisión de la política para la ronda actual
+     */
+    private final DifficultyPolicy.Ajuste ajuste = new DifficultyPolicy.Ajuste();
+
+    /**
+     * @param config    configuración de la partida.
+     * @param generador generador de la serie. Se reinicia con la semilla.
+     * @param semilla   semilla de la partida.
+     */
+    public SimonEngine(SimonConfig config, PatternGenerator generador, long semilla) {
+        this.config = config;
+        this.generador = generador;
+        this.semilla = semilla;
+        this.serie = new ByteSequence(config.isInfinito() ? 0 : config.getTurnos(), config.getNumeroBotones());
+        this.estado = Estado.ESPERANDO;
+        generador.reset(semilla);
+    }
+
+    public void setListener(SimonListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Adapta la dificultad al jugador. Antes de cada turno de la cpu salvo el primero la política decide la duración
+     * del paso y cuántos números se añaden a la serie. La primera ronda ya usa lo que decida con las estadísticas que
+     * haya, así que si vienen de partidas anteriores se empieza al ritmo del jugador.
+     * <p>
+     * Si la política añade más de un número por ronda, {@link SimonEngine#getSesion()} ya no basta para repetir la
+     * partida.
+     *
+     * @param politica política de dificultad, o null para el ritmo fijo de {@link SimonConfig}.
+     * @param stats    estadísticas del jugador. El motor registra en ellas cada pulsación y cada ronda.
+     */
+    public void setAdaptacion(DifficultyPolicy politica, PlayerStats stats) {
+        if (politica != null && stats == null)
+            throw new IllegalArgumentException("La dificultad adaptativa necesita las estadísticas del jugador");
+        this.politica = politica;
+        this.stats = stats;
+        ajuste.duracionPaso = 0;
+        ajuste.notasNuevas = 1;
+        if (politica != null)
+            politica.decidir(stats, config, ajuste);
+    }
+
+    /**
+     * Empieza la partida con el primer turno de la cpu.
+     */
+    public void start() {
+        if (estado != Estado.ESPERANDO)
+            throw new IllegalStateException("La partida ya ha empezado: " + estado);
+        turnoCpu();
+    }
+
+    /**
+     * La vista ha terminado de mostrar la serie y empieza el turno del jugador.
+     */
+    public void finTurnoCpu() {
+        if (estado == Estado.TURNO_CPU)
+            estado = Estado.TURNO_JUGADOR;
+    }
+
+    /**
+     * Comprueba el botón pulsado por el jugador. Si es correcto y completa la serie pasa a la siguiente ronda o,
+     * si era la última, gana la partida. Si es incorrecto pierde la partida.
+     * <p>
+     * Fuera del turno del jugador no hace nada.
+     *
+     * @param numero número del botón pulsado.
+     * @return estado de la partida después de la pulsación.
+     */
+    public Estado pulsar(int numero) {
+        return pulsar(numero, -1);
+    }
+
+    /**
+     * Como {@link SimonEngine#pulsar(int)}, registrando además el tiempo de reacción en las estadísticas del
+     * jugador si la dificultad es adaptativa.
+     *
+     * @param numero   número del botón pulsado.
+     * @param reaccion milisegundos desde que el jugador pudo pulsar, o -1 si no se conocen.
+     * @return estado de la partida después de la pulsación.
+     */
+    public Estado pulsar(int numero, int reaccion) {
+        if (estado != Estado.TURNO_JUGADOR)
+            return estado;
+        numEntradas++;
+        ultimaEntrada = numero;
+        if (stats != null)
+            stats.registrarReaccion(reaccion);
+        if (numero != serie.get(posicion)) {
+            estado = Estado.DERROTA;
+            if (stats != null)
+                stats.registrarRonda(false);
+            if (listener != null)
+                listener.onDerrota();
+        } else if (++posicion == serie.size()) {
+            if (stats != null)
+                stats.registrarRonda(true);
+            if (!config.isInfinito() && serie.size() == config.getTurnos()) {
+                estado = Estado.VICTORIA;
+                if (listener != null)
+                    listener.onVictoria();
+            } else {
+                turnoCpu();
+            }
+        }
+        return estado;
+    }
+
+    /**
+     * Gasta un uso del truco si quedan.
+     *
+     * @return true si se puede mostrar el truco.
+     */
+    public boolean usarTruco() {
+        int maximo = config.getMaximoTruco();
+        if (estado != Estado.TURNO_JUGADOR || (maximo != SimonConfig.TRUCO_ILIMITADO && numTruco >= maximo))
+            return false;
+        numTruco++;
+        return true;
+    }
+
+    /**
+     * Añade un número aleatorio a la serie, o los que decida la política de dificultad, y avisa a la vista para que
+     * la muestre.
+     */
+    private void turnoCpu() {
+        int notas = 1;
+        if (politica != null && serie.size() > 0) {
+            politica.decidir(stats, config, ajuste);
+            notas = Math.max(1, ajuste.notasNuevas);
+            if (!config.isInfinito())
+                notas = Math.min(notas, config.getTurnos() - serie.size());
+        }
+        for (int i = 0; i < notas; i++) {
+            serie.add(generador.next(config.getNumeroBotones()));
+        }
+        posicion = 0;
+        estado = Estado.TURNO_CPU;
+        if (listener != null)
+            listener.onTurnoCpu(serie.size());
+    }
+
+    public SimonConfig getConfig() {
+        return config;
+    }
+
+    public Estado getEstado() {
+        return estado;
+    }
+
+    /**
+     * @return true si la partida ha terminado, ya sea porque el jugador haya ganado o perdido.
+     */
+    public boolean isTerminada() {
+        return estado == Estado.VICTORIA || estado == Estado.DERROTA;
+    }
+
+    /**
+     * @return número de rondas de la serie actual.
+     */
+    public int getRonda() {
+        return serie.size();
+    }
+
+    /**
+     * @return posición de la serie que el jugador debe pulsar a continuación, empezando por 0.
+     */
+    public int getPosicion() {
+        return posicion;
+    }
+
+    /**
+     * @param i posición de la serie, empezando por 0.
+     * @return número de la serie en esa posición.
+     */
+    public int getNumero(int i) {
+        return serie.get(i);
+    }
+
+    /**
+     * @return serie completa generada por la cpu. No se debe modificar.
+     */
+    public ByteSequence getSerie() {
+        return serie;
+    }
+
+    public int getNumTruco() {
+        return numTruco;
+    }
+
+    public long getSemilla() {
+        return semilla;
+    }
+
+    /**
+     * @return duración de cada paso de la serie en la ronda actual, en milisegundos.
+     */
+    public int getDuracionPaso() {
+        if (politica != null && ajuste.duracionPaso > 0)
+            return ajuste.duracionPaso;
+        return config.getDuracionPaso(serie.size());
+    }
+
+    /**
+     * @return true si la dificultad se adapta al jugador.
+     */
+    public boolean isAdaptativo() {
+        return politica != null;
+    }
+
+    /**
+     * @return registro de la partida hasta ahora.
+     */
+    public GameSession getSesion() {
+        return new GameSession(config, semilla, numEntradas, ultimaEntrada);
+    }
+
+    /**
+     * @return foto del estado actual de la partida, para restaurarla más tarde.
+     * @see GameSnapshot#restore(SimonConfig, PatternGenerator)
+     */
+    public GameSnapshot snapshot() {
+        ByteSequence copia = new ByteSequence(serie.size(), config.getNumeroBotones());
+        copia.setRange(serie, 0, serie.size());
+        return new GameSnapshot(config.getNumeroBotones(), config.getTurnos(), semilla, estado, copia, posicion,
+                numTruco, numEntradas, ultimaEntrada);
+    }
+
+    /**
+     * Vuelve a generar la serie de la foto y copia el resto de su estado.
+     *
+     * @param snapshot foto de una partida con la misma configuración y semilla.
+     */
+    void restaurar(GameSnapshot snapshot) {
+        if (estado != Estado.ESPERANDO)
+            throw new IllegalStateException("Sólo se puede restaurar una partida sin empezar: " + estado);
+        for (int i = 0; i < snapshot.getRonda(); i++) {
+            int numero = generador.next(config.getNumeroBotones());
+            if (numero != snapshot.getNumero(i))
+                throw new IllegalArgumentException("La serie de la foto no sale de su semilla en el paso " + i);
+            serie.add(numero);
+        }
+        posicion = snapshot.getPosicion();
+        numTruco = snapshot.getNumTruco();
+        numEntradas = snapshot.getNumEntradas();
+        ultimaEntrada = snapshot.getUltimaEntrada();
+        estado = snapshot.getEstado();
+    }
+}
@@ -0,0 +1,29 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Recibe los eventos de una partida para que la vista los muestre.
+ *
+ * @see SimonEngine
+ */
+public interface SimonListener {
+
+    /**
+     * La cpu ha añadido un número a la serie y hay que mostrarla. Al terminar de mostrarla se debe llamar a
+     * {@link SimonEngine#finTurnoCpu()}.
+     *
+     * @param ronda ronda que empieza, empezando por 1.
+     */
+    void onTurnoCpu(int ronda);
+
+    /**
+     * El jugador ha completado la serie entera.
+     */
+    void onVictoria();
+
+    /**
+     * El jugador se ha equivocado.
+     */
+    void onDerrota();
+}
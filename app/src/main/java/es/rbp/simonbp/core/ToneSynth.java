@@ -0,0 +1,387 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Sintetizador polifónico de tonos. En vez de mezclar notas decodificadas de los assets, genera cada nota al vuelo
+ * con un oscilador de acumulador de fase que recorre una tabla de onda, y le aplica una envolvente ADSR lineal.
+ * <p>
+ * No necesita leer ni decodificar nada, así que está listo en cuanto se crea, y puede tocar cualquier altura, no
+ * sólo las seis notas de los assets. Como {@link NoteMixer}, guarda el estado de las voces en arrays reservados en el
+ * constructor y roba la voz más antigua si se dispara una nota con todas ocupadas.
+ *
+ * @see Envolvente
+ */
+public class ToneSynth implements PcmSource {
+
+    /**
+     * Envolvente ADSR con las duraciones en muestras. Las notas del juego no tienen nota-off, así que la fase de
+     * sostenido tiene una duración fija.
+     */
+    public static class Envolvente {
+
+        final int ataque;
+
+        final int decaimiento;
+
+        final float nivelSostenido;
+
+        final int sostenido;
+
+        final int relajacion;
+
+        /**
+         * @param ataque         muestras desde el silencio hasta el nivel máximo. Al menos 1.
+         * @param decaimiento    muestras desde el nivel máximo hasta el de sostenido. Al menos 1.
+         * @param nivelSostenido nivel de sostenido, entre 0 y 1.
+         * @param sostenido      muestras que se mantiene el nivel de sostenido.
+         * @param relajacion     muestras desde el nivel de sostenido hasta el silencio. Al menos 1.
+         */
+        public Envolvente(int ataque, int decaimiento, float nivelSostenido, int sostenido, int relajacion) {
+            if (nivelSostenido < 0 || nivelSostenido > 1)
+                throw new IllegalArgumentException("Nivel de sostenido fuera de rango: " + nivelSostenido);
+            this.ataque = Math.max(1, ataque);
+            this.decaimiento = Math.max(1, decaimiento);
+            this.nivelSostenido = nivelSostenido;
+            this.sostenido = Math.max(0, sostenido);
+            this.relajacion = Math.max(1, relajacion);
+        }
+
+        /**
+         * @param frecuencia  frecuencia de muestreo.
+         * @param ataque      milisegundos de ataque.
+         * @param decaimiento milisegundos de decaimiento.
+         * @param nivel       nivel de sostenido, entre 0 y 1.
+         * @param sostenido   milisegundos de sostenido.
+         * @param relajacion  milisegundos de relajación.
+         * @return envolvente con esas duraciones.
+         */
+        public static Envolvente enMilisegundos(int frecuencia, int ataque, int decaimiento, float nivel,
+                                                int sostenido, int relajacion) {
+            return new Envolvente(frecuencia * ataque / 1000, frecuencia * decaimiento / 1000, nivel,
+                    frecuencia * sostenido / 1000, frecuencia * relajacion / 1000);
+        }
+
+        /**
+         * @return muestras que dura una nota entera.
+         */
+        public int getDuracion() {
+            return ataque + decaimiento + sostenido + relajacion;
+        }
+    }
+
+    /**
+     * Bits de la tabla de onda. La fase es un int de 32 bits y se usan los bits altos como índice
+     */
+    private static final int BITS_TABLA = 12;
+
+    private static final int DESPLAZAMIENTO = 32 - BITS_TABLA;
+
+    /**
+     * Un periodo de la onda: fundamental con el segundo y el tercer armónico, para que suene menos plano que un seno
+     * puro. Está normalizada a 1
+     */
+    private static final float[] TABLA = crearTabla();
+
+    /**
+     * Amplitud de una voz a ganancia máxima. Cuatro voces juntas llegan al fondo de escala
+     */
+    private static final float AMPLITUD = Short.MAX_VALUE / 4f;
+
+    /**
+     * Frecuencia del do central, en hercios
+     */
+    public static final double DO_CENTRAL = 261.6255653005986;
+
+    /**
+     * Semitonos de cada grado de la escala mayor desde la tónica
+     */
+    private static final int[] ESCALA_MAYOR = {0, 2, 4, 5, 7, 9, 11};
+
+    private static final int LIBRE = 0, ATAQUE = 1, DECAIMIENTO = 2, SOSTENIDO = 3, RELAJACION = 4;
+
+    private final int frecuenciaMuestreo;
+
+    private final Envolvente envolvente;
+
+    /**
+     * Incremento de fase por muestra de cada nota. La nota n está en la posición n - 1
+     */
+    private final int[] incrementos;
+
+    /**
+     * Nota que suena en cada voz. 0 si la voz está libre
+     */
+    private final int[] vozNota;
+
+    private final int[] vozFase;
+
+    private final int[] vozEtapa;
+
+    /**
+     * Muestras que le quedan a cada voz en su etapa de la envolvente
+     */
+    private final int[] vozRestantes;
+
+    private final float[] vozNivel;
+
+    /**
+     * Cambio del nivel por muestra en la etapa actual
+     */
+    private final float[] vozPendiente;
+
+    private final float[] vozGanancia;
+
+    private final long[] vozOrden;
+
+    private final float[] acumulador;
+
+    private final short[] bloque;
+
+    private long disparos;
+
+    private long robadas;
+
+    /**
+     * @param frecuenciaMuestreo frecuencia de muestreo de la salida.
+     * @param frecuencias        frecuencia en hercios de cada nota, en el orden de los botones.
+     * @param voces              número de notas que pueden sonar a la vez.
+     * @param bloqueMaximo       número máximo de muestras que se generan en cada llamada.
+     * @param envolvente         envolvente de todas las notas.
+     */
+    public ToneSynth(int frecuenciaMuestreo, double[] frecuencias, int voces, int bloqueMaximo,
+                     Envolvente envolvente) {
+        if (frecuenciaMuestreo <= 0)
+            throw new IllegalArgumentException("Frecuencia de muestreo no válida: " + frecuenciaMuestreo);
+        if (voces <= 0)
+            throw new IllegalArgumentException("Debe haber al menos una voz: " + voces);
+        if (bloqueMaximo <= 0)
+            throw new IllegalArgumentException("El bloque debe ser positivo: " + bloqueMaximo);
+        this.frecuenciaMuestreo = frecuenciaMuestreo;
+        this.envolvente = envolvente;
+        this.incrementos = new int[frecuencias.length];
+        for (int i = 0; i < frecuencias.length; i++) {
+            if (frecuencias[i] <= 0 || frecuencias[i] >= frecuenciaMuestreo / 2.0)
+                throw new IllegalArgumentException("Frecuencia fuera de rango: " + frecuencias[i]);
+            incrementos[i] = (int) Math.round(frecuencias[i] / frecuenciaMuestreo * 4294967296.0);
+        }
+        this.vozNota = new int[voces];
+        this.vozFase = new int[voces];
+        this.vozEtapa = new int[voces];
+        this.vozRestantes = new int[voces];
+        this.vozNivel = new float[voces];
+        this.vozPendiente = new float[voces];
+        this.vozGanancia = new float[voces];
+        this.vozOrden = new long[voces];
+        this.acumulador = new float[bloqueMaximo];
+        this.bloque = new short[bloqueMaximo];
+    }
+
+    /**
+     * @param notas número de notas.
+     * @return frecuencias de la escala mayor de do desde el do central: do, re, mi, fa, sol, la, si, do...
+     */
+    public static double[] escalaMayor(int notas) {
+        double[] frecuencias = new double[notas];
+        for (int i = 0; i < notas; i++) {
+            int semitonos = 12 * (i / ESCALA_MAYOR.length) + ESCALA_MAYOR[i % ESCALA_MAYOR.length];
+            frecuencias[i] = DO_CENTRAL * Math.pow(2, semitonos / 12.0);
+        }
+        return frecuencias;
+    }
+
+    private static float[] crearTabla() {
+        float[] tabla = new float[1 << BITS_TABLA];
+        double maximo = 0;
+        double[] valores = new double[tabla.length];
+        for (int i = 0; i < tabla.length; i++) {
+            double x = 2 * Math.PI * i / tabla.length;
+            valores[i] = Math.sin(x) + 0.5 * Math.sin(2 * x) + 0.25 * Math.sin(3 * x);
+            maximo = Math.max(maximo, Math.abs(valores[i]));
+        }
+        for (int i = 0; i < tabla.length; i++) {
+            tabla[i] = (float) (valores[i] / maximo);
+        }
+        return tabla;
+    }
+
+    @Override
+    public int getNumeroNotas() {
+        return incrementos.length;
+    }
+
+    public int getFrecuenciaMuestreo() {
+        return frecuenciaMuestreo;
+    }
+
+    public Envolvente getEnvolvente() {
+        return envolvente;
+    }
+
+    /**
+     * Dispara la nota indicada con ganancia máxima.
+     *
+     * @param nota número de la nota, empezando por 1.
+     * @see ToneSynth#trigger(int, float)
+     */
+    @Override
+    public void trigger(int nota) {
+        trigger(nota, 1f);
+    }
+
+    /**
+     * Dispara la nota indicada desde el principio de la envolvente. Si no hay voces libres se roba la más antigua.
+     *
+     * @param nota     número de la nota, empezando por 1. Si no existe se ignora.
+     * @param ganancia ganancia de la voz, entre 0 y 1.
+     */
+    public synchronized void trigger(int nota, float ganancia) {
+        if (nota < 1 || nota > incrementos.length)
+            return;
+        int voz = -1;
+        int masAntigua = 0;
+        for (int i = 0; i < vozNota.length; i++) {
+            if (vozNota[i] == 0) {
+                voz = i;
+                break;
+            }
+            if (vozOrden[i] < vozOrden[masAntigua])
+                masAntigua = i;
+        }
+        if (voz == -1) {
+            voz = masAntigua;
+            robadas++;
+        }
+        vozNota[voz] = nota;
+        vozFase[voz] = 0;
+        vozGanancia[voz] = ganancia * AMPLITUD;
+        vozOrden[voz] = disparos++;
+        empezarEtapa(voz, ATAQUE);
+    }
+
+    @Override
+    public synchronized void stopAll() {
+        for (int i = 0; i < vozNota.length; i++) {
+            vozNota[i] = 0;
+            vozEtapa[i] = LIBRE;
+        }
+    }
+
+    /**
+     * Genera las muestras de todas las voces activas y las suma, recortando a 16 bits.
+     *
+     * @param salida buffer de salida.
+     * @param offset posición del buffer donde empezar a escribir.
+     * @param frames número de muestras a generar. No puede superar el bloque máximo.
+     * @return número de voces que siguen sonando.
+     */
+    @Override
+    public synchronized int mix(short[] salida, int offset, int frames) {
+        if (frames > acumulador.length)
+            throw new IllegalArgumentException("Bloque demasiado grande: " + frames);
+        for (int i = 0; i < frames; i++) {
+            acumulador[i] = 0f;
+        }
+
+        int activas = 0;
+        for (int v = 0; v < vozNota.length; v++) {
+            if (vozNota[v] == 0)
+                continue;
+            int incremento = incrementos[vozNota[v] - 1];
+            int fase = vozFase[v];
+            float ganancia = vozGanancia[v];
+            int i = 0;
+            while (i < frames && vozEtapa[v] != LIBRE) {
+                // Dentro de una etapa la envolvente es una recta, así que el bucle interno no tiene ramas
+                int n = Math.min(frames - i, vozRestantes[v]);
+                float nivel = vozNivel[v];
+                float pendiente = vozPendiente[v];
+                for (int k = 0; k < n; k++, i++) {
+                    acumulador[i] += TABLA[fase >>> DESPLAZAMIENTO] * nivel * ganancia;
+                    fase += incremento;
+                    nivel += pendiente;
+                }
+                vozNivel[v] = nivel;
+                vozRestantes[v] -= n;
+                if (vozRestantes[v] == 0)
+                    empezarEtapa(v, vozEtapa[v] + 1);
+            }
+            vozFase[v] = fase;
+            if (vozEtapa[v] == LIBRE)
+                vozNota[v] = 0;
+            else
+                activas++;
+        }
+
+        for (int i = 0; i < frames; i++) {
+            float muestra = acumulador[i];
+            if (muestra > Short.MAX_VALUE)
+                muestra = Short.MAX_VALUE;
+            else if (muestra < Short.MIN_VALUE)
+                muestra = Short.MIN_VALUE;
+            salida[offset + i] = (short) muestra;
+        }
+        return activas;
+    }
+
+    @Override
+    public int render(PcmRingBuffer destino) {
+        int frames = Math.min(destino.libres(), bloque.length);
+        if (frames == 0)
+            return 0;
+        mix(bloque, 0, frames);
+        return destino.write(bloque, 0, frames);
+    }
+
+    /**
+     * Pone la voz al principio de una etapa de la envolvente. El nivel se fija al valor exacto del principio de la
+     * etapa para que los errores de redondeo no se acumulen de una etapa a otra.
+     */
+    private void empezarEtapa(int voz, int etapa) {
+        vozEtapa[voz] = etapa;
+        switch (etapa) {
+            case ATAQUE:
+                vozNivel[voz] = 0f;
+                vozRestantes[voz] = envolvente.ataque;
+                vozPendiente[voz] = 1f / envolvente.ataque;
+                break;
+            case DECAIMIENTO:
+                vozNivel[voz] = 1f;
+                vozRestantes[voz] = envolvente.decaimiento;
+                vozPendiente[voz] = (envolvente.nivelSostenido - 1f) / envolvente.decaimiento;
+                break;
+            case SOSTENIDO:
+                vozNivel[voz] = envolvente.nivelSostenido;
+                vozRestantes[voz] = envolvente.sostenido;
+                vozPendiente[voz] = 0f;
+                break;
+            case RELAJACION:
+                vozNivel[voz] = envolvente.nivelSostenido;
+                vozRestantes[voz] = envolvente.relajacion;
+                vozPendiente[voz] = -envolvente.nivelSostenido / envolvente.relajacion;
+                break;
+            default:
+                vozEtapa[voz] = LIBRE;
+                vozNivel[voz] = 0f;
+                vozRestantes[voz] = 0;
+                vozPendiente[voz] = 0f;
+                break;
+        }
+    }
+
+    public synchronized int getVocesActivas() {
+        int activas = 0;
+        for (int nota : vozNota) {
+            if (nota != 0)
+                activas++;
+        }
+        return activas;
+    }
+
+    /**
+     * @return número de veces que se ha robado una voz porque estaban todas ocupadas.
+     */
+    public synchronized long getRobadas() {
+        return robadas;
+    }
+}
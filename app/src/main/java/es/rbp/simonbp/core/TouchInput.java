@@ -0,0 +1,141 @@
+package es.rbp.simonbp.core;
+
+import java.util.Arrays;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Filtro de los toques del tablero, sin depender de Android. Cada dedo que baja sobre un botón cuenta como una
+ * pulsación en ese mismo momento, sin esperar a que suba, así que varios dedos a la vez tocan un acorde y cada uno
+ * cuenta por separado en el orden en que bajaron. Se descartan los rebotes: un segundo contacto sobre un botón que
+ * ya está pulsado o que se pulsó hace menos de {@link TouchInput#REBOTE} milisegundos.
+ * <p>
+ * Los instantes son los del evento de la pantalla, no los de cuando se procesa, así que el tiempo de reacción no
+ * incluye lo que tarde el hilo principal en despachar el toque.
+ */
+public class TouchInput {
+
+    /**
+     * Tiempo mínimo entre dos pulsaciones del mismo botón, en milisegundos. Nadie pulsa dos veces un botón tan rápido,
+     * pero un dedo que tiembla o una pantalla con ruido sí
+     */
+    public static final int REBOTE = 50;
+
+    /**
+     * Dedos que se siguen a la vez. Android numera los dedos desde 0 y reutiliza los números libres
+     */
+    public static final int MAXIMO_DEDOS = 16;
+
+    private final int rebote;
+
+    /**
+     * Botón bajo cada dedo, o 0 si el dedo no está sobre ningún botón
+     */
+    private final int[] dedos = new int[MAXIMO_DEDOS];
+
+    /**
+     * Dedos que hay sobre cada botón
+     */
+    private final int[] pulsados;
+
+    /**
+     * Instante de la última pulsación aceptada de cada botón
+     */
+    private final long[] ultimas;
+
+    private long aceptadas;
+
+    private long rebotes;
+
+    /**
+     * @param numeroBotones número de botones del tablero.
+     */
+    public TouchInput(int numeroBotones) {
+        this(numeroBotones, REBOTE);
+    }
+
+    /**
+     * @param numeroBotones número de botones del tablero.
+     * @param rebote        tiempo mínimo entre dos pulsaciones del mismo botón, en milisegundos.
+     */
+    public TouchInput(int numeroBotones, int rebote) {
+        if (rebote < 0)
+            throw new IllegalArgumentException("Rebote negativo: " + rebote);
+        this.rebote = rebote;
+        this.pulsados = new int[numeroBotones];
+        this.ultimas = new long[numeroBotones];
+        Arrays.fill(ultimas, Long.MIN_VALUE / 2);
+    }
+
+    /**
+     * Un dedo baja sobre la pantalla.
+     *
+     * @param dedo     identificador del dedo.
+     * @param numero   número del botón bajo el dedo, o 0 si no hay ninguno.
+     * @param instante instante del evento, en milisegundos.
+     * @return true si cuenta como pulsación del botón.
+     */
+    public boolean down(int dedo, int numero, long instante) {
+        if (dedo < 0 || dedo >= MAXIMO_DEDOS || numero == 0)
+            return false;
+        if (dedos[dedo] != 0)
+            soltar(dedo);
+        dedos[dedo] = numero;
+        int i = numero - 1;
+        boolean rebota = pulsados[i] > 0 || instante - ultimas[i] < rebote;
+        pulsados[i]++;
+        if (rebota) {
+            rebotes++;
+            return false;
+        }
+        ultimas[i] = instante;
+        aceptadas++;
+        return true;
+    }
+
+    /**
+     * Un dedo sube de la pantalla.
+     *
+     * @param dedo identificador del dedo.
+     */
+    public void up(int dedo) {
+        if (dedo >= 0 && dedo < MAXIMO_DEDOS && dedos[dedo] != 0)
+            soltar(dedo);
+    }
+
+    /**
+     * Se pierden todos los dedos, por ejemplo porque otra vista se queda con el gesto. Los instantes de las últimas
+     * pulsaciones se conservan.
+     */
+    public void cancel() {
+        Arrays.fill(dedos, 0);
+        Arrays.fill(pulsados, 0);
+    }
+
+    private void soltar(int dedo) {
+        pulsados[dedos[dedo] - 1]--;
+        dedos[dedo] = 0;
+    }
+
+    /**
+     * @param numero número del botón.
+     * @return true si hay algún dedo sobre el botón.
+     */
+    public boolean isPulsado(int numero) {
+        return pulsados[numero - 1] > 0;
+    }
+
+    /**
+     * @return pulsaciones aceptadas.
+     */
+    public long getAceptadas() {
+        return aceptadas;
+    }
+
+    /**
+     * @return toques descartados por rebote.
+     */
+    public long getRebotes() {
+        return rebotes;
+    }
+}
@@ -0,0 +1,21 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Generador en el que todos los botones tienen la misma probabilidad, como hacía la cpu con Math.random().
+ */
+public class UniformGenerator implements PatternGenerator {
+
+    protected final XoshiroRandom random = new XoshiroRandom(0);
+
+    @Override
+    public void reset(long semilla) {
+        random.setSeed(semilla);
+    }
+
+    @Override
+    public int next(int numeroBotones) {
+        return random.nextInt(numeroBotones) + 1;
+    }
+}
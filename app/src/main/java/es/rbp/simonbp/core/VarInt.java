@@ -0,0 +1,115 @@
+package es.rbp.simonbp.core;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Enteros de longitud variable de los formatos en disco: el historial, las repeticiones y las fotos de partida.
+ * Cada byte lleva 7 bits del valor, del menos al más significativo, y el bit alto indica que sigue otro byte.
+ * <p>
+ * Los valores sin signo no pueden ser negativos: escribirlos es un error del que llama y lanza
+ * IllegalArgumentException. Los que pueden ser negativos se escriben en zigzag, que alterna positivos y negativos
+ * (0, -1, 1, -2...) para que los pequeños ocupen poco con cualquier signo. Leer un entero más largo de lo que cabe en
+ * su tipo, o uno sin signo que no cabe en su rango, lanza IllegalArgumentException como cualquier otro dato dañado, y
+ * si los datos se acaban a mitad lanza la BufferUnderflowException del buffer.
+ */
+final class VarInt {
+
+    private VarInt() {
+    }
+
+    /**
+     * Escribe un int sin signo. Ocupa como mucho 5 bytes.
+     *
+     * @throws IllegalArgumentException si el valor es negativo.
+     */
+    static void escribir(int valor, ByteArrayOutputStream salida) {
+        if (valor < 0)
+            throw new IllegalArgumentException("Valor negativo: " + valor);
+        escribir32Bits(valor, salida);
+    }
+
+    /**
+     * Escribe un int con signo en zigzag. Ocupa como mucho 5 bytes.
+     */
+    static void escribirConSigno(int valor, ByteArrayOutputStream salida) {
+        escribir32Bits(valor << 1 ^ valor >> 31, salida);
+    }
+
+    /**
+     * Escribe un long sin signo. Ocupa como mucho 9 bytes.
+     *
+     * @throws IllegalArgumentException si el valor es negativo.
+     */
+    static void escribirLong(long valor, ByteArrayOutputStream salida) {
+        if (valor < 0)
+            throw new IllegalArgumentException("Valor negativo: " + valor);
+        while (valor >= 0x80) {
+            salida.write((int) (valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+        salida.write((int) valor);
+    }
+
+    /**
+     * @return int sin signo escrito con {@link VarInt#escribir(int, ByteArrayOutputStream)}.
+     * @throws IllegalArgumentException si el entero está dañado o no cabe en un int sin signo.
+     */
+    static int leer(ByteBuffer entrada) {
+        int valor = leer32Bits(entrada);
+        if (valor < 0)
+            throw new IllegalArgumentException("Entero de longitud variable dañado: " + (valor & 0xFFFFFFFFL));
+        return valor;
+    }
+
+    /**
+     * @return int escrito con {@link VarInt#escribirConSigno(int, ByteArrayOutputStream)}.
+     * @throws IllegalArgumentException si el entero está dañado.
+     */
+    static int leerConSigno(ByteBuffer entrada) {
+        int zigzag = leer32Bits(entrada);
+        return zigzag >>> 1 ^ -(zigzag & 1);
+    }
+
+    /**
+     * @return long sin signo escrito con {@link VarInt#escribirLong(long, ByteArrayOutputStream)}.
+     * @throws IllegalArgumentException si el entero está dañado.
+     */
+    static long leerLong(ByteBuffer entrada) {
+        long valor = 0;
+        for (int desplazamiento = 0; desplazamiento < 63; desplazamiento += 7) {
+            int b = entrada.get();
+            valor |= (long) (b & 0x7F) << desplazamiento;
+            if ((b & 0x80) == 0)
+                return valor;
+        }
+        throw new IllegalArgumentException("Entero de longitud variable dañado");
+    }
+
+    private static void escribir32Bits(int valor, ByteArrayOutputStream salida) {
+        while ((valor & ~0x7F) != 0) {
+            salida.write((valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+        salida.write(valor);
+    }
+
+    /**
+     * Lee los 32 bits de un int. El quinto byte sólo puede llevar los 4 bits altos.
+     */
+    private static int leer32Bits(ByteBuffer entrada) {
+        int valor = 0;
+        for (int desplazamiento = 0; desplazamiento < 28; desplazamiento += 7) {
+            int b = entrada.get();
+            valor |= (b & 0x7F) << desplazamiento;
+            if ((b & 0x80) == 0)
+                return valor;
+        }
+        int b = entrada.get();
+        if ((b & 0xF0) != 0)
+            throw new IllegalArgumentException("Entero de longitud variable dañado");
+        return valor | b << 28;
+    }
+}
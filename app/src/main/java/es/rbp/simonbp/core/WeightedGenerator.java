@@ -0,0 +1,52 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Generador en el que cada botón tiene un peso. Un botón con peso 2 sale el doble de veces que uno con peso 1.
+ */
+public class WeightedGenerator extends UniformGenerator {
+
+    /**
+     * Suma acumulada de los pesos. acumulados[i] es la suma de los pesos de los botones 1 a i + 1
+     */
+    private final int[] acumulados;
+
+    /**
+     * @param pesos peso de cada botón, en el orden de los botones. Deben ser positivos o 0.
+     */
+    public WeightedGenerator(int[] pesos) {
+        acumulados = new int[pesos.length];
+        int total = 0;
+        for (int i = 0; i < pesos.length; i++) {
+            if (pesos[i] < 0)
+                throw new IllegalArgumentException("Peso negativo en el botón " + (i + 1));
+            total += pesos[i];
+            acumulados[i] = total;
+        }
+        if (total == 0)
+            throw new IllegalArgumentException("Al menos un botón debe tener peso");
+    }
+
+    /**
+     * @param numeroBotones número de botones del tablero. Si hay más pesos que botones se ignoran los sobrantes, y si
+     *                      todos los botones del tablero tienen peso 0 se elige uno cualquiera, como en el generador
+     *                      uniforme.
+     */
+    @Override
+    public int next(int numeroBotones) {
+        int n = Math.min(numeroBotones, acumulados.length);
+        if (acumulados[n - 1] == 0)
+            return super.next(numeroBotones);
+        int valor = random.nextInt(acumulados[n - 1]);
+        int bajo = 0, alto = n - 1;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (acumulados[medio] > valor)
+                alto = medio;
+            else
+                bajo = medio + 1;
+        }
+        return bajo + 1;
+    }
+}
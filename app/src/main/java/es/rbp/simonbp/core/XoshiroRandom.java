@@ -0,0 +1,83 @@
+package es.rbp.simonbp.core;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Generador de números pseudoaleatorios xoshiro256**. Es rápido, tiene buena calidad estadística y, a diferencia de
+ * Math.random(), se puede sembrar y no se comparte entre hilos. La semilla se expande con splitmix64.
+ * <p>
+ * No es seguro para varios hilos: cada partida debe tener el suyo.
+ */
+public class XoshiroRandom {
+
+    private long s0, s1, s2, s3;
+
+    public XoshiroRandom(long semilla) {
+        setSeed(semilla);
+    }
+
+    /**
+     * Reinicia el generador. Dos generadores con la misma semilla producen la misma secuencia.
+     *
+     * @param semilla semilla del generador.
+     */
+    public void setSeed(long semilla) {
+        long x = semilla;
+        x += 0x9E3779B97F4A7C15L;
+        s0 = mezclar(x);
+        x += 0x9E3779B97F4A7C15L;
+        s1 = mezclar(x);
+        x += 0x9E3779B97F4A7C15L;
+        s2 = mezclar(x);
+        x += 0x9E3779B97F4A7C15L;
+        s3 = mezclar(x);
+    }
+
+    /**
+     * Función de mezcla de splitmix64
+     */
+    private static long mezclar(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public long nextLong() {
+        long resultado = Long.rotateLeft(s1 * 5, 7) * 9;
+        long t = s1 << 17;
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+        return resultado;
+    }
+
+    /**
+     * @param limite límite superior exclusivo. Debe ser positivo.
+     * @return número entre 0 y limite - 1 sin sesgo.
+     */
+    public int nextInt(int limite) {
+        if (limite <= 0)
+            throw new IllegalArgumentException("El límite debe ser positivo: " + limite);
+        // Método de Lemire: multiplicar 32 bits aleatorios por el límite y quedarse con la parte alta
+        long m = (nextLong() >>> 32) * limite;
+        long bajo = m & 0xFFFFFFFFL;
+        if (bajo < limite) {
+            long umbral = (0x100000000L - limite) % limite;
+            while (bajo < umbral) {
+                m = (nextLong() >>> 32) * limite;
+                bajo = m & 0xFFFFFFFFL;
+            }
+        }
+        return (int) (m >>> 32);
+    }
+
+    /**
+     * @return número entre 0 (incluido) y 1 (excluido) con 53 bits aleatorios.
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+}
@@ -0,0 +1,218 @@
+package es.rbp.simonbp.net;
+
+import java.net.ProtocolException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Protocolo binario de los torneos, sin depender de Android. Lo usan el servidor y el cliente de la app.
+ * <p>
+ * Cada trama es la longitud del resto en 2 bytes, el tipo en 1 byte y sus campos en big endian, así que la más
+ * larga ocupa 14 bytes. Una partida entera son unas pocas tramas por ronda:
+ * <ol>
+ * <li>El cliente se une con {@link Protocol#UNIRSE}.</li>
+ * <li>El servidor responde con {@link Protocol#INICIO}: la semilla del torneo, el número de botones y el de
+ * rondas. El cliente genera la serie con la semilla, igual que el servidor, así que la serie nunca viaja.</li>
+ * <li>En cada ronda el servidor envía {@link Protocol#RONDA} y el cliente, después de mostrarla, envía
+ * {@link Protocol#LISTO} y una {@link Protocol#PULSACION} por botón pulsado, cada una con el instante en su
+ * reloj.</li>
+ * <li>La partida termina con {@link Protocol#RESULTADO}.</li>
+ * </ol>
+ * Los métodos para escribir tramas suponen que caben en el buffer. Los de leer nunca reservan memoria.
+ */
+public final class Protocol {
+
+    /**
+     * Recibe las tramas leídas de un buffer
+     *
+     * @see Protocol#leer(ByteBuffer, Receptor)
+     */
+    public interface Receptor {
+
+        /**
+         * @param version versión del protocolo del cliente.
+         */
+        void onUnirse(int version) throws ProtocolException;
+
+        /**
+         * @param semilla semilla de la serie.
+         * @param botones número de botones del tablero.
+         * @param turnos  rondas de la partida, o 0 si es infinita.
+         */
+        void onInicio(long semilla, int botones, int turnos) throws ProtocolException;
+
+        /**
+         * @param ronda        ronda que empieza, que también es la longitud de la serie.
+         * @param duracionPaso duración de cada paso de la serie, en milisegundos.
+         */
+        void onRonda(int ronda, int duracionPaso) throws ProtocolException;
+
+        /**
+         * @param instante instante en el que el cliente terminó de mostrar la serie, en milisegundos de su reloj.
+         */
+        void onListo(long instante) throws ProtocolException;
+
+        /**
+         * @param numero   número del botón pulsado.
+         * @param instante instante de la pulsación, en milisegundos del reloj del cliente.
+         */
+        void onPulsacion(int numero, long instante) throws ProtocolException;
+
+        /**
+         * @param victoria true si el jugador ha completado todas las rondas.
+         * @param rondas   rondas alcanzadas.
+         */
+        void onResultado(boolean victoria, int rondas) throws ProtocolException;
+    }
+
+    public static final int VERSION = 1;
+
+    /**
+     * Tipos de trama
+     */
+    public static final int UNIRSE = 1, INICIO = 2, RONDA = 3, LISTO = 4, PULSACION = 5, RESULTADO = 6;
+
+    /**
+     * Bytes de la cabecera: la longitud y el tipo
+     */
+    public static final int CABECERA = 3;
+
+    /**
+     * Longitud de la trama más larga, con la cabecera
+     */
+    public static final int MAXIMO_TRAMA = CABECERA + 11;
+
+    /**
+     * Los instantes viajan en 4 bytes sin signo, así que dan la vuelta cada 49 días
+     */
+    private static final long MASCARA_INSTANTE = 0xFFFFFFFFL;
+
+    private Protocol() {
+    }
+
+    public static void unirse(ByteBuffer salida) {
+        cabecera(salida, UNIRSE, 1);
+        salida.put((byte) VERSION);
+    }
+
+    public static void inicio(ByteBuffer salida, long semilla, int botones, int turnos) {
+        cabecera(salida, INICIO, 11);
+        salida.putLong(semilla);
+        salida.put((byte) botones);
+        salida.putShort((short) turnos);
+    }
+
+    public static void ronda(ByteBuffer salida, int ronda, int duracionPaso) {
+        cabecera(salida, RONDA, 4);
+        salida.putShort((short) ronda);
+        salida.putShort((short) duracionPaso);
+    }
+
+    public static void listo(ByteBuffer salida, long instante) {
+        cabecera(salida, LISTO, 4);
+        salida.putInt((int) instante);
+    }
+
+    public static void pulsacion(ByteBuffer salida, int numero, long instante) {
+        cabecera(salida, PULSACION, 5);
+        salida.put((byte) numero);
+        salida.putInt((int) instante);
+    }
+
+    public static void resultado(ByteBuffer salida, boolean victoria, int rondas) {
+        cabecera(salida, RESULTADO, 3);
+        salida.put((byte) (victoria ? 1 : 0));
+        salida.putShort((short) rondas);
+    }
+
+    /**
+     * @param despues instante leído de una trama.
+     * @param antes   instante anterior del mismo reloj.
+     * @return milisegundos entre los dos instantes, aunque el reloj haya dado la vuelta entre medias.
+     */
+    public static long diferencia(long despues, long antes) {
+        return (despues - antes) & MASCARA_INSTANTE;
+    }
+
+    private static void cabecera(ByteBuffer salida, int tipo, int campos) {
+        salida.putShort((short) (campos + 1));
+        salida.put((byte) tipo);
+    }
+
+    /**
+     * Lee todas las tramas completas del buffer y se las pasa al receptor. Una trama incompleta se queda en el buffer
+     * para cuando llegue el resto.
+     *
+     * @param entrada  buffer en modo lectura. Al volver su posición está al principio de la primera trama sin leer,
+     *                 así que basta con compactarlo para seguir leyendo del canal.
+     * @param receptor recibe las tramas.
+     * @return número de tramas leídas.
+     * @throws ProtocolException si una trama tiene un tipo desconocido o una longitud que no corresponde a su
+     *                           tipo, o si el receptor no la esperaba.
+     */
+    public static int leer(ByteBuffer entrada, Receptor receptor) throws ProtocolException {
+        int leidas = 0;
+        while (entrada.remaining() >= CABECERA) {
+            int inicio = entrada.position();
+            int longitud = entrada.getShort(inicio) & 0xFFFF;
+            int tipo = entrada.get(inicio + 2) & 0xFF;
+            int campos = longitudDe(tipo);
+            // Se comprueba antes de esperar al resto, porque con una longitud falsa el resto no llegaría nunca
+            if (campos < 0 || longitud != campos + 1)
+                throw new ProtocolException("Trama de tipo " + tipo + " con longitud " + longitud);
+            if (entrada.remaining() < 2 + longitud)
+                break;
+            ((Buffer) entrada).position(inicio + CABECERA);
+            switch (tipo) {
+                case UNIRSE:
+                    receptor.onUnirse(entrada.get() & 0xFF);
+                    break;
+                case INICIO:
+                    long semilla = entrada.getLong();
+                    int botones = entrada.get() & 0xFF;
+                    receptor.onInicio(semilla, botones, entrada.getShort() & 0xFFFF);
+                    break;
+                case RONDA:
+                    int ronda = entrada.getShort() & 0xFFFF;
+                    receptor.onRonda(ronda, entrada.getShort() & 0xFFFF);
+                    break;
+                case LISTO:
+                    receptor.onListo(entrada.getInt() & MASCARA_INSTANTE);
+                    break;
+                case PULSACION:
+                    int numero = entrada.get() & 0xFF;
+                    receptor.onPulsacion(numero, entrada.getInt() & MASCARA_INSTANTE);
+                    break;
+                case RESULTADO:
+                    boolean victoria = entrada.get() != 0;
+                    receptor.onResultado(victoria, entrada.getShort() & 0xFFFF);
+                    break;
+            }
+            leidas++;
+        }
+        return leidas;
+    }
+
+    /**
+     * @return bytes de los campos de un tipo de trama, o -1 si el tipo no existe.
+     */
+    private static int longitudDe(int tipo) {
+        switch (tipo) {
+            case UNIRSE:
+                return 1;
+            case INICIO:
+                return 11;
+            case RONDA:
+            case LISTO:
+                return 4;
+            case PULSACION:
+                return 5;
+            case RESULTADO:
+                return 3;
+            default:
+                return -1;
+        }
+    }
+}
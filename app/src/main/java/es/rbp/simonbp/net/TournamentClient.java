@@ -0,0 +1,272 @@
+package es.rbp.simonbp.net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+import es.rbp.simonbp.core.CommandQueue;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Cliente de un servidor de torneos, sin depender de Android. Toda la red va en un hilo propio con un canal no
+ * bloqueante, así que se puede usar desde el hilo principal: {@link TournamentClient#listo(long)} y
+ * {@link TournamentClient#pulsar(int, long)} sólo dejan el comando en una {@link CommandQueue} y despiertan al
+ * hilo de red, sin bloquear ni reservar memoria.
+ * <p>
+ * El listener recibe las tramas del servidor en el hilo de red. Para tocar la vista hay que pasarlas al hilo
+ * principal.
+ * <p>
+ * Ninguna pantalla lo usa todavía, así que el manifiesto no pide el permiso INTERNET. La primera que lo use debe
+ * añadirlo.
+ *
+ * @see Protocol
+ */
+public class TournamentClient implements Runnable, Protocol.Receptor {
+
+    /**
+     * Recibe las tramas del servidor, en el hilo de red
+     */
+    public interface Listener {
+
+        /**
+         * Empieza la partida. La serie se genera con la semilla, como en el servidor.
+         *
+         * @param semilla semilla de la serie.
+         * @param botones número de botones del tablero.
+         * @param turnos  rondas de la partida, o 0 si es infinita.
+         */
+        void onInicio(long semilla, int botones, int turnos);
+
+        /**
+         * Empieza una ronda. Al terminar de mostrar la serie se debe llamar a {@link TournamentClient#listo(long)}.
+         *
+         * @param ronda        ronda que empieza, que también es la longitud de la serie.
+         * @param duracionPaso duración de cada paso de la serie, en milisegundos.
+         */
+        void onRonda(int ronda, int duracionPaso);
+
+        /**
+         * Ha terminado la partida. Después el servidor cierra la conexión.
+         *
+         * @param victoria true si el jugador ha completado todas las rondas.
+         * @param rondas   rondas alcanzadas.
+         */
+        void onResultado(boolean victoria, int rondas);
+
+        /**
+         * Se ha cerrado la conexión. Es lo último que recibe el listener.
+         *
+         * @param error error que ha cerrado la conexión, o null si la ha cerrado el servidor al terminar la partida o
+         *              el cliente con {@link TournamentClient#close()}.
+         */
+        void onDesconectado(IOException error);
+    }
+
+    /**
+     * Tiempo máximo para conectar, en milisegundos
+     */
+    private static final int TIMEOUT_CONEXION = 5000;
+
+    /**
+     * Comandos pendientes que caben en la cola. Cada comando ocupa dos posiciones
+     */
+    private static final int CAPACIDAD_COLA = 256;
+
+    private final InetSocketAddress direccion;
+
+    private final Listener listener;
+
+    /**
+     * Comandos del hilo principal para el hilo de red. Cada uno son dos ints: el tipo de trama, el número y los bits
+     * 16 a 31 del instante, y los bits 0 a 15 del instante. Los bits altos no viajan, como en {@link Protocol}, y
+     * ninguno de los dos ints puede coincidir con {@link CommandQueue#VACIA}
+     */
+    private final CommandQueue cola = new CommandQueue(CAPACIDAD_COLA);
+
+    private final ByteBuffer entrada = ByteBuffer.allocate(Protocol.MAXIMO_TRAMA * 16);
+
+    private final ByteBuffer salida = ByteBuffer.allocate(Protocol.MAXIMO_TRAMA * (CAPACIDAD_COLA / 2 + 1));
+
+    private Selector selector;
+
+    private Thread hilo;
+
+    private volatile boolean cerrado;
+
+    /**
+     * @param direccion dirección del servidor.
+     * @param listener  recibe las tramas del servidor en el hilo de red.
+     */
+    public TournamentClient(InetSocketAddress direccion, Listener listener) {
+        this.direccion = direccion;
+        this.listener = listener;
+    }
+
+    /**
+     * Empieza a conectar en un hilo nuevo y se une al torneo.
+     *
+     * @throws IOException si no se puede crear el selector.
+     */
+    public void start() throws IOException {
+        if (hilo != null)
+            throw new IllegalStateException("El cliente ya ha empezado");
+        selector = Selector.open();
+        hilo = new Thread(this, "TournamentClient");
+        hilo.start();
+    }
+
+    /**
+     * El jugador ha terminado de ver la serie y puede empezar a pulsar.
+     *
+     * @param instante instante en milisegundos. Sólo se envían sus 32 bits bajos y el servidor los compara con los
+     *                 de las pulsaciones con {@link Protocol#diferencia(long, long)}, así que vale cualquier reloj
+     *                 mientras sea el mismo, aunque sus 32 bits bajos den la vuelta durante la partida.
+     * @return false si no cabía en la cola y se ha descartado.
+     */
+    public boolean listo(long instante) {
+        return encolar(Protocol.LISTO, 0, instante);
+    }
+
+    /**
+     * @param numero   número del botón pulsado.
+     * @param instante instante de la pulsación en milisegundos, con el mismo reloj que
+     *                 {@link TournamentClient#listo(long)}. Sólo se envían sus 32 bits bajos.
+     * @return false si no cabía en la cola y se ha descartado.
+     */
+    public boolean pulsar(int numero, long instante) {
+        return encolar(Protocol.PULSACION, numero, instante);
+    }
+
+    /**
+     * Encola los 32 bits bajos del instante, que son los que viajan en la trama. Sólo lo llama un hilo, normalmente
+     * el principal.
+     */
+    private boolean encolar(int tipo, int numero, long instante) {
+        if (cola.getCapacidad() - cola.size() < 2)
+            return false;
+        cola.offer(tipo << 24 | numero << 16 | (int) (instante >>> 16) & 0xFFFF);
+        cola.offer((int) instante & 0xFFFF);
+        selector.wakeup();
+        return true;
+    }
+
+    /**
+     * Cierra la conexión. El listener recibe {@link Listener#onDesconectado(IOException)} desde el hilo de red.
+     */
+    public void close() {
+        cerrado = true;
+        if (selector != null)
+            selector.wakeup();
+    }
+
+    /**
+     * Espera a que termine el hilo de red.
+     *
+     * @param millis tiempo máximo de espera, en milisegundos.
+     * @return true si el hilo ha terminado.
+     */
+    public boolean join(long millis) throws InterruptedException {
+        hilo.join(millis);
+        return !hilo.isAlive();
+    }
+
+    /**
+     * Bucle del hilo de red: envía los comandos pendientes y lee las tramas del servidor hasta que se cierra la
+     * conexión.
+     */
+    @Override
+    public void run() {
+        IOException error = null;
+        SocketChannel canal = null;
+        try {
+            canal = SocketChannel.open();
+            canal.socket().connect(direccion, TIMEOUT_CONEXION);
+            canal.socket().setTcpNoDelay(true);
+            canal.configureBlocking(false);
+            SelectionKey clave = canal.register(selector, SelectionKey.OP_READ);
+            Protocol.unirse(salida);
+            while (!cerrado) {
+                vaciarCola();
+                ((Buffer) salida).flip();
+                canal.write(salida);
+                salida.compact();
+                clave.interestOps(salida.position() > 0
+                        ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+                selector.select();
+                selector.selectedKeys().clear();
+                if (canal.read(entrada) < 0)
+                    break;
+                ((Buffer) entrada).flip();
+                Protocol.leer(entrada, this);
+                entrada.compact();
+            }
+        } catch (IOException e) {
+            if (!cerrado)
+                error = e;
+        } finally {
+            cerrar(canal);
+        }
+        listener.onDesconectado(error);
+    }
+
+    /**
+     * Pasa los comandos completos de la cola al buffer de salida, mientras quepan.
+     */
+    private void vaciarCola() {
+        while (cola.size() >= 2 && salida.remaining() >= Protocol.MAXIMO_TRAMA) {
+            int cabecera = cola.poll();
+            long instante = (long) (cabecera & 0xFFFF) << 16 | cola.poll();
+            int tipo = cabecera >>> 24;
+            if (tipo == Protocol.LISTO)
+                Protocol.listo(salida, instante);
+            else
+                Protocol.pulsacion(salida, cabecera >>> 16 & 0xFF, instante);
+        }
+    }
+
+    private void cerrar(SocketChannel canal) {
+        try {
+            if (canal != null)
+                canal.close();
+            selector.close();
+        } catch (IOException ignorada) {
+            // Ya no queda nada que enviar
+        }
+    }
+
+    @Override
+    public void onInicio(long semilla, int botones, int turnos) {
+        listener.onInicio(semilla, botones, turnos);
+    }
+
+    @Override
+    public void onRonda(int ronda, int duracionPaso) {
+        listener.onRonda(ronda, duracionPaso);
+    }
+
+    @Override
+    public void onResultado(boolean victoria, int rondas) {
+        listener.onResultado(victoria, rondas);
+    }
+
+    @Override
+    public void onUnirse(int version) throws ProtocolException {
+        throw new ProtocolException("El servidor no se une a los clientes");
+    }
+
+    @Override
+    public void onListo(long instante) throws ProtocolException {
+        throw new ProtocolException("El servidor no pulsa");
+    }
+
+    @Override
+    public void onPulsacion(int numero, long instante) throws ProtocolException {
+        throw new ProtocolException("El servidor no pulsa");
+    }
+}
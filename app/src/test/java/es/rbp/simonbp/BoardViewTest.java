@@ -0,0 +1,203 @@
+package es.rbp.simonbp;
+
+import android.app.Activity;
+import android.view.MotionEvent;
+import android.view.ViewConfiguration;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.TimeUnit;
+
+import es.rbp.simonbp.core.Board;
+import es.rbp.simonbp.core.BoardGeometry;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comprueba con Robolectric que el tablero dibujado avisa de cada dedo al bajar, también en acordes y en las dos
+ * copias del modo cara a cara, y que sus animaciones avanzan con el Choreographer.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class BoardViewTest {
+
+    private static final int DURACION = 50;
+
+    private BoardView vista;
+
+    private int pulsado, mantenido, pulsaciones, soltados;
+
+    private long instante;
+
+    @Before
+    public void setUp() {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        vista = new BoardView(activity, Board.crear(9, 6));
+        vista.setMedidas(100, 10, 30);
+        vista.setListener(new BoardView.Listener() {
+            @Override
+            public void onPadPulsado(int dedo, int numero, long instante) {
+                pulsado = numero;
+                BoardViewTest.this.instante = instante;
+                if (numero != 0)
+                    pulsaciones++;
+            }
+
+            @Override
+            public void onPadSoltado(int dedo) {
+                soltados++;
+            }
+
+            @Override
+            public void onPadLargo(int numero) {
+                mantenido = numero;
+            }
+        });
+        activity.setContentView(vista);
+    }
+
+    @Test
+    public void medidas_lasDeLaRejilla() {
+        vista.measure(0, 0);
+
+        assertEquals(360, vista.getMeasuredWidth());
+        assertEquals(360, vista.getMeasuredHeight());
+    }
+
+    @Test
+    public void bajar_avisaConElInstanteDelEvento() {
+        MotionEvent evento = MotionEvent.obtain(1000, 1234, MotionEvent.ACTION_DOWN,
+                vista.getGeometria().getCentroX(5), vista.getGeometria().getCentroY(5), 0);
+        vista.dispatchTouchEvent(evento);
+        evento.recycle();
+
+        assertEquals(5, pulsado);
+        assertEquals(1, pulsaciones);
+        assertEquals(1234, instante);
+        tocar(MotionEvent.ACTION_UP, 5);
+        assertEquals(1, pulsaciones);
+        assertEquals(1, soltados);
+        assertEquals(0, mantenido);
+    }
+
+    @Test
+    public void acorde_avisaDeCadaDedo() {
+        BoardGeometry geometria = vista.getGeometria();
+        MotionEvent.PointerProperties[] dedos = new MotionEvent.PointerProperties[2];
+        MotionEvent.PointerCoords[] coordenadas = new MotionEvent.PointerCoords[2];
+        for (int i = 0; i < 2; i++) {
+            dedos[i] = new MotionEvent.PointerProperties();
+            dedos[i].id = i;
+            coordenadas[i] = new MotionEvent.PointerCoords();
+            coordenadas[i].x = geometria.getCentroX(i * 4 + 1);
+            coordenadas[i].y = geometria.getCentroY(i * 4 + 1);
+        }
+        vista.dispatchTouchEvent(MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, 1, dedos, coordenadas, 0, 0,
+                1, 1, 0, 0, 0, 0));
+        assertEquals(1, pulsado);
+        vista.dispatchTouchEvent(MotionEvent.obtain(0, 0,
+                MotionEvent.ACTION_POINTER_DOWN | (1 << MotionEvent.ACTION_POINTER_INDEX_SHIFT), 2, dedos,
+                coordenadas, 0, 0, 1, 1, 0, 0, 0, 0));
+
+        assertEquals(5, pulsado);
+        assertEquals(2, pulsaciones);
+        // Con dos dedos no hay pulsación larga
+        ShadowLooper.idleMainLooper(ViewConfiguration.getLongPressTimeout() + 10, TimeUnit.MILLISECONDS);
+        assertEquals(0, mantenido);
+    }
+
+    @Test
+    public void fueraDeLosBotonesODeshabilitado_noPulsa() {
+        vista.dispatchTouchEvent(MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, 119, 119, 0));
+        assertEquals(0, pulsaciones);
+        vista.setEnabled(false);
+        tocar(MotionEvent.ACTION_DOWN, 3);
+        tocar(MotionEvent.ACTION_UP, 3);
+
+        assertEquals(0, pulsaciones);
+        // Los dedos que suben se avisan aunque esté deshabilitado
+        assertEquals(1, soltados);
+    }
+
+    @Test
+    public void salirDelBoton_pierdeLaPulsacionLarga() {
+        tocar(MotionEvent.ACTION_DOWN, 1);
+        tocar(MotionEvent.ACTION_MOVE, 2);
+        ShadowLooper.idleMainLooper(ViewConfiguration.getLongPressTimeout() + 10, TimeUnit.MILLISECONDS);
+
+        assertEquals(0, mantenido);
+        assertEquals(1, pulsaciones);
+    }
+
+    @Test
+    public void mantener_avisaDeLaPulsacionLarga() {
+        tocar(MotionEvent.ACTION_DOWN, 9);
+        ShadowLooper.idleMainLooper(ViewConfiguration.getLongPressTimeout() + 10, TimeUnit.MILLISECONDS);
+        tocar(MotionEvent.ACTION_UP, 9);
+
+        assertEquals(9, mantenido);
+        assertEquals(1, pulsaciones);
+    }
+
+    @Test
+    public void crecerYEncoger_conElChoreographer() {
+        vista.crecer(4, DURACION);
+        ShadowLooper.idleMainLooper(DURACION * 2, TimeUnit.MILLISECONDS);
+        assertEquals(PadAnimator.ESCALA_PULSADO, vista.getAnimaciones().getEscala(4), 1e-3);
+        assertEquals(0, vista.getAnimaciones().getAnimando());
+
+        vista.encoger(4, DURACION);
+        ShadowLooper.idleMainLooper(DURACION * 2, TimeUnit.MILLISECONDS);
+        assertEquals(1f, vista.getAnimaciones().getEscala(4), 1e-3);
+    }
+
+    @Test
+    public void dosCopias_numeraLaDeArribaAContinuacion() {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        BoardView doble = new BoardView(activity, Board.crear(9, 6), 2);
+        doble.setMedidas(100, 10, 30);
+        doble.setListener(new BoardView.Listener() {
+            @Override
+            public void onPadPulsado(int dedo, int numero, long instante) {
+                pulsado = numero;
+            }
+
+            @Override
+            public void onPadSoltado(int dedo) {
+            }
+
+            @Override
+            public void onPadLargo(int numero) {
+            }
+        });
+        doble.measure(0, 0);
+        assertEquals(720, doble.getMeasuredHeight());
+        doble.layout(0, 0, 400, 800);
+
+        // Cada copia de 360 x 360 está centrada en su mitad; el botón 1 de abajo está a 60 px de su esquina
+        doble.dispatchTouchEvent(MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, 80, 480, 0));
+        assertEquals(1, pulsado);
+        // La copia de arriba está girada, así que su botón 1 queda en el lado contrario
+        doble.dispatchTouchEvent(MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, 320, 320, 0));
+        assertEquals(10, pulsado);
+
+        doble.crecer(10, DURACION);
+        ShadowLooper.idleMainLooper(DURACION * 2, TimeUnit.MILLISECONDS);
+        assertEquals(PadAnimator.ESCALA_PULSADO, doble.getAnimaciones().getEscala(10), 1e-3);
+        assertEquals(1f, doble.getAnimaciones().getEscala(1), 1e-3);
+    }
+
+    private void tocar(int accion, int numero) {
+        BoardGeometry geometria = vista.getGeometria();
+        MotionEvent evento = MotionEvent.obtain(0, 0, accion, geometria.getCentroX(numero),
+                geometria.getCentroY(numero), 0);
+        vista.dispatchTouchEvent(evento);
+        evento.recycle();
+    }
+}
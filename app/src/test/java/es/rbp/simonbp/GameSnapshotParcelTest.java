@@ -0,0 +1,147 @@
+package es.rbp.simonbp;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import es.rbp.simonbp.core.GameSnapshot;
+import es.rbp.simonbp.core.SimonConfig;
+import es.rbp.simonbp.core.SimonEngine;
+import es.rbp.simonbp.core.UniformGenerator;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compara con Robolectric lo que ocupa guardar una partida de 12 rondas en un Parcel como {@link GameSnapshot} y como
+ * un Parcelable con los mismos campos, y que las dos se leen igual. Los tiempos de Robolectric no son los de un
+ * dispositivo; lo que tarda la foto se mide en el módulo de benchmarks.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class GameSnapshotParcelTest {
+
+    /**
+     * Estado de la partida como lo guardaría PlayActivity con Parcelable
+     */
+    static class EstadoParcelable implements Parcelable {
+
+        int numeroBotones, turnos, posicion, numTruco, ultimaEntrada, estado;
+
+        long semilla, numEntradas;
+
+        int[] serie;
+
+        EstadoParcelable() {
+        }
+
+        EstadoParcelable(Parcel entrada) {
+            numeroBotones = entrada.readInt();
+            turnos = entrada.readInt();
+            posicion = entrada.readInt();
+            numTruco = entrada.readInt();
+            ultimaEntrada = entrada.readInt();
+            estado = entrada.readInt();
+            semilla = entrada.readLong();
+            numEntradas = entrada.readLong();
+            serie = entrada.createIntArray();
+        }
+
+        @Override
+        public void writeToParcel(Parcel salida, int flags) {
+            salida.writeInt(numeroBotones);
+            salida.writeInt(turnos);
+            salida.writeInt(posicion);
+            salida.writeInt(numTruco);
+            salida.writeInt(ultimaEntrada);
+            salida.writeInt(estado);
+            salida.writeLong(semilla);
+            salida.writeLong(numEntradas);
+            salida.writeIntArray(serie);
+        }
+
+        @Override
+        public int describeContents() {
+            return 0;
+        }
+
+        public static final Creator<EstadoParcelable> CREATOR = new Creator<EstadoParcelable>() {
+            @Override
+            public EstadoParcelable createFromParcel(Parcel entrada) {
+                return new EstadoParcelable(entrada);
+            }
+
+            @Override
+            public EstadoParcelable[] newArray(int size) {
+                return new EstadoParcelable[size];
+            }
+        };
+    }
+
+    @Test
+    public void parcel_fotoOcupaMenosQueParcelable() {
+        SimonEngine engine = new SimonEngine(SimonConfig.paraDificultad(SimonConfig.DIFICIL),
+                new UniformGenerator(), 42);
+        engine.start();
+        while (engine.getRonda() < 12) {
+            engine.finTurnoCpu();
+            engine.pulsar(engine.getNumero(engine.getPosicion()));
+        }
+        engine.finTurnoCpu();
+
+        int bytesFoto = conFoto(engine);
+        int bytesParcelable = conParcelable(engine);
+
+        assertTrue(bytesFoto + " bytes frente a " + bytesParcelable, bytesFoto < bytesParcelable);
+    }
+
+    /**
+     * @return bytes que ocupa la foto en el Parcel.
+     */
+    private static int conFoto(SimonEngine engine) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeByteArray(engine.snapshot().toBytes());
+            int bytes = parcel.dataSize();
+            parcel.setDataPosition(0);
+            SimonEngine restaurada = GameSnapshot.fromBytes(parcel.createByteArray())
+                    .restore(engine.getConfig(), new UniformGenerator());
+            assertEquals(engine.getRonda(), restaurada.getRonda());
+            return bytes;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * @return bytes que ocupa el Parcelable en el Parcel.
+     */
+    private static int conParcelable(SimonEngine engine) {
+        EstadoParcelable estado = new EstadoParcelable();
+        estado.numeroBotones = engine.getConfig().getNumeroBotones();
+        estado.turnos = engine.getConfig().getTurnos();
+        estado.posicion = engine.getPosicion();
+        estado.numTruco = engine.getNumTruco();
+        estado.ultimaEntrada = engine.getSesion().getUltimaEntrada();
+        estado.estado = engine.getEstado().ordinal();
+        estado.semilla = engine.getSemilla();
+        estado.numEntradas = engine.getSesion().getNumEntradas();
+        estado.serie = new int[engine.getRonda()];
+        engine.getSerie().copyRange(0, engine.getRonda(), estado.serie, 0);
+
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeParcelable(estado, 0);
+            int bytes = parcel.dataSize();
+            parcel.setDataPosition(0);
+            EstadoParcelable leido = parcel.readParcelable(EstadoParcelable.class.getClassLoader());
+            assertEquals(engine.getRonda(), leido.serie.length);
+            return bytes;
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
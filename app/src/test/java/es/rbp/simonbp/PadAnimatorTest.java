@@ -0,0 +1,129 @@
+package es.rbp.simonbp;
+
+import android.animation.ValueAnimator;
+import android.view.View;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comprueba con Robolectric que las animaciones de los botones se reutilizan y que, una vez calentadas, las
+ * pulsaciones no reservan memoria.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class PadAnimatorTest {
+
+    private static final int DURACION = 50;
+
+    private static final int CALENTAMIENTO = 500;
+
+    private static final int PULSACIONES = 2000;
+
+    private View boton;
+
+    private PadAnimator animador;
+
+    private com.sun.management.ThreadMXBean hilos;
+
+    @Before
+    public void setUp() {
+        boton = new View(RuntimeEnvironment.application);
+        animador = new PadAnimator(boton);
+    }
+
+    @Test
+    public void crecerYEncoger_llegaALaEscala() {
+        animador.crecer(DURACION);
+        ShadowLooper.idleMainLooper(DURACION * 2, TimeUnit.MILLISECONDS);
+        assertEquals(PadAnimator.ESCALA_PULSADO, boton.getScaleX(), 1e-3);
+        assertEquals(PadAnimator.ESCALA_PULSADO, boton.getScaleY(), 1e-3);
+
+        animador.encoger(DURACION);
+        ShadowLooper.idleMainLooper(DURACION * 2, TimeUnit.MILLISECONDS);
+        assertEquals(1f, boton.getScaleX(), 1e-3);
+        assertEquals(1f, boton.getScaleY(), 1e-3);
+    }
+
+    @Test
+    public void encoger_cancelaElCrecimiento() {
+        animador.crecer(DURACION);
+        ShadowLooper.idleMainLooper(DURACION / 2, TimeUnit.MILLISECONDS);
+        animador.encoger(DURACION);
+
+        assertFalse(animador.getCrecer().isStarted());
+        assertTrue(animador.getEncoger().isStarted());
+        ShadowLooper.idleMainLooper(DURACION * 2, TimeUnit.MILLISECONDS);
+        assertEquals(1f, boton.getScaleX(), 1e-3);
+    }
+
+    @Test
+    public void pulsaciones_reutilizanLosAnimadores() {
+        ValueAnimator crecer = animador.getCrecer();
+        ValueAnimator encoger = animador.getEncoger();
+        for (int i = 0; i < 10; i++) {
+            animador.crecer(DURACION);
+            ShadowLooper.idleMainLooper(DURACION, TimeUnit.MILLISECONDS);
+            animador.encoger(DURACION);
+            ShadowLooper.idleMainLooper(DURACION, TimeUnit.MILLISECONDS);
+        }
+
+        assertSame(crecer, animador.getCrecer());
+        assertSame(encoger, animador.getEncoger());
+        assertEquals(1f, boton.getScaleX(), 1e-3);
+    }
+
+    @Test
+    public void pulsacion_noReservaMemoria() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("La JVM no cuenta la memoria reservada por hilo",
+                bean instanceof com.sun.management.ThreadMXBean);
+        hilos = (com.sun.management.ThreadMXBean) bean;
+
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            pulsar();
+        }
+        long reservados = 0;
+        for (int i = 0; i < PULSACIONES; i++) {
+            reservados += pulsar();
+        }
+
+        assertEquals("Bytes reservados en " + PULSACIONES + " pulsaciones", 0, reservados);
+    }
+
+    /**
+     * Crece y encoge el botón como en una pulsación, dejando pasar los frames de cada animación. Sólo se mide la
+     * memoria que reservan las llamadas que empiezan las animaciones, no la del looper de Robolectric, y se descuenta
+     * la que reserva la propia medida
+     *
+     * @return bytes reservados al empezar las dos animaciones.
+     */
+    private long pulsar() {
+        long id = Thread.currentThread().getId();
+        long antes = hilos.getThreadAllocatedBytes(id);
+        long medida = hilos.getThreadAllocatedBytes(id) - antes;
+
+        antes = hilos.getThreadAllocatedBytes(id);
+        animador.crecer(DURACION);
+        long reservados = hilos.getThreadAllocatedBytes(id) - antes - medida;
+        ShadowLooper.idleMainLooper(DURACION, TimeUnit.MILLISECONDS);
+
+        antes = hilos.getThreadAllocatedBytes(id);
+        animador.encoger(DURACION);
+        reservados += hilos.getThreadAllocatedBytes(id) - antes - medida;
+        ShadowLooper.idleMainLooper(DURACION, TimeUnit.MILLISECONDS);
+        return reservados;
+    }
+}
@@ -0,0 +1,126 @@
+package es.rbp.simonbp;
+
+import android.content.Intent;
+import android.content.res.Configuration;
+import android.widget.GridLayout;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import es.rbp.simonbp.core.SimonConfig;
+
+import static org.junit.Assert.*;
+
+/**
+ * Crea y destruye la partida muchas veces con Robolectric, pasando por pausa y reanudación, y comprueba que no queda
+ * ningún hilo de audio vivo ni ningún activity retenido. También comprueba que un cambio de configuración no
+ * recrea la partida.
+ * <p>
+ * El backend de notas se crea después del primer frame, así que en cada ciclo se avanza el hilo principal lo
+ * suficiente para que se dibuje. Al liberarlo no se espera al hilo de audio, así que se le da un tiempo para terminar.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class PlayActivityLifecycleTest {
+
+    private static final int CICLOS = 1000;
+
+    /**
+     * Tiempo que se avanza el hilo principal para que pase el primer frame, en milisegundos
+     */
+    private static final int FRAME = 20;
+
+    /**
+     * Tiempo máximo que se espera a que terminen los hilos de audio liberados, en milisegundos
+     */
+    private static final int ESPERA_HILOS = 2000;
+
+    private static ActivityController<PlayActivity> controlador(int botones) {
+        Intent intent = new Intent(RuntimeEnvironment.application, PlayActivity.class);
+        intent.putExtra(PlayActivity.DIFICULTAD_EXTRA, SimonConfig.DIFICIL);
+        intent.putExtra(PlayActivity.BOTONES_EXTRA, botones);
+        return Robolectric.buildActivity(PlayActivity.class, intent);
+    }
+
+    @Test
+    public void crearYDestruir_noDejaHilosNiActivities() throws InterruptedException {
+        List<WeakReference<PlayActivity>> destruidos = new ArrayList<>();
+        int maximoHilos = 0;
+        for (int i = 0; i < CICLOS; i++) {
+            ActivityController<PlayActivity> controlador = controlador(SimonConfig.NUMERO_BOTONES)
+                    .create().start().resume();
+            ShadowLooper.idleMainLooper(FRAME, TimeUnit.MILLISECONDS);
+            maximoHilos = Math.max(maximoHilos, hilosDeAudio());
+            controlador.pause().resume().pause().stop().destroy();
+            destruidos.add(new WeakReference<>(controlador.get()));
+        }
+
+        // Si no se llega a crear ningún backend la comprobación de los hilos no sirve de nada
+        assertTrue("No se ha creado ningún hilo de audio", maximoHilos > 0);
+        assertEquals(0, esperarHilosDeAudio());
+        for (int i = 0; i < 10 && vivos(destruidos) > 0; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        assertEquals(0, vivos(destruidos));
+    }
+
+    @Test
+    public void cambioDeConfiguracion_noRecreaLaPartida() throws InterruptedException {
+        ActivityController<PlayActivity> controlador = controlador(9).create().start().resume();
+        ShadowLooper.idleMainLooper(FRAME, TimeUnit.MILLISECONDS);
+        PlayActivity activity = controlador.get();
+        Configuration configuracion = new Configuration(activity.getResources().getConfiguration());
+        configuracion.screenWidthDp = configuracion.screenWidthDp / 2;
+
+        controlador.configurationChange(configuracion);
+
+        assertSame(activity, controlador.get());
+        GridLayout rejilla = activity.findViewById(R.id.tablero);
+        assertEquals(9, rejilla.getChildCount());
+        controlador.pause().stop().destroy();
+        assertEquals(0, esperarHilosDeAudio());
+    }
+
+    /**
+     * @return hilos de audio que siguen vivos después de esperar a que terminen.
+     */
+    private static int esperarHilosDeAudio() throws InterruptedException {
+        long limite = System.currentTimeMillis() + ESPERA_HILOS;
+        int hilos = hilosDeAudio();
+        while (hilos > 0 && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+            hilos = hilosDeAudio();
+        }
+        return hilos;
+    }
+
+    private static int hilosDeAudio() {
+        int hilos = 0;
+        for (Thread hilo : Thread.getAllStackTraces().keySet()) {
+            if ("PcmBackend".equals(hilo.getName()) && hilo.isAlive())
+                hilos++;
+        }
+        return hilos;
+    }
+
+    private static int vivos(List<WeakReference<PlayActivity>> referencias) {
+        int vivos = 0;
+        for (WeakReference<PlayActivity> referencia : referencias) {
+            if (referencia.get() != null)
+                vivos++;
+        }
+        return vivos;
+    }
+}
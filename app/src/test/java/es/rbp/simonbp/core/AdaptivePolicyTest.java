@@ -0,0 +1,136 @@
+package es.rbp.simonbp.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comprueba que la política adaptativa frena cuando el jugador falla y acelera cuando va sobrado y que el motor la
+ * aplica entre rondas. Lo que cuesta decidir se mide en el módulo de benchmarks.
+ */
+public class AdaptivePolicyTest {
+
+    private static PlayerStats jugador(int reaccion, int pulsaciones, int superadas, int falladas) {
+        PlayerStats stats = new PlayerStats();
+        for (int i = 0; i < pulsaciones; i++) {
+            stats.registrarReaccion(reaccion);
+        }
+        for (int i = 0; i < superadas; i++) {
+            stats.registrarRonda(true);
+        }
+        for (int i = 0; i < falladas; i++) {
+            stats.registrarRonda(false);
+        }
+        return stats;
+    }
+
+    @Test
+    public void sinDatos_empiezaAlRitmoDeLaConfiguracion() {
+        DifficultyPolicy.Ajuste ajuste = new DifficultyPolicy.Ajuste();
+        new AdaptivePolicy().decidir(new PlayerStats(), SimonConfig.paraDificultad(SimonConfig.MEDIO), ajuste);
+
+        assertEquals(SimonConfig.DURACION_PASO, ajuste.duracionPaso);
+        assertEquals(1, ajuste.notasNuevas);
+    }
+
+    @Test
+    public void muchosFallos_frenaHastaElMaximo() {
+        PlayerStats stats = jugador(600, 10, 0, 5);
+        DifficultyPolicy.Ajuste ajuste = new DifficultyPolicy.Ajuste();
+        AdaptivePolicy politica = new AdaptivePolicy();
+        SimonConfig config = SimonConfig.paraDificultad(SimonConfig.MEDIO);
+
+        politica.decidir(stats, config, ajuste);
+        assertEquals(575, ajuste.duracionPaso);
+        for (int i = 0; i < 10; i++) {
+            politica.decidir(stats, config, ajuste);
+        }
+        assertEquals(AdaptivePolicy.DURACION_PASO_MAXIMA, ajuste.duracionPaso);
+        assertEquals(1, ajuste.notasNuevas);
+    }
+
+    @Test
+    public void jugadorRapido_aceleraYLuegoAlargaLaSerie() {
+        PlayerStats stats = jugador(200, 20, 10, 0);
+        DifficultyPolicy.Ajuste ajuste = new DifficultyPolicy.Ajuste();
+        AdaptivePolicy politica = new AdaptivePolicy();
+        SimonConfig config = SimonConfig.paraDificultad(SimonConfig.MEDIO);
+
+        politica.decidir(stats, config, ajuste);
+        assertEquals(450, ajuste.duracionPaso);
+        assertEquals(1, ajuste.notasNuevas);
+        for (int i = 0; i < 30; i++) {
+            politica.decidir(stats, config, ajuste);
+        }
+        assertEquals(SimonConfig.DURACION_PASO_MINIMA, ajuste.duracionPaso);
+        assertEquals(2, ajuste.notasNuevas);
+    }
+
+    @Test
+    public void jugadorLento_mantieneElRitmo() {
+        PlayerStats stats = jugador(900, 20, 10, 0);
+        DifficultyPolicy.Ajuste ajuste = new DifficultyPolicy.Ajuste();
+        new AdaptivePolicy().decidir(stats, SimonConfig.paraDificultad(SimonConfig.MEDIO), ajuste);
+
+        assertEquals(SimonConfig.DURACION_PASO, ajuste.duracionPaso);
+        assertEquals(1, ajuste.notasNuevas);
+    }
+
+    @Test
+    public void engine_aplicaLaPoliticaEntreRondas() {
+        PlayerStats stats = new PlayerStats();
+        SimonEngine engine = new SimonEngine(SimonConfig.infinito(), new UniformGenerator(), 42);
+        engine.setAdaptacion(new AdaptivePolicy(), stats);
+        engine.start();
+        assertTrue(engine.isAdaptativo());
+        assertEquals(SimonConfig.DURACION_PASO, engine.getDuracionPaso());
+
+        int anterior = engine.getRonda();
+        boolean doble = false;
+        for (int ronda = 0; ronda < 40; ronda++) {
+            engine.finTurnoCpu();
+            for (int i = 0; i < engine.getRonda() && engine.getEstado() == SimonEngine.Estado.TURNO_JUGADOR; i++) {
+                engine.pulsar(engine.getNumero(i), 150);
+            }
+            doble |= engine.getRonda() - anterior == 2;
+            anterior = engine.getRonda();
+        }
+
+        assertEquals(40, stats.getRondas());
+        assertEquals(150, stats.getReaccionMedia(), 1e-9);
+        assertEquals(SimonConfig.DURACION_PASO_MINIMA, engine.getDuracionPaso());
+        assertTrue(doble);
+    }
+
+    @Test
+    public void engine_noPasaDeLosTurnos() {
+        // Un jugador ya rápido de partidas anteriores: la serie crece de dos en dos
+        PlayerStats stats = jugador(100, 50, 20, 0);
+        SimonEngine engine = new SimonEngine(SimonConfig.paraDificultad(SimonConfig.FACIL), new UniformGenerator(), 1);
+        engine.setAdaptacion(new AdaptivePolicy(0.35, 0.15, 1.5, 1.15, 0.5), stats);
+        engine.start();
+        while (engine.getEstado() == SimonEngine.Estado.TURNO_CPU) {
+            engine.finTurnoCpu();
+            for (int i = 0; i < engine.getRonda() && engine.getEstado() == SimonEngine.Estado.TURNO_JUGADOR; i++) {
+                engine.pulsar(engine.getNumero(i), 100);
+            }
+        }
+
+        assertEquals(SimonEngine.Estado.VICTORIA, engine.getEstado());
+        assertEquals(SimonConfig.FACIL, engine.getRonda());
+    }
+
+    @Test
+    public void engine_fallo_seRegistra() {
+        PlayerStats stats = new PlayerStats();
+        SimonEngine engine = new SimonEngine(SimonConfig.paraDificultad(SimonConfig.FACIL), new UniformGenerator(), 3);
+        engine.setAdaptacion(new AdaptivePolicy(), stats);
+        engine.start();
+        engine.finTurnoCpu();
+        engine.pulsar(engine.getNumero(0) % engine.getConfig().getNumeroBotones() + 1, 500);
+
+        assertEquals(SimonEngine.Estado.DERROTA, engine.getEstado());
+        assertEquals(1, stats.getTasaFallos(), 0);
+        assertEquals(1, stats.getPulsaciones());
+    }
+}
@@ -0,0 +1,62 @@
+package es.rbp.simonbp.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comprueba que los botones se colocan como en la rejilla de botones y que cada punto cae en el botón que debe.
+ */
+public class BoardGeometryTest {
+
+    @Test
+    public void colocar_comoUnaRejilla() {
+        BoardGeometry geometria = new BoardGeometry(Board.crear(6, 6));
+        geometria.colocar(100, 10);
+
+        // 3 columnas y 2 filas de celdas de 120
+        assertEquals(360, geometria.getAncho());
+        assertEquals(240, geometria.getAlto());
+        assertEquals(50, geometria.getRadio(), 0);
+        assertEquals(60, geometria.getCentroX(1), 0);
+        assertEquals(60, geometria.getCentroY(1), 0);
+        assertEquals(300, geometria.getCentroX(3), 0);
+        assertEquals(180, geometria.getCentroX(5), 0);
+        assertEquals(180, geometria.getCentroY(5), 0);
+    }
+
+    @Test
+    public void padEn_centrosYBordes() {
+        Board tablero = Board.crear(9, 6);
+        BoardGeometry geometria = new BoardGeometry(tablero);
+        geometria.colocar(80, 8);
+
+        for (int numero = 1; numero <= tablero.size(); numero++) {
+            float x = geometria.getCentroX(numero);
+            float y = geometria.getCentroY(numero);
+            assertEquals(numero, geometria.padEn(x, y));
+            assertEquals(numero, geometria.padEn(x + 39, y));
+            assertEquals(numero, geometria.padEn(x, y - 39));
+            // La esquina de la celda queda fuera del círculo
+            assertEquals(0, geometria.padEn(x + 39, y + 39));
+        }
+    }
+
+    @Test
+    public void padEn_fueraDelTablero() {
+        BoardGeometry geometria = new BoardGeometry(Board.crear(5, 5));
+        assertEquals(0, geometria.padEn(10, 10));
+        geometria.colocar(100, 0);
+
+        assertEquals(0, geometria.padEn(-1, 50));
+        assertEquals(0, geometria.padEn(350, 50));
+        // Tercera columna de la segunda fila: no hay sexto botón
+        assertEquals(0, geometria.padEn(250, 150));
+        assertEquals(5, geometria.padEn(150, 150));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void colocar_ladoNoValido() {
+        new BoardGeometry(Board.crear(4, 4)).colocar(0, 4);
+    }
+}
@@ -0,0 +1,116 @@
+package es.rbp.simonbp.core;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comprueba que el tablero se construye a partir de los datos, que cada número lleva a su botón y que una pulsación
+ * no reserva memoria sea cual sea el tamaño del tablero. Lo que cuesta cada pulsación se mide en el módulo de
+ * benchmarks.
+ */
+public class BoardTest {
+
+    private static final int RONDAS = 600;
+
+    @Test
+    public void crear_tableroClasico() {
+        Board tablero = Board.crear(6, 6);
+
+        assertEquals(6, tablero.size());
+        assertEquals(3, tablero.getColumnas());
+        assertEquals(2, tablero.getFilas());
+        for (int id = 1; id <= 6; id++) {
+            Pad pad = tablero.getPad(id);
+            assertEquals(id, pad.getId());
+            assertEquals(id, pad.getNota());
+            assertEquals(Board.COLORES_CLASICOS[id - 1], pad.getColor());
+        }
+    }
+
+    @Test
+    public void crear_masBotonesQueNotasRepiteLasNotas() {
+        Board tablero = Board.crear(16, 6);
+
+        assertEquals(4, tablero.getColumnas());
+        assertEquals(4, tablero.getFilas());
+        assertEquals(1, tablero.getNota(7));
+        assertEquals(4, tablero.getNota(16));
+    }
+
+    @Test
+    public void crear_coloresDistintos() {
+        Board tablero = Board.crear(SimonConfig.MAXIMO_BOTONES, SimonConfig.MAXIMO_BOTONES);
+
+        for (int a = 1; a <= tablero.size(); a++) {
+            assertEquals(0xFF000000, tablero.getPad(a).getColor() & 0xFF000000);
+            for (int b = a + 1; b <= tablero.size(); b++) {
+                assertNotEquals("Botones " + a + " y " + b, tablero.getPad(a).getColor(), tablero.getPad(b).getColor());
+            }
+        }
+        assertEquals(6, tablero.getColumnas());
+        assertEquals(6, tablero.getFilas());
+    }
+
+    @Test
+    public void hsv_coloresPrimarios() {
+        assertEquals(0xFFFF0000, Board.hsv(0, 1, 1));
+        assertEquals(0xFF00FF00, Board.hsv(120, 1, 1));
+        assertEquals(0xFF0000FF, Board.hsv(240, 1, 1));
+        assertEquals(0xFF808080, Board.hsv(200, 0, 128 / 255.0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_numerosDesordenados() {
+        new Board(new Pad[]{new Pad(2, 0, 1), new Pad(1, 0, 2)}, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void crear_demasiadosBotones() {
+        Board.crear(SimonConfig.MAXIMO_BOTONES + 1, 6);
+    }
+
+    @Test
+    public void pulsacion_noReservaMemoria() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("La JVM no cuenta la memoria reservada por hilo",
+                bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean hilos = (com.sun.management.ThreadMXBean) bean;
+        long id = Thread.currentThread().getId();
+        for (int botones : new int[]{4, 6, 9, 16, 32}) {
+            Board tablero = Board.crear(botones, 6);
+            SimonConfig config = new SimonConfig(botones, RONDAS, 0);
+            jugar(tablero, new SimonEngine(config, new UniformGenerator(), 1));
+
+            SimonEngine engine = new SimonEngine(config, new UniformGenerator(), 2);
+            long antes = hilos.getThreadAllocatedBytes(id);
+            jugar(tablero, engine);
+            long reservados = hilos.getThreadAllocatedBytes(id) - antes;
+
+            assertTrue(botones + " botones: se han reservado " + reservados + " bytes", reservados < 1024);
+        }
+    }
+
+    /**
+     * Juega una partida entera acertando siempre. Cada pulsación hace lo mismo que PlayActivity: busca el botón
+     * por su número, toma su nota y se la pasa al motor
+     */
+    private static void jugar(Board tablero, SimonEngine engine) {
+        long notas = 0;
+        engine.start();
+        while (engine.getEstado() == SimonEngine.Estado.TURNO_CPU) {
+            engine.finTurnoCpu();
+            for (int i = 0, ronda = engine.getRonda(); i < ronda; i++) {
+                int numero = engine.getNumero(i);
+                notas += tablero.getNota(numero);
+                engine.pulsar(numero);
+            }
+        }
+        assertEquals(SimonEngine.Estado.VICTORIA, engine.getEstado());
+        assertTrue(notas > 0);
+    }
+}
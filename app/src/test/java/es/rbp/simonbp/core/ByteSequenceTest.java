@@ -0,0 +1,143 @@
+package es.rbp.simonbp.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comprueba la serie sin máximo y con máximos menores.
+ */
+public class ByteSequenceTest {
+
+    private static ByteSequence aleatoria(int longitud, long semilla) {
+        Random random = new Random(semilla);
+        ByteSequence serie = new ByteSequence();
+        for (int i = 0; i < longitud; i++) {
+            serie.add(random.nextInt(6) + 1);
+        }
+        return serie;
+    }
+
+    @Test
+    public void add_get_conservanLosNumeros() {
+        Random random = new Random(1);
+        int[] esperados = new int[5000];
+        ByteSequence serie = new ByteSequence();
+        for (int i = 0; i < esperados.length; i++) {
+            esperados[i] = random.nextInt(ByteSequence.MAXIMO_POSIBLE) + 1;
+            serie.add(esperados[i]);
+        }
+
+        assertEquals(esperados.length, serie.size());
+        for (int i = 0; i < esperados.length; i++) {
+            assertEquals(esperados[i], serie.get(i));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_rechazaElCero() {
+        new ByteSequence().add(0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void get_fueraDeRango() {
+        ByteSequence serie = new ByteSequence();
+        serie.add(1);
+        serie.get(1);
+    }
+
+    @Test
+    public void clear_reutilizaLaMemoriaSinDejarRestos() {
+        ByteSequence serie = aleatoria(100, 2);
+        serie.clear();
+        serie.add(3);
+
+        assertEquals(1, serie.size());
+        assertEquals(3, serie.get(0));
+    }
+
+    @Test
+    public void startsWith_comparaPrefijos() {
+        ByteSequence a = aleatoria(1000, 3);
+        ByteSequence b = aleatoria(1000, 3);
+
+        assertTrue(a.startsWith(b, 1000));
+        assertTrue(a.startsWith(b, 43));
+
+        ByteSequence c = new ByteSequence();
+        c.setRange(a, 0, 500);
+        c.add(a.get(500) % 6 + 1);
+
+        assertTrue(a.startsWith(c, 500));
+        assertFalse(a.startsWith(c, 501));
+        assertFalse(c.startsWith(a, 502));
+    }
+
+    @Test
+    public void copyRange_extraeUnSubrango() {
+        ByteSequence serie = aleatoria(100, 4);
+        int[] destino = new int[12];
+        serie.copyRange(40, 50, destino, 2);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(serie.get(40 + i), destino[2 + i]);
+        }
+    }
+
+    @Test
+    public void setRange_copiaUnSubrango() {
+        ByteSequence serie = aleatoria(100, 5);
+        ByteSequence sub = new ByteSequence(100);
+        sub.setRange(serie, 17, 80);
+
+        assertEquals(63, sub.size());
+        for (int i = 0; i < sub.size(); i++) {
+            assertEquals(serie.get(17 + i), sub.get(i));
+        }
+    }
+
+    @Test
+    public void otrosMaximos_conservanLosNumeros() {
+        for (int maximo : new int[]{1, 2, 4, 9, 16, 32, 100, ByteSequence.MAXIMO_POSIBLE}) {
+            Random random = new Random(maximo);
+            int[] esperados = new int[3000];
+            ByteSequence serie = new ByteSequence(0, maximo);
+            for (int i = 0; i < esperados.length; i++) {
+                esperados[i] = random.nextInt(maximo) + 1;
+                serie.add(esperados[i]);
+            }
+
+            assertEquals(maximo, serie.getMaximo());
+            for (int i = 0; i < esperados.length; i++) {
+                assertEquals("Máximo " + maximo + ", posición " + i, esperados[i], serie.get(i));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_rechazaNumerosMayoresQueElMaximo() {
+        new ByteSequence(10, 16).add(17);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maximo_noSoportado() {
+        new ByteSequence(10, ByteSequence.MAXIMO_POSIBLE + 1);
+    }
+
+    @Test
+    public void startsWith_entreMaximosDistintos() {
+        ByteSequence a = aleatoria(200, 6);
+        ByteSequence b = new ByteSequence(200, 16);
+        for (int i = 0; i < a.size(); i++) {
+            b.add(a.get(i));
+        }
+
+        assertTrue(a.startsWith(b, 200));
+        assertTrue(b.startsWith(a, 137));
+        b.clear();
+        b.add(a.get(0) % 6 + 1);
+        assertFalse(a.startsWith(b, 1));
+    }
+}
@@ -0,0 +1,199 @@
+package es.rbp.simonbp.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comprueba el orden, la capacidad y el paso de comandos entre dos hilos de la cola de comandos de audio, y que
+ * disparar notas a través de {@link QueuedSource} no espera nunca al hilo de audio.
+ */
+public class CommandQueueTest {
+
+    @Test
+    public void poll_devuelveLosComandosEnOrden() {
+        CommandQueue cola = new CommandQueue(4);
+        assertEquals(CommandQueue.VACIA, cola.poll());
+
+        assertTrue(cola.offer(3));
+        assertTrue(cola.offer(-1));
+        assertTrue(cola.offer(0));
+        assertEquals(3, cola.size());
+        assertEquals(3, cola.poll());
+        assertEquals(-1, cola.poll());
+        assertEquals(0, cola.poll());
+        assertEquals(CommandQueue.VACIA, cola.poll());
+    }
+
+    @Test
+    public void offer_descartaConLaColaLlena() {
+        CommandQueue cola = new CommandQueue(3);
+        assertEquals(4, cola.getCapacidad());
+        for (int i = 1; i <= 4; i++) {
+            assertTrue(cola.offer(i));
+        }
+
+        assertFalse(cola.offer(5));
+        assertEquals(1, cola.getDescartados());
+        assertEquals(1, cola.poll());
+        assertTrue(cola.offer(6));
+        assertEquals(2, cola.poll());
+    }
+
+    @Test
+    public void offer_daLaVueltaAlBuffer() {
+        CommandQueue cola = new CommandQueue(4);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(cola.offer(i));
+            assertTrue(cola.offer(i + 1000));
+            assertEquals(i, cola.poll());
+            assertEquals(i + 1000, cola.poll());
+        }
+        assertEquals(0, cola.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void offer_comandoReservado() {
+        new CommandQueue(4).offer(CommandQueue.VACIA);
+    }
+
+    @Test
+    public void dosHilos_noPierdeNiDesordenaComandos() throws InterruptedException {
+        final int total = 1_000_000;
+        final CommandQueue cola = new CommandQueue(64);
+        final long[] suma = new long[1];
+        final boolean[] ordenado = {true};
+        Thread consumidor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                int esperado = 0;
+                while (esperado < total) {
+                    int comando = cola.poll();
+                    if (comando == CommandQueue.VACIA) {
+                        Thread.yield();
+                        continue;
+                    }
+                    if (comando != esperado)
+                        ordenado[0] = false;
+                    suma[0] += comando;
+                    esperado++;
+                }
+            }
+        });
+        consumidor.start();
+        for (int i = 0; i < total; i++) {
+            while (!cola.offer(i)) {
+                Thread.yield();
+            }
+        }
+        consumidor.join(30000);
+
+        assertFalse(consumidor.isAlive());
+        assertTrue(ordenado[0]);
+        assertEquals((long) total * (total - 1) / 2, suma[0]);
+    }
+
+    @Test
+    public void queuedSource_aplicaLosComandosAlGenerarElBloque() {
+        FuenteFalsa fuente = new FuenteFalsa(6);
+        QueuedSource cola = new QueuedSource(fuente, 8);
+        cola.trigger(2);
+        cola.trigger(7);
+        cola.stopAll();
+        cola.trigger(5);
+
+        assertEquals(0, fuente.disparos);
+        cola.render(new PcmRingBuffer(16));
+        assertEquals(2, fuente.disparos);
+        assertEquals(5, fuente.ultimaNota);
+        assertEquals(1, fuente.paradas);
+        assertEquals(1, fuente.bloques);
+    }
+
+    /**
+     * Otro hilo tiene el monitor de la fuente, como el hilo de audio mientras mezcla un bloque. Disparar a través de
+     * la cola no lo necesita, así que termina sin esperar a que se suelte. Lo que tarda se mide en el módulo de
+     * benchmarks.
+     */
+    @Test
+    public void queuedSource_noNecesitaElMonitorDeLaFuente() throws InterruptedException {
+        final FuenteFalsa fuente = new FuenteFalsa(6);
+        QueuedSource cola = new QueuedSource(fuente, 8);
+        final CountDownLatch ocupada = new CountDownLatch(1);
+        final CountDownLatch soltar = new CountDownLatch(1);
+        Thread hiloAudio = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (fuente) {
+                    ocupada.countDown();
+                    try {
+                        soltar.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        });
+        hiloAudio.start();
+        try {
+            assertTrue(ocupada.await(5, TimeUnit.SECONDS));
+            cola.trigger(3);
+            cola.stopAll();
+            assertFalse(Thread.holdsLock(fuente));
+            assertEquals(0, fuente.disparos);
+            assertEquals(0, fuente.paradas);
+        } finally {
+            soltar.countDown();
+            hiloAudio.join();
+        }
+
+        assertEquals(2, cola.aplicarComandos());
+        assertEquals(1, fuente.disparos);
+        assertEquals(1, fuente.paradas);
+    }
+
+    /**
+     * Fuente que cuenta lo que le llega y, como {@link NoteMixer}, usa su monitor en todos los métodos
+     */
+    private static class FuenteFalsa implements PcmSource {
+
+        private final int numeroNotas;
+
+        int disparos, ultimaNota, paradas, bloques;
+
+        FuenteFalsa(int numeroNotas) {
+            this.numeroNotas = numeroNotas;
+        }
+
+        @Override
+        public int getNumeroNotas() {
+            return numeroNotas;
+        }
+
+        @Override
+        public synchronized void trigger(int nota) {
+            disparos++;
+            ultimaNota = nota;
+        }
+
+        @Override
+        public synchronized int mix(short[] salida, int offset, int frames) {
+            bloques++;
+            return 0;
+        }
+
+        @Override
+        public synchronized int render(PcmRingBuffer destino) {
+            bloques++;
+            return destino.write(new short[destino.libres()], 0, destino.libres());
+        }
+
+        @Override
+        public synchronized void stopAll() {
+            paradas++;
+        }
+    }
+}
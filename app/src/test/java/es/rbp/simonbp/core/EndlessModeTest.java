@@ -0,0 +1,140 @@
+package es.rbp.simonbp.core;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Prueba de carga del modo infinito: un jugador simulado llega a 10.000 rondas y se comprueba que la partida sigue,
+ * que mostrar la serie no acumula eventos en el secuenciador y que el trabajo y la memoria de cada pulsación no crecen
+ * con las rondas. Lo que tarda cada pulsación según la ronda se mide en el módulo de benchmarks.
+ */
+public class EndlessModeTest {
+
+    private static final int RONDAS = 10000;
+
+    /**
+     * Tamaño de los bloques de rondas, del principio y del final, en los que se compara la memoria reservada
+     */
+    private static final int BLOQUE = 1000;
+
+    @Test
+    public void config_aceleraElRitmoHastaElMinimo() {
+        SimonConfig config = SimonConfig.infinito();
+
+        assertTrue(config.isInfinito());
+        assertEquals(SimonConfig.DURACION_PASO, config.getDuracionPaso(1));
+        assertTrue(config.getDuracionPaso(10) < config.getDuracionPaso(9));
+        assertEquals(SimonConfig.DURACION_PASO_MINIMA, config.getDuracionPaso(RONDAS));
+        assertEquals(SimonConfig.DURACION_PASO, SimonConfig.paraDificultad(SimonConfig.DIFICIL).getDuracionPaso(12));
+    }
+
+    @Test
+    public void infinito_noTerminaAlLlegarA12Rondas() {
+        SimonEngine engine = new SimonEngine(SimonConfig.infinito(), new UniformGenerator(), 1);
+        engine.start();
+        while (engine.getRonda() <= 20) {
+            engine.finTurnoCpu();
+            for (int i = 0; i < engine.getRonda() && engine.getEstado() == SimonEngine.Estado.TURNO_JUGADOR; i++) {
+                engine.pulsar(engine.getNumero(i));
+            }
+        }
+
+        assertFalse(engine.isTerminada());
+    }
+
+    @Test
+    public void jugadorSimulado_10000Rondas() {
+        GeneradorContado generador = new GeneradorContado();
+        final SimonEngine engine = new SimonEngine(SimonConfig.infinito(), generador, 2024);
+        NoteEngineTest.FakeClock clock = new NoteEngineTest.FakeClock();
+        Sequencer sequencer = new Sequencer(clock, 8);
+        final int[] notas = new int[1];
+        final ReplayScript replay = new ReplayScript(sequencer, new ReplayScript.Listener() {
+            @Override
+            public void onNotaOn(int numero) {
+                notas[0]++;
+            }
+
+            @Override
+            public void onNotaOff(int numero) {
+            }
+
+            @Override
+            public void onFinSerie() {
+                engine.finTurnoCpu();
+            }
+        });
+        sequencer.setListener(new Sequencer.Listener() {
+            @Override
+            public void onEvento(int tipo, int dato) {
+                replay.onEvento(tipo, dato);
+            }
+        });
+
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean hilos = bean instanceof com.sun.management.ThreadMXBean
+                ? (com.sun.management.ThreadMXBean) bean : null;
+        long id = Thread.currentThread().getId();
+        long antes = 0, primerBloque = 0, ultimoBloque = 0;
+        int maximoPendientes = 0;
+
+        engine.start();
+        while (engine.getRonda() <= RONDAS) {
+            int ronda = engine.getRonda();
+            if (hilos != null && (ronda == BLOQUE + 1 || ronda == RONDAS - BLOQUE + 1))
+                antes = hilos.getThreadAllocatedBytes(id);
+            long paso = engine.getDuracionPaso() * 1_000_000L;
+            replay.start(engine.getSerie(), ronda, clock.nanoTime(), 0, paso, paso / 2);
+            // Se avanza el reloj de una vez hasta el final de la serie: cada nota programa la siguiente
+            clock.avanzar(paso * (ronda + 1));
+            sequencer.tick();
+            maximoPendientes = Math.max(maximoPendientes, sequencer.getPendientes());
+            assertEquals(SimonEngine.Estado.TURNO_JUGADOR, engine.getEstado());
+
+            int llamadas = generador.llamadas;
+            for (int i = 0; i < ronda - 1; i++) {
+                engine.pulsar(engine.getNumero(i));
+            }
+            // Las pulsaciones que no terminan la ronda no generan nada, por larga que sea la serie
+            assertEquals(llamadas, generador.llamadas);
+            engine.pulsar(engine.getNumero(ronda - 1));
+
+            if (hilos != null && ronda == 2 * BLOQUE)
+                primerBloque = hilos.getThreadAllocatedBytes(id) - antes;
+            else if (hilos != null && ronda == RONDAS)
+                ultimoBloque = hilos.getThreadAllocatedBytes(id) - antes;
+        }
+
+        assertEquals((long) RONDAS * (RONDAS + 1) / 2, notas[0]);
+        assertEquals(SimonEngine.Estado.TURNO_CPU, engine.getEstado());
+        assertTrue("Eventos pendientes: " + maximoPendientes, maximoPendientes <= 2);
+        // Un paso nuevo por ronda, sin volver a generar la serie
+        assertEquals(RONDAS + 1, generador.llamadas);
+        assertEquals(RONDAS + 1, engine.getSerie().size());
+
+        Assume.assumeTrue("La JVM no cuenta la memoria reservada por hilo", hilos != null);
+        // La serie sólo reserva al doblar su capacidad, y en las últimas rondas no le toca: la memoria por pulsación
+        // no crece con las rondas
+        assertTrue("Rondas " + (RONDAS - BLOQUE + 1) + "-" + RONDAS + ": " + ultimoBloque + " bytes, rondas "
+                + (BLOQUE + 1) + "-" + 2 * BLOQUE + ": " + primerBloque + " bytes", ultimoBloque <= primerBloque);
+    }
+
+    /**
+     * Generador uniforme que cuenta los números que genera
+     */
+    private static class GeneradorContado extends UniformGenerator {
+
+        private int llamadas;
+
+        @Override
+        public int next(int numeroBotones) {
+            llamadas++;
+            return super.next(numeroBotones);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package es.rbp.simonbp.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GameHistoryStoreTest {
+
+    @Rule
+    public TemporaryFolder carpeta = new TemporaryFolder();
+
+    private static GameRecord partida(long fecha, int turnos, int rondas, int duracion) {
+        return new GameRecord(fecha, fecha * 31, turnos, rondas, duracion, rondas == turnos,
+                new int[]{250, 180, 16000, 0});
+    }
+
+    @Test
+    public void leaderboard_ordenaPorRondasYDuracion() {
+        Leaderboard tabla = new Leaderboard(3);
+        tabla.add(partida(1, 0, 5, 1000));
+        tabla.add(partida(2, 0, 8, 5000));
+        tabla.add(partida(3, 0, 8, 4000));
+        tabla.add(partida(4, 0, 2, 100));
+
+        assertEquals(3, tabla.size());
+        assertEquals(3, tabla.get(0).getFecha());
+        assertEquals(2, tabla.get(1).getFecha());
+        assertEquals(1, tabla.get(2).getFecha());
+        assertFalse(tabla.add(partida(5, 0, 5, 1000)));
+        assertEquals(0, tabla.get(0).getTiemposReaccion().length);
+    }
+
+    @Test
+    public void partidas_sobrevivenAReabrir() throws IOException {
+        File directorio = carpeta.newFolder();
+        GameHistoryStore store = new GameHistoryStore(directorio, 2);
+        store.record(partida(1, SimonConfig.FACIL, 6, 9000));
+        store.record(partida(2, SimonConfig.FACIL, 3, 4000));
+        store.record(partida(3, SimonConfig.INFINITO, 40, 90000));
+        store.record(partida(4, SimonConfig.FACIL, 6, 8000));
+        store.close();
+
+        GameHistoryStore abierto = new GameHistoryStore(directorio, 2);
+        assertEquals(4, abierto.getTotal());
+        List<GameRecord> top = abierto.getTop(SimonConfig.FACIL, 5);
+        assertEquals(2, top.size());
+        assertEquals(4, top.get(0).getFecha());
+        assertEquals(1, top.get(1).getFecha());
+        assertEquals(40, abierto.getMejor(SimonConfig.INFINITO).getRondas());
+        assertNull(abierto.getMejor(SimonConfig.DIFICIL));
+
+        List<GameRecord> todas = abierto.readAll();
+        assertEquals(4, todas.size());
+        GameRecord tercera = todas.get(2);
+        assertEquals(93, tercera.getSemilla());
+        assertEquals(90000, tercera.getDuracion());
+        assertArrayEquals(new int[]{250, 180, 16000, 0}, tercera.getTiemposReaccion());
+        abierto.close();
+    }
+
+    @Test
+    public void sinIndice_seReconstruyeDesdeElLog() throws IOException {
+        File directorio = carpeta.newFolder();
+        GameHistoryStore store = new GameHistoryStore(directorio);
+        for (int i = 0; i < 50; i++) {
+            store.record(partida(i, SimonConfig.MEDIO, i % 10, 1000));
+        }
+        store.close();
+        assertTrue(new File(directorio, GameHistoryStore.FICHERO_INDICE).delete());
+
+        GameHistoryStore abierto = new GameHistoryStore(directorio);
+        assertEquals(50, abierto.getTotal());
+        assertEquals(9, abierto.getMejor(SimonConfig.MEDIO).getRondas());
+        abierto.close();
+        assertTrue(new File(directorio, GameHistoryStore.FICHERO_INDICE).exists());
+    }
+
+    @Test
+    public void registroCortado_seDescartaYSeTruncaElLog() throws IOException {
+        File directorio = carpeta.newFolder();
+        GameHistoryStore store = new GameHistoryStore(directorio);
+        store.record(partida(1, SimonConfig.DIFICIL, 12, 1000));
+        store.record(partida(2, SimonConfig.DIFICIL, 4, 1000));
+        store.close();
+        assertTrue(new File(directorio, GameHistoryStore.FICHERO_INDICE).delete());
+
+        File log = new File(directorio, GameHistoryStore.FICHERO_LOG);
+        long longitud = log.length();
+        RandomAccessFile fichero = new RandomAccessFile(log, "rw");
+        fichero.setLength(longitud - 3);
+        fichero.close();
+
+        GameHistoryStore abierto = new GameHistoryStore(directorio);
+        assertEquals(1, abierto.getTotal());
+        assertTrue(log.length() < longitud - 3);
+        abierto.record(partida(3, SimonConfig.DIFICIL, 7, 1000));
+        abierto.close();
+
+        GameHistoryStore reabierto = new GameHistoryStore(directorio);
+        assertEquals(2, reabierto.readAll().size());
+        assertEquals(7, reabierto.getTop(SimonConfig.DIFICIL, 2).get(1).getRondas());
+        reabierto.close();
+    }
+
+    @Test
+    public void indiceAtrasado_leeSoloLaColaDelLog() throws IOException {
+        File directorio = carpeta.newFolder();
+        GameHistoryStore store = new GameHistoryStore(directorio);
+        store.record(partida(1, SimonConfig.FACIL, 2, 1000));
+        store.close();
+        File indice = new File(directorio, GameHistoryStore.FICHERO_INDICE);
+        File copia = carpeta.newFile();
+        assertTrue(indice.renameTo(copia));
+
+        store = new GameHistoryStore(directorio);
+        store.record(partida(2, SimonConfig.FACIL, 5, 1000));
+        store.close();
+        // El índice vuelve a ser el de la primera partida, como si la app hubiera muerto antes de reescribirlo
+        assertTrue(copia.renameTo(indice));
+
+        GameHistoryStore abierto = new GameHistoryStore(directorio);
+        assertEquals(2, abierto.getTotal());
+        assertEquals(5, abierto.getMejor(SimonConfig.FACIL).getRondas());
+        abierto.close();
+    }
+
+    @Test
+    public void partidaConValoresNegativos_seRechazaAlRegistrarla() throws IOException {
+        File directorio = carpeta.newFolder();
+        GameHistoryStore store = new GameHistoryStore(directorio);
+        store.record(partida(1, SimonConfig.FACIL, 3, 4000));
+        try {
+            store.record(new GameRecord(2, 62, SimonConfig.FACIL, 4, 5000, false, new int[]{250, -3}));
+            fail("Acepta un tiempo de reacción negativo");
+        } catch (IllegalArgumentException esperada) {
+            // Correcto
+        }
+        store.record(partida(3, SimonConfig.FACIL, 5, 6000));
+        store.close();
+
+        GameHistoryStore abierto = new GameHistoryStore(directorio);
+        assertEquals(2, abierto.getTotal());
+        assertEquals(2, abierto.readAll().size());
+        abierto.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void ficheroAjeno_noSeAbre() throws IOException {
+        File directorio = carpeta.newFolder();
+        RandomAccessFile fichero = new RandomAccessFile(new File(directorio, GameHistoryStore.FICHERO_LOG), "rw");
+        fichero.writeLong(0x1234567890L);
+        fichero.close();
+
+        new GameHistoryStore(directorio);
+    }
+}
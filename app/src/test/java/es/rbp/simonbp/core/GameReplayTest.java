@@ -0,0 +1,299 @@
+package es.rbp.simonbp.core;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comprueba la grabación de partidas, su formato en disco y que la repetición muestra lo mismo que vio el jugador.
+ */
+public class GameReplayTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Rule
+    public TemporaryFolder carpeta = new TemporaryFolder();
+
+    private NoteEngineTest.FakeClock clock;
+
+    private Sequencer sequencer;
+
+    private ByteSequence serie;
+
+    /**
+     * Partida de dos rondas con la serie 3, 1, 2: acierta la primera y falla el segundo paso de la segunda
+     */
+    private GameReplay partida() {
+        GameRecorder recorder = new GameRecorder();
+        recorder.reset(77, 4, SimonConfig.FACIL);
+        recorder.ronda(1, 500, 1000);
+        recorder.listo(1500);
+        recorder.pulsacion(3, GameRecorder.ACIERTO, 1800);
+        recorder.pulsacion(3, GameRecorder.REBOTE, 1810);
+        recorder.ronda(2, 400, 2500);
+        recorder.pulsacion(4, GameRecorder.IGNORADA, 2600);
+        recorder.listo(3300);
+        recorder.pulsacion(3, GameRecorder.ACIERTO, 3700);
+        recorder.pulsacion(2, GameRecorder.FALLO, 3900);
+        recorder.fin(false, 3900);
+        return recorder.exportar(123456789L, serie);
+    }
+
+    @Before
+    public void setUp() {
+        clock = new NoteEngineTest.FakeClock();
+        sequencer = new Sequencer(clock, 16);
+        serie = new ByteSequence(8, 4);
+        serie.add(3);
+        serie.add(1);
+        serie.add(2);
+    }
+
+    @Test
+    public void recorder_guardaTipoDatoEInstante() {
+        GameReplay repeticion = partida();
+
+        assertEquals(12, repeticion.size());
+        assertFalse(repeticion.isTruncada());
+        assertEquals(GameRecorder.PASO, repeticion.getTipo(0));
+        assertEquals(500, repeticion.getDato(0));
+        assertEquals(GameRecorder.RONDA, repeticion.getTipo(1));
+        assertEquals(1, repeticion.getDato(1));
+        assertEquals(GameRecorder.PULSACION, repeticion.getTipo(4));
+        assertEquals(3, repeticion.getNumero(4));
+        assertEquals(GameRecorder.REBOTE, repeticion.getVeredicto(4));
+        assertEquals(1810, repeticion.getInstante(4));
+        assertEquals(3900, repeticion.getDuracion());
+        assertEquals(3, repeticion.getSerie().size());
+    }
+
+    @Test
+    public void recorder_alDesbordarseEmpiezaEnUnaRondaCompleta() {
+        GameRecorder recorder = new GameRecorder(10);
+        recorder.reset(1, 4, SimonConfig.INFINITO);
+        for (int ronda = 1; ronda <= 3; ronda++) {
+            recorder.ronda(ronda, 500, ronda * 1000);
+            recorder.listo(ronda * 1000 + 500);
+            recorder.pulsacion(1, GameRecorder.ACIERTO, ronda * 1000 + 700);
+        }
+        assertEquals(10, recorder.size());
+        assertEquals(2, recorder.getDescartados());
+
+        GameReplay repeticion = recorder.exportar(0, serie);
+        assertTrue(repeticion.isTruncada());
+        // Se descarta también el resto de la primera ronda y empieza en el paso de la segunda
+        assertEquals(8, repeticion.size());
+        assertEquals(GameRecorder.PASO, repeticion.getTipo(0));
+        assertEquals(2000, repeticion.getInstante(0));
+    }
+
+    @Test
+    public void recorder_partidaRestauradaEmpiezaEnLaSiguienteRonda() {
+        GameRecorder recorder = new GameRecorder();
+        recorder.reset(1, 4, SimonConfig.FACIL, true);
+        recorder.pulsacion(1, GameRecorder.ACIERTO, 100);
+        recorder.ronda(3, 500, 600);
+        recorder.listo(2100);
+
+        GameReplay repeticion = recorder.exportar(0, serie);
+        assertTrue(repeticion.isTruncada());
+        assertEquals(3, repeticion.size());
+        assertEquals(600, repeticion.getInstante(0));
+    }
+
+    @Test
+    public void bytes_idaYVuelta() {
+        GameReplay repeticion = partida();
+        byte[] datos = repeticion.toBytes();
+        GameReplay leida = GameReplay.fromBytes(datos);
+
+        assertEquals(123456789L, leida.getFecha());
+        assertEquals(77, leida.getSemilla());
+        assertEquals(4, leida.getNumeroBotones());
+        assertEquals(SimonConfig.FACIL, leida.getTurnos());
+        assertEquals(12, leida.size());
+        for (int i = 0; i < repeticion.size(); i++) {
+            assertEquals(repeticion.getTipo(i), leida.getTipo(i));
+            assertEquals(repeticion.getDato(i), leida.getDato(i));
+            assertEquals(repeticion.getInstante(i), leida.getInstante(i));
+        }
+        assertTrue(leida.getSerie().startsWith(serie, 3));
+        // Cabecera de 22 bytes, la serie y unos 3 bytes por evento
+        assertTrue(datos.length + " bytes", datos.length < 22 + 4 + 12 * 4);
+    }
+
+    @Test
+    public void bytes_pulsacionAnteriorAlEventoPrevio() {
+        GameRecorder recorder = new GameRecorder();
+        recorder.reset(1, 4, SimonConfig.FACIL);
+        recorder.listo(1000);
+        recorder.pulsacion(2, GameRecorder.REBOTE, 990);
+
+        GameReplay leida = GameReplay.fromBytes(recorder.exportar(0, serie).toBytes());
+        assertEquals(990, leida.getInstante(1));
+    }
+
+    @Test
+    public void bytes_dañados() {
+        byte[] datos = partida().toBytes();
+        try {
+            GameReplay.fromBytes(Arrays.copyOf(datos, datos.length - 1));
+            fail("Acepta una repetición incompleta");
+        } catch (IllegalArgumentException esperada) {
+            // Correcto
+        }
+        datos[0] = 9;
+        try {
+            GameReplay.fromBytes(datos);
+            fail("Acepta una versión desconocida");
+        } catch (IllegalArgumentException esperada) {
+            // Correcto
+        }
+    }
+
+    @Test
+    public void store_conservaLasUltimas() throws IOException {
+        File directorio = carpeta.newFolder();
+        ReplayStore store = new ReplayStore(directorio, 2);
+        GameReplay repeticion = partida();
+        for (long fecha = 1; fecha <= 3; fecha++) {
+            store.save(new GameReplay(fecha, fecha, 4, SimonConfig.FACIL, repeticion.getSerie(), new int[0], false));
+        }
+        store.close();
+
+        ReplayStore abierto = new ReplayStore(directorio, 2);
+        List<Long> fechas = abierto.list();
+        assertEquals(Arrays.asList(3L, 2L), fechas);
+        assertEquals(3, abierto.getUltima().getSemilla());
+        abierto.close();
+    }
+
+    @Test
+    public void store_informaDeCadaErrorUnaVez() throws IOException {
+        File directorio = carpeta.newFolder();
+        // Un directorio con el nombre del fichero temporal impide escribir la repetición de fecha 1
+        assertTrue(new File(directorio, 1 + ReplayStore.EXTENSION + ".tmp").mkdir());
+        ReplayStore store = new ReplayStore(directorio, 2);
+        GameReplay repeticion = partida();
+        store.save(new GameReplay(1, 1, 4, SimonConfig.FACIL, repeticion.getSerie(), new int[0], false));
+        try {
+            store.flush();
+            fail("No informa del error de escritura");
+        } catch (IOException esperada) {
+            // Correcto
+        }
+
+        store.save(new GameReplay(2, 2, 4, SimonConfig.FACIL, repeticion.getSerie(), new int[0], false));
+        assertEquals(Arrays.asList(2L), store.list());
+        assertEquals(2, store.getUltima().getSemilla());
+        store.close();
+    }
+
+    /**
+     * Apunta lo que hace la repetición con el milisegundo del reloj en el que llega
+     */
+    private class Registro implements ReplayPlayer.Listener, Sequencer.Listener {
+
+        final StringBuilder eventos = new StringBuilder();
+
+        final long inicio = clock.nanoTime();
+
+        ReplayPlayer player;
+
+        private void apuntar(String evento) {
+            if (eventos.length() > 0)
+                eventos.append(", ");
+            eventos.append((clock.nanoTime() - inicio) / MS).append(' ').append(evento);
+        }
+
+        @Override
+        public void onEvento(int tipo, int dato) {
+            assertTrue(player.onEvento(tipo, dato));
+        }
+
+        @Override
+        public void onRonda(int ronda) {
+            apuntar("ronda " + ronda);
+        }
+
+        @Override
+        public void onNotaOn(int numero) {
+            apuntar("on " + numero);
+        }
+
+        @Override
+        public void onNotaOff(int numero) {
+        }
+
+        @Override
+        public void onTurnoJugador() {
+            apuntar("turno");
+        }
+
+        @Override
+        public void onPulsacion(int numero, int esperado, int veredicto) {
+            apuntar("pulsa " + numero + "/" + esperado + "/" + veredicto);
+        }
+
+        @Override
+        public void onFin(boolean victoria) {
+            apuntar("fin " + victoria);
+        }
+    }
+
+    private Registro reproducir(long desde, float velocidad) {
+        Registro registro = new Registro();
+        registro.player = new ReplayPlayer(sequencer, partida(), registro);
+        sequencer.setListener(registro);
+        registro.player.start(desde, velocidad);
+        sequencer.tick();
+        while (sequencer.getPendientes() > 0) {
+            clock.avanzar(MS);
+            sequencer.tick();
+        }
+        assertTrue(registro.player.isTerminada());
+        return registro;
+    }
+
+    @Test
+    public void player_reproduceConLosMismosTiempos() {
+        Registro registro = reproducir(0, 1);
+
+        assertEquals("1000 ronda 1, 1000 on 3, 1500 turno, 1800 pulsa 3/3/0, 1810 pulsa 3/0/3, "
+                + "2500 ronda 2, 2500 on 3, 2600 pulsa 4/0/2, 2900 on 1, 3300 turno, 3700 pulsa 3/3/0, "
+                + "3900 pulsa 2/1/1, 3900 fin false", registro.eventos.toString());
+        assertEquals(3900, registro.player.getPosicion());
+    }
+
+    @Test
+    public void player_aCuatroVeces() {
+        Registro registro = reproducir(0, 4);
+
+        assertEquals("250 ronda 1, 250 on 3, 375 turno, 450 pulsa 3/3/0, 453 pulsa 3/0/3, "
+                + "625 ronda 2, 625 on 3, 650 pulsa 4/0/2, 725 on 1, 825 turno, 925 pulsa 3/3/0, "
+                + "975 pulsa 2/1/1, 975 fin false", registro.eventos.toString());
+    }
+
+    @Test
+    public void player_saltarAMitadDeLaSerieEmpiezaLaRonda() {
+        Registro registro = reproducir(2700, 1);
+
+        assertEquals("0 ronda 2, 0 on 3, 100 pulsa 4/0/2, 400 on 1, 800 turno, 1200 pulsa 3/3/0, "
+                + "1400 pulsa 2/1/1, 1400 fin false", registro.eventos.toString());
+    }
+
+    @Test
+    public void player_saltarAlTurnoDelJugador() {
+        Registro registro = reproducir(3800, 2);
+
+        assertEquals("0 ronda 2, 50 pulsa 2/1/1, 50 fin false", registro.eventos.toString());
+    }
+}
@@ -0,0 +1,145 @@
+package es.rbp.simonbp.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comprueba que una partida guardada en una foto y restaurada sigue exactamente igual que la original, que la foto
+ * ocupa pocos bytes y que las fotos dañadas se rechazan.
+ */
+public class GameSnapshotTest {
+
+    private static SimonEngine partida(int turnos, int numeroBotones, long semilla) {
+        SimonEngine engine = new SimonEngine(SimonConfig.paraDificultad(turnos, numeroBotones),
+                new UniformGenerator(), semilla);
+        engine.start();
+        return engine;
+    }
+
+    /**
+     * Juega sin fallos hasta la ronda indicada y pulsa los primeros botones de esa ronda
+     */
+    private static void jugarHasta(SimonEngine engine, int ronda, int posicion) {
+        while (engine.getRonda() < ronda) {
+            engine.finTurnoCpu();
+            engine.pulsar(engine.getNumero(engine.getPosicion()));
+        }
+        engine.finTurnoCpu();
+        while (engine.getPosicion() < posicion) {
+            engine.pulsar(engine.getNumero(engine.getPosicion()));
+        }
+    }
+
+    private static SimonEngine guardarYRestaurar(SimonEngine engine) {
+        byte[] datos = engine.snapshot().toBytes();
+        return GameSnapshot.fromBytes(datos).restore(engine.getConfig(), new UniformGenerator());
+    }
+
+    private static void assertMismoEstado(SimonEngine esperado, SimonEngine real) {
+        assertEquals(esperado.getEstado(), real.getEstado());
+        assertEquals(esperado.getRonda(), real.getRonda());
+        assertEquals(esperado.getPosicion(), real.getPosicion());
+        assertEquals(esperado.getNumTruco(), real.getNumTruco());
+        assertEquals(esperado.getSemilla(), real.getSemilla());
+        assertTrue(real.getSerie().startsWith(esperado.getSerie(), esperado.getRonda()));
+        assertEquals(esperado.getSesion().getNumEntradas(), real.getSesion().getNumEntradas());
+        assertEquals(esperado.getSesion().getUltimaEntrada(), real.getSesion().getUltimaEntrada());
+    }
+
+    @Test
+    public void restore_sigueIgualQueLaOriginal() {
+        SimonEngine original = partida(SimonConfig.DIFICIL, 6, 1234);
+        jugarHasta(original, 7, 3);
+        original.usarTruco();
+
+        SimonEngine restaurada = guardarYRestaurar(original);
+        assertMismoEstado(original, restaurada);
+
+        // Las dos terminan igual: el generador de la restaurada está en el mismo punto
+        for (SimonEngine engine : new SimonEngine[]{original, restaurada}) {
+            while (!engine.isTerminada()) {
+                engine.finTurnoCpu();
+                engine.pulsar(engine.getNumero(engine.getPosicion()));
+            }
+        }
+        assertEquals(SimonEngine.Estado.VICTORIA, restaurada.getEstado());
+        assertMismoEstado(original, restaurada);
+    }
+
+    @Test
+    public void restore_enCadaEstado() {
+        SimonEngine esperando = new SimonEngine(SimonConfig.paraDificultad(SimonConfig.FACIL),
+                new UniformGenerator(), 5);
+        assertMismoEstado(esperando, guardarYRestaurar(esperando));
+
+        SimonEngine cpu = partida(SimonConfig.FACIL, 6, 5);
+        assertEquals(SimonEngine.Estado.TURNO_CPU, cpu.getEstado());
+        assertMismoEstado(cpu, guardarYRestaurar(cpu));
+
+        SimonEngine derrota = partida(SimonConfig.FACIL, 6, 5);
+        jugarHasta(derrota, 3, 1);
+        derrota.pulsar(derrota.getNumero(derrota.getPosicion()) % 6 + 1);
+        assertEquals(SimonEngine.Estado.DERROTA, derrota.getEstado());
+        assertMismoEstado(derrota, guardarYRestaurar(derrota));
+    }
+
+    @Test
+    public void restore_tablerosGrandesYModoInfinito() {
+        for (int botones : new int[]{2, 7, 8, 16, 32}) {
+            SimonEngine engine = partida(SimonConfig.INFINITO, botones, botones);
+            jugarHasta(engine, 200, 150);
+            assertMismoEstado(engine, guardarYRestaurar(engine));
+        }
+    }
+
+    @Test
+    public void toBytes_ocupaPocosBytes() {
+        SimonEngine engine = partida(SimonConfig.DIFICIL, 6, System.nanoTime());
+        jugarHasta(engine, 12, 11);
+
+        byte[] datos = engine.snapshot().toBytes();
+        // 17 bytes de cabecera como mucho y 12 pasos de 3 bits
+        assertTrue("Ocupa " + datos.length, datos.length <= 17 + 5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void restore_otraConfiguracion() {
+        SimonEngine engine = partida(SimonConfig.MEDIO, 6, 1);
+        GameSnapshot.fromBytes(engine.snapshot().toBytes()).restore(SimonConfig.paraDificultad(SimonConfig.MEDIO, 9),
+                new UniformGenerator());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void restore_otroGenerador() {
+        SimonEngine engine = partida(SimonConfig.MEDIO, 6, 1);
+        jugarHasta(engine, 8, 0);
+        GameSnapshot.fromBytes(engine.snapshot().toBytes()).restore(engine.getConfig(), new NoRepeatGenerator());
+    }
+
+    @Test
+    public void fromBytes_rechazaFotosDanadas() {
+        SimonEngine engine = partida(SimonConfig.DIFICIL, 6, 99);
+        jugarHasta(engine, 6, 2);
+        byte[] datos = engine.snapshot().toBytes();
+
+        for (int longitud = 0; longitud < datos.length; longitud++) {
+            try {
+                GameSnapshot.fromBytes(Arrays.copyOf(datos, longitud));
+                fail("Acepta una foto de " + longitud + " bytes");
+            } catch (IllegalArgumentException e) {
+                // Correcto
+            }
+        }
+        byte[] otraVersion = datos.clone();
+        otraVersion[0] = 99;
+        try {
+            GameSnapshot.fromBytes(otraVersion);
+            fail("Acepta otra versión");
+        } catch (IllegalArgumentException e) {
+            // Correcto
+        }
+    }
+}
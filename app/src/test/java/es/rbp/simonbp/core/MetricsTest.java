@@ -0,0 +1,196 @@
+package es.rbp.simonbp.core;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+    /**
+     * Error relativo máximo de un percentil
+     */
+    private static final double ERROR = 1.0 / LatencyHistogram.SUBCUBETAS;
+
+    @Test
+    public void histograma_cubetasContiguas() {
+        for (int i = 1; i < LatencyHistogram.CUBETAS; i++) {
+            assertEquals(LatencyHistogram.superior(i - 1) + 1, LatencyHistogram.inferior(i));
+            assertEquals(i, LatencyHistogram.indice(LatencyHistogram.inferior(i)));
+            assertEquals(i, LatencyHistogram.indice(LatencyHistogram.superior(i)));
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.superior(LatencyHistogram.CUBETAS - 1));
+    }
+
+    @Test
+    public void histograma_percentilesConErrorAcotado() {
+        LatencyHistogram histograma = new LatencyHistogram();
+        for (long valor = 1; valor <= 1_000_000; valor++) {
+            histograma.record(valor * 1000);
+        }
+
+        assertEquals(1_000_000, histograma.getMuestras());
+        assertEquals(1000, histograma.getMinimo());
+        assertEquals(1_000_000_000L, histograma.getMaximo());
+        assertEquals(500_000_000L, histograma.getPercentil(50), 500_000_000L * ERROR);
+        assertEquals(990_000_000L, histograma.getPercentil(99), 990_000_000L * ERROR);
+        assertEquals(1_000_000_000L, histograma.getPercentil(100));
+        assertEquals(1000, histograma.getPercentil(0), 1000 * ERROR);
+    }
+
+    @Test
+    public void histograma_addSumaLasMuestras() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        for (long valor = 1; valor <= 1000; valor++) {
+            (valor % 2 == 0 ? a : b).record(valor * 1000);
+        }
+        a.add(b);
+        a.add(new LatencyHistogram());
+
+        assertEquals(1000, a.getMuestras());
+        assertEquals(500_500_000L, a.getTotal());
+        assertEquals(1000, a.getMinimo());
+        assertEquals(1_000_000, a.getMaximo());
+        assertEquals(500_000, a.getPercentil(50), 500_000 * ERROR);
+    }
+
+    @Test
+    public void desactivadas_noRegistranNada() {
+        Metrics metrics = new Metrics(false);
+        metrics.increment(Metrics.Contador.NOTAS);
+        metrics.record(Metrics.Histograma.REACCION, 1000);
+        Metrics.DESACTIVADAS.increment(Metrics.Contador.NOTAS);
+
+        assertEquals(0, metrics.get(Metrics.Contador.NOTAS));
+        assertEquals(0, metrics.snapshot().getMuestras(Metrics.Histograma.REACCION));
+        assertEquals(0, Metrics.DESACTIVADAS.snapshot().get(Metrics.Contador.NOTAS));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void desactivadas_noSePuedenActivar() {
+        Metrics.DESACTIVADAS.setActivo(true);
+    }
+
+    @Test
+    public void variosHilos_sinPerderMuestras() throws InterruptedException {
+        final Metrics metrics = new Metrics(true);
+        final int porHilo = 200_000;
+        Thread[] hilos = new Thread[4];
+        for (int h = 0; h < hilos.length; h++) {
+            final int valor = (h + 1) * 1000;
+            hilos[h] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < porHilo; i++) {
+                        metrics.increment(Metrics.Contador.PULSACIONES);
+                        metrics.record(Metrics.Histograma.TOQUE_SONIDO, valor);
+                    }
+                }
+            });
+            hilos[h].start();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(hilos.length * porHilo, snapshot.get(Metrics.Contador.PULSACIONES));
+        assertEquals(hilos.length * porHilo, snapshot.getMuestras(Metrics.Histograma.TOQUE_SONIDO));
+        assertEquals(1000, snapshot.getMinimo(Metrics.Histograma.TOQUE_SONIDO));
+        assertEquals(4000, snapshot.getMaximo(Metrics.Histograma.TOQUE_SONIDO));
+        assertEquals(2500, snapshot.getMedia(Metrics.Histograma.TOQUE_SONIDO));
+    }
+
+    @Test
+    public void registrar_noReservaMemoria() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue("La JVM no cuenta la memoria reservada por hilo",
+                bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean hilos = (com.sun.management.ThreadMXBean) bean;
+        long id = Thread.currentThread().getId();
+        Metrics metrics = new Metrics(true);
+        for (int i = 0; i < 100_000; i++) {
+            metrics.record(Metrics.Histograma.JITTER_SERIE, i);
+        }
+
+        long antes = hilos.getThreadAllocatedBytes(id);
+        for (int i = 0; i < 1_000_000; i++) {
+            metrics.increment(Metrics.Contador.NOTAS);
+            metrics.record(Metrics.Histograma.JITTER_SERIE, i * 37L);
+        }
+        long reservados = hilos.getThreadAllocatedBytes(id) - antes;
+
+        assertTrue("Se han reservado " + reservados + " bytes", reservados < 1024);
+    }
+
+    /**
+     * Con un reloj falso: cada toque llega a play() entre 0 y 450 µs después del evento y el backend tarda 200 µs
+     * en aceptar la nota
+     */
+    @Test
+    public void toqueSonido_cuentaDesdeElToque() {
+        Metrics metrics = new Metrics(true);
+        NoteEngineTest.FakeClock clock = new NoteEngineTest.FakeClock();
+        NoteEngineTest.FakeBackend backend = new NoteEngineTest.FakeBackend(clock, 6, 200_000);
+        NoteEngine engine = new NoteEngine(backend, clock, metrics);
+        for (int i = 0; i < 1000; i++) {
+            long instante = clock.nanoTime();
+            clock.avanzar(i % 10 * 50_000L);
+            engine.play(i % 6 + 1, instante);
+        }
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(1000, snapshot.get(Metrics.Contador.NOTAS));
+        assertEquals(200_000, snapshot.getMinimo(Metrics.Histograma.TOQUE_SONIDO));
+        assertEquals(650_000, snapshot.getMaximo(Metrics.Histograma.TOQUE_SONIDO));
+        assertEquals(650_000, snapshot.getPercentil(Metrics.Histograma.TOQUE_SONIDO, 99), 650_000 * ERROR);
+        assertEquals(200_000, snapshot.getPercentil(Metrics.Histograma.BLOQUEO_PLAY, 99), 200_000 * ERROR);
+    }
+
+    @Test
+    public void jitterSerie_limitadoAUnFrame() {
+        Metrics metrics = new Metrics(true);
+        NoteEngineTest.FakeClock clock = new NoteEngineTest.FakeClock();
+        Sequencer sequencer = new Sequencer(clock, 8);
+        final ReplayScript replay = new ReplayScript(sequencer, new ReplayScript.Listener() {
+            @Override
+            public void onNotaOn(int numero) {
+            }
+
+            @Override
+            public void onNotaOff(int numero) {
+            }
+
+            @Override
+            public void onFinSerie() {
+            }
+        }, metrics);
+        sequencer.setListener(new Sequencer.Listener() {
+            @Override
+            public void onEvento(int tipo, int dato) {
+                replay.onEvento(tipo, dato);
+            }
+        });
+        ByteSequence serie = new ByteSequence();
+        for (int i = 0; i < 200; i++) {
+            serie.add(i % 6 + 1);
+        }
+
+        long frame = 16_666_667L;
+        replay.start(serie, serie.size(), clock.nanoTime(), 0, 500_000_000L, 250_000_000L);
+        while (sequencer.getPendientes() > 0) {
+            clock.avanzar(frame);
+            sequencer.tick();
+        }
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(200, snapshot.getMuestras(Metrics.Histograma.JITTER_SERIE));
+        assertEquals(1, snapshot.get(Metrics.Contador.SERIES));
+        assertTrue(snapshot.toJson(), snapshot.getMaximo(Metrics.Histograma.JITTER_SERIE) <= frame);
+        assertTrue(snapshot.toJson().contains("\"JITTER_SERIE\":{\"muestras\":200"));
+    }
+}
@@ -0,0 +1,288 @@
+package es.rbp.simonbp.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comprueba las reglas de las partidas de varios jugadores repitiendo trazas de entradas grabadas, y que la misma
+ * semilla y la misma traza dan siempre la misma partida.
+ */
+public class MultiplayerEngineTest {
+
+    /**
+     * Semilla de las trazas grabadas. Con 6 botones su serie empieza por 1 3 5 6 6 5
+     */
+    private static final long SEMILLA = 42;
+
+    /**
+     * Listener que apunta los eventos recibidos en orden
+     */
+    private static class Registro implements MultiplayerListener {
+
+        final StringBuilder eventos = new StringBuilder();
+
+        @Override
+        public void onTurnoCpu(int ronda) {
+            apuntar("cpu" + ronda);
+        }
+
+        @Override
+        public void onTurnoJugador(int jugador) {
+            apuntar("turno" + jugador);
+        }
+
+        @Override
+        public void onJugadorListo(int jugador) {
+            apuntar("listo" + jugador);
+        }
+
+        @Override
+        public void onEliminado(int jugador) {
+            apuntar("fuera" + jugador);
+        }
+
+        @Override
+        public void onFin(int ganador) {
+            apuntar("fin" + ganador);
+        }
+
+        private void apuntar(String evento) {
+            if (eventos.length() > 0)
+                eventos.append(' ');
+            eventos.append(evento);
+        }
+
+        @Override
+        public String toString() {
+            return eventos.toString();
+        }
+    }
+
+    private static MultiplayerEngine nuevaPartida(MultiplayerEngine.Modo modo, int turnos, int jugadores,
+                                                  Registro registro) {
+        MultiplayerEngine engine = new MultiplayerEngine(modo, SimonConfig.paraDificultad(turnos), jugadores,
+                new UniformGenerator(), SEMILLA);
+        engine.setListener(registro);
+        engine.start();
+        return engine;
+    }
+
+    /**
+     * Repite una traza en una partida nueva
+     */
+    private static MultiplayerEngine repetir(MultiplayerEngine.Modo modo, int turnos, int jugadores, String traza,
+                                             Registro registro) {
+        MultiplayerEngine engine = nuevaPartida(modo, turnos, jugadores, registro);
+        InputTrace.parse(traza).aplicar(engine);
+        return engine;
+    }
+
+    @Test
+    public void turnos_cadaJugadorRepiteYAnade() {
+        Registro registro = new Registro();
+        MultiplayerEngine engine = repetir(MultiplayerEngine.Modo.TURNOS, SimonConfig.INFINITO, 2,
+                "0:3 1:3 1:5 0:3 0:5 0:1 1:3 1:5 1:2", registro);
+
+        assertEquals("turno0 turno1 turno0 turno1 fuera1 fin0", registro.toString());
+        assertTrue(engine.isTerminada());
+        assertEquals(0, engine.getGanador());
+        assertEquals(3, engine.getRonda());
+        assertEquals(1, engine.getSerie().get(2));
+    }
+
+    @Test
+    public void turnos_ignoraAlQueNoLeToca() {
+        Registro registro = new Registro();
+        MultiplayerEngine engine = nuevaPartida(MultiplayerEngine.Modo.TURNOS, SimonConfig.INFINITO, 2, registro);
+
+        assertFalse(engine.pulsar(1, 4));
+        assertTrue(engine.pulsar(0, 2));
+        assertFalse(engine.pulsar(0, 2));
+        assertEquals(1, engine.getTurno());
+        assertEquals(1, engine.getRonda());
+        assertEquals("turno0 turno1", registro.toString());
+    }
+
+    @Test
+    public void turnos_conLimiteEmpata() {
+        Registro registro = new Registro();
+        MultiplayerEngine engine = nuevaPartida(MultiplayerEngine.Modo.TURNOS, SimonConfig.FACIL, 2, registro);
+        while (!engine.isTerminada()) {
+            int jugador = engine.getTurno();
+            for (int i = 0; i < engine.getRonda(); i++) {
+                engine.pulsar(jugador, engine.getSerie().get(i));
+            }
+            engine.pulsar(jugador, engine.getRonda() % 6 + 1);
+        }
+
+        assertEquals(MultiplayerEngine.EMPATE, engine.getGanador());
+        assertEquals(SimonConfig.FACIL, engine.getRonda());
+        assertEquals(2, engine.getActivos());
+    }
+
+    @Test
+    public void turnos_tresJugadoresSaltaAlEliminado() {
+        Registro registro = new Registro();
+        MultiplayerEngine engine = repetir(MultiplayerEngine.Modo.TURNOS, SimonConfig.INFINITO, 3,
+                "0:1 1:2 2:1 2:2 2:3 0:1 0:2 0:3 0:4", registro);
+
+        // Las pulsaciones 2:3 y 0:4 llegan fuera de turno y no cuentan
+        assertEquals("turno0 turno1 fuera1 turno2 turno0 turno2", registro.toString());
+        assertFalse(engine.isTerminada());
+        assertEquals(2, engine.getTurno());
+        assertEquals(3, engine.getRonda());
+    }
+
+    @Test
+    public void caraACara_trazaGrabada() {
+        Registro registro = new Registro();
+        MultiplayerEngine engine = repetir(MultiplayerEngine.Modo.CARA_A_CARA, SimonConfig.FACIL, 2,
+                "0:2 c 0:1 1:1 c 1:1 0:1 1:3 0:3 c 0:1 1:1 0:3 1:3 1:5 0:6", registro);
+
+        // La primera pulsación llega mientras se muestra la serie y no cuenta
+        assertEquals("cpu1 listo0 listo1 cpu2 listo1 listo0 cpu3 listo1 fuera0 fin1", registro.toString());
+        assertEquals(1, engine.getGanador());
+        assertTrue(engine.isEliminado(0));
+        assertEquals(3, engine.getRonda());
+    }
+
+    @Test
+    public void caraACara_elQueTerminaEsperaAlOtro() {
+        Registro registro = new Registro();
+        MultiplayerEngine engine = repetir(MultiplayerEngine.Modo.CARA_A_CARA, SimonConfig.FACIL, 2,
+                "c 0:1", registro);
+
+        assertFalse(engine.pulsar(0, 1));
+        assertEquals(MultiplayerEngine.Estado.JUGANDO, engine.getEstado());
+        assertEquals(1, engine.getRonda());
+        assertTrue(engine.pulsar(1, 1));
+        assertEquals(MultiplayerEngine.Estado.TURNO_CPU, engine.getEstado());
+        assertEquals(0, engine.getPosicion(0));
+        assertEquals(0, engine.getPosicion(1));
+    }
+
+    @Test
+    public void caraACara_ganaElPrimeroEnCompletarLaUltimaRonda() {
+        Registro registro = new Registro();
+        MultiplayerEngine engine = nuevaPartida(MultiplayerEngine.Modo.CARA_A_CARA, SimonConfig.FACIL, 2,
+                registro);
+        while (engine.getEstado() == MultiplayerEngine.Estado.TURNO_CPU) {
+            engine.finTurnoCpu();
+            // El jugador 1 va siempre un número por delante, salvo en la primera ronda
+            for (int i = 0; i < engine.getRonda(); i++) {
+                engine.pulsar(1, engine.getSerie().get(i));
+                if (i > 0)
+                    engine.pulsar(0, engine.getSerie().get(i - 1));
+            }
+            engine.pulsar(0, engine.getSerie().get(engine.getRonda() - 1));
+        }
+
+        assertTrue(engine.isTerminada());
+        assertEquals(1, engine.getGanador());
+        assertEquals(SimonConfig.FACIL, engine.getRonda());
+        assertFalse(engine.isEliminado(0));
+        assertTrue(registro.toString().endsWith("cpu6 fin1"));
+    }
+
+    @Test
+    public void caraACara_tresJugadoresSigueSinElEliminado() {
+        Registro registro = new Registro();
+        MultiplayerEngine engine = repetir(MultiplayerEngine.Modo.CARA_A_CARA, SimonConfig.INFINITO, 3,
+                "c 2:1 0:2 1:1 c 1:1 1:3", registro);
+
+        // El jugador 0 falla y la ronda termina en cuanto la completa el último de los otros dos
+        assertEquals("cpu1 listo2 fuera0 listo1 cpu2 listo1", registro.toString());
+        assertEquals(2, engine.getActivos());
+        assertFalse(engine.pulsar(0, 1));
+        assertTrue(engine.pulsar(2, 1));
+    }
+
+    @Test
+    public void caraACara_elIntercaladoNoCambiaLaSerie() {
+        // Los dos jugadores aciertan siempre; sólo cambia el orden en que llegan sus pulsaciones
+        Registro seguidos = new Registro();
+        MultiplayerEngine engine = repetir(MultiplayerEngine.Modo.CARA_A_CARA, SimonConfig.INFINITO, 2,
+                "c 0:1 1:1 c 0:1 0:3 1:1 1:3 c 0:1 0:3 0:5 1:1 1:3 1:5", seguidos);
+        Registro alternos = new Registro();
+        MultiplayerEngine otro = repetir(MultiplayerEngine.Modo.CARA_A_CARA, SimonConfig.INFINITO, 2,
+                "c 1:1 0:1 c 1:1 0:1 0:3 1:3 c 0:1 1:1 1:3 0:3 1:5 0:5", alternos);
+
+        assertEquals(4, engine.getRonda());
+        assertEquals(4, otro.getRonda());
+        assertTrue(engine.getSerie().startsWith(otro.getSerie(), 4));
+        assertEquals(MultiplayerEngine.Estado.TURNO_CPU, engine.getEstado());
+        assertEquals(MultiplayerEngine.Estado.TURNO_CPU, otro.getEstado());
+    }
+
+    @Test
+    public void grabar_yRepetirDaLaMismaPartida() {
+        XoshiroRandom random = new XoshiroRandom(7);
+        for (int partida = 0; partida < 50; partida++) {
+            Registro original = new Registro();
+            InputTrace grabada = new InputTrace();
+            MultiplayerEngine engine = new MultiplayerEngine(MultiplayerEngine.Modo.CARA_A_CARA,
+                    SimonConfig.paraDificultad(SimonConfig.DIFICIL), 2, new UniformGenerator(), partida);
+            engine.setListener(original);
+            engine.setTraza(grabada);
+            engine.start();
+            jugarAlAzar(engine, random);
+
+            Registro repetido = new Registro();
+            InputTrace regrabada = new InputTrace();
+            MultiplayerEngine copia = new MultiplayerEngine(MultiplayerEngine.Modo.CARA_A_CARA,
+                    SimonConfig.paraDificultad(SimonConfig.DIFICIL), 2, new UniformGenerator(), partida);
+            copia.setListener(repetido);
+            copia.setTraza(regrabada);
+            copia.start();
+            InputTrace.parse(grabada.toString()).aplicar(copia);
+
+            assertEquals(original.toString(), repetido.toString());
+            assertEquals(grabada.toString(), regrabada.toString());
+            assertEquals(engine.getGanador(), copia.getGanador());
+            assertEquals(engine.getRonda(), copia.getRonda());
+            assertTrue(engine.getSerie().startsWith(copia.getSerie(), copia.getRonda()));
+        }
+    }
+
+    /**
+     * Los dos jugadores pulsan intercalados al azar, con algún fallo y alguna pulsación fuera de turno, hasta que
+     * termina la partida
+     */
+    private static void jugarAlAzar(MultiplayerEngine engine, XoshiroRandom random) {
+        while (!engine.isTerminada()) {
+            if (engine.getEstado() == MultiplayerEngine.Estado.TURNO_CPU && random.nextInt(4) != 0) {
+                engine.finTurnoCpu();
+                continue;
+            }
+            int jugador = random.nextInt(2);
+            int posicion = Math.min(engine.getPosicion(jugador), engine.getRonda() - 1);
+            int numero = engine.getSerie().get(posicion);
+            if (random.nextInt(40) == 0)
+                numero = numero % 6 + 1;
+            engine.pulsar(jugador, numero);
+        }
+    }
+
+    @Test
+    public void traza_textoIdaYVuelta() {
+        InputTrace traza = InputTrace.parse(" c 0:1  1:12 c 3:6 ");
+
+        assertEquals(5, traza.size());
+        assertEquals(MultiplayerEngine.FIN_CPU, traza.get(0));
+        assertEquals(1, MultiplayerEngine.getJugador(traza.get(2)));
+        assertEquals(12, MultiplayerEngine.getNumero(traza.get(2)));
+        assertEquals("c 0:1 1:12 c 3:6", traza.toString());
+        assertEquals(0, InputTrace.parse("").size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void traza_malFormada() {
+        InputTrace.parse("0:1 x");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void jugadores_fueraDeRango() {
+        new MultiplayerEngine(MultiplayerEngine.Modo.TURNOS, SimonConfig.infinito(), 1, null, SEMILLA);
+    }
+}
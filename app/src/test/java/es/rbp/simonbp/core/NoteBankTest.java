@@ -0,0 +1,103 @@
+package es.rbp.simonbp.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NoteBankTest {
+
+    private static short[][] notas(int numero, int muestras) {
+        short[][] pcm = new short[numero][muestras];
+        for (short[] nota : pcm) {
+            nota[0] = 1000;
+        }
+        return pcm;
+    }
+
+    @Test
+    public void await_despiertaAlCargar() throws InterruptedException {
+        final NoteBank banco = new NoteBank(6);
+        Thread cargador = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                banco.set(notas(6, 100), 44100);
+            }
+        });
+        cargador.start();
+
+        assertFalse(banco.isListo());
+        assertTrue(banco.await(5000));
+        assertEquals(44100, banco.getFrecuencia());
+        assertEquals(6 * 100 * 2, banco.getBytes());
+        assertTrue(banco.getNanosCarga() >= 0);
+        cargador.join();
+    }
+
+    @Test
+    public void await_seAgotaElTiempo() throws InterruptedException {
+        NoteBank banco = new NoteBank(6);
+
+        assertFalse(banco.await(10));
+        assertEquals(-1, banco.getNanosCarga());
+    }
+
+    @Test
+    public void release_sueltaLasNotasYDespierta() throws InterruptedException {
+        NoteBank banco = new NoteBank(2);
+        short[][] pcm = notas(2, 10);
+        banco.set(pcm, 48000);
+        banco.release();
+
+        assertTrue(banco.isLiberado());
+        assertNull(banco.getNotas());
+        assertEquals(0, banco.getBytes());
+        assertFalse(banco.await(5000));
+        // Quien ya tenía las notas las conserva
+        assertEquals(1000, pcm[0][0]);
+    }
+
+    @Test
+    public void set_despuesDeLiberarSeDescarta() {
+        NoteBank banco = new NoteBank(2);
+        banco.release();
+        banco.set(notas(2, 10), 48000);
+
+        assertFalse(banco.isListo());
+    }
+
+    @Test
+    public void fail_despiertaSinNotas() throws InterruptedException {
+        NoteBank banco = new NoteBank(2);
+        banco.fail();
+
+        assertTrue(banco.isFallido());
+        assertFalse(banco.await(5000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void set_numeroDeNotasIncorrecto() {
+        new NoteBank(6).set(notas(4, 10), 44100);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void set_dosVeces() {
+        NoteBank banco = new NoteBank(1);
+        banco.set(notas(1, 10), 44100);
+        banco.set(notas(1, 10), 44100);
+    }
+
+    @Test
+    public void recortarSilencio_quitaSoloElFinal() {
+        short[] pcm = {0, 0, 500, -300, 20, 3, -2, 0, 0};
+
+        assertArrayEquals(new short[]{0, 0, 500, -300, 20}, NoteBank.recortarSilencio(pcm, 16));
+        short[] sinSilencio = {100, -100};
+        assertSame(sinSilencio, NoteBank.recortarSilencio(sinSilencio, 16));
+        assertEquals(0, NoteBank.recortarSilencio(new short[]{1, -1, 0}, 16).length);
+    }
+}
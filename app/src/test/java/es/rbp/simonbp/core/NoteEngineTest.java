@@ -0,0 +1,167 @@
+package es.rbp.simonbp.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Mide la latencia entre el toque y la nota entregada al backend con un reloj falso.
+ */
+public class NoteEngineTest {
+
+    private FakeClock clock;
+
+    private FakeBackend backend;
+
+    private NoteEngine noteEngine;
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock();
+        backend = new FakeBackend(clock, 6, 2_000_000L);
+        noteEngine = new NoteEngine(backend, clock);
+    }
+
+    @Test
+    public void play_registraLatenciaDesdeLaEntrada() {
+        long entrada = clock.nanoTime();
+        clock.avanzar(500_000L);
+        noteEngine.play(3, entrada);
+
+        assertEquals(3, backend.ultimaNota);
+        assertEquals(1, noteEngine.getLatencia().getMuestras());
+        assertEquals(2_500_000L, noteEngine.getLatencia().getUltima());
+    }
+
+    @Test
+    public void play_acumulaMinimoMaximoYMedia() {
+        for (int i = 1; i <= 6; i++) {
+            long entrada = clock.nanoTime();
+            clock.avanzar(i * 1_000_000L);
+            noteEngine.play(i, entrada);
+        }
+
+        LatencyMeter latencia = noteEngine.getLatencia();
+        assertEquals(6, latencia.getMuestras());
+        assertEquals(3_000_000L, latencia.getMinimo());
+        assertEquals(8_000_000L, latencia.getMaximo());
+        assertEquals(5_500_000L, latencia.getMedia());
+    }
+
+    @Test
+    public void play_sinToqueNoCuentaEnLaLatencia() {
+        noteEngine.play(2);
+
+        assertEquals(2, backend.ultimaNota);
+        assertEquals(0, noteEngine.getLatencia().getMuestras());
+    }
+
+    @Test
+    public void play_noSuenaSiElBackendNoEstaListo() {
+        backend.listo = false;
+        noteEngine.play(1);
+
+        assertEquals(0, backend.reproducciones);
+        assertEquals(0, noteEngine.getLatencia().getMuestras());
+    }
+
+    @Test
+    public void play_ignoraNotasFueraDeRango() {
+        noteEngine.play(0);
+        noteEngine.play(7);
+
+        assertEquals(0, backend.reproducciones);
+    }
+
+    @Test
+    public void play_noCortaLaNotaAnterior() {
+        noteEngine.play(1);
+        noteEngine.play(2);
+
+        assertEquals(2, backend.reproducciones);
+        assertEquals(0, backend.paradas);
+    }
+
+    @Test
+    public void pauseYResume_llegaAlBackend() {
+        noteEngine.pause();
+        assertTrue(backend.pausado);
+        noteEngine.resume();
+        assertFalse(backend.pausado);
+    }
+
+    static class FakeClock implements Clock {
+
+        private long ahora = 1_000_000_000L;
+
+        void avanzar(long nanos) {
+            ahora += nanos;
+        }
+
+        @Override
+        public long nanoTime() {
+            return ahora;
+        }
+    }
+
+    /**
+     * Backend falso que tarda un tiempo fijo en poner la nota a sonar
+     */
+    static class FakeBackend implements NoteBackend {
+
+        private final FakeClock clock;
+
+        private final int numeroNotas;
+
+        private final long retardo;
+
+        boolean listo = true;
+
+        int ultimaNota;
+
+        int reproducciones;
+
+        int paradas;
+
+        boolean pausado;
+
+        FakeBackend(FakeClock clock, int numeroNotas, long retardo) {
+            this.clock = clock;
+            this.numeroNotas = numeroNotas;
+            this.retardo = retardo;
+        }
+
+        @Override
+        public int getNumeroNotas() {
+            return numeroNotas;
+        }
+
+        @Override
+        public boolean isListo() {
+            return listo;
+        }
+
+        @Override
+        public void play(int nota) {
+            clock.avanzar(retardo);
+            ultimaNota = nota;
+            reproducciones++;
+        }
+
+        @Override
+        public void pause() {
+            pausado = true;
+        }
+
+        @Override
+        public void resume() {
+            pausado = false;
+        }
+
+        @Override
+        public void release() {
+            listo = false;
+        }
+    }
+}
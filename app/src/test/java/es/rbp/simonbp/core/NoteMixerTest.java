@@ -0,0 +1,101 @@
+package es.rbp.simonbp.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comprueba la mezcla de voces, el robo de voces, la envolvente y el buffer circular.
+ */
+public class NoteMixerTest {
+
+    private static short[] constante(int longitud, int valor) {
+        short[] pcm = new short[longitud];
+        for (int i = 0; i < longitud; i++) {
+            pcm[i] = (short) valor;
+        }
+        return pcm;
+    }
+
+    @Test
+    public void mix_sumaLasVocesActivas() {
+        NoteMixer mixer = new NoteMixer(new short[][]{constante(100, 1000), constante(100, 2000)}, 4, 64, 1, 1);
+        mixer.trigger(1);
+        mixer.trigger(2);
+
+        short[] salida = new short[10];
+        int activas = mixer.mix(salida, 0, 10);
+
+        assertEquals(2, activas);
+        assertEquals(3000, salida[5]);
+    }
+
+    @Test
+    public void mix_recortaA16Bits() {
+        NoteMixer mixer = new NoteMixer(new short[][]{constante(100, 30000)}, 4, 64, 1, 1);
+        mixer.trigger(1);
+        mixer.trigger(1);
+
+        short[] salida = new short[10];
+        mixer.mix(salida, 0, 10);
+
+        assertEquals(Short.MAX_VALUE, salida[5]);
+    }
+
+    @Test
+    public void mix_liberaLaVozAlTerminarLaNota() {
+        NoteMixer mixer = new NoteMixer(new short[][]{constante(20, 1000)}, 4, 64, 1, 1);
+        mixer.trigger(1);
+
+        short[] salida = new short[32];
+        assertEquals(0, mixer.mix(salida, 0, 32));
+        assertEquals(0, mixer.getVocesActivas());
+        assertEquals(0, salida[25]);
+    }
+
+    @Test
+    public void trigger_robaLaVozMasAntigua() {
+        NoteMixer mixer = new NoteMixer(new short[][]{constante(100, 100), constante(100, 1000)}, 2, 64, 1, 1);
+        mixer.trigger(1);
+        mixer.trigger(1);
+        mixer.trigger(2);
+
+        short[] salida = new short[10];
+        mixer.mix(salida, 0, 10);
+
+        assertEquals(1, mixer.getRobadas());
+        assertEquals(2, mixer.getVocesActivas());
+        assertEquals(1100, salida[5]);
+    }
+
+    @Test
+    public void mix_aplicaAtaqueYRelajacion() {
+        NoteMixer mixer = new NoteMixer(new short[][]{constante(40, 1000)}, 1, 64, 10, 10);
+        mixer.trigger(1);
+
+        short[] salida = new short[40];
+        mixer.mix(salida, 0, 40);
+
+        assertEquals(0, salida[0]);
+        assertEquals(500, salida[5]);
+        assertEquals(1000, salida[20]);
+        assertEquals(500, salida[35]);
+    }
+
+    @Test
+    public void render_escribeEnElBufferCircular() {
+        NoteMixer mixer = new NoteMixer(new short[][]{constante(100, 1000)}, 1, 16, 1, 1);
+        PcmRingBuffer ring = new PcmRingBuffer(20);
+        mixer.trigger(1);
+
+        assertEquals(32, ring.getCapacidad());
+        assertEquals(16, mixer.render(ring));
+        assertEquals(16, mixer.render(ring));
+        assertEquals(0, mixer.render(ring));
+
+        short[] leidas = new short[40];
+        assertEquals(32, ring.read(leidas, 0, 40));
+        assertEquals(1000, leidas[31]);
+        assertEquals(0, ring.disponibles());
+    }
+}
@@ -0,0 +1,93 @@
+package es.rbp.simonbp.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comprueba la curva de las animaciones de los botones dibujados, que empiezan en el primer frame y que se pueden
+ * encadenar a medias.
+ */
+public class PadHighlightsTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void animar_empiezaEnElPrimerFrameYTermina() {
+        PadHighlights animaciones = new PadHighlights(4);
+        animaciones.animar(2, 1.2f, 100 * MS);
+        assertEquals(1, animaciones.getAnimando());
+
+        assertTrue(animaciones.avanzar(5000 * MS));
+        assertEquals(1f, animaciones.getEscala(2), 0);
+        assertTrue(animaciones.avanzar(5050 * MS));
+        // Mitad del tiempo, mitad del recorrido con la curva de acelerar y frenar
+        assertEquals(1.1f, animaciones.getEscala(2), 1e-6);
+        assertTrue(animaciones.avanzar(5060 * MS));
+        assertFalse(animaciones.avanzar(5100 * MS));
+        assertEquals(1.2f, animaciones.getEscala(2), 0);
+        assertEquals(1f, animaciones.getEscala(1), 0);
+        assertEquals(0, animaciones.getAnimando());
+    }
+
+    @Test
+    public void curva_aceleraYFrena() {
+        PadHighlights animaciones = new PadHighlights(1);
+        animaciones.animar(1, 2f, 100 * MS);
+        animaciones.avanzar(0);
+        animaciones.avanzar(10 * MS);
+        float inicio = animaciones.getEscala(1) - 1;
+        animaciones.avanzar(50 * MS);
+        animaciones.avanzar(60 * MS);
+        float medio = animaciones.getEscala(1) - 1 - 0.5f;
+
+        // En el primer 10 % avanza mucho menos que en el 10 % central
+        assertTrue(inicio < medio / 4);
+        assertEquals((1 - Math.cos(0.1 * Math.PI)) / 2, inicio, 1e-6);
+    }
+
+    @Test
+    public void encogerAMedias_sigueDesdeLaEscalaActual() {
+        PadHighlights animaciones = new PadHighlights(2);
+        animaciones.animar(1, 1.2f, 100 * MS);
+        animaciones.avanzar(0);
+        animaciones.avanzar(50 * MS);
+        float escala = animaciones.getEscala(1);
+        animaciones.animar(1, 1f, 100 * MS);
+        assertEquals(1, animaciones.getAnimando());
+
+        animaciones.avanzar(60 * MS);
+        assertEquals(escala, animaciones.getEscala(1), 0);
+        assertFalse(animaciones.avanzar(160 * MS));
+        assertEquals(1f, animaciones.getEscala(1), 0);
+    }
+
+    @Test
+    public void variasAnimaciones_unSoloAvance() {
+        PadHighlights animaciones = new PadHighlights(16);
+        for (int numero = 1; numero <= 16; numero++) {
+            animaciones.animar(numero, 1.2f, numero * 10 * MS);
+        }
+        animaciones.avanzar(0);
+        assertEquals(16, animaciones.getAnimando());
+        assertTrue(animaciones.avanzar(80 * MS));
+        assertEquals(8, animaciones.getAnimando());
+        assertFalse(animaciones.avanzar(160 * MS));
+        for (int numero = 1; numero <= 16; numero++) {
+            assertEquals(1.2f, animaciones.getEscala(numero), 0);
+        }
+    }
+
+    @Test
+    public void cancel_dejaLaEscala() {
+        PadHighlights animaciones = new PadHighlights(3);
+        animaciones.animar(3, 1.2f, 100 * MS);
+        animaciones.avanzar(0);
+        animaciones.avanzar(30 * MS);
+        float escala = animaciones.getEscala(3);
+        animaciones.cancel();
+
+        assertFalse(animaciones.avanzar(200 * MS));
+        assertEquals(escala, animaciones.getEscala(3), 0);
+    }
+}
@@ -0,0 +1,107 @@
+package es.rbp.simonbp.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comprueba que los generadores son deterministas y que las partidas se pueden repetir con la semilla.
+ */
+public class PatternGeneratorTest {
+
+    private static int[] generar(PatternGenerator generador, long semilla, int longitud) {
+        generador.reset(semilla);
+        int[] serie = new int[longitud];
+        for (int i = 0; i < longitud; i++) {
+            serie[i] = generador.next(6);
+        }
+        return serie;
+    }
+
+    @Test
+    public void uniforme_mismaSemillaMismaSerie() {
+        assertArrayEquals(generar(new UniformGenerator(), 1234, 1000), generar(new UniformGenerator(), 1234, 1000));
+    }
+
+    @Test
+    public void uniforme_distintaSemillaDistintaSerie() {
+        int[] a = generar(new UniformGenerator(), 1, 100);
+        int[] b = generar(new UniformGenerator(), 2, 100);
+
+        assertFalse(java.util.Arrays.equals(a, b));
+    }
+
+    @Test
+    public void uniforme_cubreTodosLosBotones() {
+        int[] cuenta = new int[7];
+        for (int numero : generar(new UniformGenerator(), 5, 60000)) {
+            cuenta[numero]++;
+        }
+
+        assertEquals(0, cuenta[0]);
+        for (int i = 1; i <= 6; i++) {
+            assertEquals(10000, cuenta[i], 500);
+        }
+    }
+
+    @Test
+    public void noRepeat_nuncaRepiteSeguido() {
+        int[] serie = generar(new NoRepeatGenerator(), 9, 10000);
+        for (int i = 1; i < serie.length; i++) {
+            assertTrue(serie[i] != serie[i - 1]);
+            assertTrue(serie[i] >= 1 && serie[i] <= 6);
+        }
+    }
+
+    @Test
+    public void weighted_respetaLosPesos() {
+        int[] cuenta = new int[7];
+        for (int numero : generar(new WeightedGenerator(new int[]{0, 1, 1, 1, 1, 2}), 3, 60000)) {
+            cuenta[numero]++;
+        }
+
+        assertEquals(0, cuenta[1]);
+        assertEquals(20000, cuenta[6], 800);
+        assertEquals(10000, cuenta[2], 600);
+    }
+
+    @Test
+    public void weighted_sinPesoEnElTablero_eligeCualquierBoton() {
+        WeightedGenerator generador = new WeightedGenerator(new int[]{0, 0, 0, 0, 5, 5});
+        generador.reset(3);
+        int[] cuenta = new int[4];
+        for (int i = 0; i < 3000; i++) {
+            cuenta[generador.next(3)]++;
+        }
+
+        assertEquals(1000, cuenta[1], 150);
+        assertEquals(1000, cuenta[2], 150);
+        assertEquals(1000, cuenta[3], 150);
+    }
+
+    @Test
+    public void sesion_repiteLaPartidaExacta() {
+        SimonEngine original = new SimonEngine(SimonConfig.paraDificultad(SimonConfig.MEDIO),
+                new NoRepeatGenerator(), 987654321L);
+        original.start();
+        // El jugador acierta cuatro rondas y se equivoca en la quinta
+        while (original.getRonda() < 5) {
+            original.finTurnoCpu();
+            for (int i = 0; i < original.getRonda(); i++) {
+                original.pulsar(original.getNumero(i));
+            }
+        }
+        original.finTurnoCpu();
+        original.pulsar(original.getNumero(0));
+        original.pulsar(original.getNumero(1) % 6 + 1);
+        assertEquals(SimonEngine.Estado.DERROTA, original.getEstado());
+
+        GameSession sesion = original.getSesion();
+        SimonEngine repetida = sesion.replay(new NoRepeatGenerator());
+
+        assertEquals(SimonEngine.Estado.DERROTA, repetida.getEstado());
+        assertEquals(original.getRonda(), repetida.getRonda());
+        assertTrue(original.getSerie().startsWith(repetida.getSerie(), original.getRonda()));
+        assertEquals(1 + 2 + 3 + 4 + 2, sesion.getNumEntradas());
+    }
+}
@@ -0,0 +1,81 @@
+package es.rbp.simonbp.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comprueba la media y la desviación móviles contra valores calculados a mano y que siguen los cambios de la
+ * entrada.
+ */
+public class RollingStatsTest {
+
+    @Test
+    public void primeraMuestra_esLaMedia() {
+        RollingStats stats = new RollingStats(0.1);
+        stats.add(300);
+
+        assertEquals(300, stats.getMedia(), 0);
+        assertEquals(0, stats.getDesviacion(), 0);
+        assertEquals(1, stats.getMuestras());
+    }
+
+    @Test
+    public void add_coincideConElCalculoAMano() {
+        RollingStats stats = new RollingStats(0.5);
+        stats.add(100);
+        stats.add(200);
+        // media = 100 + 0.5 * 100 = 150, varianza = 0.5 * (0 + 100 * 50) = 2500
+        assertEquals(150, stats.getMedia(), 1e-9);
+        assertEquals(2500, stats.getVarianza(), 1e-9);
+        stats.add(150);
+        // media = 150, varianza = 0.5 * 2500 = 1250
+        assertEquals(150, stats.getMedia(), 1e-9);
+        assertEquals(1250, stats.getVarianza(), 1e-9);
+    }
+
+    @Test
+    public void ruidoGaussiano_estimaMediaYDesviacion() {
+        RollingStats stats = new RollingStats(0.01);
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            stats.add(400 + 50 * random.nextGaussian());
+        }
+
+        assertEquals(400, stats.getMedia(), 10);
+        assertEquals(50, stats.getDesviacion(), 8);
+    }
+
+    @Test
+    public void cambioDeNivel_olvidaLasMuestrasAntiguas() {
+        RollingStats stats = new RollingStats(0.1);
+        for (int i = 0; i < 100; i++) {
+            stats.add(800);
+        }
+        for (int i = 0; i < 50; i++) {
+            stats.add(300);
+        }
+
+        // Tras 50 muestras el peso de las antiguas es 0.9^50, menos de un 1 %
+        assertEquals(300, stats.getMedia(), 5);
+    }
+
+    @Test
+    public void reset_vuelveAEmpezar() {
+        RollingStats stats = new RollingStats(0.2);
+        stats.add(10);
+        stats.add(20);
+        stats.reset();
+        stats.add(5);
+
+        assertEquals(5, stats.getMedia(), 0);
+        assertEquals(1, stats.getMuestras());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void alfa_noValido() {
+        new RollingStats(0);
+    }
+}
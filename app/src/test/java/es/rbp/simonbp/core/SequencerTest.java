@@ -0,0 +1,225 @@
+package es.rbp.simonbp.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comprueba el secuenciador con un reloj virtual que avanza de frame en frame.
+ */
+public class SequencerTest {
+
+    private static final long MS = 1_000_000L;
+
+    /**
+     * Duración de un frame a 60 Hz
+     */
+    private static final long FRAME = 16_666_667L;
+
+    private NoteEngineTest.FakeClock clock;
+
+    private Sequencer sequencer;
+
+    private Registro registro;
+
+    /**
+     * Guarda cada evento recibido con el instante del reloj en que llegó
+     */
+    private class Registro implements Sequencer.Listener {
+
+        int[] tipos = new int[4096];
+
+        int[] datos = new int[4096];
+
+        long[] instantes = new long[4096];
+
+        int numero;
+
+        @Override
+        public void onEvento(int tipo, int dato) {
+            tipos[numero] = tipo;
+            datos[numero] = dato;
+            instantes[numero] = clock.nanoTime();
+            numero++;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        clock = new NoteEngineTest.FakeClock();
+        sequencer = new Sequencer(clock, 16);
+        registro = new Registro();
+        sequencer.setListener(registro);
+    }
+
+    /**
+     * Avanza el reloj frame a frame hasta que no quedan eventos
+     */
+    private void ejecutar() {
+        while (sequencer.getPendientes() > 0) {
+            clock.avanzar(FRAME);
+            sequencer.tick();
+        }
+    }
+
+    @Test
+    public void tick_despachaEnOrdenDeInstante() {
+        long ahora = clock.nanoTime();
+        sequencer.schedule(1, 30, ahora + 30 * MS);
+        sequencer.schedule(1, 10, ahora + 10 * MS);
+        sequencer.schedule(1, 20, ahora + 20 * MS);
+        sequencer.schedule(1, 21, ahora + 20 * MS);
+        ejecutar();
+
+        assertEquals(4, registro.numero);
+        assertEquals(10, registro.datos[0]);
+        assertEquals(20, registro.datos[1]);
+        assertEquals(21, registro.datos[2]);
+        assertEquals(30, registro.datos[3]);
+    }
+
+    @Test
+    public void tick_noDespachaEventosFuturos() {
+        sequencer.scheduleIn(1, 0, 100);
+        clock.avanzar(99 * MS);
+
+        assertEquals(0, sequencer.tick());
+        clock.avanzar(MS);
+        assertEquals(1, sequencer.tick());
+    }
+
+    @Test
+    public void cancel_descartaLosEventosPendientes() {
+        sequencer.scheduleIn(1, 0, 10);
+        sequencer.scheduleIn(2, 0, 20);
+        sequencer.scheduleIn(1, 0, 30);
+        sequencer.cancel(1);
+
+        assertEquals(1, sequencer.getPendientes());
+        sequencer.cancel();
+        assertEquals(0, sequencer.getPendientes());
+        ejecutar();
+        assertEquals(0, registro.numero);
+    }
+
+    @Test
+    public void replay_de1000PasosSinDeriva() {
+        int pasos = 1000;
+        long inicio = clock.nanoTime();
+        long paso = 500 * MS;
+        for (int i = 0; i < pasos; i++) {
+            sequencer.schedule(1, i % 6 + 1, inicio + 100 * MS + paso * i);
+            sequencer.schedule(2, i % 6 + 1, inicio + 350 * MS + paso * i);
+        }
+        ejecutar();
+
+        assertEquals(pasos * 2, registro.numero);
+        // Ningún evento llega más de un frame tarde, tampoco los últimos
+        assertTrue(sequencer.getRetrasoMaximo() < FRAME);
+        for (int i = 0; i < pasos; i++) {
+            long esperado = inicio + 100 * MS + paso * i;
+            long retraso = registro.instantes[i * 2] - esperado;
+            assertTrue("Paso " + i + " con retraso " + retraso, retraso >= 0 && retraso < FRAME);
+        }
+    }
+
+    @Test
+    public void pause_congelaLaLineaDeTiempo() {
+        sequencer.scheduleIn(1, 7, 100);
+        clock.avanzar(40 * MS);
+        sequencer.pause();
+        long congelado = sequencer.now();
+        clock.avanzar(10_000 * MS);
+
+        assertTrue(sequencer.isPausado());
+        assertEquals(0, sequencer.tick());
+        assertEquals(congelado, sequencer.now());
+
+        sequencer.resume();
+        clock.avanzar(59 * MS);
+        assertEquals(0, sequencer.tick());
+        clock.avanzar(MS);
+        assertEquals(1, sequencer.tick());
+        assertEquals(0, sequencer.getRetrasoActual());
+        assertEquals(7, registro.datos[0]);
+    }
+
+    /**
+     * Pausa una serie entre dos notas durante un minuto. Al reanudar sigue en la nota siguiente, al mismo ritmo y
+     * sin retraso, como si la pausa no hubiera existido.
+     */
+    @Test
+    public void pause_laSerieSigueEnElMismoPaso() {
+        final int[] notas = new int[8];
+        final long[] instantes = new long[8];
+        final int[] numero = {0};
+        final ReplayScript script = new ReplayScript(sequencer, new ReplayScript.Listener() {
+            @Override
+            public void onNotaOn(int n) {
+                notas[numero[0]] = n;
+                instantes[numero[0]++] = sequencer.now();
+            }
+
+            @Override
+            public void onNotaOff(int n) {
+            }
+
+            @Override
+            public void onFinSerie() {
+            }
+        });
+        sequencer.setListener(new Sequencer.Listener() {
+            @Override
+            public void onEvento(int tipo, int dato) {
+                script.onEvento(tipo, dato);
+            }
+        });
+        ByteSequence serie = new ByteSequence();
+        for (int i = 1; i <= 8; i++) {
+            serie.add(i % 6 + 1);
+        }
+        long inicio = sequencer.now();
+        script.start(serie, 8, inicio, 100 * MS, 500 * MS, 250 * MS);
+
+        while (numero[0] < 3) {
+            clock.avanzar(MS);
+            sequencer.tick();
+        }
+        sequencer.pause();
+        clock.avanzar(60_000 * MS);
+        for (int i = 0; i < 100; i++) {
+            sequencer.tick();
+        }
+        assertEquals(3, numero[0]);
+        sequencer.resume();
+        while (sequencer.getPendientes() > 0) {
+            clock.avanzar(MS);
+            sequencer.tick();
+        }
+
+        assertEquals(8, numero[0]);
+        for (int i = 0; i < 8; i++) {
+            assertEquals(serie.get(i), notas[i]);
+            assertEquals("Paso " + i, inicio + 100 * MS + 500 * MS * i, instantes[i]);
+        }
+        assertTrue(sequencer.getRetrasoMaximo() < MS);
+    }
+
+    @Test
+    public void listener_puedeProgramarDuranteElTick() {
+        sequencer.setListener(new Sequencer.Listener() {
+            @Override
+            public void onEvento(int tipo, int dato) {
+                registro.onEvento(tipo, dato);
+                if (dato < 5)
+                    sequencer.schedule(tipo, dato + 1, clock.nanoTime());
+            }
+        });
+        sequencer.scheduleIn(1, 0, 0);
+        sequencer.tick();
+
+        assertEquals(6, registro.numero);
+        assertEquals(0, sequencer.getPendientes());
+    }
+}
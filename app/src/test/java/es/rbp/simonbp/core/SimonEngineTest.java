@@ -0,0 +1,193 @@
+package es.rbp.simonbp.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comprueba las reglas del juego y simula partidas completas sin Android.
+ */
+public class SimonEngineTest {
+
+    /**
+     * Listener que cuenta los eventos recibidos
+     */
+    private static class Contador implements SimonListener {
+
+        int turnosCpu, victorias, derrotas, ultimaRonda;
+
+        @Override
+        public void onTurnoCpu(int ronda) {
+            turnosCpu++;
+            ultimaRonda = ronda;
+        }
+
+        @Override
+        public void onVictoria() {
+            victorias++;
+        }
+
+        @Override
+        public void onDerrota() {
+            derrotas++;
+        }
+    }
+
+    private static SimonEngine nuevaPartida(int turnos, Contador contador) {
+        SimonEngine engine = new SimonEngine(SimonConfig.paraDificultad(turnos), new UniformGenerator(), 42);
+        engine.setListener(contador);
+        return engine;
+    }
+
+    /**
+     * Repite correctamente la serie actual
+     */
+    private static void repetirSerie(SimonEngine engine) {
+        engine.finTurnoCpu();
+        for (int i = 0; i < engine.getRonda() && engine.getEstado() == SimonEngine.Estado.TURNO_JUGADOR; i++) {
+            engine.pulsar(engine.getNumero(i));
+        }
+    }
+
+    @Test
+    public void config_paraDificultad() {
+        assertEquals(SimonConfig.TRUCO_ILIMITADO, SimonConfig.paraDificultad(SimonConfig.FACIL).getMaximoTruco());
+        assertEquals(6, SimonConfig.paraDificultad(SimonConfig.MEDIO).getMaximoTruco());
+        assertEquals(1, SimonConfig.paraDificultad(SimonConfig.DIFICIL).getMaximoTruco());
+        assertEquals(12, SimonConfig.paraDificultad(SimonConfig.DIFICIL).getTurnos());
+    }
+
+    @Test
+    public void start_empiezaElTurnoDeLaCpu() {
+        Contador contador = new Contador();
+        SimonEngine engine = nuevaPartida(SimonConfig.FACIL, contador);
+        engine.start();
+
+        assertEquals(SimonEngine.Estado.TURNO_CPU, engine.getEstado());
+        assertEquals(1, contador.ultimaRonda);
+        assertEquals(1, engine.getRonda());
+        int numero = engine.getNumero(0);
+        assertTrue(numero >= 1 && numero <= SimonConfig.NUMERO_BOTONES);
+    }
+
+    @Test
+    public void pulsar_seIgnoraDuranteElTurnoDeLaCpu() {
+        Contador contador = new Contador();
+        SimonEngine engine = nuevaPartida(SimonConfig.FACIL, contador);
+        engine.start();
+
+        assertEquals(SimonEngine.Estado.TURNO_CPU, engine.pulsar(engine.getNumero(0) % 6 + 1));
+        assertEquals(0, contador.derrotas);
+    }
+
+    @Test
+    public void pulsar_aciertoPasaALaSiguienteRonda() {
+        Contador contador = new Contador();
+        SimonEngine engine = nuevaPartida(SimonConfig.FACIL, contador);
+        engine.start();
+        repetirSerie(engine);
+
+        assertEquals(SimonEngine.Estado.TURNO_CPU, engine.getEstado());
+        assertEquals(2, contador.ultimaRonda);
+        assertEquals(0, engine.getPosicion());
+    }
+
+    @Test
+    public void pulsar_falloTerminaLaPartida() {
+        Contador contador = new Contador();
+        SimonEngine engine = nuevaPartida(SimonConfig.FACIL, contador);
+        engine.start();
+        engine.finTurnoCpu();
+
+        assertEquals(SimonEngine.Estado.DERROTA, engine.pulsar(engine.getNumero(0) % 6 + 1));
+        assertEquals(1, contador.derrotas);
+        assertTrue(engine.isTerminada());
+    }
+
+    @Test
+    public void pulsar_completarTodasLasRondasEsVictoria() {
+        for (int turnos : new int[]{SimonConfig.FACIL, SimonConfig.MEDIO, SimonConfig.DIFICIL}) {
+            Contador contador = new Contador();
+            SimonEngine engine = nuevaPartida(turnos, contador);
+            engine.start();
+            while (!engine.isTerminada()) {
+                repetirSerie(engine);
+            }
+
+            assertEquals(SimonEngine.Estado.VICTORIA, engine.getEstado());
+            assertEquals(1, contador.victorias);
+            assertEquals(turnos, contador.turnosCpu);
+            assertEquals(turnos, engine.getRonda());
+        }
+    }
+
+    @Test
+    public void usarTruco_respetaElMaximo() {
+        SimonEngine engine = nuevaPartida(SimonConfig.DIFICIL, new Contador());
+        engine.start();
+        engine.finTurnoCpu();
+
+        assertTrue(engine.usarTruco());
+        assertFalse(engine.usarTruco());
+    }
+
+    @Test
+    public void usarTruco_ilimitadoEnFacil() {
+        SimonEngine engine = nuevaPartida(SimonConfig.FACIL, new Contador());
+        engine.start();
+        engine.finTurnoCpu();
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(engine.usarTruco());
+        }
+    }
+
+    @Test
+    public void tableroGrande_usaTodosLosBotones() {
+        SimonEngine engine = new SimonEngine(SimonConfig.paraDificultad(SimonConfig.INFINITO, 16),
+                new UniformGenerator(), 7);
+        engine.start();
+        for (int ronda = 1; ronda <= 300; ronda++) {
+            repetirSerie(engine);
+        }
+
+        assertEquals(301, engine.getRonda());
+        boolean[] vistos = new boolean[17];
+        for (int i = 0; i < engine.getRonda(); i++) {
+            vistos[engine.getNumero(i)] = true;
+        }
+        for (int numero = 1; numero <= 16; numero++) {
+            assertTrue("No ha salido el " + numero, vistos[numero]);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void config_demasiadosBotones() {
+        new SimonConfig(SimonConfig.MAXIMO_BOTONES + 1, SimonConfig.FACIL, 0);
+    }
+
+    @Test
+    public void simulacion_cuentaVictoriasYDerrotas() {
+        int partidas = 20000;
+        Contador contador = new Contador();
+        PatternGenerator generador = new UniformGenerator();
+        SimonConfig config = SimonConfig.paraDificultad(SimonConfig.DIFICIL);
+        for (int p = 0; p < partidas; p++) {
+            SimonEngine engine = new SimonEngine(config, generador, p);
+            engine.setListener(contador);
+            engine.start();
+            while (!engine.isTerminada()) {
+                engine.finTurnoCpu();
+                // El jugador simulado falla el último número de la ronda 10 en una de cada 4 partidas
+                for (int i = 0; i < engine.getRonda() && !engine.isTerminada(); i++) {
+                    boolean fallo = p % 4 == 0 && engine.getRonda() == 10 && i == 9;
+                    int numero = engine.getNumero(i);
+                    engine.pulsar(fallo ? numero % 6 + 1 : numero);
+                }
+            }
+        }
+
+        assertEquals(partidas / 4, contador.derrotas);
+        assertEquals(partidas - partidas / 4, contador.victorias);
+    }
+}
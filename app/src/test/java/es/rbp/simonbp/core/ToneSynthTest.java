@@ -0,0 +1,147 @@
+package es.rbp.simonbp.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comprueba la forma de onda del sintetizador contra un buffer de referencia, la altura de cada nota, la envolvente
+ * y el robo de voces.
+ */
+public class ToneSynthTest {
+
+    /**
+     * La de la escala (440 Hz) a 8 kHz con una envolvente de 8 + 8 + 16 + 8 muestras y sostenido a la mitad. Si cambia
+     * la tabla de onda, el oscilador o la envolvente hay que revisar el sonido y regenerar este buffer
+     */
+    private static final short[] GOLDEN_LA = {
+            0, 643, 1988, 2895, 2820, 2254, 1942, 1923, 1489, 133, -1119, -1717, -1873, -2292, -3256, -4171,
+            -4062, -2948, -509, 2164, 3838, 3976, 3033, 1955, 1351, 1133, 834, 208, -525, -1006, -1212, -1554,
+            -2401, -3092, -3071, -2042, -504, 645, 911, 507, 0, 0, 0, 0, 0, 0, 0, 0
+    };
+
+    private static ToneSynth.Envolvente envolventeCorta() {
+        return new ToneSynth.Envolvente(8, 8, 0.5f, 16, 8);
+    }
+
+    @Test
+    public void mix_coincideConElBufferDeReferencia() {
+        ToneSynth synth = new ToneSynth(8000, ToneSynth.escalaMayor(6), 2, 64, envolventeCorta());
+        synth.trigger(6);
+
+        short[] salida = new short[GOLDEN_LA.length];
+        int activas = synth.mix(salida, 0, salida.length);
+
+        assertArrayEquals(GOLDEN_LA, salida);
+        assertEquals(0, activas);
+        assertEquals(0, synth.getVocesActivas());
+    }
+
+    @Test
+    public void mix_pocoErrorFrenteAUnOsciladorExacto() {
+        ToneSynth synth = new ToneSynth(8000, ToneSynth.escalaMayor(6), 2, 64, envolventeCorta());
+        synth.trigger(6);
+        short[] salida = new short[GOLDEN_LA.length];
+        synth.mix(salida, 0, salida.length);
+
+        // Onda sin tabla, con la misma normalización: el máximo de sin x + sin 2x / 2 + sin 3x / 4
+        double maximo = 0;
+        for (int i = 0; i < 100000; i++) {
+            maximo = Math.max(maximo, onda(2 * Math.PI * i / 100000));
+        }
+        for (int i = 0; i < 40; i++) {
+            double nivel;
+            if (i < 8)
+                nivel = i / 8.0;
+            else if (i < 16)
+                nivel = 1 - 0.5 * (i - 8) / 8.0;
+            else if (i < 32)
+                nivel = 0.5;
+            else
+                nivel = 0.5 - 0.5 * (i - 32) / 8.0;
+            double esperado = onda(2 * Math.PI * 440 * i / 8000) / maximo * nivel * Short.MAX_VALUE / 4;
+            assertEquals("Muestra " + i, esperado, salida[i], 40);
+        }
+    }
+
+    private static double onda(double x) {
+        return Math.sin(x) + 0.5 * Math.sin(2 * x) + 0.25 * Math.sin(3 * x);
+    }
+
+    @Test
+    public void escalaMayor_doReMiFaSolLa() {
+        double[] escala = ToneSynth.escalaMayor(8);
+
+        assertEquals(261.63, escala[0], 0.01);
+        assertEquals(293.66, escala[1], 0.01);
+        assertEquals(329.63, escala[2], 0.01);
+        assertEquals(349.23, escala[3], 0.01);
+        assertEquals(392.00, escala[4], 0.01);
+        assertEquals(440.00, escala[5], 0.01);
+        assertEquals(493.88, escala[6], 0.01);
+        assertEquals(2 * escala[0], escala[7], 1e-9);
+    }
+
+    @Test
+    public void cadaNota_suenaASuFrecuencia() {
+        int frecuencia = 44100;
+        double[] escala = ToneSynth.escalaMayor(6);
+        for (int nota = 1; nota <= escala.length; nota++) {
+            ToneSynth synth = new ToneSynth(frecuencia, escala, 1, frecuencia,
+                    new ToneSynth.Envolvente(1, 1, 1f, frecuencia * 2, 1));
+            synth.trigger(nota);
+            short[] salida = new short[frecuencia];
+            synth.mix(salida, 0, salida.length);
+
+            int cruces = 0;
+            for (int i = 1; i < salida.length; i++) {
+                if (salida[i - 1] < 0 && salida[i] >= 0)
+                    cruces++;
+            }
+            assertEquals("Nota " + nota, escala[nota - 1], cruces, 1.5);
+        }
+    }
+
+    @Test
+    public void envolvente_llegaAlMaximoYTermina() {
+        ToneSynth.Envolvente envolvente = ToneSynth.Envolvente.enMilisegundos(1000, 10, 10, 0.5f, 20, 10);
+        assertEquals(50, envolvente.getDuracion());
+        ToneSynth synth = new ToneSynth(1000, new double[]{250}, 1, 64, envolvente);
+        synth.trigger(1);
+
+        short[] salida = new short[64];
+        synth.mix(salida, 0, 10);
+        assertEquals(1, synth.getVocesActivas());
+        synth.mix(salida, 10, 40);
+        assertEquals(0, synth.getVocesActivas());
+
+        int picoAtaque = 0, picoSostenido = 0;
+        for (int i = 0; i < 20; i++) {
+            picoAtaque = Math.max(picoAtaque, Math.abs(salida[i]));
+        }
+        for (int i = 20; i < 40; i++) {
+            picoSostenido = Math.max(picoSostenido, Math.abs(salida[i]));
+        }
+        assertEquals(picoAtaque / 2.0, picoSostenido, picoAtaque * 0.1);
+    }
+
+    @Test
+    public void trigger_robaLaVozMasAntigua() {
+        ToneSynth synth = new ToneSynth(8000, ToneSynth.escalaMayor(6), 2, 64, envolventeCorta());
+        synth.trigger(1);
+        synth.trigger(2);
+        synth.trigger(3);
+        synth.trigger(0);
+        synth.trigger(7);
+
+        assertEquals(2, synth.getVocesActivas());
+        assertEquals(1, synth.getRobadas());
+        synth.stopAll();
+        assertEquals(0, synth.getVocesActivas());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void frecuencia_porEncimaDeNyquist() {
+        new ToneSynth(8000, new double[]{4000}, 1, 64, envolventeCorta());
+    }
+}
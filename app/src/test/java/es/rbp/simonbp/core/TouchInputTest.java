@@ -0,0 +1,141 @@
+package es.rbp.simonbp.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comprueba que cada dedo cuenta al bajar, que los acordes cuentan cada botón y que se descartan los rebotes.
+ */
+public class TouchInputTest {
+
+    @Test
+    public void down_cuentaAlBajar() {
+        TouchInput entrada = new TouchInput(6);
+
+        assertTrue(entrada.down(0, 3, 1000));
+        assertTrue(entrada.isPulsado(3));
+        entrada.up(0);
+        assertFalse(entrada.isPulsado(3));
+        assertEquals(1, entrada.getAceptadas());
+    }
+
+    @Test
+    public void acorde_cadaDedoCuenta() {
+        TouchInput entrada = new TouchInput(6);
+
+        assertTrue(entrada.down(0, 1, 1000));
+        assertTrue(entrada.down(1, 2, 1000));
+        assertTrue(entrada.down(2, 6, 1001));
+        entrada.up(1);
+        entrada.up(0);
+        entrada.up(2);
+
+        assertEquals(3, entrada.getAceptadas());
+        assertEquals(0, entrada.getRebotes());
+    }
+
+    @Test
+    public void rebote_mismoBotonDemasiadoPronto() {
+        TouchInput entrada = new TouchInput(6);
+
+        assertTrue(entrada.down(0, 4, 1000));
+        entrada.up(0);
+        assertFalse(entrada.down(0, 4, 1000 + TouchInput.REBOTE - 1));
+        entrada.up(0);
+        assertTrue(entrada.down(0, 4, 1000 + TouchInput.REBOTE + 10));
+        // Otro botón no rebota
+        assertTrue(entrada.down(1, 5, 1000 + TouchInput.REBOTE + 11));
+
+        assertEquals(3, entrada.getAceptadas());
+        assertEquals(1, entrada.getRebotes());
+    }
+
+    @Test
+    public void rebote_segundoDedoSobreUnBotonPulsado() {
+        TouchInput entrada = new TouchInput(6);
+
+        assertTrue(entrada.down(0, 2, 1000));
+        assertFalse(entrada.down(1, 2, 2000));
+        entrada.up(0);
+        // Sigue el segundo dedo encima
+        assertTrue(entrada.isPulsado(2));
+        assertFalse(entrada.down(2, 2, 3000));
+        entrada.up(1);
+        entrada.up(2);
+        assertTrue(entrada.down(0, 2, 4000));
+    }
+
+    @Test
+    public void fueraDeLosBotones_noCuenta() {
+        TouchInput entrada = new TouchInput(4);
+
+        assertFalse(entrada.down(0, 0, 1000));
+        assertFalse(entrada.down(TouchInput.MAXIMO_DEDOS, 1, 1000));
+        entrada.up(0);
+        entrada.up(-1);
+
+        assertEquals(0, entrada.getAceptadas());
+        assertEquals(0, entrada.getRebotes());
+    }
+
+    @Test
+    public void cancel_olvidaLosDedosPeroNoLosRebotes() {
+        TouchInput entrada = new TouchInput(4);
+        entrada.down(0, 1, 1000);
+        entrada.down(1, 2, 1000);
+        entrada.cancel();
+
+        assertFalse(entrada.isPulsado(1));
+        assertFalse(entrada.isPulsado(2));
+        assertFalse(entrada.down(2, 1, 1010));
+        assertTrue(entrada.down(3, 2, 1000 + TouchInput.REBOTE));
+        // El dedo perdido no suelta nada al subir
+        entrada.up(0);
+        assertTrue(entrada.isPulsado(2));
+    }
+
+    @Test
+    public void dedoReutilizadoSinSubir_sueltaElBotonAnterior() {
+        TouchInput entrada = new TouchInput(4);
+        entrada.down(0, 1, 1000);
+        entrada.down(0, 3, 1100);
+
+        assertFalse(entrada.isPulsado(1));
+        assertTrue(entrada.isPulsado(3));
+    }
+
+    /**
+     * Partida infinita perfecta alternando dos dedos, en la que uno de cada 16 toques es un rebote del anterior: sólo
+     * se descartan los rebotes y el motor no ve ningún fallo.
+     */
+    @Test
+    public void partidaConRebotes_soloDescartaLosRebotes() {
+        TouchInput entrada = new TouchInput(SimonConfig.NUMERO_BOTONES);
+        SimonEngine engine = new SimonEngine(SimonConfig.infinito(), new UniformGenerator(), 7);
+        engine.start();
+        engine.finTurnoCpu();
+        int toques = 16000;
+        long instante = 0;
+        int anterior = 0;
+        for (int i = 0; i < toques; i++) {
+            instante += 60;
+            int dedo = i & 1;
+            if (i % 16 == 15) {
+                assertFalse(entrada.down(dedo, anterior, instante - 59));
+            } else {
+                int numero = engine.getNumero(engine.getPosicion());
+                assertTrue(entrada.down(dedo, numero, instante));
+                engine.pulsar(numero, 60);
+                anterior = numero;
+                if (engine.getEstado() == SimonEngine.Estado.TURNO_CPU)
+                    engine.finTurnoCpu();
+            }
+            entrada.up(dedo);
+        }
+
+        assertEquals(toques / 16, entrada.getRebotes());
+        assertEquals(toques - toques / 16, entrada.getAceptadas());
+        assertEquals(SimonEngine.Estado.TURNO_JUGADOR, engine.getEstado());
+    }
+}
@@ -0,0 +1,89 @@
+package es.rbp.simonbp.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comprueba los tamaños y los límites de los enteros de longitud variable que comparten los formatos en disco.
+ */
+public class VarIntTest {
+
+    private static ByteBuffer bytes(int... valores) {
+        byte[] datos = new byte[valores.length];
+        for (int i = 0; i < valores.length; i++) {
+            datos[i] = (byte) valores[i];
+        }
+        return ByteBuffer.wrap(datos);
+    }
+
+    @Test
+    public void sinSigno_idaYVueltaConSuTamaño() {
+        int[] valores = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE};
+        int[] tamaños = {1, 1, 1, 2, 2, 3, 5};
+        for (int i = 0; i < valores.length; i++) {
+            ByteArrayOutputStream salida = new ByteArrayOutputStream();
+            VarInt.escribir(valores[i], salida);
+            assertEquals(String.valueOf(valores[i]), tamaños[i], salida.size());
+            assertEquals(valores[i], VarInt.leer(ByteBuffer.wrap(salida.toByteArray())));
+        }
+    }
+
+    @Test
+    public void conSigno_losPequeñosOcupanPocoConCualquierSigno() {
+        int[] valores = {0, -1, 1, -64, 63, -65, Integer.MIN_VALUE, Integer.MAX_VALUE};
+        int[] tamaños = {1, 1, 1, 1, 1, 2, 5, 5};
+        for (int i = 0; i < valores.length; i++) {
+            ByteArrayOutputStream salida = new ByteArrayOutputStream();
+            VarInt.escribirConSigno(valores[i], salida);
+            assertEquals(String.valueOf(valores[i]), tamaños[i], salida.size());
+            assertEquals(valores[i], VarInt.leerConSigno(ByteBuffer.wrap(salida.toByteArray())));
+        }
+    }
+
+    @Test
+    public void long_idaYVuelta() {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        VarInt.escribirLong(Long.MAX_VALUE, salida);
+        VarInt.escribirLong(300, salida);
+        assertEquals(9 + 2, salida.size());
+
+        ByteBuffer entrada = ByteBuffer.wrap(salida.toByteArray());
+        assertEquals(Long.MAX_VALUE, VarInt.leerLong(entrada));
+        assertEquals(300, VarInt.leerLong(entrada));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void escribir_negativo() {
+        VarInt.escribir(-1, new ByteArrayOutputStream());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void escribirLong_negativo() {
+        VarInt.escribirLong(-1, new ByteArrayOutputStream());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void leer_fueraDelRangoSinSigno() {
+        VarInt.leer(bytes(0xFF, 0xFF, 0xFF, 0xFF, 0x0F));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void leer_demasiadoLargo() {
+        VarInt.leerConSigno(bytes(0x80, 0x80, 0x80, 0x80, 0x10));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void leerLong_demasiadoLargo() {
+        VarInt.leerLong(bytes(0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x80, 0x01));
+    }
+
+    @Test(expected = BufferUnderflowException.class)
+    public void leer_cortado() {
+        VarInt.leer(bytes(0x80, 0x80));
+    }
+}
@@ -0,0 +1,127 @@
+package es.rbp.simonbp.net;
+
+import org.junit.Test;
+
+import java.net.ProtocolException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comprueba que las tramas se leen igual que se escriben, aunque lleguen a trozos.
+ */
+public class ProtocolTest {
+
+    /**
+     * Receptor que apunta las tramas recibidas en orden
+     */
+    private static class Registro implements Protocol.Receptor {
+
+        final StringBuilder tramas = new StringBuilder();
+
+        @Override
+        public void onUnirse(int version) {
+            apuntar("unirse " + version);
+        }
+
+        @Override
+        public void onInicio(long semilla, int botones, int turnos) {
+            apuntar("inicio " + semilla + " " + botones + " " + turnos);
+        }
+
+        @Override
+        public void onRonda(int ronda, int duracionPaso) {
+            apuntar("ronda " + ronda + " " + duracionPaso);
+        }
+
+        @Override
+        public void onListo(long instante) {
+            apuntar("listo " + instante);
+        }
+
+        @Override
+        public void onPulsacion(int numero, long instante) {
+            apuntar("pulsacion " + numero + " " + instante);
+        }
+
+        @Override
+        public void onResultado(boolean victoria, int rondas) {
+            apuntar("resultado " + victoria + " " + rondas);
+        }
+
+        private void apuntar(String trama) {
+            if (tramas.length() > 0)
+                tramas.append(", ");
+            tramas.append(trama);
+        }
+
+        @Override
+        public String toString() {
+            return tramas.toString();
+        }
+    }
+
+    private static final String ESPERADO = "unirse 1, inicio -42 32 65535, ronda 12 150, listo 4294967295, "
+            + "pulsacion 6 123456, resultado true 9";
+
+    private static ByteBuffer partida() {
+        ByteBuffer buffer = ByteBuffer.allocate(Protocol.MAXIMO_TRAMA * 6);
+        Protocol.unirse(buffer);
+        Protocol.inicio(buffer, -42, 32, 65535);
+        Protocol.ronda(buffer, 12, 150);
+        Protocol.listo(buffer, -1);
+        Protocol.pulsacion(buffer, 6, 123456);
+        Protocol.resultado(buffer, true, 9);
+        ((Buffer) buffer).flip();
+        return buffer;
+    }
+
+    @Test
+    public void idaYVuelta() throws ProtocolException {
+        ByteBuffer buffer = partida();
+        assertEquals(4 + Protocol.MAXIMO_TRAMA + 7 + 7 + 8 + 6, buffer.remaining());
+        Registro registro = new Registro();
+
+        assertEquals(6, Protocol.leer(buffer, registro));
+        assertEquals(ESPERADO, registro.toString());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void byteAByte() throws ProtocolException {
+        ByteBuffer completo = partida();
+        ByteBuffer entrada = ByteBuffer.allocate(Protocol.MAXIMO_TRAMA);
+        Registro registro = new Registro();
+        int leidas = 0;
+        while (completo.hasRemaining()) {
+            entrada.put(completo.get());
+            ((Buffer) entrada).flip();
+            leidas += Protocol.leer(entrada, registro);
+            entrada.compact();
+        }
+
+        assertEquals(6, leidas);
+        assertEquals(ESPERADO, registro.toString());
+        assertEquals(0, entrada.position());
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void tipoDesconocido() throws ProtocolException {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{0, 2, 99, 0});
+        Protocol.leer(buffer, new Registro());
+    }
+
+    @Test(expected = ProtocolException.class)
+    public void longitudQueNoCorrespondeAlTipo() throws ProtocolException {
+        // Una ronda con un campo de más: nunca se esperaría al resto de una trama imposible
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{(byte) 0xFF, (byte) 0xFF, Protocol.RONDA});
+        Protocol.leer(buffer, new Registro());
+    }
+
+    @Test
+    public void diferencia_conElRelojDandoLaVuelta() {
+        assertEquals(250, Protocol.diferencia(1000, 750));
+        assertEquals(300, Protocol.diferencia(100, 0xFFFFFFFFL - 199));
+    }
+}
@@ -0,0 +1,61 @@
+package es.rbp.simonbp.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import es.rbp.simonbp.core.AdaptivePolicy;
+import es.rbp.simonbp.core.DifficultyPolicy;
+import es.rbp.simonbp.core.PlayerStats;
+import es.rbp.simonbp.core.SimonConfig;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Lo que hace el motor entre dos rondas con la dificultad adaptativa: registrar la ronda en las estadísticas del
+ * jugador y decidir el ritmo de la siguiente. Un frame a 60 Hz dura 16,7 ms, así que el resultado tiene que quedar
+ * órdenes de magnitud por debajo.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AdaptivePolicyBenchmark {
+
+    private final PlayerStats stats = new PlayerStats();
+
+    private final SimonConfig config = SimonConfig.paraDificultad(SimonConfig.DIFICIL);
+
+    private final DifficultyPolicy.Ajuste ajuste = new DifficultyPolicy.Ajuste();
+
+    private final AdaptivePolicy politica = new AdaptivePolicy();
+
+    private int ronda;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < 20; i++) {
+            stats.registrarReaccion(300);
+        }
+    }
+
+    @Benchmark
+    public int decidir() {
+        ronda++;
+        stats.registrarReaccion(200 + ronda % 300);
+        stats.registrarRonda(ronda % 7 != 0);
+        politica.decidir(stats, config, ajuste);
+        return ajuste.duracionPaso;
+    }
+}
@@ -0,0 +1,75 @@
+package es.rbp.simonbp.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import es.rbp.simonbp.core.Board;
+import es.rbp.simonbp.core.SimonConfig;
+import es.rbp.simonbp.core.SimonEngine;
+import es.rbp.simonbp.core.UniformGenerator;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * El camino de cada pulsación con tableros de 4 a 32 botones: del número guardado en la vista al botón y su nota, y
+ * de ahí al motor. Juega partidas acertando siempre; el resultado es por pulsación y no debe crecer con el tablero.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    private static final int RONDAS = 100;
+
+    private static final int PULSACIONES = RONDAS * (RONDAS + 1) / 2;
+
+    @Param({"4", "6", "9", "16", "32"})
+    public int botones;
+
+    private Board tablero;
+
+    private SimonConfig config;
+
+    private long semilla;
+
+    @Setup
+    public void setup() {
+        tablero = Board.crear(botones, botones);
+        config = new SimonConfig(botones, RONDAS, 0);
+    }
+
+    /**
+     * Cada pulsación hace lo mismo que PlayActivity: busca el botón por su número, toma su nota y se la pasa al motor
+     */
+    @Benchmark
+    @OperationsPerInvocation(PULSACIONES)
+    public long pulsacion() {
+        SimonEngine engine = new SimonEngine(config, new UniformGenerator(), semilla++);
+        long notas = 0;
+        engine.start();
+        while (engine.getEstado() == SimonEngine.Estado.TURNO_CPU) {
+            engine.finTurnoCpu();
+            for (int i = 0, ronda = engine.getRonda(); i < ronda; i++) {
+                int numero = engine.getNumero(i);
+                notas += tablero.getNota(numero);
+                engine.pulsar(numero);
+            }
+        }
+        return notas;
+    }
+}
@@ -0,0 +1,114 @@
+package es.rbp.simonbp.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import es.rbp.simonbp.core.ByteSequence;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * {@link ByteSequence} frente al ArrayList de Integer que usaba PlayActivity, con una serie de 4096 pasos: añadir
+ * cada paso, validar cada pulsación contra la serie como en jugar() y comparar el prefijo de dos series. El
+ * resultado es por paso.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ByteSequenceBenchmark {
+
+    private static final int LONGITUD = 4096;
+
+    private final int[] numeros = new int[LONGITUD];
+
+    private final ByteSequence serie = new ByteSequence(LONGITUD);
+
+    private final ByteSequence copia = new ByteSequence(LONGITUD);
+
+    private final List<Integer> lista = new ArrayList<>(LONGITUD);
+
+    private List<Integer> copiaLista;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(9);
+        for (int i = 0; i < LONGITUD; i++) {
+            numeros[i] = random.nextInt(6) + 1;
+            serie.add(numeros[i]);
+            lista.add(numeros[i]);
+        }
+        copia.setRange(serie, 0, LONGITUD);
+        copiaLista = new ArrayList<>(lista);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LONGITUD)
+    public List<Integer> appendLista() {
+        List<Integer> l = new ArrayList<>(LONGITUD);
+        for (int numero : numeros) {
+            l.add(numero);
+        }
+        return l;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LONGITUD)
+    public ByteSequence appendBytes() {
+        ByteSequence p = new ByteSequence(LONGITUD);
+        for (int numero : numeros) {
+            p.add(numero);
+        }
+        return p;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LONGITUD)
+    public int validarLista() {
+        int fallos = 0;
+        for (int i = 0; i < LONGITUD; i++) {
+            if (numeros[i] != lista.get(i))
+                fallos++;
+        }
+        return fallos;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LONGITUD)
+    public int validarBytes() {
+        int fallos = 0;
+        for (int i = 0; i < LONGITUD; i++) {
+            if (numeros[i] != serie.get(i))
+                fallos++;
+        }
+        return fallos;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LONGITUD)
+    public boolean prefijoLista() {
+        return lista.subList(0, LONGITUD).equals(copiaLista.subList(0, LONGITUD));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LONGITUD)
+    public boolean prefijoBytes() {
+        return serie.startsWith(copia, LONGITUD);
+    }
+}
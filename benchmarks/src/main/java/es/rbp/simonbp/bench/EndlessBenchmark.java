@@ -0,0 +1,76 @@
+package es.rbp.simonbp.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import es.rbp.simonbp.core.GameSnapshot;
+import es.rbp.simonbp.core.SimonConfig;
+import es.rbp.simonbp.core.SimonEngine;
+import es.rbp.simonbp.core.UniformGenerator;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Una ronda entera del modo infinito, pulsando la serie completa, cuando la partida va por la ronda 1.000 o por la
+ * 10.000. Antes de cada ronda se restaura la partida de una foto, fuera de la medida. El resultado entre el número de
+ * la ronda es el coste por pulsación, que no debe crecer con las rondas.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EndlessBenchmark {
+
+    @Param({"1000", "10000"})
+    public int ronda;
+
+    private final SimonConfig config = SimonConfig.infinito();
+
+    private GameSnapshot foto;
+
+    private SimonEngine engine;
+
+    /**
+     * Juega hasta el turno del jugador de la ronda y hace la foto
+     */
+    @Setup(Level.Trial)
+    public void jugarHastaLaRonda() {
+        SimonEngine engine = new SimonEngine(config, new UniformGenerator(), 2024);
+        engine.start();
+        engine.finTurnoCpu();
+        while (engine.getRonda() < ronda) {
+            for (int i = 0, n = engine.getRonda(); i < n; i++) {
+                engine.pulsar(engine.getNumero(i));
+            }
+            engine.finTurnoCpu();
+        }
+        foto = engine.snapshot();
+    }
+
+    @Setup(Level.Invocation)
+    public void restaurar() {
+        engine = foto.restore(config, new UniformGenerator());
+    }
+
+    @Benchmark
+    public SimonEngine.Estado pulsarRonda() {
+        for (int i = 0; i < ronda; i++) {
+            engine.pulsar(engine.getNumero(i));
+        }
+        return engine.getEstado();
+    }
+}
@@ -0,0 +1,129 @@
+package es.rbp.simonbp.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import es.rbp.simonbp.core.GameHistoryStore;
+import es.rbp.simonbp.core.GameRecord;
+import es.rbp.simonbp.core.SimonConfig;
+import es.rbp.simonbp.core.XoshiroRandom;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Abrir un historial de 100.000 partidas, como al arrancar la app: con el índice de las clasificaciones y
+ * reconstruyéndolo desde el log, que es lo que pasa si el índice se ha perdido. El historial se escribe una vez
+ * antes de medir y cada apertura se cierra fuera de la medida.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameHistoryBenchmark {
+
+    private static final int PARTIDAS = 100000;
+
+    private File conIndice;
+
+    private File sinIndice;
+
+    private GameHistoryStore abierto;
+
+    @Setup(Level.Trial)
+    public void escribirHistorial() throws IOException {
+        conIndice = Files.createTempDirectory("historial").toFile();
+        sinIndice = Files.createTempDirectory("historial").toFile();
+        XoshiroRandom random = new XoshiroRandom(7);
+        int[] dificultades = {SimonConfig.FACIL, SimonConfig.MEDIO, SimonConfig.DIFICIL, SimonConfig.INFINITO};
+
+        GameHistoryStore store = new GameHistoryStore(conIndice);
+        for (int i = 0; i < PARTIDAS; i++) {
+            int turnos = dificultades[random.nextInt(dificultades.length)];
+            int rondas = 1 + random.nextInt(turnos == SimonConfig.INFINITO ? 60 : turnos);
+            int[] tiempos = new int[rondas * (rondas + 1) / 2];
+            for (int t = 0; t < tiempos.length; t++) {
+                tiempos[t] = 150 + random.nextInt(900);
+            }
+            store.record(new GameRecord(i, random.nextLong(), turnos, rondas, rondas * 1500, rondas == turnos,
+                    tiempos));
+        }
+        store.close();
+        copiar(new File(conIndice, GameHistoryStore.FICHERO_LOG), new File(sinIndice, GameHistoryStore.FICHERO_LOG));
+    }
+
+    private static void copiar(File origen, File destino) throws IOException {
+        InputStream entrada = new FileInputStream(origen);
+        try {
+            OutputStream salida = new FileOutputStream(destino);
+            try {
+                byte[] buffer = new byte[64 * 1024];
+                int leidos;
+                while ((leidos = entrada.read(buffer)) > 0) {
+                    salida.write(buffer, 0, leidos);
+                }
+            } finally {
+                salida.close();
+            }
+        } finally {
+            entrada.close();
+        }
+    }
+
+    /**
+     * Borra el índice que dejó la reconstrucción anterior
+     */
+    @Setup(Level.Invocation)
+    public void borrarIndice() {
+        new File(sinIndice, GameHistoryStore.FICHERO_INDICE).delete();
+    }
+
+    @TearDown(Level.Invocation)
+    public void cerrar() throws IOException {
+        if (abierto.getTotal() != PARTIDAS)
+            throw new IllegalStateException("Se han cargado " + abierto.getTotal() + " partidas");
+        abierto.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void borrarHistorial() {
+        for (File directorio : new File[]{conIndice, sinIndice}) {
+            for (File fichero : directorio.listFiles()) {
+                fichero.delete();
+            }
+            directorio.delete();
+        }
+    }
+
+    @Benchmark
+    public GameHistoryStore cargaConIndice() throws IOException {
+        abierto = new GameHistoryStore(conIndice);
+        return abierto;
+    }
+
+    @Benchmark
+    public GameHistoryStore reconstruccion() throws IOException {
+        abierto = new GameHistoryStore(sinIndice);
+        return abierto;
+    }
+}
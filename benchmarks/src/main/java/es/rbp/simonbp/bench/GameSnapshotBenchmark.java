@@ -0,0 +1,97 @@
+package es.rbp.simonbp.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+import es.rbp.simonbp.core.GameSnapshot;
+import es.rbp.simonbp.core.SimonConfig;
+import es.rbp.simonbp.core.SimonEngine;
+import es.rbp.simonbp.core.UniformGenerator;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Guardar y restaurar una partida de 12 rondas, como al girar la pantalla: {@link GameSnapshot} frente a la
+ * serialización de Java de un objeto con los mismos campos. La comparación con Parcelable necesita Android y sólo
+ * comprueba el tamaño, en GameSnapshotParcelTest.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameSnapshotBenchmark {
+
+    /**
+     * Estado de la partida como lo guardaría PlayActivity con Serializable
+     */
+    private static class EstadoSerializable implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        int numeroBotones, turnos, posicion, numTruco, ultimaEntrada;
+
+        long semilla, numEntradas;
+
+        SimonEngine.Estado estado;
+
+        int[] serie;
+    }
+
+    private SimonEngine engine;
+
+    @Setup
+    public void setup() {
+        engine = new SimonEngine(SimonConfig.paraDificultad(SimonConfig.DIFICIL), new UniformGenerator(), 42);
+        engine.start();
+        while (engine.getRonda() < 12) {
+            engine.finTurnoCpu();
+            engine.pulsar(engine.getNumero(engine.getPosicion()));
+        }
+        engine.finTurnoCpu();
+    }
+
+    @Benchmark
+    public SimonEngine foto() {
+        byte[] datos = engine.snapshot().toBytes();
+        return GameSnapshot.fromBytes(datos).restore(engine.getConfig(), new UniformGenerator());
+    }
+
+    @Benchmark
+    public Object serializable() throws IOException, ClassNotFoundException {
+        EstadoSerializable estado = new EstadoSerializable();
+        estado.numeroBotones = engine.getConfig().getNumeroBotones();
+        estado.turnos = engine.getConfig().getTurnos();
+        estado.posicion = engine.getPosicion();
+        estado.numTruco = engine.getNumTruco();
+        estado.semilla = engine.getSemilla();
+        estado.numEntradas = engine.getSesion().getNumEntradas();
+        estado.ultimaEntrada = engine.getSesion().getUltimaEntrada();
+        estado.estado = engine.getEstado();
+        estado.serie = new int[engine.getRonda()];
+        engine.getSerie().copyRange(0, engine.getRonda(), estado.serie, 0);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream salida = new ObjectOutputStream(bytes);
+        salida.writeObject(estado);
+        salida.close();
+        return new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+    }
+}
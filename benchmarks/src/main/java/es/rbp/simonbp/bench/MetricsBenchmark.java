@@ -0,0 +1,46 @@
+package es.rbp.simonbp.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import es.rbp.simonbp.core.Metrics;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Registrar una muestra de latencia con las métricas activas y desactivadas. Desactivadas tienen que costar casi
+ * nada, porque se llaman en cada nota y en cada pulsación aunque nadie las mire.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    private final Metrics activas = new Metrics(true);
+
+    private final Metrics desactivadas = new Metrics(false);
+
+    private long valor;
+
+    @Benchmark
+    public void activas() {
+        activas.record(Metrics.Histograma.REACCION, valor++ & 0xFFFFF);
+    }
+
+    @Benchmark
+    public void desactivadas() {
+        desactivadas.record(Metrics.Histograma.REACCION, valor++ & 0xFFFFF);
+    }
+}
@@ -0,0 +1,148 @@
+package es.rbp.simonbp.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import es.rbp.simonbp.bench.legacy.LegacyMixer;
+import es.rbp.simonbp.bench.legacy.LegacyOscillator;
+import es.rbp.simonbp.core.NoteMixer;
+import es.rbp.simonbp.core.ToneSynth;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Un bloque de 256 muestras a 44,1 kHz con todas las voces ocupadas: {@link LegacyMixer} frente a {@link NoteMixer}
+ * mezclando notas ya decodificadas, y {@link LegacyOscillator} frente a {@link ToneSynth} sintetizándolas.
+ * Un bloque dura unos 5,8 ms, así que cualquier resultado muy por debajo de eso es suficiente para el hilo de audio.
+ * <p>
+ * Cada bloque se mide en tiempo medio y en SampleTime, cuyo p1.00 es el peor bloque, el que decide si el hilo de audio
+ * llega a tiempo. Los métodos frames* repiten las mismas mezclas en muestras mezcladas por segundo.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MixBenchmark {
+
+    private static final int FRECUENCIA = 44100;
+
+    private static final int BLOQUE = 256;
+
+    private static final int NOTAS = 6;
+
+    @Param({"4", "8", "16"})
+    public int voces;
+
+    private final short[] salida = new short[BLOQUE];
+
+    private LegacyMixer mezcladorLegacy;
+
+    private NoteMixer mezclador;
+
+    private LegacyOscillator osciladorLegacy;
+
+    private ToneSynth synth;
+
+    private int disparos;
+
+    @Setup
+    public void setup() {
+        double[] escala = ToneSynth.escalaMayor(NOTAS);
+        // Notas de medio segundo, como las de assets una vez decodificadas
+        short[][] notas = new short[NOTAS][FRECUENCIA / 2];
+        for (int n = 0; n < NOTAS; n++) {
+            for (int i = 0; i < notas[n].length; i++) {
+                notas[n][i] = (short) (Math.sin(2 * Math.PI * escala[n] * i / FRECUENCIA) * Short.MAX_VALUE / 4);
+            }
+        }
+        int ataque = FRECUENCIA / 200, relajacion = FRECUENCIA / 20;
+        mezcladorLegacy = new LegacyMixer(notas, voces, ataque, relajacion);
+        mezclador = new NoteMixer(notas, voces, BLOQUE, ataque, relajacion);
+
+        osciladorLegacy = new LegacyOscillator(FRECUENCIA, escala, voces);
+        synth = new ToneSynth(FRECUENCIA, escala, voces, BLOQUE,
+                ToneSynth.Envolvente.enMilisegundos(FRECUENCIA, 5, 60, 0.6f, 250, 150));
+        for (int v = 0; v < voces; v++) {
+            osciladorLegacy.trigger(v % NOTAS + 1);
+        }
+    }
+
+    @Benchmark
+    public short[] mezclaLegacy() {
+        for (int v = mezcladorLegacy.getVocesActivas(); v < voces; v++) {
+            mezcladorLegacy.trigger(disparos++ % NOTAS + 1);
+        }
+        mezcladorLegacy.mix(salida, 0, BLOQUE);
+        return salida;
+    }
+
+    @Benchmark
+    public short[] mezclaActual() {
+        for (int v = mezclador.getVocesActivas(); v < voces; v++) {
+            mezclador.trigger(disparos++ % NOTAS + 1);
+        }
+        mezclador.mix(salida, 0, BLOQUE);
+        return salida;
+    }
+
+    @Benchmark
+    public short[] sintesisLegacy() {
+        osciladorLegacy.mix(salida, 0, BLOQUE);
+        return salida;
+    }
+
+    @Benchmark
+    public short[] sintesisActual() {
+        for (int v = synth.getVocesActivas(); v < voces; v++) {
+            synth.trigger(disparos++ % NOTAS + 1);
+        }
+        synth.mix(salida, 0, BLOQUE);
+        return salida;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BLOQUE)
+    public short[] framesMezclaLegacy() {
+        return mezclaLegacy();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BLOQUE)
+    public short[] framesMezclaActual() {
+        return mezclaActual();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BLOQUE)
+    public short[] framesSintesisLegacy() {
+        return sintesisLegacy();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BLOQUE)
+    public short[] framesSintesisActual() {
+        return sintesisActual();
+    }
+}
@@ -0,0 +1,81 @@
+package es.rbp.simonbp.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import es.rbp.simonbp.core.NoteBank;
+import es.rbp.simonbp.core.NoteMixer;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Preparar el audio al abrir una partida. Antes cada PlayActivity decodificaba sus propias notas y recortaba el
+ * silencio del final; ahora se decodifican una vez en un {@link NoteBank} compartido y la partida sólo crea su
+ * {@link NoteMixer}. MediaCodec no existe en la JVM, así que la decodificación se sustituye por la copia del PCM
+ * que devolvería, que es el mínimo de trabajo que hacía cada partida.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NoteLoadBenchmark {
+
+    private static final int FRECUENCIA = 44100;
+
+    private static final int NOTAS = 6;
+
+    private static final int UMBRAL_SILENCIO = 16;
+
+    /**
+     * PCM tal como sale del decodificador: medio segundo de nota y un cuarto de segundo de silencio
+     */
+    private short[][] decodificadas;
+
+    private NoteBank banco;
+
+    @Setup
+    public void setup() {
+        decodificadas = new short[NOTAS][FRECUENCIA * 3 / 4];
+        for (int n = 0; n < NOTAS; n++) {
+            for (int i = 0; i < FRECUENCIA / 2; i++) {
+                decodificadas[n][i] = (short) (Math.sin(2 * Math.PI * (262 + 40 * n) * i / FRECUENCIA) * 8000);
+            }
+        }
+        short[][] notas = new short[NOTAS][];
+        for (int n = 0; n < NOTAS; n++) {
+            notas[n] = NoteBank.recortarSilencio(decodificadas[n], UMBRAL_SILENCIO);
+        }
+        banco = new NoteBank(NOTAS);
+        banco.set(notas, FRECUENCIA);
+    }
+
+    @Benchmark
+    public NoteMixer legacy() {
+        short[][] notas = new short[NOTAS][];
+        for (int n = 0; n < NOTAS; n++) {
+            short[] pcm = Arrays.copyOf(decodificadas[n], decodificadas[n].length);
+            notas[n] = NoteBank.recortarSilencio(pcm, UMBRAL_SILENCIO);
+        }
+        return new NoteMixer(notas, 8, 1024, FRECUENCIA / 200, FRECUENCIA / 20);
+    }
+
+    @Benchmark
+    public NoteMixer actual() throws InterruptedException {
+        if (!banco.await(0))
+            throw new IllegalStateException("Banco sin cargar");
+        return new NoteMixer(banco.getNotas(), 8, 1024, FRECUENCIA / 200, FRECUENCIA / 20);
+    }
+}
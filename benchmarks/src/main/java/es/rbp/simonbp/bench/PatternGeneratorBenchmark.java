@@ -0,0 +1,90 @@
+package es.rbp.simonbp.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import es.rbp.simonbp.core.NoRepeatGenerator;
+import es.rbp.simonbp.core.ByteSequence;
+import es.rbp.simonbp.core.PatternGenerator;
+import es.rbp.simonbp.core.UniformGenerator;
+import es.rbp.simonbp.core.WeightedGenerator;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Generar una serie de 10.000 pasos en bloque con cada generador y con Math.random(), como hacía la cpu. El
+ * resultado es por paso.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatternGeneratorBenchmark {
+
+    private static final int LONGITUD = 10000;
+
+    private static final int NUMERO_BOTONES = 6;
+
+    @Param({"random", "uniforme", "sinRepetir", "ponderado"})
+    public String generador;
+
+    private PatternGenerator patron;
+
+    private final ByteSequence serie = new ByteSequence(LONGITUD);
+
+    private long semilla;
+
+    @Setup
+    public void setup() {
+        switch (generador) {
+            case "random":
+                patron = new PatternGenerator() {
+                    @Override
+                    public void reset(long semilla) {
+                    }
+
+                    @Override
+                    public int next(int numeroBotones) {
+                        return (int) (Math.random() * numeroBotones) + 1;
+                    }
+                };
+                break;
+            case "uniforme":
+                patron = new UniformGenerator();
+                break;
+            case "sinRepetir":
+                patron = new NoRepeatGenerator();
+                break;
+            case "ponderado":
+                patron = new WeightedGenerator(new int[]{1, 1, 1, 1, 1, 2});
+                break;
+            default:
+                throw new IllegalArgumentException("Generador desconocido: " + generador);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LONGITUD)
+    public ByteSequence generar() {
+        patron.reset(semilla++);
+        serie.clear();
+        for (int i = 0; i < LONGITUD; i++) {
+            serie.add(patron.next(NUMERO_BOTONES));
+        }
+        return serie;
+    }
+}
@@ -0,0 +1,138 @@
+package es.rbp.simonbp.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import es.rbp.simonbp.bench.legacy.LegacyMessageQueue;
+import es.rbp.simonbp.core.Clock;
+import es.rbp.simonbp.core.ByteSequence;
+import es.rbp.simonbp.core.ReplayScript;
+import es.rbp.simonbp.core.Sequencer;
+import es.rbp.simonbp.core.SimonConfig;
+import es.rbp.simonbp.core.UniformGenerator;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Programar y despachar la serie de una ronda: el antiguo cpu(), con un postDelayed por nota, frente a
+ * {@link ReplayScript} sobre un {@link Sequencer}. El tiempo no pasa de verdad; los dos avanzan de evento en evento.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplayBenchmark {
+
+    private static final long MS = 1_000_000L;
+
+    @Param({"12", "100", "1000"})
+    public int longitud;
+
+    private List<Integer> serieLegacy;
+
+    private ByteSequence serie;
+
+    private final LegacyMessageQueue cola = new LegacyMessageQueue();
+
+    private Sequencer sequencer;
+
+    private ReplayScript script;
+
+    private Blackhole blackhole;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        UniformGenerator generador = new UniformGenerator();
+        generador.reset(42);
+        serieLegacy = new ArrayList<>(longitud);
+        serie = new ByteSequence(longitud, SimonConfig.NUMERO_BOTONES);
+        for (int i = 0; i < longitud; i++) {
+            int numero = generador.next(SimonConfig.NUMERO_BOTONES);
+            serieLegacy.add(numero);
+            serie.add(numero);
+        }
+
+        final long[] ahora = new long[1];
+        sequencer = new Sequencer(new Clock() {
+            @Override
+            public long nanoTime() {
+                return ahora[0];
+            }
+        }, 8);
+        script = new ReplayScript(sequencer, new ReplayScript.Listener() {
+            @Override
+            public void onNotaOn(int numero) {
+                ReplayBenchmark.this.blackhole.consume(numero);
+            }
+
+            @Override
+            public void onNotaOff(int numero) {
+                ReplayBenchmark.this.blackhole.consume(numero);
+            }
+
+            @Override
+            public void onFinSerie() {
+                ReplayBenchmark.this.blackhole.consume(true);
+            }
+        });
+        sequencer.setListener(new Sequencer.Listener() {
+            @Override
+            public void onEvento(int tipo, int dato) {
+                script.onEvento(tipo, dato);
+            }
+        });
+    }
+
+    @Benchmark
+    public int legacy() {
+        for (int i = 0; i < serieLegacy.size(); i++) {
+            final int numero = serieLegacy.get(i);
+            cola.postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    blackhole.consume(numero);
+                    cola.postDelayed(new Runnable() {
+                        @Override
+                        public void run() {
+                            blackhole.consume(numero);
+                        }
+                    }, 250);
+                }
+            }, 250 * 2 * i + 100);
+        }
+        cola.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                blackhole.consume(true);
+            }
+        }, 500 * serieLegacy.size());
+        return cola.drain();
+    }
+
+    @Benchmark
+    public int actual() {
+        script.start(serie, longitud, 0, 100 * MS, 500 * MS, 250 * MS);
+        int despachados = 0;
+        while (sequencer.getPendientes() > 0) {
+            despachados += sequencer.tick(sequencer.getSiguiente());
+        }
+        return despachados;
+    }
+}
@@ -0,0 +1,62 @@
+package es.rbp.simonbp.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import es.rbp.simonbp.bench.legacy.LegacyGame;
+import es.rbp.simonbp.core.ByteSequence;
+import es.rbp.simonbp.core.PatternGenerator;
+import es.rbp.simonbp.core.SimonConfig;
+import es.rbp.simonbp.core.UniformGenerator;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Generación de la serie de la cpu: el antiguo cpu() con Math.random() y un List de Integer frente a
+ * {@link UniformGenerator} con {@link ByteSequence}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SequenceBenchmark {
+
+    @Param({"12", "100", "1000"})
+    public int rondas;
+
+    private final PatternGenerator generador = new UniformGenerator();
+
+    private long semilla;
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        LegacyGame juego = new LegacyGame(rondas, SimonConfig.NUMERO_BOTONES);
+        for (int i = 0; i < rondas; i++) {
+            juego.cpu();
+        }
+        blackhole.consume(juego.getSerie());
+    }
+
+    @Benchmark
+    public void actual(Blackhole blackhole) {
+        ByteSequence serie = new ByteSequence(rondas, SimonConfig.NUMERO_BOTONES);
+        generador.reset(semilla++);
+        for (int i = 0; i < rondas; i++) {
+            serie.add(generador.next(SimonConfig.NUMERO_BOTONES));
+        }
+        blackhole.consume(serie);
+    }
+}
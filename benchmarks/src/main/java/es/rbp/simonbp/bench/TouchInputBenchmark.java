@@ -0,0 +1,91 @@
+package es.rbp.simonbp.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import es.rbp.simonbp.core.SimonConfig;
+import es.rbp.simonbp.core.SimonEngine;
+import es.rbp.simonbp.core.TouchInput;
+import es.rbp.simonbp.core.UniformGenerator;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * El camino de un toque hasta que el motor lo valida, sin Android: el filtro de toques decide si es una pulsación y
+ * el motor la comprueba contra la serie. Juega partidas infinitas perfectas alternando dos dedos, con un rebote de
+ * cada 16 toques. El resultado es por toque y debe quedar muy por debajo del milisegundo que tiene de resolución el
+ * instante del evento.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TouchInputBenchmark {
+
+    /**
+     * Un toque de cada tantos es un rebote del anterior
+     */
+    private static final int CADA_REBOTE = 16;
+
+    /**
+     * Ronda a partir de la cual se empieza otra partida, para que la serie no crezca sin límite
+     */
+    private static final int RONDA_MAXIMA = 500;
+
+    private final TouchInput entrada = new TouchInput(SimonConfig.NUMERO_BOTONES);
+
+    private SimonEngine engine;
+
+    private long instante;
+
+    private int toques;
+
+    private int anterior;
+
+    @Setup
+    public void setup() {
+        engine = nuevoMotor();
+    }
+
+    private static SimonEngine nuevoMotor() {
+        SimonEngine engine = new SimonEngine(SimonConfig.infinito(), new UniformGenerator(), 7);
+        engine.start();
+        engine.finTurnoCpu();
+        return engine;
+    }
+
+    @Benchmark
+    public boolean toqueHastaValidar() {
+        instante += 60;
+        int dedo = toques & 1;
+        boolean aceptado;
+        if (++toques % CADA_REBOTE == 0) {
+            // El mismo botón otra vez sin que haya pasado el tiempo de rebote
+            aceptado = entrada.down(dedo, anterior, instante - 59);
+        } else {
+            int numero = engine.getNumero(engine.getPosicion());
+            aceptado = entrada.down(dedo, numero, instante);
+            if (aceptado)
+                engine.pulsar(numero, 60);
+            anterior = numero;
+            if (engine.getEstado() == SimonEngine.Estado.TURNO_CPU)
+                engine.finTurnoCpu();
+            if (engine.getRonda() > RONDA_MAXIMA)
+                engine = nuevoMotor();
+        }
+        entrada.up(dedo);
+        return aceptado;
+    }
+}
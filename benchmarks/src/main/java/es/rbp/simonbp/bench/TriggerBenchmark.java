@@ -0,0 +1,132 @@
+package es.rbp.simonbp.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import es.rbp.simonbp.core.PcmRingBuffer;
+import es.rbp.simonbp.core.PcmSource;
+import es.rbp.simonbp.core.QueuedSource;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Lo que espera el hilo principal al disparar una nota mientras el hilo de audio mezcla. La fuente tiene su monitor
+ * ocupado 2 ms por bloque, como un mezclador muy cargado: disparando directamente hay que esperar a que termine el
+ * bloque y a través de {@link QueuedSource} sólo se deja el comando en la cola. Lo que importa son los percentiles
+ * altos, no la media.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TriggerBenchmark {
+
+    private static final int NOTAS = 6;
+
+    private static final int FRAMES = 16;
+
+    private FuenteLenta fuente;
+
+    private QueuedSource cola;
+
+    private Thread hiloAudio;
+
+    private volatile boolean activo;
+
+    private int nota;
+
+    @Setup(Level.Trial)
+    public void arrancarAudio() {
+        fuente = new FuenteLenta(2);
+        cola = new QueuedSource(fuente, 64);
+        activo = true;
+        hiloAudio = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                short[] salida = new short[FRAMES];
+                while (activo) {
+                    cola.mix(salida, 0, FRAMES);
+                }
+            }
+        }, "Audio");
+        hiloAudio.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void pararAudio() throws InterruptedException {
+        activo = false;
+        hiloAudio.join();
+    }
+
+    @Benchmark
+    public void directo() {
+        nota = nota % NOTAS + 1;
+        fuente.trigger(nota);
+    }
+
+    @Benchmark
+    public void encolado() {
+        nota = nota % NOTAS + 1;
+        cola.trigger(nota);
+    }
+
+    /**
+     * Fuente que tiene su monitor ocupado durante todo el bloque, como {@link es.rbp.simonbp.core.NoteMixer}
+     */
+    private static class FuenteLenta implements PcmSource {
+
+        private final long nanosBloque;
+
+        private int ultimaNota;
+
+        FuenteLenta(long millisBloque) {
+            this.nanosBloque = millisBloque * 1_000_000L;
+        }
+
+        @Override
+        public int getNumeroNotas() {
+            return NOTAS;
+        }
+
+        @Override
+        public synchronized void trigger(int nota) {
+            ultimaNota = nota;
+        }
+
+        @Override
+        public synchronized int mix(short[] salida, int offset, int frames) {
+            long fin = System.nanoTime() + nanosBloque;
+            while (System.nanoTime() < fin) {
+                // Ocupado mezclando
+            }
+            salida[offset] = (short) ultimaNota;
+            return 1;
+        }
+
+        @Override
+        public synchronized int render(PcmRingBuffer destino) {
+            short[] bloque = new short[destino.libres()];
+            mix(bloque, 0, bloque.length);
+            return destino.write(bloque, 0, bloque.length);
+        }
+
+        @Override
+        public synchronized void stopAll() {
+            ultimaNota = 0;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package es.rbp.simonbp.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import es.rbp.simonbp.bench.legacy.LegacyGame;
+import es.rbp.simonbp.core.SimonConfig;
+import es.rbp.simonbp.core.SimonEngine;
+import es.rbp.simonbp.core.UniformGenerator;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Una partida completa sin fallos, con la serie generándose ronda a ronda: el antiguo jugar() frente a
+ * {@link SimonEngine#pulsar(int)}. El coste crece con el cuadrado de las rondas, así que mide sobre todo la
+ * comprobación de cada pulsación.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    @Param({"12", "100"})
+    public int rondas;
+
+    private long semilla;
+
+    @Benchmark
+    public boolean legacy() {
+        LegacyGame juego = new LegacyGame(rondas, SimonConfig.NUMERO_BOTONES);
+        juego.cpu();
+        while (!juego.isFin()) {
+            if (juego.jugar(juego.getSerie().get(juego.getPosicion())))
+                juego.cpu();
+        }
+        return juego.isVictoria();
+    }
+
+    @Benchmark
+    public SimonEngine.Estado actual() {
+        SimonEngine engine = new SimonEngine(new SimonConfig(SimonConfig.NUMERO_BOTONES, rondas,
+                SimonConfig.TRUCO_ILIMITADO), new UniformGenerator(), semilla++);
+        engine.start();
+        while (!engine.isTerminada()) {
+            engine.finTurnoCpu();
+            engine.pulsar(engine.getNumero(engine.getPosicion()));
+        }
+        return engine.getEstado();
+    }
+}
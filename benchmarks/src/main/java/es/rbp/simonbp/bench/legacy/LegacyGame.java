@@ -0,0 +1,87 @@
+package es.rbp.simonbp.bench.legacy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Reglas del juego tal como estaban en la primera versión de PlayActivity: la serie en un List de Integer, los
+ * números nuevos con Math.random() y la comprobación de cada pulsación con los índices index y turnoActual. Sólo se
+ * ha quitado lo que dependía de Android.
+ */
+public class LegacyGame {
+
+    private final List<Integer> cpu = new ArrayList<>();
+
+    private final int turnos;
+
+    private final int numeroMaximo;
+
+    private int index = 1;
+
+    private int turnoActual = 1;
+
+    private boolean fin;
+
+    private boolean victoria;
+
+    /**
+     * @param turnos       rondas de la partida.
+     * @param numeroMaximo número de botones.
+     */
+    public LegacyGame(int turnos, int numeroMaximo) {
+        this.turnos = turnos;
+        this.numeroMaximo = numeroMaximo;
+    }
+
+    /**
+     * Añade un número a la serie, como el antiguo cpu() antes de programar las animaciones.
+     */
+    public void cpu() {
+        int numeroNuevo = (int) (Math.random() * numeroMaximo) + 1;
+        cpu.add(numeroNuevo);
+    }
+
+    /**
+     * El antiguo jugar() sin animaciones ni sonido.
+     *
+     * @param numero botón pulsado.
+     * @return true si empieza el turno de la cpu.
+     */
+    public boolean jugar(int numero) {
+        boolean turnoCpu = false;
+        if (index == turnos && numero == cpu.get(index - 1)) {
+            fin = true;
+            victoria = true;
+        } else if (numero != cpu.get(index - 1)) {
+            fin = true;
+        }
+        if ((index == turnoActual && turnoActual < turnos) && !fin) {
+            index = 0;
+            turnoActual++;
+            turnoCpu = true;
+        }
+        index++;
+        return turnoCpu;
+    }
+
+    public List<Integer> getSerie() {
+        return cpu;
+    }
+
+    /**
+     * @return posición de la serie que toca pulsar.
+     */
+    public int getPosicion() {
+        return index - 1;
+    }
+
+    public boolean isFin() {
+        return fin;
+    }
+
+    public boolean isVictoria() {
+        return victoria;
+    }
+}
@@ -0,0 +1,77 @@
+package es.rbp.simonbp.bench.legacy;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Cola de mensajes con la misma estructura que android.os.MessageQueue: una lista enlazada ordenada por instante en
+ * la que cada mensaje nuevo se inserta recorriendo la lista desde el principio. Los mensajes se reciclan como con
+ * Message.obtain(), así que sólo se reservan los Runnable, igual que con Handler.postDelayed.
+ * <p>
+ * Sirve para medir cómo mostraba la serie la primera versión de PlayActivity, que programaba todas las notas de la
+ * ronda de golpe con un postDelayed por nota.
+ */
+public class LegacyMessageQueue {
+
+    private static class Mensaje {
+
+        long instante;
+
+        Runnable callback;
+
+        Mensaje siguiente;
+    }
+
+    private Mensaje cabeza;
+
+    private Mensaje libres;
+
+    private long ahora;
+
+    /**
+     * Igual que Handler.postDelayed.
+     *
+     * @param callback tarea a ejecutar.
+     * @param retraso  milisegundos desde ahora.
+     */
+    public void postDelayed(Runnable callback, long retraso) {
+        Mensaje mensaje = libres;
+        if (mensaje != null)
+            libres = mensaje.siguiente;
+        else
+            mensaje = new Mensaje();
+        mensaje.instante = ahora + retraso;
+        mensaje.callback = callback;
+        if (cabeza == null || mensaje.instante < cabeza.instante) {
+            mensaje.siguiente = cabeza;
+            cabeza = mensaje;
+            return;
+        }
+        Mensaje anterior = cabeza;
+        while (anterior.siguiente != null && anterior.siguiente.instante <= mensaje.instante) {
+            anterior = anterior.siguiente;
+        }
+        mensaje.siguiente = anterior.siguiente;
+        anterior.siguiente = mensaje;
+    }
+
+    /**
+     * Ejecuta todos los mensajes en orden, avanzando el reloj hasta el instante de cada uno, como el Looper.
+     *
+     * @return número de mensajes ejecutados.
+     */
+    public int drain() {
+        int ejecutados = 0;
+        while (cabeza != null) {
+            Mensaje mensaje = cabeza;
+            cabeza = mensaje.siguiente;
+            ahora = mensaje.instante;
+            Runnable callback = mensaje.callback;
+            mensaje.callback = null;
+            mensaje.siguiente = libres;
+            libres = mensaje;
+            callback.run();
+            ejecutados++;
+        }
+        return ejecutados;
+    }
+}
@@ -0,0 +1,76 @@
+package es.rbp.simonbp.bench.legacy;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Mezclador escrito de la forma más directa, para comparar con NoteMixer: un objeto por voz en un ArrayList, una voz
+ * nueva por cada nota y las voces terminadas se quitan con el iterador. Tiene la misma envolvente y el mismo límite
+ * de voces que NoteMixer.
+ */
+public class LegacyMixer {
+
+    private static class Voz {
+
+        final short[] pcm;
+
+        final float ganancia;
+
+        int posicion;
+
+        Voz(short[] pcm, float ganancia) {
+            this.pcm = pcm;
+            this.ganancia = ganancia;
+        }
+    }
+
+    private final short[][] notas;
+
+    private final int maximoVoces;
+
+    private final int muestrasAtaque;
+
+    private final int muestrasRelajacion;
+
+    private final List<Voz> voces = new ArrayList<>();
+
+    public LegacyMixer(short[][] notas, int maximoVoces, int muestrasAtaque, int muestrasRelajacion) {
+        this.notas = notas;
+        this.maximoVoces = maximoVoces;
+        this.muestrasAtaque = Math.max(1, muestrasAtaque);
+        this.muestrasRelajacion = Math.max(1, muestrasRelajacion);
+    }
+
+    public synchronized void trigger(int nota) {
+        if (voces.size() == maximoVoces)
+            voces.remove(0);
+        voces.add(new Voz(notas[nota - 1], 1f));
+    }
+
+    public synchronized int getVocesActivas() {
+        return voces.size();
+    }
+
+    public synchronized int mix(short[] salida, int offset, int frames) {
+        float[] acumulador = new float[frames];
+        Iterator<Voz> iterador = voces.iterator();
+        while (iterador.hasNext()) {
+            Voz voz = iterador.next();
+            int longitud = voz.pcm.length;
+            for (int i = 0; i < frames && voz.posicion < longitud; i++, voz.posicion++) {
+                float envolvente = Math.min(1f, (float) voz.posicion / muestrasAtaque);
+                envolvente = Math.min(envolvente, (float) (longitud - voz.posicion) / muestrasRelajacion);
+                acumulador[i] += voz.pcm[voz.posicion] * voz.ganancia * envolvente;
+            }
+            if (voz.posicion >= longitud)
+                iterador.remove();
+        }
+        for (int i = 0; i < frames; i++) {
+            salida[offset + i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, acumulador[i]));
+        }
+        return voces.size();
+    }
+}
@@ -0,0 +1,54 @@
+package es.rbp.simonbp.bench.legacy;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Sintetizador directo para comparar con ToneSynth: la misma onda, sin x + sin 2x / 2 + sin 3x / 4, calculada con
+ * Math.sin en cada muestra con la fase en double, sin tabla de onda ni envolvente.
+ */
+public class LegacyOscillator {
+
+    private static final double AMPLITUD = Short.MAX_VALUE / 4.0 / 1.7602;
+
+    private final double[] incrementos;
+
+    private final int[] vozNota;
+
+    private final double[] vozFase;
+
+    private int siguiente;
+
+    /**
+     * @param frecuenciaMuestreo muestras por segundo.
+     * @param frecuencias        frecuencia de cada nota en Hz.
+     * @param voces              número de voces.
+     */
+    public LegacyOscillator(int frecuenciaMuestreo, double[] frecuencias, int voces) {
+        incrementos = new double[frecuencias.length];
+        for (int i = 0; i < frecuencias.length; i++) {
+            incrementos[i] = 2 * Math.PI * frecuencias[i] / frecuenciaMuestreo;
+        }
+        vozNota = new int[voces];
+        vozFase = new double[voces];
+    }
+
+    public void trigger(int nota) {
+        vozNota[siguiente] = nota;
+        vozFase[siguiente] = 0;
+        siguiente = (siguiente + 1) % vozNota.length;
+    }
+
+    public void mix(short[] salida, int offset, int frames) {
+        for (int i = 0; i < frames; i++) {
+            double muestra = 0;
+            for (int v = 0; v < vozNota.length; v++) {
+                if (vozNota[v] == 0)
+                    continue;
+                double x = vozFase[v];
+                muestra += (Math.sin(x) + 0.5 * Math.sin(2 * x) + 0.25 * Math.sin(3 * x)) * AMPLITUD;
+                vozFase[v] = x + incrementos[vozNota[v] - 1];
+            }
+            salida[offset + i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, muestra));
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package es.rbp.simonbp.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.StandardSocketOptions;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+import es.rbp.simonbp.core.ByteSequence;
+import es.rbp.simonbp.core.UniformGenerator;
+import es.rbp.simonbp.core.XoshiroRandom;
+import es.rbp.simonbp.net.Protocol;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Clientes simulados para medir el servidor. Todos van en un solo hilo con un {@link Selector}, igual que el
+ * servidor, así que se pueden simular miles desde la misma máquina.
+ * <p>
+ * Primero se conectan todos y después se unen a la vez, así que el servidor llega a tener todas las sesiones
+ * abiertas. Cada cliente genera la serie con la semilla que le envía el servidor y responde a cada ronda de golpe:
+ * la trama de listo y todas las pulsaciones, con instantes de un reloj simulado para no tener que esperar. En cada
+ * ronda falla con cierta probabilidad, así que también se prueban las derrotas.
+ * <p>
+ * El tiempo de ida y vuelta es el que pasa desde que un cliente termina de enviar una ronda hasta que le llega la
+ * respuesta del servidor.
+ */
+public class LoadClient {
+
+    /**
+     * Tiempo de reacción simulado de cada pulsación, en milisegundos
+     */
+    public static final int REACCION = 300;
+
+    private final InetSocketAddress servidor;
+
+    private final int clientes;
+
+    private final double probabilidadFallo;
+
+    private final XoshiroRandom random;
+
+    private Selector selector;
+
+    private LoadReport informe;
+
+    private int terminados;
+
+    /**
+     * @param servidor          dirección del servidor.
+     * @param clientes          número de clientes simulados.
+     * @param probabilidadFallo probabilidad de que un cliente falle en cada ronda, entre 0 y 1.
+     * @param semilla           semilla de los fallos.
+     */
+    public LoadClient(InetSocketAddress servidor, int clientes, double probabilidadFallo, long semilla) {
+        if (clientes <= 0)
+            throw new IllegalArgumentException("Hace falta al menos un cliente: " + clientes);
+        if (probabilidadFallo < 0 || probabilidadFallo > 1)
+            throw new IllegalArgumentException("Probabilidad no válida: " + probabilidadFallo);
+        this.servidor = servidor;
+        this.clientes = clientes;
+        this.probabilidadFallo = probabilidadFallo;
+        this.random = new XoshiroRandom(semilla);
+    }
+
+    /**
+     * Conecta todos los clientes, juega una partida con cada uno y espera a que terminen todas.
+     *
+     * @param timeout tiempo máximo de la prueba, en milisegundos.
+     * @return informe de la prueba.
+     * @throws IOException si no se pueden abrir las conexiones o no terminan a tiempo.
+     */
+    public LoadReport run(long timeout) throws IOException {
+        long limite = System.nanoTime() + timeout * 1_000_000L;
+        informe = new LoadReport(clientes);
+        terminados = 0;
+        Simulado[] simulados = new Simulado[clientes];
+        selector = Selector.open();
+        try {
+            int conectados = 0;
+            for (int i = 0; i < clientes; i++) {
+                simulados[i] = new Simulado();
+                if (simulados[i].conectar())
+                    conectados++;
+            }
+            while (conectados < clientes) {
+                esperar(limite, "conectar");
+                Iterator<SelectionKey> claves = selector.selectedKeys().iterator();
+                while (claves.hasNext()) {
+                    SelectionKey clave = claves.next();
+                    claves.remove();
+                    if (((Simulado) clave.attachment()).terminarConexion())
+                        conectados++;
+                }
+            }
+
+            long inicio = System.nanoTime();
+            for (Simulado simulado : simulados) {
+                simulado.unirse();
+            }
+            while (terminados < clientes) {
+                esperar(limite, "jugar");
+                Iterator<SelectionKey> claves = selector.selectedKeys().iterator();
+                while (claves.hasNext()) {
+                    SelectionKey clave = claves.next();
+                    claves.remove();
+                    if (clave.isValid())
+                        ((Simulado) clave.attachment()).atender(clave);
+                }
+            }
+            informe.setNanos(System.nanoTime() - inicio);
+            return informe;
+        } finally {
+            for (Simulado simulado : simulados) {
+                if (simulado != null)
+                    simulado.cerrar();
+            }
+            selector.close();
+        }
+    }
+
+    private void esperar(long limite, String fase) throws IOException {
+        long restante = (limite - System.nanoTime()) / 1_000_000L;
+        if (restante <= 0)
+            throw new IOException("Se ha acabado el tiempo al " + fase + ": " + terminados + " de " + clientes
+                    + " partidas terminadas");
+        selector.select(restante);
+    }
+
+    /**
+     * Un cliente simulado. Lo usa sólo el hilo de la prueba
+     */
+    private class Simulado implements Protocol.Receptor {
+
+        private final SocketChannel canal;
+
+        private SelectionKey clave;
+
+        private final ByteBuffer entrada = ByteBuffer.allocate(Protocol.MAXIMO_TRAMA * 4);
+
+        private ByteBuffer salida = ByteBuffer.allocate(Protocol.MAXIMO_TRAMA * 4);
+
+        private final UniformGenerator generador = new UniformGenerator();
+
+        private final ByteSequence serie = new ByteSequence();
+
+        private int botones;
+
+        /**
+         * Reloj simulado del cliente, en milisegundos
+         */
+        private long reloj;
+
+        /**
+         * Instante en el que terminó de enviar la última ronda, o -1 si ya le ha llegado la respuesta
+         */
+        private long enviado = -1;
+
+        private boolean terminado;
+
+        Simulado() throws IOException {
+            canal = SocketChannel.open();
+            canal.configureBlocking(false);
+            canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+
+        /**
+         * @return true si ya ha conectado.
+         */
+        boolean conectar() throws IOException {
+            boolean conectado = canal.connect(servidor);
+            clave = canal.register(selector, conectado ? 0 : SelectionKey.OP_CONNECT, this);
+            return conectado;
+        }
+
+        /**
+         * @return true si ha terminado de conectar.
+         */
+        boolean terminarConexion() throws IOException {
+            if (!canal.finishConnect())
+                return false;
+            clave.interestOps(0);
+            return true;
+        }
+
+        void unirse() throws IOException {
+            Protocol.unirse(salida);
+            enviar(1, 0);
+        }
+
+        void atender(SelectionKey clave) throws IOException {
+            try {
+                if (clave.isReadable())
+                    leer();
+                if (clave.isValid() && clave.isWritable())
+                    escribir();
+            } catch (IOException e) {
+                informe.addError();
+                terminar();
+            }
+        }
+
+        private void leer() throws IOException {
+            if (canal.read(entrada) < 0)
+                throw new IOException("El servidor ha cerrado la conexión antes del resultado");
+            long ahora = System.nanoTime();
+            // Las tramas leídas pueden enviar la siguiente ronda, que vuelve a empezar a medir
+            long pendiente = enviado;
+            enviado = -1;
+            ((Buffer) entrada).flip();
+            int tramas = Protocol.leer(entrada, this);
+            entrada.compact();
+            if (tramas == 0)
+                enviado = pendiente;
+            else if (pendiente >= 0)
+                informe.getIdaYVuelta().record(ahora - pendiente);
+            informe.addRecibidas(tramas);
+        }
+
+        /**
+         * Envía las tramas del buffer de salida y empieza a medir la ida y vuelta.
+         */
+        private void enviar(int tramas, int pulsaciones) throws IOException {
+            informe.addEnviadas(tramas, pulsaciones);
+            escribir();
+            enviado = System.nanoTime();
+        }
+
+        private void escribir() throws IOException {
+            ((Buffer) salida).flip();
+            canal.write(salida);
+            salida.compact();
+            if (!terminado)
+                clave.interestOps(salida.position() > 0
+                        ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+
+        private void terminar() {
+            if (terminado)
+                return;
+            terminado = true;
+            terminados++;
+            cerrar();
+        }
+
+        void cerrar() {
+            clave.cancel();
+            try {
+                canal.close();
+            } catch (IOException ignorada) {
+                // La prueba ya ha terminado con este cliente
+            }
+        }
+
+        @Override
+        public void onInicio(long semilla, int botones, int turnos) throws ProtocolException {
+            if (turnos == 0)
+                throw new ProtocolException("Los clientes simulados necesitan partidas con rondas limitadas");
+            generador.reset(semilla);
+            this.botones = botones;
+            // La ronda más larga es la trama de listo y una pulsación por paso
+            salida = ByteBuffer.allocate(Protocol.MAXIMO_TRAMA * (turnos + 1));
+        }
+
+        @Override
+        public void onRonda(int ronda, int duracionPaso) throws ProtocolException {
+            if (botones == 0)
+                throw new ProtocolException("Ronda antes del inicio");
+            while (serie.size() < ronda) {
+                serie.add(generador.next(botones));
+            }
+            reloj += (long) duracionPaso * ronda;
+            Protocol.listo(salida, reloj);
+            int fallo = random.nextDouble() < probabilidadFallo ? random.nextInt(ronda) : -1;
+            int pulsaciones = 0;
+            while (pulsaciones < ronda) {
+                int numero = serie.get(pulsaciones);
+                reloj += REACCION;
+                Protocol.pulsacion(salida, pulsaciones == fallo ? numero % botones + 1 : numero, reloj);
+                if (pulsaciones++ == fallo)
+                    break;
+            }
+            try {
+                enviar(1 + pulsaciones, pulsaciones);
+            } catch (IOException e) {
+                ProtocolException error = new ProtocolException("No se ha podido enviar la ronda");
+                error.initCause(e);
+                throw error;
+            }
+        }
+
+        @Override
+        public void onResultado(boolean victoria, int rondas) {
+            informe.addPartida(victoria);
+            terminar();
+        }
+
+        @Override
+        public void onUnirse(int version) throws ProtocolException {
+            throw new ProtocolException("El servidor no se une a los clientes");
+        }
+
+        @Override
+        public void onListo(long instante) throws ProtocolException {
+            throw new ProtocolException("El servidor no pulsa");
+        }
+
+        @Override
+        public void onPulsacion(int numero, long instante) throws ProtocolException {
+            throw new ProtocolException("El servidor no pulsa");
+        }
+    }
+}
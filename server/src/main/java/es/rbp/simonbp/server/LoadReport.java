@@ -0,0 +1,133 @@
+package es.rbp.simonbp.server;
+
+import java.util.Locale;
+
+import es.rbp.simonbp.core.LatencyHistogram;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Resultado de una prueba de carga con {@link LoadClient}: cuántas partidas han terminado, el rendimiento y el tiempo
+ * de ida y vuelta de cada ronda.
+ */
+public class LoadReport {
+
+    private final int clientes;
+
+    private long victorias;
+
+    private long derrotas;
+
+    private long errores;
+
+    private long tramasEnviadas;
+
+    private long tramasRecibidas;
+
+    private long pulsaciones;
+
+    private long nanos;
+
+    /**
+     * Tiempo desde que un cliente termina de enviar una ronda hasta que recibe la respuesta, en nanosegundos
+     */
+    private final LatencyHistogram idaYVuelta = new LatencyHistogram();
+
+    LoadReport(int clientes) {
+        this.clientes = clientes;
+    }
+
+    void addPartida(boolean victoria) {
+        if (victoria)
+            victorias++;
+        else
+            derrotas++;
+    }
+
+    void addError() {
+        errores++;
+    }
+
+    void addEnviadas(int tramas, int pulsaciones) {
+        tramasEnviadas += tramas;
+        this.pulsaciones += pulsaciones;
+    }
+
+    void addRecibidas(int tramas) {
+        tramasRecibidas += tramas;
+    }
+
+    void setNanos(long nanos) {
+        this.nanos = nanos;
+    }
+
+    public int getClientes() {
+        return clientes;
+    }
+
+    /**
+     * @return partidas terminadas con resultado, ganadas o perdidas.
+     */
+    public long getPartidas() {
+        return victorias + derrotas;
+    }
+
+    public long getVictorias() {
+        return victorias;
+    }
+
+    public long getDerrotas() {
+        return derrotas;
+    }
+
+    /**
+     * @return clientes que no han podido terminar su partida.
+     */
+    public long getErrores() {
+        return errores;
+    }
+
+    public long getTramasEnviadas() {
+        return tramasEnviadas;
+    }
+
+    public long getTramasRecibidas() {
+        return tramasRecibidas;
+    }
+
+    public long getPulsaciones() {
+        return pulsaciones;
+    }
+
+    /**
+     * @return duración de la prueba, desde que se une el primer cliente hasta que termina el último.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * @return tramas por segundo en los dos sentidos.
+     */
+    public double getTramasPorSegundo() {
+        return nanos == 0 ? 0 : (tramasEnviadas + tramasRecibidas) * 1e9 / nanos;
+    }
+
+    public double getPulsacionesPorSegundo() {
+        return nanos == 0 ? 0 : pulsaciones * 1e9 / nanos;
+    }
+
+    public LatencyHistogram getIdaYVuelta() {
+        return idaYVuelta;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%,d clientes: %,d victorias, %,d derrotas, %,d errores en %.2f s%n"
+                        + "%,.0f tramas/s, %,.0f pulsaciones/s%n"
+                        + "Ida y vuelta: p50 %.2f ms, p99 %.2f ms, máximo %.2f ms%n",
+                clientes, victorias, derrotas, errores, nanos / 1e9,
+                getTramasPorSegundo(), getPulsacionesPorSegundo(),
+                idaYVuelta.getPercentil(50) / 1e6, idaYVuelta.getPercentil(99) / 1e6, idaYVuelta.getMaximo() / 1e6);
+    }
+}
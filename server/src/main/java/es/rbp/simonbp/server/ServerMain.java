@@ -0,0 +1,98 @@
+package es.rbp.simonbp.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Locale;
+
+import es.rbp.simonbp.core.SimonConfig;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Punto de entrada del servidor de torneos por línea de comandos. Con --simular N no escucha en la red: abre el
+ * servidor en local, juega N partidas a la vez con {@link LoadClient} y muestra el rendimiento.
+ * <p>
+ * Opciones: --puerto N, --semilla N, --turnos N, --botones N, --simular N, --fallo P.
+ */
+public class ServerMain {
+
+    private static final String USO = "Uso: server [--puerto N] [--semilla N] [--turnos N] [--botones N] "
+            + "[--simular N] [--fallo P]";
+
+    public static final int PUERTO = 7300;
+
+    /**
+     * Tiempo máximo de una simulación, en milisegundos
+     */
+    private static final long TIMEOUT_SIMULACION = 120_000;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int puerto = PUERTO;
+        long semilla = System.currentTimeMillis();
+        int turnos = SimonConfig.MEDIO;
+        int numeroBotones = SimonConfig.NUMERO_BOTONES;
+        int simulados = 0;
+        double fallo = 0.05;
+        SimonConfig config;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String opcion = args[i];
+                if (i + 1 == args.length)
+                    throw new IllegalArgumentException("Falta el valor de " + opcion);
+                String valor = args[++i];
+                switch (opcion) {
+                    case "--puerto":
+                        puerto = Integer.parseInt(valor);
+                        break;
+                    case "--semilla":
+                        semilla = Long.parseLong(valor);
+                        break;
+                    case "--turnos":
+                        turnos = Integer.parseInt(valor);
+                        break;
+                    case "--botones":
+                        numeroBotones = Integer.parseInt(valor);
+                        break;
+                    case "--simular":
+                        simulados = Integer.parseInt(valor);
+                        break;
+                    case "--fallo":
+                        fallo = Double.parseDouble(valor);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Opción desconocida: " + opcion);
+                }
+            }
+            config = SimonConfig.paraDificultad(turnos, numeroBotones);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USO);
+            System.exit(2);
+            return;
+        }
+
+        if (simulados == 0) {
+            TournamentServer servidor = new TournamentServer(config, semilla, new InetSocketAddress(puerto));
+            System.out.println(String.format(Locale.ROOT, "Torneo de %d rondas con %d botones y semilla %d en el "
+                    + "puerto %d", turnos, numeroBotones, semilla, servidor.getPuerto()));
+            servidor.run();
+            return;
+        }
+
+        InetSocketAddress local = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        TournamentServer servidor = new TournamentServer(config, semilla, local);
+        servidor.start();
+        LoadReport informe;
+        try {
+            informe = new LoadClient(new InetSocketAddress(InetAddress.getLoopbackAddress(), servidor.getPuerto()),
+                    simulados, fallo, semilla).run(TIMEOUT_SIMULACION);
+        } finally {
+            servidor.stop();
+        }
+        System.out.print(informe);
+        System.out.println(String.format(Locale.ROOT, "Servidor: %,d sesiones a la vez como máximo, %,d tramas "
+                        + "recibidas, %,d enviadas, %,d errores", servidor.getMaximoActivas(),
+                servidor.getTramasRecibidas(), servidor.getTramasEnviadas(), servidor.getErrores()));
+    }
+}
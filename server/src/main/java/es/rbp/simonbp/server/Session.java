@@ -0,0 +1,220 @@
+package es.rbp.simonbp.server;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+import es.rbp.simonbp.core.GameRecord;
+import es.rbp.simonbp.core.SimonEngine;
+import es.rbp.simonbp.core.SimonListener;
+import es.rbp.simonbp.core.UniformGenerator;
+import es.rbp.simonbp.net.Protocol;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Conexión de un jugador con el servidor. Sólo la usa el hilo del servidor, así que no necesita sincronizarse.
+ * <p>
+ * Cada trama del cliente produce como mucho una de respuesta, así que el buffer de salida sólo se llena si el
+ * cliente deja de leer. En ese caso se cierra la sesión en vez de guardar sus respuestas. Las tramas que llegan
+ * después de terminar la partida se descartan, porque el jugador puede seguir pulsando mientras llega el resultado.
+ */
+class Session implements Protocol.Receptor, SimonListener {
+
+    /**
+     * Tramas de respuesta que se guardan mientras el cliente no las lee
+     */
+    private static final int TRAMAS_PENDIENTES = 16;
+
+    private final TournamentServer servidor;
+
+    private final SocketChannel canal;
+
+    private final ByteBuffer entrada = ByteBuffer.allocate(Protocol.MAXIMO_TRAMA * TRAMAS_PENDIENTES);
+
+    private final ByteBuffer salida = ByteBuffer.allocate(Protocol.MAXIMO_TRAMA * TRAMAS_PENDIENTES);
+
+    private SelectionKey clave;
+
+    private SimonEngine engine;
+
+    /**
+     * Instante de la última trama del cliente, en milisegundos de su reloj
+     */
+    private long ultimoInstante;
+
+    /**
+     * Instante en el que se unió, en milisegundos del reloj del servidor
+     */
+    private long inicio;
+
+    private int[] reacciones = new int[16];
+
+    private int pulsaciones;
+
+    /**
+     * La partida ha terminado y la sesión se cierra en cuanto se envíe el resultado
+     */
+    private boolean terminada;
+
+    /**
+     * Alguna respuesta no cabía en el buffer de salida
+     */
+    private boolean desbordada;
+
+    private boolean cerrada;
+
+    Session(TournamentServer servidor, SocketChannel canal) {
+        this.servidor = servidor;
+        this.canal = canal;
+    }
+
+    void setClave(SelectionKey clave) {
+        this.clave = clave;
+    }
+
+    /**
+     * Lee lo que haya llegado, procesa las tramas completas y envía las respuestas.
+     *
+     * @throws IOException si una trama está mal formada o la conexión ha fallado.
+     */
+    void leer() throws IOException {
+        if (canal.read(entrada) < 0) {
+            cerrar();
+            return;
+        }
+        ((Buffer) entrada).flip();
+        int tramas = Protocol.leer(entrada, this);
+        entrada.compact();
+        servidor.onTramasRecibidas(tramas);
+        if (desbordada)
+            throw new ProtocolException("El cliente no lee las respuestas");
+        if (tramas > 0)
+            escribir();
+    }
+
+    /**
+     * Envía lo que quepa en el canal y sólo pide avisos de escritura si queda algo pendiente.
+     */
+    void escribir() throws IOException {
+        ((Buffer) salida).flip();
+        canal.write(salida);
+        salida.compact();
+        if (salida.position() > 0)
+            clave.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        else if (terminada)
+            cerrar();
+        else
+            clave.interestOps(SelectionKey.OP_READ);
+    }
+
+    void cerrar() {
+        if (cerrada)
+            return;
+        cerrada = true;
+        clave.cancel();
+        try {
+            canal.close();
+        } catch (IOException ignorada) {
+            // La sesión ya no envía nada más
+        }
+        servidor.onCerrada();
+    }
+
+    /**
+     * @return true si cabe una trama más en el buffer de salida. Si no cabe la sesión se cierra después de leer.
+     */
+    private boolean reservar() {
+        if (salida.remaining() < Protocol.MAXIMO_TRAMA) {
+            desbordada = true;
+            return false;
+        }
+        servidor.onTramaEnviada();
+        return true;
+    }
+
+    @Override
+    public void onUnirse(int version) throws ProtocolException {
+        if (engine != null)
+            throw new ProtocolException("El cliente ya se había unido");
+        if (version != Protocol.VERSION)
+            throw new ProtocolException("Versión del protocolo no soportada: " + version);
+        engine = new SimonEngine(servidor.getConfig(), new UniformGenerator(), servidor.getSemilla());
+        engine.setListener(this);
+        inicio = System.currentTimeMillis();
+        if (reservar())
+            Protocol.inicio(salida, servidor.getSemilla(), servidor.getConfig().getNumeroBotones(),
+                    servidor.getConfig().getTurnos());
+        engine.start();
+    }
+
+    @Override
+    public void onListo(long instante) throws ProtocolException {
+        if (engine == null)
+            throw new ProtocolException("El cliente no se ha unido");
+        ultimoInstante = instante;
+        engine.finTurnoCpu();
+    }
+
+    @Override
+    public void onPulsacion(int numero, long instante) throws ProtocolException {
+        if (engine == null)
+            throw new ProtocolException("El cliente no se ha unido");
+        if (numero < 1 || numero > servidor.getConfig().getNumeroBotones())
+            throw new ProtocolException("Botón no válido: " + numero);
+        if (terminada)
+            return;
+        if (engine.getEstado() != SimonEngine.Estado.TURNO_JUGADOR)
+            throw new ProtocolException("Pulsación antes de terminar de ver la serie");
+        int reaccion = (int) Math.min(Protocol.diferencia(instante, ultimoInstante), Integer.MAX_VALUE);
+        ultimoInstante = instante;
+        if (pulsaciones == reacciones.length)
+            reacciones = Arrays.copyOf(reacciones, reacciones.length * 2);
+        reacciones[pulsaciones++] = reaccion;
+        engine.pulsar(numero, reaccion);
+    }
+
+    @Override
+    public void onTurnoCpu(int ronda) {
+        if (reservar())
+            Protocol.ronda(salida, ronda, engine.getDuracionPaso());
+    }
+
+    @Override
+    public void onVictoria() {
+        terminar(true);
+    }
+
+    @Override
+    public void onDerrota() {
+        terminar(false);
+    }
+
+    private void terminar(boolean victoria) {
+        terminada = true;
+        long fecha = System.currentTimeMillis();
+        servidor.registrar(new GameRecord(fecha, servidor.getSemilla(), servidor.getConfig().getTurnos(),
+                engine.getRonda(), (int) (fecha - inicio), victoria, Arrays.copyOf(reacciones, pulsaciones)));
+        if (reservar())
+            Protocol.resultado(salida, victoria, engine.getRonda());
+    }
+
+    @Override
+    public void onInicio(long semilla, int botones, int turnos) throws ProtocolException {
+        throw new ProtocolException("El cliente no empieza partidas");
+    }
+
+    @Override
+    public void onRonda(int ronda, int duracionPaso) throws ProtocolException {
+        throw new ProtocolException("El cliente no envía rondas");
+    }
+
+    @Override
+    public void onResultado(boolean victoria, int rondas) throws ProtocolException {
+        throw new ProtocolException("El cliente no envía resultados");
+    }
+}
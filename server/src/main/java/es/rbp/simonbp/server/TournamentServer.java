@@ -0,0 +1,271 @@
+package es.rbp.simonbp.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.List;
+
+import es.rbp.simonbp.core.GameRecord;
+import es.rbp.simonbp.core.Leaderboard;
+import es.rbp.simonbp.core.SimonConfig;
+import es.rbp.simonbp.net.Protocol;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Servidor de torneos. Todos los jugadores juegan la misma serie, generada con la semilla del torneo, y el servidor
+ * comprueba cada pulsación con un {@link es.rbp.simonbp.core.SimonEngine} por sesión, así que el cliente no puede
+ * hacer trampas con el resultado.
+ * <p>
+ * Un solo hilo atiende todas las conexiones con un {@link Selector} y canales no bloqueantes. Cada sesión sólo
+ * ocupa su motor y dos buffers pequeños, así que caben miles en el mismo servidor.
+ *
+ * @see Protocol
+ */
+public class TournamentServer implements Runnable {
+
+    /**
+     * Conexiones pendientes de aceptar que admite el sistema operativo
+     */
+    public static final int BACKLOG = 4096;
+
+    /**
+     * Partidas que se guardan en la clasificación
+     */
+    public static final int CAPACIDAD_CLASIFICACION = 100;
+
+    private final SimonConfig config;
+
+    private final long semilla;
+
+    private final Selector selector;
+
+    private final ServerSocketChannel servidor;
+
+    private final Leaderboard clasificacion = new Leaderboard(CAPACIDAD_CLASIFICACION);
+
+    private Thread hilo;
+
+    private volatile boolean parado;
+
+    // Sólo los escribe el hilo del servidor
+
+    private volatile int activas, maximoActivas;
+
+    private volatile long sesiones, tramasRecibidas, tramasEnviadas, partidas, victorias, errores;
+
+    /**
+     * Abre el puerto, pero no acepta conexiones hasta {@link TournamentServer#start()} o
+     * {@link TournamentServer#run()}.
+     *
+     * @param config    reglas de las partidas del torneo.
+     * @param semilla   semilla de la serie del torneo.
+     * @param direccion dirección en la que escucha. Con el puerto 0 se elige uno libre.
+     * @throws IOException si no se puede abrir el puerto.
+     */
+    public TournamentServer(SimonConfig config, long semilla, InetSocketAddress direccion) throws IOException {
+        if (config.getTurnos() > 0xFFFF)
+            throw new IllegalArgumentException("Demasiadas rondas para el protocolo: " + config.getTurnos());
+        this.config = config;
+        this.semilla = semilla;
+        selector = Selector.open();
+        servidor = ServerSocketChannel.open();
+        servidor.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        servidor.bind(direccion, BACKLOG);
+        servidor.configureBlocking(false);
+        servidor.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Atiende las conexiones en un hilo nuevo.
+     */
+    public void start() {
+        if (hilo != null)
+            throw new IllegalStateException("El servidor ya ha empezado");
+        hilo = new Thread(this, "TournamentServer");
+        hilo.start();
+    }
+
+    /**
+     * Cierra el puerto y todas las sesiones, y espera a que termine el hilo del servidor.
+     */
+    public void stop() throws InterruptedException {
+        parado = true;
+        selector.wakeup();
+        if (hilo != null)
+            hilo.join();
+    }
+
+    /**
+     * Bucle del servidor. Vuelve cuando se llama a {@link TournamentServer#stop()}.
+     */
+    @Override
+    public void run() {
+        try {
+            while (!parado) {
+                selector.select();
+                Iterator<SelectionKey> claves = selector.selectedKeys().iterator();
+                while (claves.hasNext()) {
+                    SelectionKey clave = claves.next();
+                    claves.remove();
+                    if (!clave.isValid())
+                        continue;
+                    if (clave.isAcceptable())
+                        aceptar();
+                    else
+                        atender(clave);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Error en el selector del servidor", e);
+        } finally {
+            cerrarTodo();
+        }
+    }
+
+    /**
+     * Acepta todas las conexiones pendientes
+     */
+    private void aceptar() throws IOException {
+        SocketChannel canal;
+        while ((canal = servidor.accept()) != null) {
+            canal.configureBlocking(false);
+            canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Session sesion = new Session(this, canal);
+            sesion.setClave(canal.register(selector, SelectionKey.OP_READ, sesion));
+            sesiones++;
+            activas++;
+            if (activas > maximoActivas)
+                maximoActivas = activas;
+        }
+    }
+
+    private void atender(SelectionKey clave) {
+        Session sesion = (Session) clave.attachment();
+        try {
+            if (clave.isReadable())
+                sesion.leer();
+            if (clave.isValid() && clave.isWritable())
+                sesion.escribir();
+        } catch (IOException e) {
+            // Trama mal formada, cliente que no lee o conexión caída: sólo se pierde esa sesión
+            errores++;
+            sesion.cerrar();
+        }
+    }
+
+    private void cerrarTodo() {
+        for (SelectionKey clave : selector.keys()) {
+            Object sesion = clave.attachment();
+            if (sesion != null)
+                ((Session) sesion).cerrar();
+        }
+        try {
+            servidor.close();
+            selector.close();
+        } catch (IOException ignorada) {
+            // El servidor ya se ha parado
+        }
+    }
+
+    void onTramasRecibidas(int tramas) {
+        tramasRecibidas += tramas;
+    }
+
+    void onTramaEnviada() {
+        tramasEnviadas++;
+    }
+
+    void onCerrada() {
+        activas--;
+    }
+
+    /**
+     * Una sesión ha terminado su partida
+     */
+    void registrar(GameRecord partida) {
+        partidas++;
+        if (partida.isVictoria())
+            victorias++;
+        synchronized (clasificacion) {
+            clasificacion.add(partida);
+        }
+    }
+
+    SimonConfig getConfig() {
+        return config;
+    }
+
+    public long getSemilla() {
+        return semilla;
+    }
+
+    /**
+     * @return puerto en el que escucha, útil si se abrió con el puerto 0.
+     */
+    public int getPuerto() {
+        return servidor.socket().getLocalPort();
+    }
+
+    /**
+     * @return sesiones abiertas ahora mismo.
+     */
+    public int getActivas() {
+        return activas;
+    }
+
+    /**
+     * @return máximo de sesiones abiertas a la vez desde que empezó el servidor.
+     */
+    public int getMaximoActivas() {
+        return maximoActivas;
+    }
+
+    /**
+     * @return conexiones aceptadas desde que empezó el servidor.
+     */
+    public long getSesiones() {
+        return sesiones;
+    }
+
+    public long getTramasRecibidas() {
+        return tramasRecibidas;
+    }
+
+    public long getTramasEnviadas() {
+        return tramasEnviadas;
+    }
+
+    /**
+     * @return partidas terminadas, ganadas o perdidas.
+     */
+    public long getPartidas() {
+        return partidas;
+    }
+
+    public long getVictorias() {
+        return victorias;
+    }
+
+    /**
+     * @return sesiones cerradas por un error: tramas mal formadas, clientes que no leen o conexiones caídas.
+     */
+    public long getErrores() {
+        return errores;
+    }
+
+    /**
+     * @param n número máximo de partidas.
+     * @return las n mejores partidas del torneo.
+     */
+    public List<GameRecord> getClasificacion(int n) {
+        synchronized (clasificacion) {
+            return clasificacion.top(n);
+        }
+    }
+}
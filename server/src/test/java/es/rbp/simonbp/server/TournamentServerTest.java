@@ -0,0 +1,195 @@
+package es.rbp.simonbp.server;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import es.rbp.simonbp.core.GameRecord;
+import es.rbp.simonbp.core.ByteSequence;
+import es.rbp.simonbp.core.SimonConfig;
+import es.rbp.simonbp.core.UniformGenerator;
+import es.rbp.simonbp.net.TournamentClient;
+
+import static org.junit.Assert.*;
+
+/**
+ * Juega torneos contra el servidor por localhost: miles de clientes simulados a la vez, el cliente de la app y
+ * clientes que envían basura.
+ */
+public class TournamentServerTest {
+
+    private static final long SEMILLA = 42;
+
+    private static final long TIMEOUT = 60_000;
+
+    private TournamentServer servidor;
+
+    private InetSocketAddress direccion;
+
+    @Before
+    public void setUp() throws IOException {
+        servidor = new TournamentServer(SimonConfig.paraDificultad(SimonConfig.MEDIO), SEMILLA,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        servidor.start();
+        direccion = new InetSocketAddress(InetAddress.getLoopbackAddress(), servidor.getPuerto());
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        servidor.stop();
+    }
+
+    @Test
+    public void milesDeSesionesALaVez() throws Exception {
+        int clientes = 2000;
+        LoadReport informe = new LoadClient(direccion, clientes, 0.05, 1).run(TIMEOUT);
+
+        assertEquals(0, informe.getErrores());
+        assertEquals(clientes, informe.getPartidas());
+        assertTrue(informe.getDerrotas() > 0);
+        assertEquals(clientes, servidor.getMaximoActivas());
+        assertEquals(clientes, servidor.getPartidas());
+        assertEquals(informe.getVictorias(), servidor.getVictorias());
+        assertEquals(informe.getTramasEnviadas(), servidor.getTramasRecibidas());
+        assertEquals(informe.getTramasRecibidas(), servidor.getTramasEnviadas());
+        assertEquals(0, servidor.getErrores());
+        // Los tiempos de ida y vuelta se miden con ServerMain --simular
+        assertTrue(informe.getIdaYVuelta().getMuestras() > 0);
+        esperarCierre();
+    }
+
+    @Test
+    public void sinFallos_gananTodos() throws Exception {
+        LoadReport informe = new LoadClient(direccion, 50, 0, 2).run(TIMEOUT);
+
+        assertEquals(50, informe.getVictorias());
+        // Cada ronda son el listo y una pulsación por paso, más la trama para unirse
+        int tramas = 1 + SimonConfig.MEDIO + SimonConfig.MEDIO * (SimonConfig.MEDIO + 1) / 2;
+        assertEquals(50L * tramas, informe.getTramasEnviadas());
+        List<GameRecord> clasificacion = servidor.getClasificacion(3);
+        assertEquals(3, clasificacion.size());
+        assertEquals(SimonConfig.MEDIO, clasificacion.get(0).getRondas());
+        assertTrue(clasificacion.get(0).isVictoria());
+    }
+
+    @Test
+    public void clienteDeLaApp_juegaUnaPartidaEntera() throws Exception {
+        final CountDownLatch fin = new CountDownLatch(1);
+        final int[] resultado = new int[2];
+        final IOException[] error = new IOException[1];
+        final TournamentClient[] cliente = new TournamentClient[1];
+        cliente[0] = new TournamentClient(direccion, new TournamentClient.Listener() {
+
+            private final UniformGenerator generador = new UniformGenerator();
+
+            private final ByteSequence serie = new ByteSequence();
+
+            private int botones;
+
+            /**
+             * Pasa de 32 bits y sus 32 bits bajos dan la vuelta durante la partida
+             */
+            private long reloj = (3L << 32) - 5000;
+
+            @Override
+            public void onInicio(long semilla, int botones, int turnos) {
+                generador.reset(semilla);
+                this.botones = botones;
+            }
+
+            @Override
+            public void onRonda(int ronda, int duracionPaso) {
+                serie.add(generador.next(botones));
+                reloj += (long) ronda * duracionPaso;
+                cliente[0].listo(reloj);
+                for (int i = 0; i < ronda; i++) {
+                    reloj += 250;
+                    cliente[0].pulsar(serie.get(i), reloj);
+                }
+            }
+
+            @Override
+            public void onResultado(boolean victoria, int rondas) {
+                resultado[0] = victoria ? 1 : 0;
+                resultado[1] = rondas;
+            }
+
+            @Override
+            public void onDesconectado(IOException e) {
+                error[0] = e;
+                fin.countDown();
+            }
+        });
+        cliente[0].start();
+
+        assertTrue(fin.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertNull(error[0]);
+        assertEquals(1, resultado[0]);
+        assertEquals(SimonConfig.MEDIO, resultado[1]);
+        GameRecord partida = servidor.getClasificacion(1).get(0);
+        assertTrue(partida.isVictoria());
+        assertEquals(SimonConfig.MEDIO, partida.getRondas());
+    }
+
+    @Test
+    public void tramaMalFormada_cierraSoloEsaSesion() throws Exception {
+        try (Socket basura = new Socket(direccion.getAddress(), direccion.getPort())) {
+            OutputStream salida = basura.getOutputStream();
+            // Longitud 2 con un tipo que no existe
+            salida.write(new byte[]{0, 2, 99, 0});
+            salida.flush();
+            InputStream entrada = basura.getInputStream();
+            basura.setSoTimeout((int) TIMEOUT);
+            assertEquals(-1, entrada.read());
+        }
+        LoadReport informe = new LoadClient(direccion, 10, 0, 3).run(TIMEOUT);
+
+        assertEquals(10, informe.getVictorias());
+        assertEquals(1, servidor.getErrores());
+        assertEquals(11, servidor.getSesiones());
+    }
+
+    @Test
+    public void pulsarAntesDeLaSerie_cierraLaSesion() throws Exception {
+        try (Socket tramposo = new Socket(direccion.getAddress(), direccion.getPort())) {
+            tramposo.setSoTimeout((int) TIMEOUT);
+            OutputStream salida = tramposo.getOutputStream();
+            InputStream entrada = tramposo.getInputStream();
+            salida.write(new byte[]{0, 2, 1, 1});
+            salida.flush();
+            // El inicio y la primera ronda
+            for (int i = 0; i < 14 + 7; i++) {
+                assertTrue(entrada.read() >= 0);
+            }
+            // Pulsa el 1 sin haber enviado el listo
+            salida.write(new byte[]{0, 6, 5, 1, 0, 0, 0, 0});
+            salida.flush();
+            assertEquals(-1, entrada.read());
+        }
+        esperarCierre();
+
+        assertEquals(1, servidor.getErrores());
+        assertEquals(0, servidor.getPartidas());
+    }
+
+    /**
+     * Espera a que el servidor cierre todas las sesiones
+     */
+    private void esperarCierre() throws InterruptedException {
+        long limite = System.currentTimeMillis() + TIMEOUT;
+        while (servidor.getActivas() > 0 && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, servidor.getActivas());
+    }
+}
@@ -0,0 +1,85 @@
+package es.rbp.simonbp.sim;
+
+import es.rbp.simonbp.core.SimonEngine;
+import es.rbp.simonbp.core.XoshiroRandom;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Jugador simulado. En cada pulsación decide qué botón pulsar viendo la serie y la posición del motor, y cuánto
+ * tarda en hacerlo.
+ * <p>
+ * Los bots no tienen estado: todo lo aleatorio sale del generador que reciben, que es de la partida. Así el mismo
+ * bot se puede usar desde varios hilos y cada partida se repite igual con la misma semilla.
+ *
+ * @see Simulator
+ */
+public abstract class Bot {
+
+    private final String nombre;
+
+    /**
+     * @param nombre nombre del bot en el informe.
+     */
+    protected Bot(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    /**
+     * Decide qué botón pulsa el bot en el turno del jugador.
+     *
+     * @param engine motor de la partida, en el turno del jugador.
+     * @param random generador de la partida.
+     * @return número del botón pulsado.
+     */
+    public abstract int pulsar(SimonEngine engine, XoshiroRandom random);
+
+    /**
+     * @param random generador de la partida.
+     * @return tiempo de reacción de la pulsación, en milisegundos.
+     */
+    public abstract int reaccion(XoshiroRandom random);
+
+    /**
+     * @param engine motor de la partida.
+     * @return el botón que hay que pulsar.
+     */
+    protected static int correcto(SimonEngine engine) {
+        return engine.getNumero(engine.getPosicion());
+    }
+
+    /**
+     * @param correcto      botón que había que pulsar.
+     * @param numeroBotones número de botones del tablero.
+     * @param random        generador de la partida.
+     * @return un botón distinto del correcto, elegido al azar.
+     */
+    protected static int fallar(int correcto, int numeroBotones, XoshiroRandom random) {
+        int numero = random.nextInt(numeroBotones - 1) + 1;
+        return numero >= correcto ? numero + 1 : numero;
+    }
+
+    /**
+     * Genera un tiempo de reacción con distribución log-normal, que es la forma habitual de los tiempos de reacción
+     * humanos: la mayoría cerca de la mediana y una cola larga de respuestas lentas.
+     *
+     * @param mediana mediana en milisegundos.
+     * @param sigma   desviación típica del logaritmo. 0 da siempre la mediana.
+     * @param random  generador de la partida.
+     * @return tiempo en milisegundos.
+     */
+    protected static int logNormal(double mediana, double sigma, XoshiroRandom random) {
+        // Box-Muller: 1 - nextDouble() nunca es 0
+        double normal = Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+        return (int) Math.round(mediana * Math.exp(sigma * normal));
+    }
+
+    @Override
+    public String toString() {
+        return nombre;
+    }
+}
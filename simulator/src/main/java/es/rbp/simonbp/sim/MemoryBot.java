@@ -0,0 +1,46 @@
+package es.rbp.simonbp.sim;
+
+import es.rbp.simonbp.core.SimonEngine;
+import es.rbp.simonbp.core.XoshiroRandom;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Bot con memoria limitada: recuerda los primeros pasos de la serie hasta su capacidad y a partir de ahí pulsa al
+ * azar, así que sólo acierta por suerte. Con una capacidad de 7, el famoso 7 ± 2 de la memoria a corto plazo, sirve
+ * para ver qué dificultad está al alcance de un jugador normal sin trucos.
+ */
+public class MemoryBot extends Bot {
+
+    private final int capacidad;
+
+    private final double mediana;
+
+    private final double sigma;
+
+    /**
+     * @param capacidad pasos de la serie que recuerda.
+     * @param mediana   mediana del tiempo de reacción, en milisegundos.
+     * @param sigma     desviación típica del logaritmo del tiempo de reacción.
+     */
+    public MemoryBot(int capacidad, double mediana, double sigma) {
+        super("memoria-" + capacidad);
+        if (capacidad < 0)
+            throw new IllegalArgumentException("Capacidad negativa: " + capacidad);
+        this.capacidad = capacidad;
+        this.mediana = mediana;
+        this.sigma = sigma;
+    }
+
+    @Override
+    public int pulsar(SimonEngine engine, XoshiroRandom random) {
+        if (engine.getPosicion() < capacidad)
+            return correcto(engine);
+        return random.nextInt(engine.getConfig().getNumeroBotones()) + 1;
+    }
+
+    @Override
+    public int reaccion(XoshiroRandom random) {
+        return logNormal(mediana, sigma, random);
+    }
+}
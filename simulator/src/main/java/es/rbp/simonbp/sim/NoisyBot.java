@@ -0,0 +1,48 @@
+package es.rbp.simonbp.sim;
+
+import java.util.Locale;
+
+import es.rbp.simonbp.core.SimonEngine;
+import es.rbp.simonbp.core.XoshiroRandom;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Bot que recuerda toda la serie pero se equivoca de botón con una probabilidad fija en cada pulsación, como un
+ * dedo que resbala. Como las rondas largas tienen más pulsaciones, la probabilidad de ganar cae con la dificultad.
+ */
+public class NoisyBot extends Bot {
+
+    private final double probabilidadError;
+
+    private final double mediana;
+
+    private final double sigma;
+
+    /**
+     * @param probabilidadError probabilidad de pulsar un botón equivocado en cada pulsación, entre 0 y 1.
+     * @param mediana           mediana del tiempo de reacción, en milisegundos.
+     * @param sigma             desviación típica del logaritmo del tiempo de reacción.
+     */
+    public NoisyBot(double probabilidadError, double mediana, double sigma) {
+        super(String.format(Locale.ROOT, "ruido-%.1f%%", probabilidadError * 100));
+        if (probabilidadError < 0 || probabilidadError > 1)
+            throw new IllegalArgumentException("Probabilidad no válida: " + probabilidadError);
+        this.probabilidadError = probabilidadError;
+        this.mediana = mediana;
+        this.sigma = sigma;
+    }
+
+    @Override
+    public int pulsar(SimonEngine engine, XoshiroRandom random) {
+        int correcto = correcto(engine);
+        if (random.nextDouble() < probabilidadError)
+            return fallar(correcto, engine.getConfig().getNumeroBotones(), random);
+        return correcto;
+    }
+
+    @Override
+    public int reaccion(XoshiroRandom random) {
+        return logNormal(mediana, sigma, random);
+    }
+}
@@ -0,0 +1,33 @@
+package es.rbp.simonbp.sim;
+
+import es.rbp.simonbp.core.SimonEngine;
+import es.rbp.simonbp.core.XoshiroRandom;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Bot que nunca se equivoca y siempre tarda lo mismo. Debe ganar todas las partidas; si no, hay un error en las
+ * reglas.
+ */
+public class PerfectBot extends Bot {
+
+    private final int reaccion;
+
+    /**
+     * @param reaccion tiempo de reacción de cada pulsación, en milisegundos.
+     */
+    public PerfectBot(int reaccion) {
+        super("perfecto");
+        this.reaccion = reaccion;
+    }
+
+    @Override
+    public int pulsar(SimonEngine engine, XoshiroRandom random) {
+        return correcto(engine);
+    }
+
+    @Override
+    public int reaccion(XoshiroRandom random) {
+        return reaccion;
+    }
+}
@@ -0,0 +1,213 @@
+package es.rbp.simonbp.sim;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import es.rbp.simonbp.core.LatencyHistogram;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Informe de una simulación: por cada bot y dificultad, la tasa de victorias, la ronda media, el paso medio, el
+ * rendimiento en
+ * partidas por segundo y los percentiles del tiempo de reacción simulado y del tiempo real de simular cada partida.
+ * Se puede exportar a CSV y a JSON.
+ *
+ * @see Simulator
+ */
+public class SimulationReport {
+
+    /**
+     * Percentiles del tiempo de reacción
+     */
+    private static final double[] PERCENTILES_REACCION = {50, 90, 99};
+
+    /**
+     * Percentiles del tiempo de simular cada partida
+     */
+    private static final double[] PERCENTILES_SIMULACION = {50, 99, 99.9};
+
+    /**
+     * Resultados de un bot en una dificultad
+     */
+    public static class Fila {
+
+        private final String bot;
+
+        private final int turnos;
+
+        private final SimulationResult resultado;
+
+        private final long nanos;
+
+        Fila(String bot, int turnos, SimulationResult resultado, long nanos) {
+            this.bot = bot;
+            this.turnos = turnos;
+            this.resultado = resultado;
+            this.nanos = nanos;
+        }
+
+        public String getBot() {
+            return bot;
+        }
+
+        public int getTurnos() {
+            return turnos;
+        }
+
+        public SimulationResult getResultado() {
+            return resultado;
+        }
+
+        /**
+         * @return partidas simuladas por segundo de tiempo real.
+         */
+        public double getPartidasPorSegundo() {
+            return resultado.getPartidas() * 1e9 / Math.max(1, nanos);
+        }
+    }
+
+    private final int hilos;
+
+    private final int numeroBotones;
+
+    private final List<Fila> filas = new ArrayList<>();
+
+    /**
+     * @param hilos         hilos con los que se ha simulado.
+     * @param numeroBotones número de botones del tablero.
+     */
+    SimulationReport(int hilos, int numeroBotones) {
+        this.hilos = hilos;
+        this.numeroBotones = numeroBotones;
+    }
+
+    void add(String bot, int turnos, SimulationResult resultado, long nanos) {
+        filas.add(new Fila(bot, turnos, resultado, nanos));
+    }
+
+    public List<Fila> getFilas() {
+        return Collections.unmodifiableList(filas);
+    }
+
+    /**
+     * @param bot    nombre del bot.
+     * @param turnos rondas de la dificultad.
+     * @return fila del bot en esa dificultad, o null si no se ha simulado.
+     */
+    public Fila getFila(String bot, int turnos) {
+        for (Fila fila : filas) {
+            if (fila.bot.equals(bot) && fila.turnos == turnos)
+                return fila;
+        }
+        return null;
+    }
+
+    /**
+     * @return una línea de cabecera y una línea por fila, separadas por comas. La duración del paso y los tiempos de
+     * reacción van en milisegundos y los de simulación en microsegundos.
+     */
+    public String toCsv() {
+        StringBuilder csv = new StringBuilder(256 + filas.size() * 128);
+        csv.append("bot,turnos,partidas,victorias,tasa_victorias,ronda_media,pulsaciones,partidas_s,chi2,paso_ms");
+        for (double percentil : PERCENTILES_REACCION) {
+            csv.append(",reaccion_").append(nombre(percentil)).append("_ms");
+        }
+        for (double percentil : PERCENTILES_SIMULACION) {
+            csv.append(",simulacion_").append(nombre(percentil)).append("_us");
+        }
+        csv.append('\n');
+        for (Fila fila : filas) {
+            SimulationResult r = fila.resultado;
+            csv.append(fila.bot).append(',').append(fila.turnos).append(',').append(r.getPartidas()).append(',')
+                    .append(r.getVictorias()).append(',')
+                    .append(String.format(Locale.ROOT, "%.5f,%.3f", r.getTasaVictorias(), r.getRondaMedia()))
+                    .append(',').append(r.getPulsaciones()).append(',')
+                    .append(String.format(Locale.ROOT, "%.0f,%.3f,%.1f", fila.getPartidasPorSegundo(),
+                            r.getChiCuadrado(), r.getDuracionPasoMedia()));
+            for (double percentil : PERCENTILES_REACCION) {
+                csv.append(',').append(r.getReaccion().getPercentil(percentil) / 1_000_000);
+            }
+            for (double percentil : PERCENTILES_SIMULACION) {
+                csv.append(',').append(String.format(Locale.ROOT, "%.1f",
+                        r.getSimulacion().getPercentil(percentil) / 1e3));
+            }
+            csv.append('\n');
+        }
+        return csv.toString();
+    }
+
+    /**
+     * @return informe en JSON con los datos de la simulación y una entrada por fila.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(256 + filas.size() * 512);
+        json.append("{\"hilos\":").append(hilos).append(",\"botones\":").append(numeroBotones)
+                .append(",\"filas\":[");
+        for (int i = 0; i < filas.size(); i++) {
+            Fila fila = filas.get(i);
+            SimulationResult r = fila.resultado;
+            if (i > 0)
+                json.append(',');
+            json.append("{\"bot\":\"").append(fila.bot).append("\",\"turnos\":").append(fila.turnos)
+                    .append(",\"partidas\":").append(r.getPartidas())
+                    .append(",\"victorias\":").append(r.getVictorias())
+                    .append(String.format(Locale.ROOT, ",\"tasa_victorias\":%.5f,\"ronda_media\":%.3f",
+                            r.getTasaVictorias(), r.getRondaMedia()))
+                    .append(",\"pulsaciones\":").append(r.getPulsaciones())
+                    .append(String.format(Locale.ROOT, ",\"partidas_s\":%.0f,\"chi2\":%.3f,\"paso_ms\":%.1f",
+                            fila.getPartidasPorSegundo(), r.getChiCuadrado(), r.getDuracionPasoMedia()))
+                    .append(",\"apariciones\":[");
+            for (int numero = 1; numero <= numeroBotones; numero++) {
+                if (numero > 1)
+                    json.append(',');
+                json.append(r.getApariciones(numero));
+            }
+            json.append("],\"reaccion_ms\":{");
+            appendPercentiles(json, r.getReaccion(), PERCENTILES_REACCION, 1e6);
+            json.append("},\"simulacion_us\":{");
+            appendPercentiles(json, r.getSimulacion(), PERCENTILES_SIMULACION, 1e3);
+            json.append("}}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private static void appendPercentiles(StringBuilder json, LatencyHistogram histograma, double[] percentiles,
+                                          double escala) {
+        for (int i = 0; i < percentiles.length; i++) {
+            if (i > 0)
+                json.append(',');
+            json.append('"').append(nombre(percentiles[i])).append("\":")
+                    .append(String.format(Locale.ROOT, "%.1f", histograma.getPercentil(percentiles[i]) / escala));
+        }
+        json.append(String.format(Locale.ROOT, ",\"max\":%.1f", histograma.getMaximo() / escala));
+    }
+
+    /**
+     * @return nombre del percentil: p50, p99, p99.9...
+     */
+    private static String nombre(double percentil) {
+        return "p" + String.valueOf(percentil).replace(".0", "");
+    }
+
+    /**
+     * @return tabla para la consola.
+     */
+    @Override
+    public String toString() {
+        StringBuilder tabla = new StringBuilder();
+        tabla.append(String.format(Locale.ROOT, "%-12s %6s %10s %9s %8s %7s %12s %8s %8s %8s %10s%n", "bot",
+                "turnos", "partidas", "victorias", "ronda", "paso", "partidas/s", "r.p50", "r.p99", "chi2", "sim.p99"));
+        for (Fila fila : filas) {
+            SimulationResult r = fila.resultado;
+            tabla.append(String.format(Locale.ROOT, "%-12s %6d %10d %8.2f%% %8.2f %5.0fms %,12.0f %6dms %6dms %8.3f %8.1fus%n",
+                    fila.bot, fila.turnos, r.getPartidas(), r.getTasaVictorias() * 100, r.getRondaMedia(),
+                    r.getDuracionPasoMedia(), fila.getPartidasPorSegundo(), r.getReaccion().getPercentil(50) / 1_000_000,
+                    r.getReaccion().getPercentil(99) / 1_000_000, r.getChiCuadrado(),
+                    r.getSimulacion().getPercentil(99) / 1e3));
+        }
+        return tabla.toString();
+    }
+}
@@ -0,0 +1,177 @@
+package es.rbp.simonbp.sim;
+
+import es.rbp.simonbp.core.LatencyHistogram;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Resultados acumulados de un grupo de partidas simuladas. Cada tarea del simulador llena el suyo sin compartir nada
+ * con otros hilos y al terminar se suman.
+ *
+ * @see SimulationTask
+ */
+public class SimulationResult {
+
+    private final int numeroBotones;
+
+    private long partidas;
+
+    private long victorias;
+
+    /**
+     * Suma de la ronda alcanzada en cada partida
+     */
+    private long rondas;
+
+    private long pulsaciones;
+
+    /**
+     * Suma de la duración del paso al terminar cada partida, en milisegundos
+     */
+    private long duracionesPaso;
+
+    /**
+     * Veces que sale cada botón en las series de la cpu, para comprobar que el generador es justo
+     */
+    private final long[] apariciones;
+
+    /**
+     * Tiempo de reacción simulado de cada pulsación, en nanosegundos
+     */
+    private final LatencyHistogram reaccion = new LatencyHistogram();
+
+    /**
+     * Tiempo real que cuesta simular cada partida, en nanosegundos
+     */
+    private final LatencyHistogram simulacion = new LatencyHistogram();
+
+    /**
+     * @param numeroBotones número de botones del tablero de las partidas.
+     */
+    public SimulationResult(int numeroBotones) {
+        this.numeroBotones = numeroBotones;
+        this.apariciones = new long[numeroBotones];
+    }
+
+    /**
+     * Registra una partida terminada.
+     *
+     * @param victoria     true si el bot ganó.
+     * @param ronda        ronda alcanzada.
+     * @param pulsaciones  botones pulsados por el bot.
+     * @param duracionPaso duración del paso en la última ronda, en milisegundos.
+     * @param nanos        tiempo real que ha costado simularla.
+     */
+    void addPartida(boolean victoria, int ronda, long pulsaciones, int duracionPaso, long nanos) {
+        partidas++;
+        if (victoria)
+            victorias++;
+        rondas += ronda;
+        this.pulsaciones += pulsaciones;
+        duracionesPaso += duracionPaso;
+        simulacion.record(nanos);
+    }
+
+    /**
+     * @param numero botón que ha salido en la serie de la cpu.
+     */
+    void addAparicion(int numero) {
+        apariciones[numero - 1]++;
+    }
+
+    /**
+     * @param milisegundos tiempo de reacción simulado de una pulsación.
+     */
+    void addReaccion(int milisegundos) {
+        reaccion.record(milisegundos * 1_000_000L);
+    }
+
+    /**
+     * Suma los resultados de otro grupo de partidas.
+     *
+     * @param otro resultados que se suman a estos.
+     */
+    void add(SimulationResult otro) {
+        partidas += otro.partidas;
+        victorias += otro.victorias;
+        rondas += otro.rondas;
+        pulsaciones += otro.pulsaciones;
+        duracionesPaso += otro.duracionesPaso;
+        for (int i = 0; i < numeroBotones; i++) {
+            apariciones[i] += otro.apariciones[i];
+        }
+        reaccion.add(otro.reaccion);
+        simulacion.add(otro.simulacion);
+    }
+
+    public long getPartidas() {
+        return partidas;
+    }
+
+    public long getVictorias() {
+        return victorias;
+    }
+
+    /**
+     * @return proporción de partidas ganadas, entre 0 y 1.
+     */
+    public double getTasaVictorias() {
+        return partidas == 0 ? 0 : (double) victorias / partidas;
+    }
+
+    /**
+     * @return ronda media alcanzada.
+     */
+    public double getRondaMedia() {
+        return partidas == 0 ? 0 : (double) rondas / partidas;
+    }
+
+    public long getPulsaciones() {
+        return pulsaciones;
+    }
+
+    /**
+     * @return duración media del paso al terminar cada partida, en milisegundos. Con el ritmo fijo es la de la
+     * configuración; con una política adaptativa muestra a qué ritmo se estabiliza el bot.
+     */
+    public double getDuracionPasoMedia() {
+        return partidas == 0 ? 0 : (double) duracionesPaso / partidas;
+    }
+
+    /**
+     * @param numero botón, empezando por 1.
+     * @return veces que ha salido en las series de la cpu.
+     */
+    public long getApariciones(int numero) {
+        return apariciones[numero - 1];
+    }
+
+    /**
+     * Estadístico chi cuadrado de las apariciones de cada botón dividido entre los grados de libertad. Con un
+     * generador uniforme ronda 1; valores muy por encima indican que algún botón sale más que los demás.
+     *
+     * @return chi cuadrado reducido, o 0 si no hay apariciones.
+     */
+    public double getChiCuadrado() {
+        long total = 0;
+        for (long aparicion : apariciones) {
+            total += aparicion;
+        }
+        if (total == 0)
+            return 0;
+        double esperado = (double) total / numeroBotones;
+        double chi = 0;
+        for (long aparicion : apariciones) {
+            chi += (aparicion - esperado) * (aparicion - esperado) / esperado;
+        }
+        return chi / (numeroBotones - 1);
+    }
+
+    public LatencyHistogram getReaccion() {
+        return reaccion;
+    }
+
+    public LatencyHistogram getSimulacion() {
+        return simulacion;
+    }
+}
@@ -0,0 +1,119 @@
+package es.rbp.simonbp.sim;
+
+import java.util.concurrent.RecursiveTask;
+
+import es.rbp.simonbp.core.DifficultyPolicy;
+import es.rbp.simonbp.core.PatternGenerator;
+import es.rbp.simonbp.core.PlayerStats;
+import es.rbp.simonbp.core.SimonConfig;
+import es.rbp.simonbp.core.SimonEngine;
+import es.rbp.simonbp.core.UniformGenerator;
+import es.rbp.simonbp.core.XoshiroRandom;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Tarea del fork-join que simula un rango de partidas. Si el rango es grande lo parte en dos y simula cada mitad en
+ * paralelo; si no, juega las partidas una detrás de otra con su propio motor, generador y resultados.
+ * <p>
+ * La partida i usa la semilla base + i tanto para la serie como para el bot, así que los resultados son los mismos
+ * con cualquier número de hilos.
+ * <p>
+ * Con una política de dificultad, cada rango sin partir es un jugador que juega sus partidas seguidas: las
+ * estadísticas pasan de una partida a la siguiente como en la app. Los rangos sólo dependen del número de partidas,
+ * así que tampoco así cambian los resultados con los hilos.
+ */
+class SimulationTask extends RecursiveTask<SimulationResult> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Partidas por debajo de las cuales la tarea ya no se parte
+     */
+    static final int UMBRAL = 2048;
+
+    /**
+     * Constante con la que se mezcla la semilla del bot para que no coincida con la de la serie
+     */
+    private static final long SAL_BOT = 0x5DEECE66DL;
+
+    private final Bot bot;
+
+    private final SimonConfig config;
+
+    /**
+     * Política de dificultad adaptativa, o null para el ritmo fijo
+     */
+    private final DifficultyPolicy politica;
+
+    private final long semilla;
+
+    private final long desde;
+
+    private final long hasta;
+
+    /**
+     * @param bot      jugador de las partidas.
+     * @param config   configuración de las partidas.
+     * @param politica política de dificultad, o null para el ritmo fijo.
+     * @param semilla  semilla base.
+     * @param desde    primera partida del rango.
+     * @param hasta    partida siguiente a la última del rango.
+     */
+    SimulationTask(Bot bot, SimonConfig config, DifficultyPolicy politica, long semilla, long desde, long hasta) {
+        this.bot = bot;
+        this.config = config;
+        this.politica = politica;
+        this.semilla = semilla;
+        this.desde = desde;
+        this.hasta = hasta;
+    }
+
+    @Override
+    protected SimulationResult compute() {
+        if (hasta - desde <= UMBRAL)
+            return jugar();
+        long mitad = (desde + hasta) >>> 1;
+        SimulationTask izquierda = new SimulationTask(bot, config, politica, semilla, desde, mitad);
+        SimulationTask derecha = new SimulationTask(bot, config, politica, semilla, mitad, hasta);
+        izquierda.fork();
+        SimulationResult resultado = derecha.compute();
+        resultado.add(izquierda.join());
+        return resultado;
+    }
+
+    /**
+     * Juega las partidas del rango igual que PlayActivity: la cpu muestra la serie, empieza el turno del jugador y
+     * el bot pulsa hasta que la ronda termina o se equivoca.
+     */
+    private SimulationResult jugar() {
+        SimulationResult resultado = new SimulationResult(config.getNumeroBotones());
+        PatternGenerator generador = new UniformGenerator();
+        XoshiroRandom random = new XoshiroRandom(0);
+        PlayerStats stats = politica != null ? new PlayerStats() : null;
+        for (long i = desde; i < hasta; i++) {
+            long inicio = System.nanoTime();
+            SimonEngine engine = new SimonEngine(config, generador, semilla + i);
+            engine.setAdaptacion(politica, stats);
+            random.setSeed((semilla + i) ^ SAL_BOT);
+            long pulsaciones = 0;
+            engine.start();
+            while (!engine.isTerminada()) {
+                engine.finTurnoCpu();
+                while (engine.getEstado() == SimonEngine.Estado.TURNO_JUGADOR) {
+                    int reaccion = bot.reaccion(random);
+                    resultado.addReaccion(reaccion);
+                    engine.pulsar(bot.pulsar(engine, random), reaccion);
+                    pulsaciones++;
+                }
+            }
+            long nanos = System.nanoTime() - inicio;
+            resultado.addPartida(engine.getEstado() == SimonEngine.Estado.VICTORIA, engine.getRonda(), pulsaciones,
+                    engine.getDuracionPaso(), nanos);
+            for (int paso = 0; paso < engine.getRonda(); paso++) {
+                resultado.addAparicion(engine.getNumero(paso));
+            }
+        }
+        return resultado;
+    }
+}
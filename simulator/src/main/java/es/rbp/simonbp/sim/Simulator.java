@@ -0,0 +1,88 @@
+package es.rbp.simonbp.sim;
+
+import java.util.concurrent.ForkJoinPool;
+
+import es.rbp.simonbp.core.DifficultyPolicy;
+import es.rbp.simonbp.core.SimonConfig;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Simula partidas de varios bots en varias dificultades repartiéndolas entre todos los núcleos con un
+ * {@link ForkJoinPool}. Cada combinación de bot y dificultad da una fila del informe.
+ * <p>
+ * Con una {@link DifficultyPolicy} las partidas se juegan con dificultad adaptativa, lo que permite probar y ajustar
+ * una política sin jugar en el móvil.
+ *
+ * @see SimulationReport
+ */
+public class Simulator {
+
+    /**
+     * Dificultades del menú principal
+     */
+    public static final int[] DIFICULTADES = {SimonConfig.FACIL, SimonConfig.MEDIO, SimonConfig.DIFICIL};
+
+    private final ForkJoinPool pool;
+
+    private final int numeroBotones;
+
+    /**
+     * Política de dificultad adaptativa, o null para el ritmo fijo
+     */
+    private final DifficultyPolicy politica;
+
+    /**
+     * @param hilos         hilos del pool.
+     * @param numeroBotones número de botones del tablero.
+     */
+    public Simulator(int hilos, int numeroBotones) {
+        this(hilos, numeroBotones, null);
+    }
+
+    /**
+     * @param hilos         hilos del pool.
+     * @param numeroBotones número de botones del tablero.
+     * @param politica      política de dificultad de las partidas, o null para el ritmo fijo. Se comparte entre
+     *                      todos los hilos, así que no debe tener estado.
+     */
+    public Simulator(int hilos, int numeroBotones, DifficultyPolicy politica) {
+        if (hilos < 1)
+            throw new IllegalArgumentException("Número de hilos no válido: " + hilos);
+        this.pool = new ForkJoinPool(hilos);
+        this.numeroBotones = numeroBotones;
+        this.politica = politica;
+    }
+
+    /**
+     * Simula las partidas de cada bot en cada dificultad.
+     *
+     * @param bots         jugadores simulados.
+     * @param dificultades rondas de cada dificultad.
+     * @param partidas     partidas por bot y dificultad.
+     * @param semilla      semilla base. La misma semilla da los mismos resultados.
+     * @return informe con una fila por bot y dificultad.
+     */
+    public SimulationReport run(Bot[] bots, int[] dificultades, long partidas, long semilla) {
+        if (partidas < 1)
+            throw new IllegalArgumentException("Número de partidas no válido: " + partidas);
+        SimulationReport informe = new SimulationReport(pool.getParallelism(), numeroBotones);
+        for (Bot bot : bots) {
+            for (int turnos : dificultades) {
+                SimonConfig config = SimonConfig.paraDificultad(turnos, numeroBotones);
+                long inicio = System.nanoTime();
+                SimulationResult resultado = pool.invoke(new SimulationTask(bot, config, politica, semilla, 0,
+                        partidas));
+                informe.add(bot.getNombre(), turnos, resultado, System.nanoTime() - inicio);
+            }
+        }
+        return informe;
+    }
+
+    /**
+     * Termina los hilos del pool.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,112 @@
+package es.rbp.simonbp.sim;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Locale;
+
+import es.rbp.simonbp.core.AdaptivePolicy;
+import es.rbp.simonbp.core.DifficultyPolicy;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Punto de entrada del simulador por línea de comandos. Simula las tres dificultades con un bot perfecto, dos bots
+ * con memoria limitada, dos bots que se equivocan de vez en cuando y uno que se equivoca más cuanto más rápido va
+ * la serie, muestra la tabla de resultados y, si se pide, la guarda en CSV y en JSON.
+ * <p>
+ * Opciones: --partidas N, --hilos N, --semilla N, --botones N, --ritmo fijo|adaptativo, --csv fichero,
+ * --json fichero.
+ */
+public class SimulatorMain {
+
+    private static final String USO = "Uso: simulator [--partidas N] [--hilos N] [--semilla N] [--botones N] "
+            + "[--ritmo fijo|adaptativo] [--csv fichero] [--json fichero]";
+
+    public static void main(String[] args) throws IOException {
+        long partidas = 100_000;
+        int hilos = Runtime.getRuntime().availableProcessors();
+        long semilla = 1;
+        int numeroBotones = 6;
+        DifficultyPolicy politica = null;
+        String csv = null, json = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String opcion = args[i];
+                if (i + 1 == args.length)
+                    throw new IllegalArgumentException("Falta el valor de " + opcion);
+                String valor = args[++i];
+                switch (opcion) {
+                    case "--partidas":
+                        partidas = Long.parseLong(valor);
+                        break;
+                    case "--hilos":
+                        hilos = Integer.parseInt(valor);
+                        break;
+                    case "--semilla":
+                        semilla = Long.parseLong(valor);
+                        break;
+                    case "--botones":
+                        numeroBotones = Integer.parseInt(valor);
+                        break;
+                    case "--ritmo":
+                        if (valor.equals("adaptativo"))
+                            politica = new AdaptivePolicy();
+                        else if (!valor.equals("fijo"))
+                            throw new IllegalArgumentException("Ritmo desconocido: " + valor);
+                        break;
+                    case "--csv":
+                        csv = valor;
+                        break;
+                    case "--json":
+                        json = valor;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Opción desconocida: " + opcion);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USO);
+            System.exit(2);
+            return;
+        }
+
+        Bot[] bots = {
+                new PerfectBot(400),
+                new MemoryBot(7, 550, 0.35),
+                new MemoryBot(9, 500, 0.3),
+                new NoisyBot(0.01, 450, 0.3),
+                new NoisyBot(0.05, 450, 0.3),
+                new TempoBot(0.02, 350, 0.3)
+        };
+        Simulator simulator = new Simulator(hilos, numeroBotones, politica);
+        long inicio = System.nanoTime();
+        SimulationReport informe;
+        try {
+            informe = simulator.run(bots, Simulator.DIFICULTADES, partidas, semilla);
+        } finally {
+            simulator.shutdown();
+        }
+        long nanos = System.nanoTime() - inicio;
+
+        System.out.print(informe);
+        long total = partidas * bots.length * Simulator.DIFICULTADES.length;
+        System.out.println(String.format(Locale.ROOT, "%,d partidas en %.2f s con %d hilos: %,.0f partidas/s",
+                total, nanos / 1e9, hilos, total * 1e9 / nanos));
+        if (csv != null)
+            escribir(csv, informe.toCsv());
+        if (json != null)
+            escribir(json, informe.toJson());
+    }
+
+    private static void escribir(String ruta, String contenido) throws IOException {
+        try (Writer salida = new OutputStreamWriter(new FileOutputStream(new File(ruta)), Charset.forName("UTF-8"))) {
+            salida.write(contenido);
+        }
+        System.out.println("Informe guardado en " + ruta);
+    }
+}
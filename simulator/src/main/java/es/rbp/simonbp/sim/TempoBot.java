@@ -0,0 +1,51 @@
+package es.rbp.simonbp.sim;
+
+import java.util.Locale;
+
+import es.rbp.simonbp.core.SimonConfig;
+import es.rbp.simonbp.core.SimonEngine;
+import es.rbp.simonbp.core.XoshiroRandom;
+
+/**
+ * @author Ricardo Bordería Pi
+ * <p>
+ * Bot que se equivoca más cuanto más rápido va la serie. Con el paso normal de {@link SimonConfig#DURACION_PASO}
+ * falla con la probabilidad base, y la probabilidad crece con el cuadrado de la velocidad: al doble de ritmo falla
+ * cuatro veces más. Sirve para probar políticas de dificultad adaptativa, que con los otros bots no cambian nada.
+ */
+public class TempoBot extends Bot {
+
+    private final double probabilidadError;
+
+    private final double mediana;
+
+    private final double sigma;
+
+    /**
+     * @param probabilidadError probabilidad de equivocarse en cada pulsación con el paso normal, entre 0 y 1.
+     * @param mediana           mediana del tiempo de reacción, en milisegundos.
+     * @param sigma             desviación típica del logaritmo del tiempo de reacción.
+     */
+    public TempoBot(double probabilidadError, double mediana, double sigma) {
+        super(String.format(Locale.ROOT, "ritmo-%.1f%%", probabilidadError * 100));
+        if (probabilidadError < 0 || probabilidadError > 1)
+            throw new IllegalArgumentException("Probabilidad no válida: " + probabilidadError);
+        this.probabilidadError = probabilidadError;
+        this.mediana = mediana;
+        this.sigma = sigma;
+    }
+
+    @Override
+    public int pulsar(SimonEngine engine, XoshiroRandom random) {
+        int correcto = correcto(engine);
+        double velocidad = (double) SimonConfig.DURACION_PASO / engine.getDuracionPaso();
+        if (random.nextDouble() < probabilidadError * velocidad * velocidad)
+            return fallar(correcto, engine.getConfig().getNumeroBotones(), random);
+        return correcto;
+    }
+
+    @Override
+    public int reaccion(XoshiroRandom random) {
+        return logNormal(mediana, sigma, random);
+    }
+}
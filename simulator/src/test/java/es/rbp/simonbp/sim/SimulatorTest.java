@@ -0,0 +1,162 @@
+package es.rbp.simonbp.sim;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import es.rbp.simonbp.core.AdaptivePolicy;
+import es.rbp.simonbp.core.SimonConfig;
+
+import static org.junit.Assert.*;
+
+/**
+ * Comprueba que los bots ganan lo que deben ganar según las reglas y que los resultados no dependen del número de
+ * hilos.
+ */
+public class SimulatorTest {
+
+    private static final int PARTIDAS = 20_000;
+
+    private Simulator simulator;
+
+    @Before
+    public void setUp() {
+        simulator = new Simulator(4, SimonConfig.NUMERO_BOTONES);
+    }
+
+    @After
+    public void tearDown() {
+        simulator.shutdown();
+    }
+
+    @Test
+    public void perfecto_ganaSiempre() {
+        SimulationReport informe = simulator.run(new Bot[]{new PerfectBot(300)}, Simulator.DIFICULTADES, PARTIDAS, 1);
+
+        assertEquals(3, informe.getFilas().size());
+        for (int turnos : Simulator.DIFICULTADES) {
+            SimulationResult resultado = informe.getFila("perfecto", turnos).getResultado();
+            assertEquals(PARTIDAS, resultado.getVictorias());
+            assertEquals(turnos, resultado.getRondaMedia(), 1e-9);
+            assertEquals((long) PARTIDAS * turnos * (turnos + 1) / 2, resultado.getPulsaciones());
+            assertEquals(300, resultado.getReaccion().getPercentil(50) / 1_000_000, 10);
+        }
+    }
+
+    @Test
+    public void ruidoso_ganaSegunLaProbabilidadDeAcertarCadaPulsacion() {
+        double error = 0.05;
+        SimulationReport informe = simulator.run(new Bot[]{new NoisyBot(error, 450, 0.3)}, Simulator.DIFICULTADES,
+                PARTIDAS, 2);
+
+        for (int turnos : Simulator.DIFICULTADES) {
+            double esperada = Math.pow(1 - error, turnos * (turnos + 1) / 2);
+            SimulationResult resultado = informe.getFilas().get(indice(turnos)).getResultado();
+            assertEquals("Turnos " + turnos, esperada, resultado.getTasaVictorias(), 0.02);
+            assertEquals(450, resultado.getReaccion().getPercentil(50) / 1e6, 450 * 0.05);
+        }
+    }
+
+    @Test
+    public void memoria_soloGanaPorSuerteAPartirDeSuCapacidad() {
+        SimulationReport informe = simulator.run(new Bot[]{new MemoryBot(7, 500, 0.3)}, Simulator.DIFICULTADES,
+                PARTIDAS, 3);
+
+        assertEquals(1.0, informe.getFila("memoria-7", SimonConfig.FACIL).getResultado().getTasaVictorias(), 0);
+        // Rondas 8 y 9: adivinar un paso y después dos
+        double esperada = 1.0 / 6 / 36;
+        assertEquals(esperada, informe.getFila("memoria-7", SimonConfig.MEDIO).getResultado().getTasaVictorias(),
+                0.002);
+    }
+
+    @Test
+    public void resultados_noDependenDeLosHilos() {
+        Bot[] bots = {new NoisyBot(0.02, 450, 0.3)};
+        SimulationReport paralelo = simulator.run(bots, Simulator.DIFICULTADES, PARTIDAS, 4);
+        Simulator unHilo = new Simulator(1, SimonConfig.NUMERO_BOTONES);
+        SimulationReport secuencial = unHilo.run(bots, Simulator.DIFICULTADES, PARTIDAS, 4);
+        unHilo.shutdown();
+
+        for (int i = 0; i < Simulator.DIFICULTADES.length; i++) {
+            SimulationResult a = paralelo.getFilas().get(i).getResultado();
+            SimulationResult b = secuencial.getFilas().get(i).getResultado();
+            assertEquals(a.getVictorias(), b.getVictorias());
+            assertEquals(a.getPulsaciones(), b.getPulsaciones());
+            assertEquals(a.getRondaMedia(), b.getRondaMedia(), 0);
+            assertEquals(a.getReaccion().getPercentil(99), b.getReaccion().getPercentil(99));
+        }
+    }
+
+    @Test
+    public void adaptativo_frenaAlQueFallaYAceleraAlQueVaSobrado() {
+        Bot[] bots = {new TempoBot(0.15, 600, 0.3), new TempoBot(0.005, 250, 0.2)};
+        int[] dificultades = {SimonConfig.FACIL};
+        SimulationReport fijo = simulator.run(bots, dificultades, PARTIDAS, 7);
+        Simulator adaptativo = new Simulator(4, SimonConfig.NUMERO_BOTONES, new AdaptivePolicy());
+        SimulationReport adaptado = adaptativo.run(bots, dificultades, PARTIDAS, 7);
+        adaptativo.shutdown();
+
+        SimulationResult lentoFijo = fijo.getFila("ritmo-15.0%", SimonConfig.FACIL).getResultado();
+        SimulationResult lento = adaptado.getFila("ritmo-15.0%", SimonConfig.FACIL).getResultado();
+        assertEquals(SimonConfig.DURACION_PASO, lentoFijo.getDuracionPasoMedia(), 0);
+        assertTrue("paso " + lento.getDuracionPasoMedia(), lento.getDuracionPasoMedia() > SimonConfig.DURACION_PASO);
+        assertTrue(lento.getTasaVictorias() > lentoFijo.getTasaVictorias());
+
+        SimulationResult rapido = adaptado.getFila("ritmo-0.5%", SimonConfig.FACIL).getResultado();
+        assertTrue("paso " + rapido.getDuracionPasoMedia(), rapido.getDuracionPasoMedia() < SimonConfig.DURACION_PASO);
+    }
+
+    @Test
+    public void adaptativo_noDependeDeLosHilos() {
+        Bot[] bots = {new TempoBot(0.03, 400, 0.3)};
+        Simulator paralelo = new Simulator(4, SimonConfig.NUMERO_BOTONES, new AdaptivePolicy());
+        Simulator unHilo = new Simulator(1, SimonConfig.NUMERO_BOTONES, new AdaptivePolicy());
+        SimulationResult a = paralelo.run(bots, Simulator.DIFICULTADES, PARTIDAS, 8).getFilas().get(2).getResultado();
+        SimulationResult b = unHilo.run(bots, Simulator.DIFICULTADES, PARTIDAS, 8).getFilas().get(2).getResultado();
+        paralelo.shutdown();
+        unHilo.shutdown();
+
+        assertEquals(a.getVictorias(), b.getVictorias());
+        assertEquals(a.getPulsaciones(), b.getPulsaciones());
+        assertEquals(a.getDuracionPasoMedia(), b.getDuracionPasoMedia(), 0);
+    }
+
+    @Test
+    public void generador_esJusto() {
+        SimulationReport informe = simulator.run(new Bot[]{new PerfectBot(300)}, new int[]{SimonConfig.DIFICIL},
+                PARTIDAS, 5);
+
+        SimulationResult resultado = informe.getFilas().get(0).getResultado();
+        long total = 0;
+        for (int numero = 1; numero <= SimonConfig.NUMERO_BOTONES; numero++) {
+            total += resultado.getApariciones(numero);
+        }
+        assertEquals((long) PARTIDAS * SimonConfig.DIFICIL, total);
+        assertTrue("chi2 = " + resultado.getChiCuadrado(), resultado.getChiCuadrado() < 4);
+    }
+
+    @Test
+    public void informe_csvYJson() {
+        SimulationReport informe = simulator.run(new Bot[]{new PerfectBot(300), new NoisyBot(0.1, 450, 0.3)},
+                Simulator.DIFICULTADES, 1000, 6);
+
+        String[] lineas = informe.toCsv().split("\n");
+        assertEquals(7, lineas.length);
+        assertTrue(lineas[0].startsWith("bot,turnos,partidas,victorias,tasa_victorias"));
+        assertEquals(lineas[0].split(",").length, lineas[1].split(",").length);
+        assertTrue(lineas[1].startsWith("perfecto,6,1000,1000,1.00000,"));
+
+        String json = informe.toJson();
+        assertTrue(json.startsWith("{\"hilos\":4,\"botones\":6,\"filas\":[{\"bot\":\"perfecto\",\"turnos\":6,"));
+        assertTrue(json.contains("\"bot\":\"ruido-10.0%\",\"turnos\":12"));
+        assertTrue(json.endsWith("}}]}"));
+    }
+
+    private static int indice(int turnos) {
+        for (int i = 0; i < Simulator.DIFICULTADES.length; i++) {
+            if (Simulator.DIFICULTADES[i] == turnos)
+                return i;
+        }
+        throw new IllegalArgumentException(String.valueOf(turnos));
+    }
+}
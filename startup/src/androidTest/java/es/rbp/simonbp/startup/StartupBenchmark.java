@@ -0,0 +1,131 @@
+package es.rbp.simonbp.startup;
+
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Mide el arranque de Simón B.P. instalada en el dispositivo, desde fuera de su proceso.
+ * <p>
+ * El primer frame es el tiempo que da {@code am start -W} al abrir el menú con la app parada. La primera ronda es el
+ * tiempo desde que se pulsa "Fácil" hasta que la partida avisa con reportFullyDrawn() de que el jugador ya puede
+ * pulsar; se le restan la cuenta atrás y la primera nota, que son fijas, y queda lo que tarda la app.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+
+    private static final String TAG = "StartupBenchmark";
+
+    private static final String PAQUETE = "es.rbp.simonbp";
+
+    private static final String MENU = PAQUETE + "/.MainActivity";
+
+    private static final String PARTIDA = PAQUETE + "/.PlayActivity";
+
+    private static final int REPETICIONES = 10;
+
+    /**
+     * Tiempo fijo hasta la primera ronda jugable: la cuenta atrás de 3 pasos de 700 ms, el retraso de la primera
+     * nota y la duración de un paso en Fácil, en milisegundos
+     */
+    private static final int FIJO_PRIMERA_RONDA = 3 * 700 + 100 + 500;
+
+    /**
+     * Tiempo máximo que se espera a que la partida se pueda jugar, en milisegundos
+     */
+    private static final long ESPERA_PARTIDA = 10_000;
+
+    private static final Pattern TOTAL_TIME = Pattern.compile("TotalTime: (\\d+)");
+
+    /**
+     * Línea del ActivityManager cuando un activity llama a reportFullyDrawn(), por ejemplo "+3s120ms" o "+850ms"
+     */
+    private static final Pattern FULLY_DRAWN = Pattern.compile(
+            "Fully drawn " + Pattern.quote(PARTIDA) + ": \\+(?:(\\d+)s)?(\\d+)ms");
+
+    private UiDevice dispositivo;
+
+    @Before
+    public void setUp() {
+        dispositivo = UiDevice.getInstance(InstrumentationRegistry.getInstrumentation());
+    }
+
+    @Test
+    public void primerFrameDelMenu() throws IOException {
+        long[] tiempos = new long[REPETICIONES];
+        for (int i = 0; i < REPETICIONES; i++) {
+            dispositivo.executeShellCommand("am force-stop " + PAQUETE);
+            String salida = dispositivo.executeShellCommand("am start -W -n " + MENU);
+            Matcher total = TOTAL_TIME.matcher(salida);
+            assertTrue("am start no ha dado el tiempo: " + salida, total.find());
+            tiempos[i] = Long.parseLong(total.group(1));
+        }
+        informar("Primer frame del menú en frío", tiempos, "presupuestoPrimerFrame");
+    }
+
+    @Test
+    public void primeraRondaJugable() throws IOException {
+        long[] tiempos = new long[REPETICIONES];
+        for (int i = 0; i < REPETICIONES; i++) {
+            dispositivo.executeShellCommand("am force-stop " + PAQUETE);
+            dispositivo.executeShellCommand("am start -W -n " + MENU);
+            UiObject2 facil = dispositivo.wait(Until.findObject(By.text("Fácil")), ESPERA_PARTIDA);
+            assertNotNull("No aparece el botón Fácil", facil);
+            dispositivo.executeShellCommand("logcat -c");
+            facil.click();
+            tiempos[i] = esperarJugable() - FIJO_PRIMERA_RONDA;
+        }
+        informar("Primera ronda jugable, sin la cuenta atrás", tiempos, "presupuestoPrimeraRonda");
+    }
+
+    /**
+     * @return milisegundos desde que se abrió la partida hasta que se pudo jugar, según el ActivityManager.
+     */
+    private long esperarJugable() throws IOException {
+        long limite = System.currentTimeMillis() + ESPERA_PARTIDA;
+        while (System.currentTimeMillis() < limite) {
+            String log = dispositivo.executeShellCommand("logcat -d -s ActivityTaskManager:I ActivityManager:I");
+            Matcher jugable = FULLY_DRAWN.matcher(log);
+            if (jugable.find()) {
+                long segundos = jugable.group(1) == null ? 0 : Long.parseLong(jugable.group(1));
+                return segundos * 1000 + Long.parseLong(jugable.group(2));
+            }
+            dispositivo.waitForIdle(100);
+        }
+        throw new AssertionError("La partida no ha avisado de que se puede jugar");
+    }
+
+    /**
+     * Escribe la mediana, el mínimo y el máximo y, si se ha pasado un presupuesto en los argumentos del test,
+     * comprueba que la mediana no lo supera.
+     */
+    private void informar(String medida, long[] tiempos, String argumento) {
+        Arrays.sort(tiempos);
+        long mediana = tiempos[tiempos.length / 2];
+        Log.i(TAG, String.format(Locale.ROOT, "%s: mediana %d ms, mínimo %d ms, máximo %d ms, %d repeticiones",
+                medida, mediana, tiempos[0], tiempos[tiempos.length - 1], tiempos.length));
+        Bundle argumentos = InstrumentationRegistry.getArguments();
+        String presupuesto = argumentos.getString(argumento);
+        if (presupuesto != null)
+            assertTrue(String.format(Locale.ROOT, "%s: mediana de %d ms, presupuesto de %s ms", medida, mediana,
+                    presupuesto), mediana <= Long.parseLong(presupuesto));
+    }
+}